@@ -16,6 +16,7 @@ public class PairsTradingServiceValueBean {
     private double spreadStd = 0.0;
     private double correlation = 0.0;
     private boolean stationaryTest = false; // ADF 平穩性檢定結果
+    private double adfPValue = 1.0; // ADF 檢定的 MacKinnon p 值
 
     protected List<Double> spreadHistory = new ArrayList<>();
     protected List<Double> zScoreHistory = new ArrayList<>();
@@ -25,4 +26,28 @@ public class PairsTradingServiceValueBean {
     private String lastZScoreChart = "";
     private String lastSpreadChart = "";
     private String lastSignalReport = "";
+
+    /**
+     * 建立副本：歷史序列與原物件共用同一份資料，圖表與報告等暫存欄位各自獨立
+     */
+    public PairsTradingServiceValueBean copy() {
+        PairsTradingServiceValueBean copy = new PairsTradingServiceValueBean();
+        copy.lastZScore = lastZScore;
+        copy.alpha = alpha;
+        copy.normalizedCorrelation = normalizedCorrelation;
+        copy.beta = beta;
+        copy.spread = spread;
+        copy.spreadMean = spreadMean;
+        copy.spreadStd = spreadStd;
+        copy.correlation = correlation;
+        copy.stationaryTest = stationaryTest;
+        copy.adfPValue = adfPValue;
+        copy.spreadHistory = spreadHistory;
+        copy.zScoreHistory = zScoreHistory;
+        copy.timeHistory = timeHistory;
+        copy.lastZScoreChart = lastZScoreChart;
+        copy.lastSpreadChart = lastSpreadChart;
+        copy.lastSignalReport = lastSignalReport;
+        return copy;
+    }
 }
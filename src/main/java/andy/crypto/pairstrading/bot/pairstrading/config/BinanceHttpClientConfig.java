@@ -0,0 +1,107 @@
+package andy.crypto.pairstrading.bot.pairstrading.config;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.InstrumentedConnectionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * 幣安HTTP傳輸層配置
+ * 同步客戶端使用可配置的連線池（總數與每路由上限、閒置驗證與回收、TCP_NODELAY），
+ * 同步與非同步客戶端共用同一個 SSLContext，使 TLS session 可以在新連線上恢復，省去完整握手
+ */
+@Slf4j
+@Configuration
+public class BinanceHttpClientConfig {
+
+    @Value("${binance-http.max-connections:40}")
+    private int maxConnections;
+
+    @Value("${binance-http.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${binance-http.validate-after-inactivity-ms:2000}")
+    private long validateAfterInactivityMillis;
+
+    @Value("${binance-http.idle-evict-ms:30000}")
+    private long idleEvictMillis;
+
+    @Value("${binance-http.connection-ttl-ms:600000}")
+    private long connectionTtlMillis;
+
+    @Value("${binance-http.connection-request-timeout-ms:5000}")
+    private long connectionRequestTimeoutMillis;
+
+    @Value("${binance-http.tls-session-cache-size:100}")
+    private int tlsSessionCacheSize;
+
+    @Value("${binance-http.tls-session-timeout-seconds:86400}")
+    private int tlsSessionTimeoutSeconds;
+
+    /**
+     * 同步與非同步客戶端共用的 SSLContext（TLS session 快取以 SSLContext 為單位）
+     */
+    @Bean
+    public SSLContext binanceSslContext() {
+        SSLContext sslContext = SSLContexts.createSystemDefault();
+        sslContext.getClientSessionContext().setSessionCacheSize(tlsSessionCacheSize);
+        sslContext.getClientSessionContext().setSessionTimeout(tlsSessionTimeoutSeconds);
+        return sslContext;
+    }
+
+    @Bean(destroyMethod = "close")
+    public InstrumentedConnectionManager binanceConnectionManager(BinanceConfig binanceConfig, SSLContext binanceSslContext) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setTlsSocketStrategy(new DefaultClientTlsStrategy(binanceSslContext))
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                // 最近使用的連線優先重用，較少使用的連線可以閒置後被回收
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setTcpNoDelay(true)
+                        .setSoKeepAlive(true)
+                        .setSoTimeout(Timeout.ofMilliseconds(binanceConfig.getReadTimeout()))
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(binanceConfig.getConnectionTimeout()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(binanceConfig.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMillis))
+                        .setTimeToLive(TimeValue.ofMilliseconds(connectionTtlMillis))
+                        .build())
+                .build();
+        log.info("幣安HTTP連線池: 最大連線 {}, 每路由 {}, 閒置回收 {} ms", maxConnections, maxConnectionsPerRoute, idleEvictMillis);
+        return new InstrumentedConnectionManager(connectionManager);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient binanceHttpClient(BinanceConfig binanceConfig, InstrumentedConnectionManager binanceConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMillis))
+                .setResponseTimeout(Timeout.ofMilliseconds(binanceConfig.getReadTimeout()))
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(binanceConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictMillis))
+                .evictExpiredConnections()
+                .build();
+    }
+}
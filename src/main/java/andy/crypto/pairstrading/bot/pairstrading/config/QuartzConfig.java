@@ -1,7 +1,11 @@
 package andy.crypto.pairstrading.bot.pairstrading.config;
 
+import andy.crypto.pairstrading.bot.pairstrading.job.BinanceTimeSyncJob;
+import andy.crypto.pairstrading.bot.pairstrading.job.CandlePrefetchJob;
 import andy.crypto.pairstrading.bot.pairstrading.job.PairsTradingJob;
+import andy.crypto.pairstrading.bot.pairstrading.job.SymbolMetadataRefreshJob;
 import org.quartz.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -12,6 +16,25 @@ public class QuartzConfig {
     private static final String PAIRS_TRADING_TRIGGER = "pairsTradingTrigger";
     private static final String PAIRS_TRADING_GROUP = "pairsTradingGroup";
 
+    private static final String CANDLE_PREFETCH_JOB_IDENTITY = "candlePrefetchJob";
+    private static final String CANDLE_PREFETCH_TRIGGER = "candlePrefetchTrigger";
+    private static final String TIME_SYNC_JOB_IDENTITY = "binanceTimeSyncJob";
+    private static final String TIME_SYNC_TRIGGER = "binanceTimeSyncTrigger";
+    private static final String SYMBOL_METADATA_JOB_IDENTITY = "symbolMetadataRefreshJob";
+    private static final String SYMBOL_METADATA_TRIGGER = "symbolMetadataRefreshTrigger";
+
+    // K線預取排程，預設每分鐘第5秒（K線收盤後稍候，確保交易所已產生收盤數據）
+    @Value("${candle-prefetch.cron:5 * * * * ?}")
+    private String candlePrefetchCron;
+
+    // 伺服器時間同步排程，預設每5分鐘（避開整分鐘的K線預取與交易排程）
+    @Value("${binance-time-sync.cron:30 0/5 * * * ?}")
+    private String timeSyncCron;
+
+    // 交易對元數據刷新排程，預設每小時第10分15秒
+    @Value("${symbol-metadata.cron:15 10 * * * ?}")
+    private String symbolMetadataCron;
+
     @Bean
     public JobDetail pairsTradingJobDetail() {
         return JobBuilder.newJob(PairsTradingJob.class)
@@ -36,6 +59,70 @@ public class QuartzConfig {
                 .build();
     }
 
+    @Bean
+    public JobDetail candlePrefetchJobDetail() {
+        return JobBuilder.newJob(CandlePrefetchJob.class)
+                .withIdentity(CANDLE_PREFETCH_JOB_IDENTITY, PAIRS_TRADING_GROUP)
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger candlePrefetchJobTrigger() {
+        // 實際同步只在各間隔有新K線收盤時進行
+        CronScheduleBuilder scheduleBuilder = CronScheduleBuilder
+                .cronSchedule(candlePrefetchCron)
+                .withMisfireHandlingInstructionDoNothing();
+
+        return TriggerBuilder.newTrigger()
+                .forJob(candlePrefetchJobDetail())
+                .withIdentity(CANDLE_PREFETCH_TRIGGER, PAIRS_TRADING_GROUP)
+                .withSchedule(scheduleBuilder)
+                .build();
+    }
+
+    @Bean
+    public JobDetail binanceTimeSyncJobDetail() {
+        return JobBuilder.newJob(BinanceTimeSyncJob.class)
+                .withIdentity(TIME_SYNC_JOB_IDENTITY, PAIRS_TRADING_GROUP)
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger binanceTimeSyncJobTrigger() {
+        CronScheduleBuilder scheduleBuilder = CronScheduleBuilder
+                .cronSchedule(timeSyncCron)
+                .withMisfireHandlingInstructionDoNothing();
+
+        return TriggerBuilder.newTrigger()
+                .forJob(binanceTimeSyncJobDetail())
+                .withIdentity(TIME_SYNC_TRIGGER, PAIRS_TRADING_GROUP)
+                .withSchedule(scheduleBuilder)
+                .build();
+    }
+
+    @Bean
+    public JobDetail symbolMetadataRefreshJobDetail() {
+        return JobBuilder.newJob(SymbolMetadataRefreshJob.class)
+                .withIdentity(SYMBOL_METADATA_JOB_IDENTITY, PAIRS_TRADING_GROUP)
+                .storeDurably()
+                .build();
+    }
+
+    @Bean
+    public Trigger symbolMetadataRefreshJobTrigger() {
+        CronScheduleBuilder scheduleBuilder = CronScheduleBuilder
+                .cronSchedule(symbolMetadataCron)
+                .withMisfireHandlingInstructionDoNothing();
+
+        return TriggerBuilder.newTrigger()
+                .forJob(symbolMetadataRefreshJobDetail())
+                .withIdentity(SYMBOL_METADATA_TRIGGER, PAIRS_TRADING_GROUP)
+                .withSchedule(scheduleBuilder)
+                .build();
+    }
+
     /**
      * 如果需要基於Cron表達式的排程，可以使用以下方法
      */
@@ -2,7 +2,9 @@ package andy.crypto.pairstrading.bot.pairstrading.controller;
 
 import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
 import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
+import andy.crypto.pairstrading.bot.pairstrading.model.RollingHedgeSeries;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.MarketDataService;
 import andy.crypto.pairstrading.bot.pairstrading.service.PairsTradingService;
 import andy.crypto.pairstrading.bot.pairstrading.service.impl.PairsTradingServiceImpl;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
@@ -34,6 +36,9 @@ public class ChartApiController {
     @Autowired
     private TradingConfigService tradingConfigService;
     
+    @Autowired
+    private MarketDataService marketDataService;
+    
     // 預設值僅作為備用，實際使用資料庫中的值
     @Value("${trading.pair.asset1:BNBUSDT}")
     private String asset1Default;
@@ -92,6 +97,40 @@ public class ChartApiController {
         return data;
     }
     
+    /**
+     * 獲取滾動估計的Z分數與對沖比率
+     * 每個點只使用該點之前一個窗口的K線估計，歷史Z分數不含之後的數據
+     * 
+     * @param asset1 第一個資產的代碼，可選參數
+     * @param asset2 第二個資產的代碼，可選參數
+     * @return 包含時間、Z分數、價差與對沖比率序列的Map
+     */
+    @GetMapping("/rolling-z-score")
+    public Map<String, Object> getRollingZScoreData(
+            @RequestParam(required = false) String asset1,
+            @RequestParam(required = false) String asset2) {
+        Map<String, Object> data = new HashMap<>();
+        try {
+            RollingHedgeSeries series = marketDataService.getRollingHedgeSeries(asset1, asset2);
+            if (series == null) {
+                data.put("status", "error");
+                data.put("message", "歷史數據不足，無法計算滾動Z分數");
+                return data;
+            }
+            data.put("times", series.toCloseTimeList());
+            data.put("zScores", series.toZScoreList());
+            data.put("spreads", series.toSpreadList());
+            data.put("betas", series.toBetaList());
+            data.put("windowSize", series.getWindowSize());
+            data.put("status", "success");
+        } catch (Exception e) {
+            log.error("獲取滾動Z分數數據失敗", e);
+            data.put("status", "error");
+            data.put("message", "獲取數據失敗: " + e.getMessage());
+        }
+        return data;
+    }
+    
     /**
      * 直接從PairsTradingService獲取原始Z分數數據並轉為JSON
      * 不再依賴ASCII圖表的解析
@@ -137,8 +176,10 @@ public class ChartApiController {
             
             // 獲取ADF平穩性檢定結果
             boolean stationaryTest = false;
+            double adfPValue = 1.0;
             try {
                 stationaryTest = pairsTradingServiceValueBean.isStationaryTest();
+                adfPValue = pairsTradingServiceValueBean.getAdfPValue();
             } catch (Exception e) {
                 log.warn("無法獲取平穩性檢定結果，使用默認值");
             }
@@ -166,6 +207,7 @@ public class ChartApiController {
             chartData.put("exitThreshold", exitThreshold);
             chartData.put("latestZScore", latestZScore);
             chartData.put("stationaryTest", stationaryTest);
+            chartData.put("adfPValue", adfPValue);
             chartData.put("labels", labels);
             
             // 使用傳入的資產參數或從資料庫獲取最新的資產設定
@@ -304,8 +346,10 @@ public class ChartApiController {
             
             // 獲取ADF平穩性檢定結果
             boolean stationaryTest = false;
+            double adfPValue = 1.0;
             try {
                 stationaryTest = pairsTradingServiceValueBean.isStationaryTest();
+                adfPValue = pairsTradingServiceValueBean.getAdfPValue();
             } catch (Exception e) {
                 log.warn("無法獲取平穩性檢定結果，使用默認值");
             }
@@ -354,6 +398,7 @@ public class ChartApiController {
             chartData.put("spreadStd", spreadStd);
             chartData.put("latestSpread", latestSpread);
             chartData.put("stationaryTest", stationaryTest);
+            chartData.put("adfPValue", adfPValue);
             chartData.put("labels", labels);
             chartData.put("asset1", currentAsset1);
             chartData.put("asset2", currentAsset2);
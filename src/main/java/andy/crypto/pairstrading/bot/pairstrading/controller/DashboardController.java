@@ -4,6 +4,7 @@ import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
 import andy.crypto.pairstrading.bot.pairstrading.service.LogService;
 import andy.crypto.pairstrading.bot.pairstrading.service.PairsTradingService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
 import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +36,9 @@ public class DashboardController {
     
     @Autowired
     private BinanceApiService binanceApiService;
+
+    @Autowired
+    private PositionCacheService positionCacheService;
     
     @Autowired
     private LogService logService;
@@ -116,24 +120,15 @@ public class DashboardController {
             }
             model.addAttribute("apiKey", apiKey);
             
-            // 獲取資產最新價格
-            try {
-                BigDecimal asset1Price = binanceApiService.getLatestPrice(asset1);
-                BigDecimal asset2Price = binanceApiService.getLatestPrice(asset2);
-                model.addAttribute("asset1Price", asset1Price);
-                model.addAttribute("asset2Price", asset2Price);
-            } catch (Exception e) {
-                log.warn("獲取最新價格失敗：{}", e.getMessage());
-                // 如果API未配置或API調用失敗，顯示預設值
-                model.addAttribute("asset1Price", BigDecimal.ZERO);
-                model.addAttribute("asset2Price", BigDecimal.ZERO);
-            }
+            // 獲取資產最新價格，取不到時顯示空值而不是 0
+            model.addAttribute("asset1Price", getLatestPriceOrNull(asset1));
+            model.addAttribute("asset2Price", getLatestPriceOrNull(asset2));
             
             // 獲取持倉信息
             List<PositionInfo> positions = new java.util.ArrayList<>();
             try {
                 if (apiKey != null && !apiKey.isEmpty()) {
-                    positions = binanceApiService.getPositionInfo(null);
+                    positions = positionCacheService.getPositionInfo(null);
                 }
             } catch (Exception e) {
                 log.warn("獲取持倉信息失敗：{}", e.getMessage());
@@ -226,17 +221,8 @@ public class DashboardController {
             model.addAttribute("asset2", asset2);
             
             // 獲取當前交易對的最新價格，用於顯示在頁面上
-            try {
-                BigDecimal asset1Price = binanceApiService.getLatestPrice(asset1);
-                BigDecimal asset2Price = binanceApiService.getLatestPrice(asset2);
-                model.addAttribute("asset1Price", asset1Price);
-                model.addAttribute("asset2Price", asset2Price);
-            } catch (Exception e) {
-                log.warn("無法獲取最新價格: " + e.getMessage());
-                // 如果獲取價格失敗，使用空值
-                model.addAttribute("asset1Price", null);
-                model.addAttribute("asset2Price", null);
-            }
+            model.addAttribute("asset1Price", getLatestPriceOrNull(asset1));
+            model.addAttribute("asset2Price", getLatestPriceOrNull(asset2));
             
             return "dashboard/position-history";
         } catch (Exception e) {
@@ -246,4 +232,17 @@ public class DashboardController {
             return "dashboard/position-history";
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 獲取最新價格，失敗時返回 null
+     * 優先使用全市場價格快照，快照失敗或缺少該交易對時改為單獨查詢
+     */
+    private BigDecimal getLatestPriceOrNull(String symbol) {
+        try {
+            return binanceApiService.getLatestPrice(symbol);
+        } catch (Exception e) {
+            log.warn("獲取最新價格失敗：{} {}", symbol, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -4,7 +4,9 @@ import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
 import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandleStoreService;
 import andy.crypto.pairstrading.bot.pairstrading.service.PairsTradingService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +31,12 @@ public class JobController {
     
     @Autowired
     private BinanceApiService binanceApiService;
+
+    @Autowired
+    private PositionCacheService positionCacheService;
+    
+    @Autowired
+    private CandleStoreService candleStoreService;
     
     @Value("${trading.pair.asset1:BNBUSDT}")
     private String asset1;
@@ -96,13 +104,10 @@ public class JobController {
             Map<String, BigDecimal> balances = binanceApiService.getAccountBalance();
             result.put("balances", balances);
             
-            // 獲取配對資產最新價格
-            BigDecimal asset1Price = binanceApiService.getLatestPrice(asset1);
-            BigDecimal asset2Price = binanceApiService.getLatestPrice(asset2);
-            
+            // 獲取配對資產最新價格（共用全市場價格快照）
             Map<String, BigDecimal> prices = new HashMap<>();
-            prices.put(asset1, asset1Price);
-            prices.put(asset2, asset2Price);
+            prices.put(asset1, binanceApiService.getLatestPrice(asset1));
+            prices.put(asset2, binanceApiService.getLatestPrice(asset2));
             result.put("prices", prices);
             
             result.put("status", "success");
@@ -126,7 +131,8 @@ public class JobController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            List<CandlestickData> klines = binanceApiService.getCandlestickData(symbol, interval, limit);
+            // 從本地K線儲存讀取，只增量獲取最後一根已儲存K線之後的數據
+            List<CandlestickData> klines = candleStoreService.getCandlestickData(symbol, interval, limit);
             result.put("klines", klines);
             result.put("status", "success");
         } catch (Exception e) {
@@ -146,7 +152,7 @@ public class JobController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            List<PositionInfo> positions = binanceApiService.getPositionInfo(symbol);
+            List<PositionInfo> positions = positionCacheService.getPositionInfo(symbol);
             result.put("positions", positions);
             result.put("status", "success");
         } catch (Exception e) {
@@ -2,6 +2,7 @@ package andy.crypto.pairstrading.bot.pairstrading.controller;
 
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +23,9 @@ public class MarketDataController {
 
     @Autowired
     private BinanceApiService binanceApiService;
+
+    @Autowired
+    private PositionCacheService positionCacheService;
     
     @Value("${trading.pair.asset1:BNBUSDT}")
     private String asset1;
@@ -37,9 +41,9 @@ public class MarketDataController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            // 嘗試獲取價格
-            BigDecimal asset1Price = binanceApiService.getLatestPrice(asset1);
-            BigDecimal asset2Price = binanceApiService.getLatestPrice(asset2);
+            // 嘗試獲取價格（共用全市場價格快照，快照失敗時單獨查詢）
+            BigDecimal asset1Price = binanceApiService.getLatestPrice(asset1.trim());
+            BigDecimal asset2Price = binanceApiService.getLatestPrice(asset2.trim());
             
             Map<String, Object> prices = new HashMap<>();
             
@@ -70,7 +74,7 @@ public class MarketDataController {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            List<PositionInfo> positions = binanceApiService.getPositionInfo(null);
+            List<PositionInfo> positions = positionCacheService.getPositionInfo(null);
             result.put("positions", positions);
             result.put("status", "success");
         } catch (Exception e) {
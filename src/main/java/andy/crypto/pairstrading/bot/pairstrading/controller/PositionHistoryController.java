@@ -5,6 +5,7 @@ import andy.crypto.pairstrading.bot.pairstrading.model.PositionHistory;
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
 import andy.crypto.pairstrading.bot.pairstrading.service.PairsTradingService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
 import andy.crypto.pairstrading.bot.pairstrading.service.PositionHistoryService;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -36,6 +37,9 @@ public class PositionHistoryController {
     @Autowired
     private BinanceApiService binanceApiService;
 
+    @Autowired
+    private PositionCacheService positionCacheService;
+
     @Autowired
     private TradingConfigService tradingConfigService;
 
@@ -178,7 +182,7 @@ public class PositionHistoryController {
             }
 
             // 檢查是否有倉位
-            List<PositionInfo> positions = binanceApiService.getPositionInfo(null);
+            List<PositionInfo> positions = positionCacheService.getPositionInfo(null);
             String finalAsset1Symbol = asset1Symbol;
             String finalAsset2Symbol = asset2Symbol;
             boolean hasPositions = positions.stream()
@@ -225,7 +229,7 @@ public class PositionHistoryController {
             }
 
             // 檢查是否有倉位
-            List<PositionInfo> positions = binanceApiService.getPositionInfo(null);
+            List<PositionInfo> positions = positionCacheService.getPositionInfo(null);
 
             if (positions.isEmpty()) {
                 result.put("status", "info");
@@ -0,0 +1,64 @@
+package andy.crypto.pairstrading.bot.pairstrading.controller;
+
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceRateLimiterService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.KlineStreamService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.ResilientBinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.util.InstrumentedConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 系統指標 API 控制器
+ */
+@RestController
+@RequestMapping("/api/system")
+public class SystemMetricsController {
+
+    @Autowired
+    private BinanceRateLimiterService binanceRateLimiterService;
+
+    @Autowired
+    private InstrumentedConnectionManager binanceConnectionManager;
+
+    @Autowired
+    private BinanceTimeSyncService binanceTimeSyncService;
+
+    @Autowired
+    private PositionCacheService positionCacheService;
+
+    @Autowired
+    private KlineStreamService klineStreamService;
+
+    @Autowired
+    private ResilientBinanceApiService resilientBinanceApiService;
+
+    /**
+     * 獲取幣安API相關指標
+     */
+    @GetMapping("/binance-metrics")
+    public Map<String, Object> getBinanceMetrics() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            result.put("rateLimit", binanceRateLimiterService.getMetrics());
+            result.put("httpPool", binanceConnectionManager.getMetrics());
+            result.put("timeSync", binanceTimeSyncService.getMetrics());
+            result.put("userDataStreamActive", positionCacheService.isStreamActive());
+            result.put("klineStream", klineStreamService.getMetrics());
+            result.put("resilience", resilientBinanceApiService.getMetrics());
+            result.put("status", "success");
+        } catch (Exception e) {
+            result.put("status", "error");
+            result.put("message", "獲取幣安API指標失敗: " + e.getMessage());
+        }
+
+        return result;
+    }
+}
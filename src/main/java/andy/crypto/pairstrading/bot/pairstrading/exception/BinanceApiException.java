@@ -5,11 +5,25 @@ package andy.crypto.pairstrading.bot.pairstrading.exception;
  */
 public class BinanceApiException extends RuntimeException {
 
+    // HTTP 狀態碼，0 表示不是交易所回應的錯誤（例如連線失敗或參數檢查）
+    private final int statusCode;
+
     public BinanceApiException(String message) {
         super(message);
+        this.statusCode = 0;
     }
 
     public BinanceApiException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public BinanceApiException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
     }
 }
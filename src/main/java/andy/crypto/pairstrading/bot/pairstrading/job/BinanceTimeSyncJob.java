@@ -0,0 +1,32 @@
+package andy.crypto.pairstrading.bot.pairstrading.job;
+
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * 伺服器時間同步排程任務
+ * 定期更新本地時鐘偏移估計，簽名請求的時間戳不因時鐘漂移而被拒絕
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class BinanceTimeSyncJob extends QuartzJobBean {
+
+    @Autowired
+    private BinanceTimeSyncService binanceTimeSyncService;
+
+    @Override
+    public void executeInternal(JobExecutionContext context) {
+        try {
+            binanceTimeSyncService.synchronize();
+        } catch (Exception e) {
+            // 同步失敗時沿用上次的偏移估計，下次執行時重試
+            log.error("執行伺服器時間同步排程時發生錯誤", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package andy.crypto.pairstrading.bot.pairstrading.job;
+
+import andy.crypto.pairstrading.bot.pairstrading.service.CandlePrefetchService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * K線預取排程任務
+ * 在K線收盤後為已儲存的交易對組合補齊本地K線
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class CandlePrefetchJob extends QuartzJobBean {
+
+    @Autowired
+    private CandlePrefetchService candlePrefetchService;
+
+    @Override
+    public void executeInternal(JobExecutionContext context) {
+        try {
+            int count = candlePrefetchService.prefetchSavedCombinations();
+            if (count > 0) {
+                log.debug("K線預取排程完成，同步 {} 組 (交易對, 間隔)", count);
+            }
+        } catch (Exception e) {
+            // 預取失敗不影響其他排程，下次執行時重試
+            log.error("執行K線預取排程時發生錯誤", e);
+        }
+    }
+}
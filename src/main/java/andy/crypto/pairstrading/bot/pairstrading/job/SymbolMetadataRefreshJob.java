@@ -0,0 +1,32 @@
+package andy.crypto.pairstrading.bot.pairstrading.job;
+
+import andy.crypto.pairstrading.bot.pairstrading.service.SymbolMetadataService;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * 交易對元數據刷新排程任務
+ * 定期重新下載 exchangeInfo 並重建索引
+ */
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class SymbolMetadataRefreshJob extends QuartzJobBean {
+
+    @Autowired
+    private SymbolMetadataService symbolMetadataService;
+
+    @Override
+    public void executeInternal(JobExecutionContext context) {
+        try {
+            symbolMetadataService.refresh();
+        } catch (Exception e) {
+            // 刷新失敗時保留舊的索引繼續提供查詢，下次執行時重試
+            log.warn("定期刷新交易對元數據失敗，繼續使用上次的數據: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package andy.crypto.pairstrading.bot.pairstrading.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+/**
+ * 批量下單中的單筆訂單
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderRequest {
+
+    private String symbol; // 交易對符號
+    private String side; // 訂單方向 (BUY, SELL)
+    private String positionSide; // 倉位方向 (LONG, SHORT, BOTH)
+    private String type; // 訂單類型 (MARKET, LIMIT)
+    private BigDecimal quantity; // 數量
+    private BigDecimal price; // 價格，市價單為 null
+}
@@ -0,0 +1,28 @@
+package andy.crypto.pairstrading.bot.pairstrading.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量下單中單筆訂單的結果，成功時包含訂單回應，失敗時包含幣安錯誤碼與訊息
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderResult {
+
+    private BatchOrderRequest request; // 對應的訂單請求
+    private OrderResponse order; // 訂單回應，失敗時為 null
+    private Integer errorCode; // 幣安錯誤碼，成功時為 null
+    private String errorMessage; // 錯誤訊息
+
+    /**
+     * 該筆訂單是否已被接受
+     */
+    public boolean isSuccess() {
+        return order != null && errorCode == null;
+    }
+}
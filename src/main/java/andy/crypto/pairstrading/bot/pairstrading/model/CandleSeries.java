@@ -0,0 +1,309 @@
+package andy.crypto.pairstrading.bot.pairstrading.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 以欄位陣列（structure-of-arrays）保存的K線序列
+ * 時間使用 long[]，價格與成交量使用 double[]，
+ * 需要 BigDecimal 時才透過 {@link #toCandlestickData(int)} 延遲轉換。
+ * double 不保留原始字串的小數位數，由幣安回應解碼的序列另外記錄各欄位的小數位數，轉換時補回尾端的 0；
+ * 其他來源（本地檔案、重採樣、數據流）建立的序列沒有此資訊，轉換結果為最短的十進位表示（例如 "12345.6700" 變為 12345.67）。
+ * {@link #window(int, int)} 與 {@link #last(int)} 返回共用底層陣列的唯讀視圖，不複製數據
+ */
+public class CandleSeries {
+
+    // 小數欄位數量：open, high, low, close, volume, quoteAssetVolume, takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume
+    public static final int DECIMAL_COLUMNS = 8;
+
+    private long[] openTime;
+    private long[] closeTime;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private double[] quoteAssetVolume;
+    private int[] numberOfTrades;
+    private double[] takerBuyBaseAssetVolume;
+    private double[] takerBuyQuoteAssetVolume;
+    private int[] decimalScales;  // 各小數欄位的原始小數位數（依 DECIMAL_COLUMNS 順序），null 表示未知
+    private int offset;  // 視圖在底層陣列中的起始位置
+    private int size;
+    private boolean view;  // 是否為唯讀視圖
+
+    public CandleSeries(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        openTime = new long[capacity];
+        closeTime = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new double[capacity];
+        quoteAssetVolume = new double[capacity];
+        numberOfTrades = new int[capacity];
+        takerBuyBaseAssetVolume = new double[capacity];
+        takerBuyQuoteAssetVolume = new double[capacity];
+    }
+
+    /**
+     * 視圖建構子，共用來源序列的底層陣列
+     */
+    private CandleSeries(CandleSeries source, int offset, int size) {
+        this.openTime = source.openTime;
+        this.closeTime = source.closeTime;
+        this.open = source.open;
+        this.high = source.high;
+        this.low = source.low;
+        this.close = source.close;
+        this.volume = source.volume;
+        this.quoteAssetVolume = source.quoteAssetVolume;
+        this.numberOfTrades = source.numberOfTrades;
+        this.takerBuyBaseAssetVolume = source.takerBuyBaseAssetVolume;
+        this.takerBuyQuoteAssetVolume = source.takerBuyQuoteAssetVolume;
+        this.decimalScales = source.decimalScales;
+        this.offset = offset;
+        this.size = size;
+        this.view = true;
+    }
+
+    /**
+     * 從 {@link CandlestickData} 列表批量轉換
+     *
+     * @param data K線數據列表
+     * @return K線序列
+     */
+    public static CandleSeries fromCandlestickData(List<CandlestickData> data) {
+        CandleSeries series = new CandleSeries(data.size());
+        for (CandlestickData candle : data) {
+            series.add(candle.getOpenTime(),
+                    toDouble(candle.getOpen()),
+                    toDouble(candle.getHigh()),
+                    toDouble(candle.getLow()),
+                    toDouble(candle.getClose()),
+                    toDouble(candle.getVolume()),
+                    candle.getCloseTime(),
+                    toDouble(candle.getQuoteAssetVolume()),
+                    candle.getNumberOfTrades() != null ? candle.getNumberOfTrades() : 0,
+                    toDouble(candle.getTakerBuyBaseAssetVolume()),
+                    toDouble(candle.getTakerBuyQuoteAssetVolume()));
+        }
+        return series;
+    }
+
+    /**
+     * 追加一根K線（視圖不可追加）
+     */
+    public void add(long openTime, double open, double high, double low, double close, double volume,
+                    long closeTime, double quoteAssetVolume, int numberOfTrades,
+                    double takerBuyBaseAssetVolume, double takerBuyQuoteAssetVolume) {
+        if (view) {
+            throw new UnsupportedOperationException("K線序列視圖為唯讀");
+        }
+        ensureCapacity(size + 1);
+        this.openTime[size] = openTime;
+        this.open[size] = open;
+        this.high[size] = high;
+        this.low[size] = low;
+        this.close[size] = close;
+        this.volume[size] = volume;
+        this.closeTime[size] = closeTime;
+        this.quoteAssetVolume[size] = quoteAssetVolume;
+        this.numberOfTrades[size] = numberOfTrades;
+        this.takerBuyBaseAssetVolume[size] = takerBuyBaseAssetVolume;
+        this.takerBuyQuoteAssetVolume[size] = takerBuyQuoteAssetVolume;
+        size++;
+    }
+
+    /**
+     * 追加另一個序列中指定位置的K線
+     */
+    public void addFrom(CandleSeries source, int index) {
+        int i = source.checkIndex(index);
+        add(source.openTime[i], source.open[i], source.high[i], source.low[i], source.close[i], source.volume[i],
+                source.closeTime[i], source.quoteAssetVolume[i], source.numberOfTrades[i],
+                source.takerBuyBaseAssetVolume[i], source.takerBuyQuoteAssetVolume[i]);
+    }
+
+    /**
+     * 設定各小數欄位的原始小數位數，{@link #toCandlestickData(int)} 轉換時補足到此位數
+     *
+     * @param scales 長度為 {@link #DECIMAL_COLUMNS} 的陣列，負值表示該欄位未知
+     */
+    public void setDecimalScales(int[] scales) {
+        if (scales != null && scales.length != DECIMAL_COLUMNS) {
+            throw new IllegalArgumentException("小數位數陣列長度必須為 " + DECIMAL_COLUMNS);
+        }
+        this.decimalScales = scales != null ? scales.clone() : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 返回 [fromIndex, toIndex) 範圍的唯讀視圖，不複製數據
+     * 視圖建立後來源序列追加的K線不會反映在視圖中
+     *
+     * @param fromIndex 起始索引（包含）
+     * @param toIndex 結束索引（不包含）
+     * @return K線序列視圖
+     */
+    public CandleSeries window(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("視圖範圍無效: [" + fromIndex + ", " + toIndex + "), 長度: " + size);
+        }
+        return new CandleSeries(this, offset + fromIndex, toIndex - fromIndex);
+    }
+
+    /**
+     * 返回最後 count 根K線的唯讀視圖（不足時返回全部）
+     */
+    public CandleSeries last(int count) {
+        int n = Math.min(Math.max(count, 0), size);
+        return window(size - n, size);
+    }
+
+    public long getOpenTime(int index) {
+        return openTime[checkIndex(index)];
+    }
+
+    public long getCloseTime(int index) {
+        return closeTime[checkIndex(index)];
+    }
+
+    public double getOpen(int index) {
+        return open[checkIndex(index)];
+    }
+
+    public double getHigh(int index) {
+        return high[checkIndex(index)];
+    }
+
+    public double getLow(int index) {
+        return low[checkIndex(index)];
+    }
+
+    public double getClose(int index) {
+        return close[checkIndex(index)];
+    }
+
+    public double getVolume(int index) {
+        return volume[checkIndex(index)];
+    }
+
+    public double getQuoteAssetVolume(int index) {
+        return quoteAssetVolume[checkIndex(index)];
+    }
+
+    public int getNumberOfTrades(int index) {
+        return numberOfTrades[checkIndex(index)];
+    }
+
+    public double getTakerBuyBaseAssetVolume(int index) {
+        return takerBuyBaseAssetVolume[checkIndex(index)];
+    }
+
+    public double getTakerBuyQuoteAssetVolume(int index) {
+        return takerBuyQuoteAssetVolume[checkIndex(index)];
+    }
+
+    /**
+     * 最後一根K線的收盤價
+     */
+    public double getLastClose() {
+        return getClose(size - 1);
+    }
+
+    /**
+     * 複製收盤價序列
+     */
+    public double[] copyCloses() {
+        return Arrays.copyOfRange(close, offset, offset + size);
+    }
+
+    /**
+     * 複製收盤時間序列
+     */
+    public long[] copyCloseTimes() {
+        return Arrays.copyOfRange(closeTime, offset, offset + size);
+    }
+
+    /**
+     * 將指定位置的K線轉換為 BigDecimal 形式的 {@link CandlestickData}
+     */
+    public CandlestickData toCandlestickData(int index) {
+        int i = checkIndex(index);
+        return CandlestickData.builder()
+                .openTime(openTime[i])
+                .open(toDecimal(open[i], 0))
+                .high(toDecimal(high[i], 1))
+                .low(toDecimal(low[i], 2))
+                .close(toDecimal(close[i], 3))
+                .volume(toDecimal(volume[i], 4))
+                .closeTime(closeTime[i])
+                .quoteAssetVolume(toDecimal(quoteAssetVolume[i], 5))
+                .numberOfTrades(numberOfTrades[i])
+                .takerBuyBaseAssetVolume(toDecimal(takerBuyBaseAssetVolume[i], 6))
+                .takerBuyQuoteAssetVolume(toDecimal(takerBuyQuoteAssetVolume[i], 7))
+                .build();
+    }
+
+    /**
+     * 將整個序列轉換為 {@link CandlestickData} 列表
+     */
+    public List<CandlestickData> toCandlestickDataList() {
+        List<CandlestickData> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(toCandlestickData(i));
+        }
+        return result;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("索引超出範圍: " + index + ", 長度: " + size);
+        }
+        return offset + index;
+    }
+
+    /**
+     * 以最短的十進位表示轉換，已知原始小數位數時補回尾端的 0（只增加位數，不捨入）
+     */
+    private BigDecimal toDecimal(double value, int column) {
+        BigDecimal decimal = BigDecimal.valueOf(value);
+        if (decimalScales != null && decimalScales[column] > decimal.scale()) {
+            decimal = decimal.setScale(decimalScales[column]);
+        }
+        return decimal;
+    }
+
+    private static double toDouble(BigDecimal value) {
+        return value != null ? value.doubleValue() : 0.0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= openTime.length) {
+            return;
+        }
+        int capacity = Math.max(required, openTime.length * 2);
+        openTime = Arrays.copyOf(openTime, capacity);
+        closeTime = Arrays.copyOf(closeTime, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        quoteAssetVolume = Arrays.copyOf(quoteAssetVolume, capacity);
+        numberOfTrades = Arrays.copyOf(numberOfTrades, capacity);
+        takerBuyBaseAssetVolume = Arrays.copyOf(takerBuyBaseAssetVolume, capacity);
+        takerBuyQuoteAssetVolume = Arrays.copyOf(takerBuyQuoteAssetVolume, capacity);
+    }
+}
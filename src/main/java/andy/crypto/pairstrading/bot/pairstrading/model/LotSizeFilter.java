@@ -0,0 +1,30 @@
+package andy.crypto.pairstrading.bot.pairstrading.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+/**
+ * 交易對數量過濾器 (LOT_SIZE)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LotSizeFilter {
+    
+    private BigDecimal minQty; // 最小數量
+    private BigDecimal maxQty; // 最大數量
+    private BigDecimal stepSize; // 數量步長
+    
+    @Override
+    public String toString() {
+        return "LotSizeFilter{" +
+                "minQty=" + minQty +
+                ", maxQty=" + maxQty +
+                ", stepSize=" + stepSize +
+                '}';
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 /**
  * 倉位信息模型
@@ -86,4 +87,33 @@ public class PositionInfo {
                 .updateTime(System.currentTimeMillis())
                 .build();
     }
+
+    /**
+     * 計算未實現盈虧佔初始保證金的百分比
+     *
+     * @return 格式化的百分比，例如 "12.34%"
+     */
+    public static String calculateUnrealizedProfitPercentage(BigDecimal unrealizedProfit, BigDecimal markPrice,
+                                                             BigDecimal positionAmt, BigDecimal leverage) {
+        // Avoid division by zero
+        if (markPrice.compareTo(BigDecimal.ZERO) == 0 || leverage.compareTo(BigDecimal.ZERO) == 0
+                || positionAmt.compareTo(BigDecimal.ZERO) == 0) {
+            return "0.00%";
+        }
+
+        // Calculate Notional Value
+        BigDecimal notionalValue = markPrice.multiply(positionAmt.abs());
+
+        // Calculate Initial Margin
+        BigDecimal initialMargin = notionalValue.divide(leverage, 4, RoundingMode.HALF_UP);
+        if (initialMargin.compareTo(BigDecimal.ZERO) == 0) {
+            return "0.00%";
+        }
+
+        // Calculate the Profit Rate
+        BigDecimal profitRate = unrealizedProfit.divide(initialMargin, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+
+        // Format to 2 decimal places with % symbol
+        return String.format("%.2f%%", profitRate);
+    }
 }
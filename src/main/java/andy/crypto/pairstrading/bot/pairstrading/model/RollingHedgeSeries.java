@@ -0,0 +1,128 @@
+package andy.crypto.pairstrading.bot.pairstrading.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 逐點滾動估計的對沖比率與價差序列
+ * 第 t 點的 alpha、beta、價差平均與標準差只使用 t（含）之前 windowSize 根K線估計，
+ * 價差與Z分數是第 t 點相對該次估計的值，歷史點不會用到之後的數據；
+ * 卡爾曼濾波的序列以起點之前的 windowSize 根K線初始化，之後逐根更新
+ */
+public class RollingHedgeSeries {
+
+    private final int windowSize;
+    private final long[] closeTime;
+    private final double[] alpha;
+    private final double[] beta;
+    private final double[] spread;
+    private final double[] spreadMean;
+    private final double[] spreadStd;
+    private final double[] zScore;
+
+    /**
+     * @param windowSize 每次估計使用的K線數（卡爾曼濾波為初始化使用的K線數）
+     * @param size 點數
+     */
+    public RollingHedgeSeries(int windowSize, int size) {
+        this.windowSize = windowSize;
+        this.closeTime = new long[size];
+        this.alpha = new double[size];
+        this.beta = new double[size];
+        this.spread = new double[size];
+        this.spreadMean = new double[size];
+        this.spreadStd = new double[size];
+        this.zScore = new double[size];
+    }
+
+    /**
+     * 設定第 index 點的估計結果，Z分數由價差、平均與標準差求得（標準差為0時為0）
+     */
+    public void set(int index, long closeTime, double alpha, double beta, double spread, double spreadMean, double spreadStd) {
+        this.closeTime[index] = closeTime;
+        this.alpha[index] = alpha;
+        this.beta[index] = beta;
+        this.spread[index] = spread;
+        this.spreadMean[index] = spreadMean;
+        this.spreadStd[index] = spreadStd;
+        this.zScore[index] = spreadStd > 0 ? (spread - spreadMean) / spreadStd : 0.0;
+    }
+
+    /**
+     * 設定第 index 點無法估計（窗口的正交迴歸直線接近垂直），所有估計值與Z分數為 NaN，
+     * 與任何閾值比較皆不成立，回測時該點不會觸發進出場
+     */
+    public void setUndefined(int index, long closeTime) {
+        this.closeTime[index] = closeTime;
+        this.alpha[index] = Double.NaN;
+        this.beta[index] = Double.NaN;
+        this.spread[index] = Double.NaN;
+        this.spreadMean[index] = Double.NaN;
+        this.spreadStd[index] = Double.NaN;
+        this.zScore[index] = Double.NaN;
+    }
+
+    public int size() {
+        return zScore.length;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public long getCloseTime(int index) {
+        return closeTime[index];
+    }
+
+    public double getAlpha(int index) {
+        return alpha[index];
+    }
+
+    public double getBeta(int index) {
+        return beta[index];
+    }
+
+    public double getSpread(int index) {
+        return spread[index];
+    }
+
+    public double getSpreadMean(int index) {
+        return spreadMean[index];
+    }
+
+    public double getSpreadStd(int index) {
+        return spreadStd[index];
+    }
+
+    public double getZScore(int index) {
+        return zScore[index];
+    }
+
+    public List<Double> toZScoreList() {
+        return toList(zScore);
+    }
+
+    public List<Double> toSpreadList() {
+        return toList(spread);
+    }
+
+    public List<Double> toBetaList() {
+        return toList(beta);
+    }
+
+    public List<Long> toCloseTimeList() {
+        List<Long> list = new ArrayList<>(closeTime.length);
+        for (long time : closeTime) {
+            list.add(time);
+        }
+        return list;
+    }
+
+    private static List<Double> toList(double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
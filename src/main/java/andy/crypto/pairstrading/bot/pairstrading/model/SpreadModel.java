@@ -0,0 +1,9 @@
+package andy.crypto.pairstrading.bot.pairstrading.model;
+
+/**
+ * 價差（對沖比率）估計模型
+ */
+public enum SpreadModel {
+    TLS,     // 窗口內的正交迴歸，窗口內固定的 α、β
+    KALMAN   // 卡爾曼濾波逐根更新的 α、β
+}
@@ -31,6 +31,7 @@ public class SymbolInfo {
     private BigDecimal maintMarginPercent; // 維持保證金比例
     private BigDecimal requiredMarginPercent; // 所需保證金比例
     private PriceFilter priceFilter; // 價格過濾器
+    private LotSizeFilter lotSizeFilter; // 數量過濾器
     private BigDecimal minNotional; // 最小名義價值
     
     @Override
@@ -45,6 +46,7 @@ public class SymbolInfo {
                 ", pricePrecision=" + pricePrecision +
                 ", quantityPrecision=" + quantityPrecision +
                 ", priceFilter=" + priceFilter +
+                ", lotSizeFilter=" + lotSizeFilter +
                 ", minNotional=" + minNotional +
                 '}';
     }
@@ -1,5 +1,6 @@
 package andy.crypto.pairstrading.bot.pairstrading.service;
 
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.model.PairsTradingResult;
 import java.util.List;
 import java.util.Map;
@@ -48,4 +49,10 @@ public interface BackTestingService {
      * 計算回測歷史數據中的成功套利次數
      */
     int countSuccessfulTradesInBackTest(List<Double> zScoreHistory, double entryThreshold, double exitThreshold);
+    
+    /**
+     * 計算回測歷史數據中的爆倉次數（欄位陣列形式的K線序列）
+     */
+    int countLiquidationsInBackTest(List<Double> zScoreHistory, CandleSeries asset1Series, CandleSeries asset2Series,
+                                    double entryThreshold, double exitThreshold, int leverage);
 }
@@ -1,5 +1,8 @@
 package andy.crypto.pairstrading.bot.pairstrading.service;
 
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderRequest;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderResult;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
 import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
@@ -21,6 +24,12 @@ public interface BinanceApiService {
      */
     Map<String, BigDecimal> getAccountBalance();
     
+    /**
+     * 獲取幣安伺服器時間
+     * @return 伺服器時間（毫秒）
+     */
+    long getServerTime();
+    
     /**
      * 獲取指定交易對的最新價格
      * @param symbol 交易對符號，例如 "BNBUSDT"
@@ -28,6 +37,13 @@ public interface BinanceApiService {
      */
     BigDecimal getLatestPrice(String symbol);
     
+    /**
+     * 獲取所有交易對的最新價格快照
+     * 以單次全市場請求取得，短時間內的重複呼叫共用同一份快照
+     * @return 交易對符號到最新價格的映射
+     */
+    Map<String, BigDecimal> getAllLatestPrices();
+    
     /**
      * 獲取K線數據
      * @param symbol 交易對符號
@@ -37,6 +53,28 @@ public interface BinanceApiService {
      */
     List<CandlestickData> getCandlestickData(String symbol, String interval, Integer limit);
     
+    /**
+     * 獲取指定時間範圍內的K線數據
+     * @param symbol 交易對符號
+     * @param interval K線間隔，例如 "1m", "5m", "1h"
+     * @param startTime 起始時間（毫秒，包含），可為null
+     * @param endTime 結束時間（毫秒，包含），可為null
+     * @param limit 返回的記錄數量，可為null
+     * @return K線數據列表
+     */
+    List<CandlestickData> getCandlestickData(String symbol, String interval, Long startTime, Long endTime, Integer limit);
+    
+    /**
+     * 獲取指定時間範圍內的K線數據（基本型別欄位陣列形式，適用於大量歷史數據與分析計算）
+     * @param symbol 交易對符號
+     * @param interval K線間隔，例如 "1m", "5m", "1h"
+     * @param startTime 起始時間（毫秒，包含），可為null
+     * @param endTime 結束時間（毫秒，包含），可為null
+     * @param limit 返回的記錄數量，可為null
+     * @return K線序列
+     */
+    CandleSeries getCandleSeries(String symbol, String interval, Long startTime, Long endTime, Integer limit);
+    
     /**
      * 獲取交易對基本資訊
      * @param symbol 交易對符號
@@ -62,6 +100,28 @@ public interface BinanceApiService {
      * @return 訂單回應
      */
     OrderResponse placeOrder(String symbol, String side, String positionSide, String type, BigDecimal quantity, BigDecimal price);
+
+    /**
+     * 下單，可指定只減倉
+     * @param symbol 交易對符號
+     * @param side 交易方向，"BUY" 或 "SELL"
+     * @param positionSide 倉位方向，"LONG" 或 "SHORT"
+     * @param type 訂單類型，例如 "MARKET", "LIMIT"
+     * @param quantity 數量
+     * @param price 價格，對於市價單可以為null
+     * @param reduceOnly 是否只減倉（單向持倉模式有效），數量超過現有倉位時不會反向開倉
+     * @return 訂單回應
+     */
+    OrderResponse placeOrder(String symbol, String side, String positionSide, String type, BigDecimal quantity, BigDecimal price,
+                             boolean reduceOnly);
+
+    /**
+     * 以單一請求批量下單 (/fapi/v1/batchOrders，最多5筆)
+     * 各筆訂單獨立處理，部分失敗時不拋出異常，由結果逐筆說明
+     * @param orders 訂單列表
+     * @return 與訂單列表順序相同的結果
+     */
+    List<BatchOrderResult> placeBatchOrders(List<BatchOrderRequest> orders);
     
     /**
      * 取消訂單
@@ -109,7 +169,7 @@ public interface BinanceApiService {
     BigDecimal adjustPriceToTickSize(String symbol, BigDecimal price);
     
     /**
-     * 將數量調整為符合交易對數量精度的有效數量
+     * 將數量調整為符合交易對數量步長 (LOT_SIZE) 的有效數量
      * @param symbol 交易對符號
      * @param quantity 原始數量
      * @return 調整後的數量
@@ -121,4 +181,27 @@ public interface BinanceApiService {
      * @return 交易對符號列表
      */
     List<String> getAvailableFuturesPairs();
+    
+    /**
+     * 下載並解析 exchangeInfo 中所有交易對的資訊（含價格、數量及最小名義價值過濾器）
+     * 每次呼叫都會請求交易所，查詢單一交易對請使用 {@link SymbolMetadataService}
+     * @return 交易對資訊列表
+     */
+    List<SymbolInfo> getExchangeSymbols();
+
+    /**
+     * 建立用戶數據流，返回 listenKey（已有有效的 listenKey 時返回同一個並延長有效期）
+     * @return listenKey
+     */
+    String startUserDataStream();
+
+    /**
+     * 延長用戶數據流的有效期（需每60分鐘內呼叫一次）
+     */
+    void keepAliveUserDataStream();
+
+    /**
+     * 關閉用戶數據流
+     */
+    void closeUserDataStream();
 }
@@ -0,0 +1,25 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 幣安永續合約非同步API服務
+ * 與 {@link BinanceApiService} 對應的非阻塞版本，互相獨立的行情請求可以同時進行，
+ * 總延遲取決於最慢的請求而非所有請求的總和；失敗時 future 以 BinanceApiException 結束。
+ * 只提供不需簽名的行情請求，帳戶與下單呼叫經由同步的 {@link BinanceApiService}（含時間戳錯誤的重新同步）
+ */
+public interface BinanceAsyncApiService {
+
+    /**
+     * 獲取K線序列（欄位陣列形式）
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param startTime 開始時間（毫秒），可為 null
+     * @param endTime 結束時間（毫秒），可為 null
+     * @param limit 返回的記錄數量，可為 null
+     * @return K線序列
+     */
+    CompletableFuture<CandleSeries> getCandleSeriesAsync(String symbol, String interval, Long startTime, Long endTime, Integer limit);
+}
@@ -0,0 +1,55 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import java.util.Map;
+
+/**
+ * 幣安API請求限流服務
+ * 以令牌桶追蹤每分鐘請求權重（X-MBX-USED-WEIGHT-1M）與下單次數（X-MBX-ORDER-COUNT-1M），
+ * 所有幣安請求共用同一額度，下單請求優先於交易查詢，交易查詢優先於分析類讀取
+ */
+public interface BinanceRateLimiterService {
+
+    /**
+     * 請求優先級
+     */
+    enum RequestPriority {
+        ORDER,      // 下單、撤單、調整槓桿，可使用全部額度
+        TRADING,    // 帳戶、持倉、價格等交易相關查詢
+        ANALYTICS   // K線、交易所資訊等可延後的讀取（回測、預取）
+    }
+
+    /**
+     * 在發送請求前取得額度，額度不足時阻塞等待
+     *
+     * @param endpoint API端點
+     * @param method HTTP方法
+     * @param params 請求參數（用於計算權重，例如K線數量）
+     * @throws andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException IP被封禁或等待逾時
+     */
+    void acquire(String endpoint, String method, Map<String, Object> params);
+
+    /**
+     * 以回應的狀態碼與標頭更新限流狀態
+     *
+     * @param statusCode HTTP狀態碼
+     * @param usedWeight X-MBX-USED-WEIGHT-1M 標頭值，可為 null
+     * @param orderCount X-MBX-ORDER-COUNT-1M 標頭值，可為 null
+     * @param retryAfter Retry-After 標頭值（秒），可為 null
+     */
+    void recordResponse(int statusCode, String usedWeight, String orderCount, String retryAfter);
+
+    /**
+     * 計算請求的權重
+     */
+    int getRequestWeight(String endpoint, String method, Map<String, Object> params);
+
+    /**
+     * 判斷請求的優先級
+     */
+    RequestPriority getRequestPriority(String endpoint, String method);
+
+    /**
+     * 獲取限流指標（額度使用率、等待次數、429/418 次數等）
+     */
+    Map<String, Object> getMetrics();
+}
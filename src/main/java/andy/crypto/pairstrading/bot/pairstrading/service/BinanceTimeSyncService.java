@@ -0,0 +1,31 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import java.util.Map;
+
+/**
+ * 幣安伺服器時間同步服務
+ * 定期取樣 /fapi/v1/time 估計本地時鐘偏移，簽名請求的 timestamp 使用校正後的時間
+ */
+public interface BinanceTimeSyncService {
+
+    /**
+     * 以伺服器時間校正後的目前時間（毫秒）
+     * 尚未同步過時先同步一次，同步失敗則使用本地時間
+     */
+    long currentTimeMillis();
+
+    /**
+     * 簽名請求附加的 recvWindow（毫秒），0 表示不附加（使用交易所預設值）
+     */
+    long getRecvWindow();
+
+    /**
+     * 立即取樣伺服器時間並更新偏移估計
+     */
+    void synchronize();
+
+    /**
+     * 獲取時間同步指標（目前偏移、誤差上限、往返時間、漂移率等）
+     */
+    Map<String, Object> getMetrics();
+}
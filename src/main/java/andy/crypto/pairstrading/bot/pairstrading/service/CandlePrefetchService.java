@@ -0,0 +1,16 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+/**
+ * K線預取服務
+ * 在每根K線收盤後，為所有已儲存交易對組合涉及的交易對補齊本地K線，
+ * 讓批量回測與圖表直接使用本地數據
+ */
+public interface CandlePrefetchService {
+
+    /**
+     * 為已儲存的交易對組合補齊已收盤的K線（只處理自上次預取後有新K線收盤的間隔）
+     *
+     * @return 本次同步的 (交易對, 間隔) 數量
+     */
+    int prefetchSavedCombinations();
+}
@@ -0,0 +1,91 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地K線儲存服務
+ * 以 (交易對, K線間隔) 為鍵將已收盤的K線保存在本地壓縮檔案，
+ * 每次只向幣安增量獲取最後一根已儲存K線之後的數據
+ */
+public interface CandleStoreService {
+
+    /**
+     * 獲取K線數據（優先使用本地儲存，只增量補齊缺少的部分）
+     * 返回結果與 {@link BinanceApiService#getCandlestickData(String, String, Integer)} 相同：
+     * 按時間排序，最後一根為當前尚未收盤的K線
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔，例如 "1m", "5m", "1h"
+     * @param limit 返回的記錄數量
+     * @return K線數據列表
+     */
+    List<CandlestickData> getCandlestickData(String symbol, String interval, int limit);
+
+    /**
+     * 獲取K線序列（欄位陣列形式）
+     * 若設定了基礎間隔 (candle-store.base-interval) 且目標間隔為其整數倍，
+     * 由本地基礎K線重採樣產生，不需額外下載該間隔的數據
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param limit 返回的記錄數量
+     * @return K線序列，最後一根可能為當前尚未收盤的K線
+     */
+    CandleSeries getCandleSeries(String symbol, String interval, int limit);
+
+    /**
+     * 一次獲取多個間隔的K線序列，可重採樣的間隔共用同一份基礎K線並在一次掃描中完成
+     *
+     * @param symbol 交易對符號
+     * @param intervals K線間隔列表
+     * @param limit 每個間隔返回的記錄數量
+     * @return 間隔對應的K線序列
+     */
+    Map<String, CandleSeries> getCandleSeries(String symbol, List<String> intervals, int limit);
+
+    /**
+     * 非同步獲取K線序列，增量同步的請求以非同步客戶端送出，
+     * 多個交易對可同時同步，結果與 {@link #getCandleSeries(String, String, int)} 相同
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param limit 返回的記錄數量
+     * @return K線序列的 future
+     */
+    CompletableFuture<CandleSeries> getCandleSeriesAsync(String symbol, String interval, int limit);
+
+    /**
+     * 獲取開盤時間位於指定範圍內的K線序列
+     * 本地數據不足時先向交易所補齊，之後只讀取範圍涵蓋的部分
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param startTime 起始開盤時間（毫秒，包含）
+     * @param endTime 結束開盤時間（毫秒，包含）
+     * @return K線序列
+     */
+    CandleSeries getCandleSeries(String symbol, String interval, long startTime, long endTime);
+
+    /**
+     * 將本地儲存同步到最新的已收盤K線
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @return 本次新增的已收盤K線數量
+     */
+    int synchronize(String symbol, String interval);
+
+    /**
+     * 獲取本地已儲存的最後一根已收盤K線的收盤時間
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @return 收盤時間（毫秒），若尚無數據則返回null
+     */
+    Long getLastClosedCloseTime(String symbol, String interval);
+}
@@ -0,0 +1,30 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+/**
+ * 歷史K線回補服務
+ * 將超過單次請求上限（1500 根）的時間範圍切分為多段，
+ * 在權重預算內並行下載後依開盤時間拼接並去除重複
+ */
+public interface KlineBackfillService {
+
+    /**
+     * 獲取指定時間範圍內的全部K線
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param startTime 起始時間（毫秒，包含）
+     * @param endTime 結束時間（毫秒，包含）
+     * @return 依開盤時間排序且不重複的K線序列
+     */
+    CandleSeries getCandleSeries(String symbol, String interval, long startTime, long endTime);
+
+    /**
+     * 獲取最近的指定數量K線（包含當前未收盤的K線），數量可超過單次請求上限
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param count K線數量
+     * @return K線序列
+     */
+    CandleSeries getLatestCandleSeries(String symbol, String interval, int count);
+}
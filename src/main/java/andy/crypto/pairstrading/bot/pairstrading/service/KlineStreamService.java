@@ -0,0 +1,40 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+import java.util.Map;
+
+/**
+ * K線數據流服務
+ * 訂閱目前交易對與已儲存組合的 {@code <symbol>@kline_<interval>} 數據流，
+ * 已收盤K線保存在每個交易對固定容量的環形緩衝區，並提供當前尚未收盤的K線供盤中計算Z分數
+ */
+public interface KlineStreamService {
+
+    /**
+     * 從數據流緩衝區獲取K線序列
+     * 返回結果與 {@link CandleStoreService#getCandleSeries(String, String, int)} 相同：
+     * 按時間排序，最後一根為當前尚未收盤的K線
+     *
+     * @param symbol 交易對符號
+     * @param interval K線間隔
+     * @param limit 返回的記錄數量
+     * @return K線序列；數據流未連線、未訂閱該交易對或間隔、或數據不足時返回null，呼叫者應改用本地儲存
+     */
+    CandleSeries getCandleSeries(String symbol, String interval, int limit);
+
+    /**
+     * 依目前的交易對配置與已儲存組合重新計算訂閱，有變更時重新連線
+     */
+    void refreshSubscriptions();
+
+    /**
+     * 數據流是否已連線
+     */
+    boolean isConnected();
+
+    /**
+     * 獲取數據流指標（連線狀態、訂閱的交易對、緩衝K線數、訊息與補齊次數）
+     */
+    Map<String, Object> getMetrics();
+}
@@ -1,7 +1,11 @@
 package andy.crypto.pairstrading.bot.pairstrading.service;
 
 import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.model.RollingHedgeSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.SpreadModel;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner.AlignedCandleSeries;
 
 import java.util.List;
 
@@ -25,6 +29,46 @@ public interface MarketDataService {
      */
     PairsTradingServiceValueBean updatePriceData(double[] asset1Prices, double[] asset2Prices, List<CandlestickData> asset1Data);
     
+    /**
+     * 更新價格數據並計算配對交易相關指標（欄位陣列形式的K線序列）
+     */
+    PairsTradingServiceValueBean updatePriceData(CandleSeries asset1Series, CandleSeries asset2Series);
+    
+    /**
+     * 更新價格數據並計算配對交易相關指標（指定價差模型）
+     */
+    PairsTradingServiceValueBean updatePriceData(CandleSeries asset1Series, CandleSeries asset2Series, SpreadModel spreadModel);
+    
+    /**
+     * 獲取資產對使用的價差模型（個別設定優先，否則為預設模型）
+     */
+    SpreadModel getSpreadModel(String asset1, String asset2);
+    
+    /**
+     * 依開盤時間對齊兩個K線序列（使用設定的缺口處理策略）
+     */
+    AlignedCandleSeries alignCandleSeries(CandleSeries asset1Series, CandleSeries asset2Series);
+    
+    /**
+     * 逐點滾動估計對沖比率與Z分數（每點只使用該點之前的數據）
+     * @param windowSize 每次估計使用的K線數
+     * @return 對齊後第 windowSize 根K線起的估計結果，數據不足時返回 null
+     */
+    RollingHedgeSeries computeRollingHedgeSeries(CandleSeries asset1Series, CandleSeries asset2Series, int windowSize);
+    
+    /**
+     * 以指定價差模型逐點估計對沖比率與Z分數（每點只使用該點之前的數據）
+     * 卡爾曼濾波以前 windowSize 根K線初始化後逐根濾波，結果從第 windowSize + 1 根K線起
+     * @param windowSize 每次估計使用的K線數（卡爾曼濾波為初始化使用的K線數）
+     * @return 估計結果，數據不足時返回 null
+     */
+    RollingHedgeSeries computeRollingHedgeSeries(CandleSeries asset1Series, CandleSeries asset2Series, int windowSize, SpreadModel spreadModel);
+    
+    /**
+     * 獲取指定資產對最近一個窗口的滾動對沖比率與Z分數（使用設定的窗口大小、K線間隔與資產對的價差模型）
+     */
+    RollingHedgeSeries getRollingHedgeSeries(String asset1, String asset2);
+    
     /**
      * 獲取Z分數歷史數據
      */
@@ -0,0 +1,38 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
+import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
+
+import java.util.List;
+
+/**
+ * 持倉與未完成訂單快取服務
+ * 以 REST 建立一次快照後由用戶數據流（listenKey）即時更新，
+ * 數據流未連線時直接查詢 REST，返回結果與 {@link BinanceApiService} 相同
+ */
+public interface PositionCacheService {
+
+    /**
+     * 獲取持倉信息（只包含非零倉位）
+     * @param symbol 交易對符號，null表示全部
+     * @return 持倉列表
+     */
+    List<PositionInfo> getPositionInfo(String symbol);
+
+    /**
+     * 獲取未完成訂單
+     * @param symbol 交易對符號，null表示全部
+     * @return 訂單列表
+     */
+    List<OrderResponse> getOpenOrders(String symbol);
+
+    /**
+     * 用戶數據流是否已連線且快照有效
+     */
+    boolean isStreamActive();
+
+    /**
+     * 捨棄目前快照，下次讀取時以 REST 重新建立
+     */
+    void invalidate();
+}
@@ -0,0 +1,55 @@
+package andy.crypto.pairstrading.bot.pairstrading.service;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.LotSizeFilter;
+import andy.crypto.pairstrading.bot.pairstrading.model.PriceFilter;
+import andy.crypto.pairstrading.bot.pairstrading.model.SymbolInfo;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 交易對元數據服務
+ * 將 exchangeInfo 解析一次後建立以交易對為鍵的索引，並在背景定期刷新，
+ * 交易路徑上的查詢不需要任何網路請求
+ */
+public interface SymbolMetadataService {
+
+    /**
+     * 獲取交易對基本資訊
+     * @param symbol 交易對符號
+     * @return 交易對資訊
+     */
+    SymbolInfo getSymbolInfo(String symbol);
+
+    /**
+     * 獲取交易對的價格過濾器 (PRICE_FILTER)
+     * @param symbol 交易對符號
+     * @return 價格過濾器
+     */
+    PriceFilter getPriceFilter(String symbol);
+
+    /**
+     * 獲取交易對的數量過濾器 (LOT_SIZE)
+     * @param symbol 交易對符號
+     * @return 數量過濾器
+     */
+    LotSizeFilter getLotSizeFilter(String symbol);
+
+    /**
+     * 獲取交易對的最小名義價值 (MIN_NOTIONAL)
+     * @param symbol 交易對符號
+     * @return 最小名義價值，交易所未提供時返回null
+     */
+    BigDecimal getMinNotional(String symbol);
+
+    /**
+     * 獲取所有交易中的交易對（按字母排序）
+     * @return 交易對符號列表
+     */
+    List<String> getTradingSymbols();
+
+    /**
+     * 立即重新下載 exchangeInfo 並重建索引
+     */
+    void refresh();
+}
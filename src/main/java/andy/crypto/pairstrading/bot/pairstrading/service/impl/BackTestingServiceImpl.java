@@ -2,12 +2,15 @@ package andy.crypto.pairstrading.bot.pairstrading.service.impl;
 
 import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
 import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
-import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.model.PairsTradingResult;
+import andy.crypto.pairstrading.bot.pairstrading.model.RollingHedgeSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.SpreadModel;
 import andy.crypto.pairstrading.bot.pairstrading.service.BackTestingService;
-import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandleStoreService;
 import andy.crypto.pairstrading.bot.pairstrading.service.MarketDataService;
 import andy.crypto.pairstrading.bot.pairstrading.service.TradingPairManagementService;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner.AlignedCandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.util.ConsoleChartUtil;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
 
@@ -32,7 +35,7 @@ import java.util.stream.Collectors;
 public class BackTestingServiceImpl implements BackTestingService {
 
     @Autowired
-    private BinanceApiService binanceApiService;
+    private CandleStoreService candleStoreService;
     
     @Autowired
     private MarketDataService marketDataService;
@@ -86,44 +89,56 @@ public class BackTestingServiceImpl implements BackTestingService {
             
             log.info("使用時間間隔: {}, 回測資料點數: {}", interval, dataPoints);
             
-            // 獲取歷史K線數據
-            List<CandlestickData> asset1Data = binanceApiService.getCandlestickData(symbol1, interval, dataPoints);
-            List<CandlestickData> asset2Data = binanceApiService.getCandlestickData(symbol2, interval, dataPoints);
+            // 每個回測點都需要往前一個窗口的K線估計對沖比率；卡爾曼濾波以回測起點之前的一個窗口初始化
+            SpreadModel spreadModel = marketDataService.getSpreadModel(symbol1, symbol2);
+            int warmUpPoints = spreadModel == SpreadModel.KALMAN ? tradingConfigBean.getWindowSize() : tradingConfigBean.getWindowSize() - 1;
+            int requiredDataPoints = Math.max(dataPoints, tradingConfigBean.getWindowSize()) + warmUpPoints;
             
-            log.info("獲取到 {} 的K線數據 {} 條", symbol1, asset1Data.size());
-            log.info("獲取到 {} 的K線數據 {} 條", symbol2, asset2Data.size());
+            // 從本地K線儲存讀取（預取排程已補齊已儲存組合的數據），不足部分分段並行回補
+            CandleSeries asset1Series = candleStoreService.getCandleSeries(symbol1, interval, requiredDataPoints);
+            CandleSeries asset2Series = candleStoreService.getCandleSeries(symbol2, interval, requiredDataPoints);
+            
+            log.info("獲取到 {} 的K線數據 {} 條", symbol1, asset1Series.size());
+            log.info("獲取到 {} 的K線數據 {} 條", symbol2, asset2Series.size());
+            
+            // 依開盤時間對齊兩個資產的K線，爆倉計算需逐點使用同一時間的價格
+            AlignedCandleSeries aligned = marketDataService.alignCandleSeries(asset1Series, asset2Series);
+            asset1Series = aligned.getAsset1Series();
+            asset2Series = aligned.getAsset2Series();
             
             // 檢查數據是否足夠
-            if (asset1Data.size() < tradingConfigBean.getWindowSize() || asset2Data.size() < tradingConfigBean.getWindowSize()) {
-                log.warn("歷史數據不足以進行分析，需要至少 {} 個資料點，但只獲取到 {} 和 {} 個", 
-                        tradingConfigBean.getWindowSize(), asset1Data.size(), asset2Data.size());
+            if (aligned.size() < tradingConfigBean.getWindowSize()) {
+                log.warn("歷史數據不足以進行分析，需要至少 {} 個資料點，但對齊後只有 {} 個", 
+                        tradingConfigBean.getWindowSize(), aligned.size());
                 return null;
             }
             
-            // 轉換為價格序列用於分析
-            double[] asset1Prices = asset1Data.stream()
-                    .mapToDouble(data -> data.getClose().doubleValue())
-                    .toArray();
-            
-            double[] asset2Prices = asset2Data.stream()
-                    .mapToDouble(data -> data.getClose().doubleValue())
-                    .toArray();
+            // 更新價格數據並計算指標（最新窗口的估計，用於目前信號）
+            PairsTradingServiceValueBean pairsTradingServiceValueBean = marketDataService.updatePriceData(asset1Series, asset2Series, spreadModel);
             
-            // 更新價格數據並計算指標
-            PairsTradingServiceValueBean pairsTradingServiceValueBean = marketDataService.updatePriceData(asset1Prices, asset2Prices, asset1Data);
+            // 逐點估計的Z分數（與目前信號相同的價差模型），每個回測點只使用當時已知的K線
+            RollingHedgeSeries rollingHedgeSeries = marketDataService.computeRollingHedgeSeries(asset1Series, asset2Series,
+                    tradingConfigBean.getWindowSize(), spreadModel);
+            if (pairsTradingServiceValueBean == null || rollingHedgeSeries == null) {
+                log.warn("無法計算 {} 的回測指標", pairKey);
+                return null;
+            }
+            List<Double> backTestZScores = rollingHedgeSeries.toZScoreList();
+            int backTestPoints = Math.min(backTestZScores.size(), dataPoints);
+            backTestZScores = backTestZScores.subList(backTestZScores.size() - backTestPoints, backTestZScores.size());
             
             // 計算成功套利次數
-            int successfulTradeCount = countSuccessfulTradesInBackTest(pairsTradingServiceValueBean.getZScoreHistory(), tradingConfigBean.getEntryThreshold(), tradingConfigBean.getExitThreshold());
+            int successfulTradeCount = countSuccessfulTradesInBackTest(backTestZScores, tradingConfigBean.getEntryThreshold(), tradingConfigBean.getExitThreshold());
             
-            // 計算爆倉次數
-            int liquidationCount = countLiquidationsInBackTest(pairsTradingServiceValueBean.getZScoreHistory(), asset1Data, asset2Data, tradingConfigBean.getEntryThreshold(), tradingConfigBean.getExitThreshold(), tradingConfigBean.getLeverage());
+            // 計算爆倉次數（價格取與Z分數相同時間的K線）
+            int liquidationCount = countLiquidationsInBackTest(backTestZScores, asset1Series.last(backTestPoints), asset2Series.last(backTestPoints), tradingConfigBean.getEntryThreshold(), tradingConfigBean.getExitThreshold(), tradingConfigBean.getLeverage());
             
             // 獲取最新價格
-            BigDecimal asset1Price = asset1Data.get(asset1Data.size() - 1).getClose();
-            BigDecimal asset2Price = asset2Data.get(asset2Data.size() - 1).getClose();
+            BigDecimal asset1Price = BigDecimal.valueOf(asset1Series.getLastClose());
+            BigDecimal asset2Price = BigDecimal.valueOf(asset2Series.getLastClose());
             
             // 生成圖表
-            String zScoreChartStr = ConsoleChartUtil.drawZScoreChart(pairsTradingServiceValueBean.getZScoreHistory(), tradingConfigBean.getEntryThreshold(), tradingConfigBean.getExitThreshold());
+            String zScoreChartStr = ConsoleChartUtil.drawZScoreChart(backTestZScores, tradingConfigBean.getEntryThreshold(), tradingConfigBean.getExitThreshold());
             String spreadChartStr = ConsoleChartUtil.drawSpreadChart(pairsTradingServiceValueBean.getSpreadHistory(), pairsTradingServiceValueBean.getSpreadMean(), pairsTradingServiceValueBean.getSpreadStd());
 
             
@@ -264,7 +279,8 @@ public class BackTestingServiceImpl implements BackTestingService {
      * 當使用槓桿交易時，如果價格波動過大導致虧損超過保證金，就會發生爆倉
      * 根據槓桿倍數動態計算爆倉閾值
      */
-    private int countLiquidationsInBackTest(List<Double> zScoreHistory, List<CandlestickData> asset1Data, List<CandlestickData> asset2Data, double entryThreshold, double exitThreshold, int leverage) {
+    @Override
+    public int countLiquidationsInBackTest(List<Double> zScoreHistory, CandleSeries asset1Series, CandleSeries asset2Series, double entryThreshold, double exitThreshold, int leverage) {
         if (zScoreHistory == null || zScoreHistory.isEmpty() || leverage <= 1) {
             return 0; // 如果不使用槓桿或數據為空，不會發生爆倉
         }
@@ -273,10 +289,9 @@ public class BackTestingServiceImpl implements BackTestingService {
         boolean inLongPosition = false;   // 做多資產1，做空資產2
         boolean inShortPosition = false;  // 做空資產1，做多資產2
         
-        // 入場價格及位置
-        BigDecimal entryAsset1Price = null;
-        BigDecimal entryAsset2Price = null;
-        int entryPositionIndex = -1;
+        // 入場價格
+        double entryAsset1Price = 0.0;
+        double entryAsset2Price = 0.0;
         
         // 計算爆倉閾值，考慮槓桿和維持保證金率
         // 維持保證金率通常取1/槓桿的80%左右，例如:
@@ -288,16 +303,12 @@ public class BackTestingServiceImpl implements BackTestingService {
         log.debug("使用槓桿: {}倍，維持保證金率: {}%, 爆倉閾值: {}%", 
                 leverage, maintenanceMarginRate * 100, liquidationThreshold * 100);
         
-        for (int i = 0; i < zScoreHistory.size(); i++) {
-            Double zScore = zScoreHistory.get(i);
-            
-            // 確保我們有對應的價格數據
-            if (i >= asset1Data.size() || i >= asset2Data.size()) {
-                break;
-            }
-            
-            BigDecimal asset1Price = asset1Data.get(i).getClose();
-            BigDecimal asset2Price = asset2Data.get(i).getClose();
+        // 確保我們有對應的價格數據
+        int count = Math.min(zScoreHistory.size(), Math.min(asset1Series.size(), asset2Series.size()));
+        for (int i = 0; i < count; i++) {
+            double zScore = zScoreHistory.get(i);
+            double asset1Price = asset1Series.getClose(i);
+            double asset2Price = asset2Series.getClose(i);
             
             // 判斷是否應該入場
             if (!inLongPosition && !inShortPosition) {
@@ -306,7 +317,6 @@ public class BackTestingServiceImpl implements BackTestingService {
                     inLongPosition = true;
                     entryAsset1Price = asset1Price;
                     entryAsset2Price = asset2Price;
-                    entryPositionIndex = i;
                     log.debug("做多入場 (索引: {})：資產1={}, 資產2={}, Z分數={}", 
                             i, entryAsset1Price, entryAsset2Price, zScore);
                 } else if (zScore > entryThreshold) {
@@ -314,78 +324,44 @@ public class BackTestingServiceImpl implements BackTestingService {
                     inShortPosition = true;
                     entryAsset1Price = asset1Price;
                     entryAsset2Price = asset2Price;
-                    entryPositionIndex = i;
                     log.debug("做空入場 (索引: {})：資產1={}, 資產2={}, Z分數={}", 
                             i, entryAsset1Price, entryAsset2Price, zScore);
                 }
-            } 
-            // 判斷是否發生爆倉或應該出場
-            else if (inLongPosition) {
-                try {
-                    // 檢查資產1是否下跌過多（做多資產1）或資產2是否上漲過多（做空資產2）
-                    double asset1PriceChange = asset1Price.subtract(entryAsset1Price)
-                            .divide(entryAsset1Price, 8, BigDecimal.ROUND_HALF_UP).doubleValue();
-                    double asset2PriceChange = asset2Price.subtract(entryAsset2Price)
-                            .divide(entryAsset2Price, 8, BigDecimal.ROUND_HALF_UP).doubleValue();
-                    
-                    // 計算綜合變化（考慮兩個資產的變化）
-                    // 在做多資產1，做空資產2的情況下:
-                    // netChange = asset1的變化率 - asset2的變化率
-                    // netChange為負表示虧損 (asset1下跌或asset2上漲)
-                    double netChange = asset1PriceChange - asset2PriceChange;
-                    
-                    // 計算槓桿交易的實際盈虧 (以槓桿倍數放大)
-                    double leveragedPnL = netChange * leverage;
-                    
-                    // 如果淨虧損（絕對值）超過維持保證金率，就會發生爆倉
-                    if (netChange < -liquidationThreshold) {
-                        // 爆倉：做多資產1，做空資產2，但資產1下跌過多或資產2上漲過多
-                        liquidationCount++;
-                        inLongPosition = false;
-                        log.debug("做多爆倉發生 (索引: {})：淨變化={}%, 槓桿後虧損={}%, 爆倉閾值={}%", 
-                                i, netChange * 100, leveragedPnL * 100, liquidationThreshold * 100);
-                    } else if (Math.abs(zScore) < exitThreshold) {
-                        // 正常出場 (Z分數回歸至出場閾值內)
-                        inLongPosition = false;
-                        log.debug("做多正常出場 (索引: {})：Z分數={}, 淨變化={}%", i, zScore, netChange * 100);
-                    }
-                } catch (ArithmeticException e) {
-                    log.error("計算價格變化時發生除以零錯誤: 索引={}, 資產1={}, 資產2={}", i, asset1Price, asset2Price);
-                    inLongPosition = false;
-                }
-            } else if (inShortPosition) {
-                try {
-                    // 檢查資產1是否上漲過多（做空資產1）或資產2是否下跌過多（做多資產2）
-                    double asset1PriceChange = asset1Price.subtract(entryAsset1Price)
-                            .divide(entryAsset1Price, 8, BigDecimal.ROUND_HALF_UP).doubleValue();
-                    double asset2PriceChange = asset2Price.subtract(entryAsset2Price)
-                            .divide(entryAsset2Price, 8, BigDecimal.ROUND_HALF_UP).doubleValue();
-                    
-                    // 計算綜合變化（考慮兩個資產的變化）
-                    // 在做空資產1，做多資產2的情況下:
-                    // netChange = -(asset1的變化率) + asset2的變化率
-                    // netChange為負表示虧損 (asset1上漲或asset2下跌)
-                    double netChange = -asset1PriceChange + asset2PriceChange;
-                    
-                    // 計算槓桿交易的實際盈虧 (以槓桿倍數放大)
-                    double leveragedPnL = netChange * leverage;
-                    
-                    // 如果淨虧損（絕對值）超過維持保證金率，就會發生爆倉
-                    if (netChange < -liquidationThreshold) {
-                        // 爆倉：做空資產1，做多資產2，但資產1上漲過多或資產2下跌過多
-                        liquidationCount++;
-                        inShortPosition = false;
-                        log.debug("做空爆倉發生 (索引: {})：淨變化={}%, 槓桿後虧損={}%, 爆倉閾值={}%", 
-                                i, netChange * 100, leveragedPnL * 100, liquidationThreshold * 100);
-                    } else if (Math.abs(zScore) < exitThreshold) {
-                        // 正常出場 (Z分數回歸至出場閾值內)
-                        inShortPosition = false;
-                        log.debug("做空正常出場 (索引: {})：Z分數={}, 淨變化={}%", i, zScore, netChange * 100);
-                    }
-                } catch (ArithmeticException e) {
-                    log.error("計算價格變化時發生除以零錯誤: 索引={}, 資產1={}, 資產2={}", i, asset1Price, asset2Price);
-                    inShortPosition = false;
-                }
+                continue;
+            }
+            
+            if (entryAsset1Price == 0.0 || entryAsset2Price == 0.0) {
+                log.error("計算價格變化時發生除以零錯誤: 索引={}, 資產1={}, 資產2={}", i, asset1Price, asset2Price);
+                inLongPosition = false;
+                inShortPosition = false;
+                continue;
+            }
+            
+            // 檢查兩個資產相對入場價格的變化率
+            double asset1PriceChange = (asset1Price - entryAsset1Price) / entryAsset1Price;
+            double asset2PriceChange = (asset2Price - entryAsset2Price) / entryAsset2Price;
+            
+            // 計算綜合變化（考慮兩個資產的變化）
+            // 做多資產1，做空資產2: netChange = asset1的變化率 - asset2的變化率
+            // 做空資產1，做多資產2: netChange = -(asset1的變化率) + asset2的變化率
+            // netChange為負表示虧損
+            double netChange = inLongPosition
+                    ? asset1PriceChange - asset2PriceChange
+                    : -asset1PriceChange + asset2PriceChange;
+            String side = inLongPosition ? "做多" : "做空";
+            
+            // 如果淨虧損（絕對值）超過維持保證金率，就會發生爆倉
+            if (netChange < -liquidationThreshold) {
+                liquidationCount++;
+                inLongPosition = false;
+                inShortPosition = false;
+                log.debug("{}爆倉發生 (索引: {})：淨變化={}%, 槓桿後虧損={}%, 爆倉閾值={}%", 
+                        side, i, netChange * 100, netChange * leverage * 100, liquidationThreshold * 100);
+            } else if (Math.abs(zScore) < exitThreshold) {
+                // 正常出場 (Z分數回歸至出場閾值內)
+                inLongPosition = false;
+                inShortPosition = false;
+                log.debug("{}正常出場 (索引: {})：Z分數={}, 淨變化={}%", side, i, zScore, netChange * 100);
             }
         }
         
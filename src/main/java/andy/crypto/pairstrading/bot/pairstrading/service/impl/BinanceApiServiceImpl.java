@@ -2,37 +2,47 @@ package andy.crypto.pairstrading.bot.pairstrading.service.impl;
 
 import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
 import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderRequest;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderResult;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.model.LotSizeFilter;
 import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
 import andy.crypto.pairstrading.bot.pairstrading.model.PriceFilter;
 import andy.crypto.pairstrading.bot.pairstrading.model.SymbolInfo;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceRateLimiterService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.SymbolMetadataService;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineJsonDecoder;
+import andy.crypto.pairstrading.bot.pairstrading.util.SingleFlightCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpDelete;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
-import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.ContentType;
-import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
@@ -46,23 +56,47 @@ import java.util.stream.Collectors;
 @Service
 public class BinanceApiServiceImpl implements BinanceApiService {
 
+    // 幣安批量下單單次最多筆數
+    private static final int MAX_BATCH_ORDERS = 5;
+
+    // 時間戳超出 recvWindow 或早於伺服器時間的錯誤碼
+    private static final String TIMESTAMP_REJECTED_CODE = "\"code\":-1021";
+
+    private static final String PRICE_SNAPSHOT_KEY = "ALL";
+
     private final BinanceConfig binanceConfig;
     private final ObjectMapper objectMapper;
     private final CloseableHttpClient httpClient;
 
+    // 全市場價格快照，同一次排程或頁面渲染中的價格查詢只需一次請求
+    private final SingleFlightCache<String, Map<String, BigDecimal>> priceSnapshotCache;
+
+    // 交易對元數據快取（與本服務互相依賴，延遲注入）
     @Autowired
-    public BinanceApiServiceImpl(BinanceConfig binanceConfig, ObjectMapper objectMapper) {
-        this.binanceConfig = binanceConfig;
-        this.objectMapper = objectMapper;
+    @Lazy
+    private SymbolMetadataService symbolMetadataService;
 
-        RequestConfig requestConfig = RequestConfig.custom()
-                .setConnectTimeout(org.apache.hc.core5.util.Timeout.ofMilliseconds(binanceConfig.getConnectionTimeout()))
-                .setResponseTimeout(org.apache.hc.core5.util.Timeout.ofMilliseconds(binanceConfig.getReadTimeout()))
-                .build();
+    // 所有幣安請求共用的權重限流
+    @Autowired
+    private BinanceRateLimiterService binanceRateLimiterService;
+
+    // 查詢字串組裝與簽名（與非同步API服務共用）
+    @Autowired
+    private BinanceRequestSigner requestSigner;
 
-        this.httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(requestConfig)
-                .build();
+    // 伺服器時間同步，時間戳被拒絕時重新同步
+    @Autowired
+    private BinanceTimeSyncService timeSyncService;
+
+    @Autowired
+    public BinanceApiServiceImpl(BinanceConfig binanceConfig, ObjectMapper objectMapper,
+                                 @Qualifier("binanceHttpClient") CloseableHttpClient httpClient,
+                                 @Value("${price-snapshot.ttl-ms:2000}") long priceSnapshotTtlMillis) {
+        this.binanceConfig = binanceConfig;
+        this.objectMapper = objectMapper;
+        // 連線池與傳輸層設定見 BinanceHttpClientConfig
+        this.httpClient = httpClient;
+        this.priceSnapshotCache = new SingleFlightCache<>(priceSnapshotTtlMillis);
     }
 
     @Override
@@ -87,8 +121,28 @@ public class BinanceApiServiceImpl implements BinanceApiService {
         }
     }
 
+    @Override
+    public long getServerTime() {
+        try {
+            String response = callApi("/fapi/v1/time", null, "GET", false);
+            return objectMapper.readTree(response).path("serverTime").asLong();
+        } catch (Exception e) {
+            throw new BinanceApiException("獲取伺服器時間失敗: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public BigDecimal getLatestPrice(String symbol) {
+        try {
+            BigDecimal snapshotPrice = getAllLatestPrices().get(symbol);
+            if (snapshotPrice != null) {
+                return snapshotPrice;
+            }
+        } catch (BinanceApiException e) {
+            // 快照載入失敗時不影響單一交易對的查詢
+            log.warn("全市場價格快照不可用，改為單獨查詢 {}: {}", symbol, e.getMessage());
+        }
+        // 快照中沒有的交易對（例如已下架）或快照失敗時單獨查詢，錯誤訊息與原本一致
         try {
             String endpoint = "/fapi/v1/ticker/price";
             Map<String, Object> params = new HashMap<>();
@@ -104,41 +158,58 @@ public class BinanceApiServiceImpl implements BinanceApiService {
         }
     }
 
+    @Override
+    public Map<String, BigDecimal> getAllLatestPrices() {
+        return priceSnapshotCache.get(PRICE_SNAPSHOT_KEY, this::loadAllLatestPrices);
+    }
+
+    private Map<String, BigDecimal> loadAllLatestPrices() {
+        try {
+            // 不帶 symbol 時返回所有交易對，權重 2
+            String response = callApi("/fapi/v1/ticker/price", null, "GET", false);
+            Map<String, BigDecimal> prices = new HashMap<>();
+            for (JsonNode ticker : objectMapper.readTree(response)) {
+                prices.put(ticker.path("symbol").asText(), new BigDecimal(ticker.path("price").asText()));
+            }
+            return Collections.unmodifiableMap(prices);
+        } catch (Exception e) {
+            log.error("獲取全市場價格失敗", e);
+            throw new BinanceApiException("獲取全市場價格失敗: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public List<CandlestickData> getCandlestickData(String symbol, String interval, Integer limit) {
+        return getCandlestickData(symbol, interval, null, null, limit);
+    }
+
+    @Override
+    public List<CandlestickData> getCandlestickData(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
+        return getCandleSeries(symbol, interval, startTime, endTime, limit).toCandlestickDataList();
+    }
+
+    @Override
+    public CandleSeries getCandleSeries(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
         try {
             String endpoint = "/fapi/v1/klines";
             Map<String, Object> params = new HashMap<>();
             params.put("symbol", symbol);
             params.put("interval", interval);
 
+            if (startTime != null) {
+                params.put("startTime", startTime);
+            }
+            if (endTime != null) {
+                params.put("endTime", endTime);
+            }
             if (limit != null && limit > 0) {
                 params.put("limit", limit);
             }
 
-            String response = callApi(endpoint, params, "GET", false);
-            List<List<Object>> rawData = objectMapper.readValue(response, new TypeReference<List<List<Object>>>() {});
-
-            List<CandlestickData> candlesticks = new ArrayList<>();
-            for (List<Object> candle : rawData) {
-                CandlestickData candlestick = CandlestickData.builder()
-                        .openTime(Long.parseLong(candle.get(0).toString()))
-                        .open(new BigDecimal(candle.get(1).toString()))
-                        .high(new BigDecimal(candle.get(2).toString()))
-                        .low(new BigDecimal(candle.get(3).toString()))
-                        .close(new BigDecimal(candle.get(4).toString()))
-                        .volume(new BigDecimal(candle.get(5).toString()))
-                        .closeTime(Long.parseLong(candle.get(6).toString()))
-                        .quoteAssetVolume(new BigDecimal(candle.get(7).toString()))
-                        .numberOfTrades(Integer.parseInt(candle.get(8).toString()))
-                        .takerBuyBaseAssetVolume(new BigDecimal(candle.get(9).toString()))
-                        .takerBuyQuoteAssetVolume(new BigDecimal(candle.get(10).toString()))
-                        .build();
-
-                candlesticks.add(candlestick);
-            }
-
-            return candlesticks;
+            // 直接從回應串流解碼為基本型別欄位，不經過 List<List<Object>> 與 BigDecimal
+            int expectedSize = limit != null && limit > 0 ? limit : 500;
+            return callApi(endpoint, params, "GET", false,
+                    in -> KlineJsonDecoder.decode(objectMapper.getFactory(), in, expectedSize));
         } catch (Exception e) {
             log.error("獲取K線數據失敗: {}", symbol, e);
             throw new BinanceApiException("獲取K線數據失敗: " + e.getMessage(), e);
@@ -147,6 +218,11 @@ public class BinanceApiServiceImpl implements BinanceApiService {
 
     @Override
     public SymbolInfo getSymbolInfo(String symbol) {
+        return symbolMetadataService.getSymbolInfo(symbol);
+    }
+
+    @Override
+    public List<SymbolInfo> getExchangeSymbols() {
         try {
             String endpoint = "/fapi/v1/exchangeInfo";
             String response = callApi(endpoint, null, "GET", false);
@@ -154,34 +230,54 @@ public class BinanceApiServiceImpl implements BinanceApiService {
             JsonNode root = objectMapper.readTree(response);
             JsonNode symbols = root.get("symbols");
 
+            List<SymbolInfo> symbolInfos = new ArrayList<>(symbols.size());
             for (JsonNode symbolNode : symbols) {
-                if (symbol.equals(symbolNode.get("symbol").asText())) {
-                    return SymbolInfo.builder()
-                            .symbol(symbolNode.get("symbol").asText())
-                            .pair(symbolNode.get("pair").asText())
-                            .contractType(symbolNode.get("contractType").asText())
-                            .deliveryDate(symbolNode.get("deliveryDate").asLong())
-                            .onboardDate(symbolNode.get("onboardDate").asLong())
-                            .status(symbolNode.get("status").asText())
-                            .maintMarginPercent(new BigDecimal(symbolNode.get("maintMarginPercent").asText()))
-                            .requiredMarginPercent(new BigDecimal(symbolNode.get("requiredMarginPercent").asText()))
-                            .baseAsset(symbolNode.get("baseAsset").asText())
-                            .quoteAsset(symbolNode.get("quoteAsset").asText())
-                            .marginAsset(symbolNode.get("marginAsset").asText())
-                            .pricePrecision(symbolNode.get("pricePrecision").asInt())
-                            .quantityPrecision(symbolNode.get("quantityPrecision").asInt())
-                            .baseAssetPrecision(new BigDecimal(symbolNode.get("baseAssetPrecision").asText()))
-                            .quotePrecision(new BigDecimal(symbolNode.get("quotePrecision").asText()))
-                            .build();
+                SymbolInfo.SymbolInfoBuilder builder = SymbolInfo.builder()
+                        .symbol(symbolNode.get("symbol").asText())
+                        .pair(symbolNode.get("pair").asText())
+                        .contractType(symbolNode.get("contractType").asText())
+                        .deliveryDate(symbolNode.get("deliveryDate").asLong())
+                        .onboardDate(symbolNode.get("onboardDate").asLong())
+                        .status(symbolNode.get("status").asText())
+                        .maintMarginPercent(new BigDecimal(symbolNode.get("maintMarginPercent").asText()))
+                        .requiredMarginPercent(new BigDecimal(symbolNode.get("requiredMarginPercent").asText()))
+                        .baseAsset(symbolNode.get("baseAsset").asText())
+                        .quoteAsset(symbolNode.get("quoteAsset").asText())
+                        .marginAsset(symbolNode.get("marginAsset").asText())
+                        .pricePrecision(symbolNode.get("pricePrecision").asInt())
+                        .quantityPrecision(symbolNode.get("quantityPrecision").asInt())
+                        .baseAssetPrecision(new BigDecimal(symbolNode.get("baseAssetPrecision").asText()))
+                        .quotePrecision(new BigDecimal(symbolNode.get("quotePrecision").asText()));
+
+                JsonNode filters = symbolNode.get("filters");
+                if (filters != null) {
+                    for (JsonNode filter : filters) {
+                        String filterType = filter.get("filterType").asText();
+                        if ("PRICE_FILTER".equals(filterType)) {
+                            builder.priceFilter(PriceFilter.builder()
+                                    .minPrice(new BigDecimal(filter.get("minPrice").asText()))
+                                    .maxPrice(new BigDecimal(filter.get("maxPrice").asText()))
+                                    .tickSize(new BigDecimal(filter.get("tickSize").asText()))
+                                    .build());
+                        } else if ("LOT_SIZE".equals(filterType)) {
+                            builder.lotSizeFilter(LotSizeFilter.builder()
+                                    .minQty(new BigDecimal(filter.get("minQty").asText()))
+                                    .maxQty(new BigDecimal(filter.get("maxQty").asText()))
+                                    .stepSize(new BigDecimal(filter.get("stepSize").asText()))
+                                    .build());
+                        } else if ("MIN_NOTIONAL".equals(filterType)) {
+                            builder.minNotional(new BigDecimal(filter.get("notional").asText()));
+                        }
+                    }
                 }
+
+                symbolInfos.add(builder.build());
             }
 
-            throw new BinanceApiException("未找到交易對資訊: " + symbol);
-        } catch (BinanceApiException e) {
-            throw e;
+            return symbolInfos;
         } catch (Exception e) {
-            log.error("獲取交易對資訊失敗: {}", symbol, e);
-            throw new BinanceApiException("獲取交易對資訊失敗: " + e.getMessage(), e);
+            log.error("獲取交易所交易對資訊失敗", e);
+            throw new BinanceApiException("獲取交易所交易對資訊失敗: " + e.getMessage(), e);
         }
     }
 
@@ -213,7 +309,7 @@ public class BinanceApiServiceImpl implements BinanceApiService {
                         .markPrice(new BigDecimal(position.get("markPrice").toString()))
                         .positionAmt(positionAmt)
                         .unrealizedProfit(new BigDecimal(position.get("unRealizedProfit").toString()))
-                        .unrealizedProfitPercentage(calculateUnrealizedProfitPercentage(
+                        .unrealizedProfitPercentage(PositionInfo.calculateUnrealizedProfitPercentage(
                                 new BigDecimal(position.get("unRealizedProfit").toString()),
                                 new BigDecimal(position.get("markPrice").toString()),
                                 new BigDecimal(position.get("positionAmt").toString()),
@@ -238,6 +334,12 @@ public class BinanceApiServiceImpl implements BinanceApiService {
 
     @Override
     public OrderResponse placeOrder(String symbol, String side, String positionSide, String type, BigDecimal quantity, BigDecimal price) {
+        return placeOrder(symbol, side, positionSide, type, quantity, price, false);
+    }
+
+    @Override
+    public OrderResponse placeOrder(String symbol, String side, String positionSide, String type, BigDecimal quantity, BigDecimal price,
+                                    boolean reduceOnly) {
         try {
             String endpoint = "/fapi/v1/order";
             Map<String, Object> params = new HashMap<>();
@@ -256,6 +358,10 @@ public class BinanceApiServiceImpl implements BinanceApiService {
                 params.put("timeInForce", "GTC"); // 除非被取消，否則訂單將一直有效
             }
 
+            if (reduceOnly) {
+                params.put("reduceOnly", "true");
+            }
+
             params.put("newClientOrderId", "pairs_trading_" + System.currentTimeMillis());
 
             String response = callApi(endpoint, params, "POST", true);
@@ -266,6 +372,71 @@ public class BinanceApiServiceImpl implements BinanceApiService {
         }
     }
 
+    @Override
+    public List<BatchOrderResult> placeBatchOrders(List<BatchOrderRequest> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (orders.size() > MAX_BATCH_ORDERS) {
+            throw new BinanceApiException("批量下單最多 " + MAX_BATCH_ORDERS + " 筆，實際: " + orders.size());
+        }
+        try {
+            long now = System.currentTimeMillis();
+            List<Map<String, String>> batch = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                BatchOrderRequest order = orders.get(i);
+                Map<String, String> item = new LinkedHashMap<>();
+                item.put("symbol", order.getSymbol());
+                item.put("side", order.getSide());
+                if (order.getPositionSide() != null && !order.getPositionSide().isEmpty()) {
+                    item.put("positionSide", order.getPositionSide());
+                }
+                item.put("type", order.getType());
+                item.put("quantity", order.getQuantity().toPlainString());
+                if (order.getPrice() != null && !"MARKET".equals(order.getType())) {
+                    item.put("price", order.getPrice().toPlainString());
+                    item.put("timeInForce", "GTC");
+                }
+                item.put("newClientOrderId", "pairs_trading_" + now + "_" + i);
+                batch.add(item);
+            }
+
+            // 訂單列表以 JSON 陣列傳送，需先做 URL 編碼，簽名以編碼後的內容計算
+            String endpoint = "/fapi/v1/batchOrders";
+            Map<String, Object> params = new HashMap<>();
+            params.put("batchOrders", URLEncoder.encode(objectMapper.writeValueAsString(batch), StandardCharsets.UTF_8));
+
+            String response = callApi(endpoint, params, "POST", true);
+            JsonNode results = objectMapper.readTree(response);
+
+            List<BatchOrderResult> batchResults = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                JsonNode result = results.get(i);
+                BatchOrderResult.BatchOrderResultBuilder builder = BatchOrderResult.builder().request(orders.get(i));
+                if (result == null) {
+                    builder.errorMessage("批量下單回應缺少第 " + (i + 1) + " 筆結果");
+                } else if (result.has("code") && !result.has("orderId")) {
+                    builder.errorCode(result.get("code").asInt())
+                            .errorMessage(result.path("msg").asText());
+                } else {
+                    builder.order(objectMapper.treeToValue(result, OrderResponse.class));
+                }
+                BatchOrderResult batchResult = builder.build();
+                if (!batchResult.isSuccess()) {
+                    log.error("批量下單失敗: {} {}, 錯誤碼: {}, 訊息: {}", orders.get(i).getSymbol(), orders.get(i).getSide(),
+                            batchResult.getErrorCode(), batchResult.getErrorMessage());
+                }
+                batchResults.add(batchResult);
+            }
+            return batchResults;
+        } catch (BinanceApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量下單失敗", e);
+            throw new BinanceApiException("批量下單失敗: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public boolean cancelOrder(String symbol, Long orderId) {
         try {
@@ -342,63 +513,12 @@ public class BinanceApiServiceImpl implements BinanceApiService {
 
     @Override
     public List<String> getAvailableFuturesPairs() {
-        try {
-            String endpoint = "/fapi/v1/exchangeInfo";
-            String response = callApi(endpoint, null, "GET", false);
-
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode symbols = root.get("symbols");
-
-            List<String> availablePairs = new ArrayList<>();
-
-            for (JsonNode symbolNode : symbols) {
-                // 只返回正在交易中的交易對
-                if ("TRADING".equals(symbolNode.get("status").asText())) {
-                    availablePairs.add(symbolNode.get("symbol").asText());
-                }
-            }
-
-            // 按英文字母順序排序
-            Collections.sort(availablePairs);
-
-            return availablePairs;
-        } catch (Exception e) {
-            log.error("獲取可用交易對失敗", e);
-            throw new BinanceApiException("獲取可用交易對失敗: " + e.getMessage(), e);
-        }
+        return new ArrayList<>(symbolMetadataService.getTradingSymbols());
     }
 
     @Override
     public PriceFilter getPriceFilter(String symbol) {
-        try {
-            String endpoint = "/fapi/v1/exchangeInfo";
-            String response = callApi(endpoint, null, "GET", false);
-
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode symbols = root.get("symbols");
-
-            for (JsonNode symbolNode : symbols) {
-                if (symbol.equals(symbolNode.get("symbol").asText())) {
-                    JsonNode filters = symbolNode.get("filters");
-
-                    // 查找價格過濾器
-                    for (JsonNode filter : filters) {
-                        if ("PRICE_FILTER".equals(filter.get("filterType").asText())) {
-                            return PriceFilter.builder()
-                                    .minPrice(new BigDecimal(filter.get("minPrice").asText()))
-                                    .maxPrice(new BigDecimal(filter.get("maxPrice").asText()))
-                                    .tickSize(new BigDecimal(filter.get("tickSize").asText()))
-                                    .build();
-                        }
-                    }
-                }
-            }
-
-            throw new BinanceApiException("未找到交易對價格過濾器: " + symbol);
-        } catch (Exception e) {
-            log.error("獲取價格過濾器失敗: {}", symbol, e);
-            throw new BinanceApiException("獲取價格過濾器失敗: " + e.getMessage(), e);
-        }
+        return symbolMetadataService.getPriceFilter(symbol);
     }
 
     @Override
@@ -448,17 +568,56 @@ public class BinanceApiServiceImpl implements BinanceApiService {
     @Override
     public BigDecimal adjustQuantityToPrecision(String symbol, BigDecimal quantity) {
         try {
-            SymbolInfo symbolInfo = getSymbolInfo(symbol);
-            int quantityPrecision = symbolInfo.getQuantityPrecision();
+            LotSizeFilter lotSizeFilter = symbolMetadataService.getLotSizeFilter(symbol);
+            BigDecimal stepSize = lotSizeFilter.getStepSize();
 
-            // 調整數量到指定精度，使用ROUND_UP確保不會因精度調整導致名義價值低於最小要求
-            return quantity.setScale(quantityPrecision, BigDecimal.ROUND_UP);
+            // 調整數量為數量步長的整數倍，使用ROUND_UP確保不會因步長調整導致名義價值低於最小要求
+            BigDecimal adjusted = quantity.divide(stepSize, 0, RoundingMode.UP).multiply(stepSize);
+            if (lotSizeFilter.getMinQty() != null && adjusted.compareTo(lotSizeFilter.getMinQty()) < 0) {
+                adjusted = lotSizeFilter.getMinQty();
+            }
+            if (lotSizeFilter.getMaxQty() != null && adjusted.compareTo(lotSizeFilter.getMaxQty()) > 0) {
+                log.warn("{} 數量 {} 超過最大數量 {}，以最大數量下單", symbol, adjusted, lotSizeFilter.getMaxQty());
+                adjusted = lotSizeFilter.getMaxQty();
+            }
+            return adjusted.setScale(Math.max(stepSize.stripTrailingZeros().scale(), 0), RoundingMode.DOWN);
         } catch (Exception e) {
             log.error("調整數量失敗: {}", symbol, e);
             throw new BinanceApiException("調整數量失敗: " + e.getMessage(), e);
         }
     }
 
+    @Override
+    public String startUserDataStream() {
+        try {
+            String response = callApi("/fapi/v1/listenKey", null, "POST", false);
+            return objectMapper.readTree(response).get("listenKey").asText();
+        } catch (Exception e) {
+            log.error("建立用戶數據流失敗", e);
+            throw new BinanceApiException("建立用戶數據流失敗: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void keepAliveUserDataStream() {
+        try {
+            callApi("/fapi/v1/listenKey", null, "PUT", false);
+        } catch (Exception e) {
+            log.error("延長用戶數據流失敗", e);
+            throw new BinanceApiException("延長用戶數據流失敗: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void closeUserDataStream() {
+        try {
+            callApi("/fapi/v1/listenKey", null, "DELETE", false);
+        } catch (Exception e) {
+            log.error("關閉用戶數據流失敗", e);
+            throw new BinanceApiException("關閉用戶數據流失敗: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 調用幣安API
      *
@@ -469,147 +628,104 @@ public class BinanceApiServiceImpl implements BinanceApiService {
      * @return API回應
      */
     private String callApi(String endpoint, Map<String, Object> params, String method, boolean needSignature) throws IOException {
-        // 檢查API金鑰是否已設定（如果需要簽名）
-        if (needSignature) {
-            if (binanceConfig.getApiKey() == null || binanceConfig.getApiKey().isEmpty() ||
-                    binanceConfig.getSecretKey() == null || binanceConfig.getSecretKey().isEmpty()) {
-                throw new BinanceApiException("API金鑰或秘鑰未配置，請在設定頁面配置API金鑰");
-            }
-        }
-
-        String url = binanceConfig.getBaseUrl() + endpoint;
-        HttpUriRequestBase request;
+        return callApi(endpoint, params, method, needSignature,
+                content -> new String(content.readAllBytes(), StandardCharsets.UTF_8));
+    }
 
-        // 構建查詢參數
-        StringBuilder queryString = new StringBuilder();
-        if (params != null && !params.isEmpty()) {
-            for (Map.Entry<String, Object> entry : params.entrySet()) {
-                if (queryString.length() > 0) {
-                    queryString.append("&");
-                }
-                queryString.append(entry.getKey()).append("=").append(entry.getValue());
-            }
+    /**
+     * 調用幣安API，並以指定的讀取器處理成功的回應內容
+     *
+     * @param endpoint API端點
+     * @param params 參數
+     * @param method HTTP方法
+     * @param needSignature 是否需要簽名
+     * @param reader 回應內容讀取器
+     * @return 讀取器的處理結果
+     */
+    private <T> T callApi(String endpoint, Map<String, Object> params, String method, boolean needSignature,
+                          ResponseReader<T> reader) throws IOException {
+        // 檢查API金鑰是否已設定（如果需要簽名）
+        if (needSignature && !requestSigner.hasCredentials()) {
+            throw new BinanceApiException("API金鑰或秘鑰未配置，請在設定頁面配置API金鑰");
         }
 
-        // 添加時間戳和簽名
-        if (needSignature) {
-            if (queryString.length() > 0) {
-                queryString.append("&");
-            }
+        for (int attempt = 0; ; attempt++) {
+            // 先取得權重額度再簽名，避免等待額度後時間戳已過期
+            binanceRateLimiterService.acquire(endpoint, method, params);
 
-            long timestamp = System.currentTimeMillis();
-            queryString.append("timestamp=").append(timestamp);
+            String url = binanceConfig.getBaseUrl() + endpoint;
+            HttpUriRequestBase request;
 
-            // 生成簽名
-            String signature = generateSignature(queryString.toString(), binanceConfig.getSecretKey());
-            queryString.append("&signature=").append(signature);
-        }
+            // 構建查詢參數（需要簽名時附加時間戳和簽名）
+            String queryString = requestSigner.buildQueryString(params, needSignature);
 
-        // 根據HTTP方法創建請求
-        if ("GET".equals(method)) {
-            if (queryString.length() > 0) {
-                url = url + "?" + queryString;
-            }
-            request = new HttpGet(url);
-        } else if ("POST".equals(method)) {
-            request = new HttpPost(url);
-            if (queryString.length() > 0) {
-                ((HttpPost) request).setEntity(new StringEntity(queryString.toString(), ContentType.APPLICATION_FORM_URLENCODED));
-            }
-        } else if ("DELETE".equals(method)) {
-            if (queryString.length() > 0) {
-                url = url + "?" + queryString;
+            // 根據HTTP方法創建請求
+            if ("GET".equals(method)) {
+                if (!queryString.isEmpty()) {
+                    url = url + "?" + queryString;
+                }
+                request = new HttpGet(url);
+            } else if ("POST".equals(method)) {
+                request = new HttpPost(url);
+                if (!queryString.isEmpty()) {
+                    ((HttpPost) request).setEntity(new StringEntity(queryString, ContentType.APPLICATION_FORM_URLENCODED));
+                }
+            } else if ("DELETE".equals(method)) {
+                if (!queryString.isEmpty()) {
+                    url = url + "?" + queryString;
+                }
+                request = new HttpDelete(url);
+            } else if ("PUT".equals(method)) {
+                if (!queryString.isEmpty()) {
+                    url = url + "?" + queryString;
+                }
+                request = new HttpPut(url);
+            } else {
+                throw new BinanceApiException("不支持的HTTP方法: " + method);
             }
-            request = new HttpDelete(url);
-        } else {
-            throw new BinanceApiException("不支持的HTTP方法: " + method);
-        }
-
-        // 添加API密鑰到頭部（如果已設定）
-        if (binanceConfig.getApiKey() != null && !binanceConfig.getApiKey().isEmpty()) {
-            request.addHeader("X-MBX-APIKEY", binanceConfig.getApiKey());
-        }
 
-        // 執行請求
-        try (CloseableHttpResponse response = httpClient.execute(request)) {
-            String responseBody;
-            try {
-                responseBody = EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
-            } catch (ParseException e) {
-                log.error("解析API回應失敗", e);
-                throw new BinanceApiException("解析API回應失敗: " + e.getMessage(), e);
+            // 添加API密鑰到頭部（如果已設定）
+            if (binanceConfig.getApiKey() != null && !binanceConfig.getApiKey().isEmpty()) {
+                request.addHeader("X-MBX-APIKEY", binanceConfig.getApiKey());
             }
 
-            int statusCode = response.getCode();
-            if (statusCode != 200) {
-                log.error("API請求失敗，狀態碼: {}, 回應: {}", statusCode, responseBody);
-                throw new BinanceApiException("API請求失敗，狀態碼: " + statusCode + ", 回應: " + responseBody);
+            // 執行請求，並以回應標頭校正限流狀態
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                int statusCode = response.getCode();
+                binanceRateLimiterService.recordResponse(statusCode,
+                        headerValue(response, "X-MBX-USED-WEIGHT-1M"),
+                        headerValue(response, "X-MBX-ORDER-COUNT-1M"),
+                        headerValue(response, "Retry-After"));
+                if (statusCode != 200) {
+                    String responseBody = response.getEntity() != null
+                            ? new String(response.getEntity().getContent().readAllBytes(), StandardCharsets.UTF_8) : "";
+                    if (needSignature && attempt == 0 && responseBody.contains(TIMESTAMP_REJECTED_CODE)) {
+                        // 時間戳超出 recvWindow 的請求未被處理，重新同步時間後可安全重送一次
+                        log.warn("請求時間戳被拒絕，重新同步伺服器時間後重試: {}", responseBody);
+                        timeSyncService.synchronize();
+                        continue;
+                    }
+                    log.error("API請求失敗，狀態碼: {}, 回應: {}", statusCode, responseBody);
+                    throw new BinanceApiException("API請求失敗，狀態碼: " + statusCode + ", 回應: " + responseBody, statusCode);
+                }
+                try (InputStream content = response.getEntity().getContent()) {
+                    return reader.read(content);
+                }
             }
-            return responseBody;
         }
     }
 
-    /**
-     * 生成HMAC SHA256簽名
-     *
-     * @param data 要簽名的數據
-     * @param key 密鑰
-     * @return 簽名
-     */
-    private String generateSignature(String data, String key) {
-        try {
-            Mac hmacSha256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            hmacSha256.init(secretKeySpec);
-
-            byte[] hash = hmacSha256.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
-        } catch (Exception e) {
-            log.error("生成簽名失敗", e);
-            throw new BinanceApiException("生成簽名失敗: " + e.getMessage(), e);
-        }
+    private static String headerValue(CloseableHttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
     }
 
     /**
-     * 將位元組轉換為十六進制字串
-     *
-     * @param bytes 位元組
-     * @return 十六進制字串
+     * 回應內容讀取器
      */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder hexString = new StringBuilder(2 * bytes.length);
-        for (byte b : bytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        return hexString.toString();
-    }
-
-    private String calculateUnrealizedProfitPercentage(
-            BigDecimal unrealizedProfit,
-            BigDecimal markPrice,
-            BigDecimal positionAmt,
-            BigDecimal leverage
-    ) {
-        // Avoid division by zero
-        if (markPrice.equals(BigDecimal.ZERO) || leverage.equals(BigDecimal.ZERO)) {
-            return "0.00%";
-        }
-
-        // Calculate Notional Value
-        BigDecimal notionalValue = markPrice.multiply(positionAmt.abs());
-
-        // Calculate Initial Margin
-        BigDecimal initialMargin = notionalValue.divide(leverage, 4, RoundingMode.HALF_UP);
-
-        // Calculate the Profit Rate
-        BigDecimal profitRate = unrealizedProfit.divide(initialMargin, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
-
-        // Format to 2 decimal places with % symbol
-        return String.format("%.2f%%", profitRate);
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(InputStream content) throws IOException;
     }
 
 }
@@ -0,0 +1,253 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceAsyncApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceRateLimiterService;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.ResilientBinanceApiService.EndpointGroup;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineJsonDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 幣安永續合約非同步API服務實現類
+ * 以 httpclient5 非同步客戶端發送請求，連線池與 keep-alive 可配置；
+ * 回應的解析在獨立的回呼執行緒進行，不佔用 I/O 反應器執行緒；
+ * 請求經由 {@link ResilientBinanceApiService} 的斷路器與重試預算，與同步呼叫共用容錯狀態
+ */
+@Slf4j
+@Service
+public class BinanceAsyncApiServiceImpl implements BinanceAsyncApiService {
+
+    private final BinanceConfig binanceConfig;
+    private final ObjectMapper objectMapper;
+    private final CloseableHttpAsyncClient httpAsyncClient;
+    private final ExecutorService callbackExecutor;
+
+    private final BinanceRateLimiterService binanceRateLimiterService;
+    private final BinanceRequestSigner requestSigner;
+    private final ResilientBinanceApiService resilientBinanceApiService;
+
+    @Autowired
+    public BinanceAsyncApiServiceImpl(BinanceConfig binanceConfig, ObjectMapper objectMapper, SSLContext binanceSslContext,
+                                      BinanceRateLimiterService binanceRateLimiterService,
+                                      BinanceRequestSigner requestSigner,
+                                      ResilientBinanceApiService resilientBinanceApiService,
+                                      @Value("${binance-async.max-connections:20}") int maxConnections,
+                                      @Value("${binance-async.max-connections-per-route:10}") int maxConnectionsPerRoute,
+                                      @Value("${binance-async.keep-alive-ms:30000}") long keepAliveMillis,
+                                      @Value("${binance-async.io-threads:2}") int ioThreads,
+                                      @Value("${binance-async.callback-threads:4}") int callbackThreads) {
+        this.binanceConfig = binanceConfig;
+        this.objectMapper = objectMapper;
+        this.binanceRateLimiterService = binanceRateLimiterService;
+        this.requestSigner = requestSigner;
+        this.resilientBinanceApiService = resilientBinanceApiService;
+
+        // 與同步客戶端共用 SSLContext，TLS session 可跨客戶端恢復
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setTlsStrategy(new DefaultClientTlsStrategy(binanceSslContext))
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(binanceConfig.getConnectionTimeout()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(binanceConfig.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        this.httpAsyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(ioThreads)
+                        .setSoKeepAlive(true)
+                        .setTcpNoDelay(true)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(binanceConfig.getReadTimeout()))
+                        .build())
+                // 伺服器未指定時，閒置連線保留 keep-alive-ms 供後續請求重用
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofMilliseconds(keepAliveMillis))
+                .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMillis))
+                .build();
+        this.httpAsyncClient.start();
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.callbackExecutor = Executors.newFixedThreadPool(Math.max(1, callbackThreads), runnable -> {
+            Thread thread = new Thread(runnable, "binance-async-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("幣安非同步API客戶端已啟動: 最大連線 {}, 每路由 {}, keep-alive {} ms",
+                maxConnections, maxConnectionsPerRoute, keepAliveMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpAsyncClient.close(CloseMode.GRACEFUL);
+        callbackExecutor.shutdownNow();
+    }
+
+    @Override
+    public CompletableFuture<CandleSeries> getCandleSeriesAsync(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("interval", interval);
+
+        if (startTime != null) {
+            params.put("startTime", startTime);
+        }
+        if (endTime != null) {
+            params.put("endTime", endTime);
+        }
+        if (limit != null && limit > 0) {
+            params.put("limit", limit);
+        }
+
+        int expectedSize = limit != null && limit > 0 ? limit : 500;
+        // 與同步的 getCandleSeries 共用行情斷路器與重試預算
+        return resilientBinanceApiService.executeAsync("getCandleSeriesAsync", EndpointGroup.MARKET_DATA, true,
+                () -> callApiAsync("/fapi/v1/klines", params, "GET",
+                        in -> KlineJsonDecoder.decode(objectMapper.getFactory(), in, expectedSize),
+                        "獲取K線數據失敗: " + symbol));
+    }
+
+    /**
+     * 非同步調用幣安API
+     *
+     * @param endpoint API端點
+     * @param params 參數
+     * @param method HTTP方法
+     * @param reader 回應內容讀取器
+     * @param errorMessage 失敗時的錯誤訊息前綴
+     * @return 讀取器處理結果的 future
+     */
+    private <T> CompletableFuture<T> callApiAsync(String endpoint, Map<String, Object> params, String method,
+                                                  ResponseReader<T> reader, String errorMessage) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            binanceRateLimiterService.acquire(endpoint, method, params);
+            String queryString = requestSigner.buildQueryString(params, false);
+            String url = binanceConfig.getBaseUrl() + endpoint;
+
+            SimpleRequestBuilder builder;
+            if ("GET".equals(method)) {
+                builder = SimpleRequestBuilder.get(queryString.isEmpty() ? url : url + "?" + queryString);
+            } else if ("POST".equals(method)) {
+                builder = SimpleRequestBuilder.post(url);
+                if (!queryString.isEmpty()) {
+                    builder.setBody(queryString, ContentType.APPLICATION_FORM_URLENCODED);
+                }
+            } else if ("DELETE".equals(method)) {
+                builder = SimpleRequestBuilder.delete(queryString.isEmpty() ? url : url + "?" + queryString);
+            } else {
+                throw new BinanceApiException("不支持的HTTP方法: " + method);
+            }
+
+            // 添加API密鑰到頭部（如果已設定）
+            if (binanceConfig.getApiKey() != null && !binanceConfig.getApiKey().isEmpty()) {
+                builder.addHeader("X-MBX-APIKEY", binanceConfig.getApiKey());
+            }
+            SimpleHttpRequest request = builder.build();
+
+            httpAsyncClient.execute(request, new FutureCallback<SimpleHttpResponse>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    try {
+                        callbackExecutor.execute(() -> handleResponse(response, reader, errorMessage, future));
+                    } catch (Exception e) {
+                        future.completeExceptionally(new BinanceApiException(errorMessage + ": " + e.getMessage(), e));
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    log.error("{}: {}", errorMessage, ex.getMessage());
+                    future.completeExceptionally(new BinanceApiException(errorMessage + ": " + ex.getMessage(), ex));
+                }
+
+                @Override
+                public void cancelled() {
+                    future.cancel(false);
+                }
+            });
+        } catch (Exception e) {
+            log.error("{}: {}", errorMessage, e.getMessage());
+            future.completeExceptionally(e instanceof BinanceApiException ? e
+                    : new BinanceApiException(errorMessage + ": " + e.getMessage(), e));
+        }
+        return future;
+    }
+
+    /**
+     * 檢查狀態碼並解析回應內容
+     */
+    private <T> void handleResponse(SimpleHttpResponse response, ResponseReader<T> reader, String errorMessage,
+                                    CompletableFuture<T> future) {
+        try {
+            int statusCode = response.getCode();
+            binanceRateLimiterService.recordResponse(statusCode,
+                    headerValue(response, "X-MBX-USED-WEIGHT-1M"),
+                    headerValue(response, "X-MBX-ORDER-COUNT-1M"),
+                    headerValue(response, "Retry-After"));
+
+            byte[] body = response.getBodyBytes() != null ? response.getBodyBytes() : new byte[0];
+            if (statusCode != 200) {
+                String responseBody = new String(body, StandardCharsets.UTF_8);
+                log.error("API請求失敗，狀態碼: {}, 回應: {}", statusCode, responseBody);
+                throw new BinanceApiException("API請求失敗，狀態碼: " + statusCode + ", 回應: " + responseBody, statusCode);
+            }
+            future.complete(reader.read(new ByteArrayInputStream(body)));
+        } catch (Exception e) {
+            future.completeExceptionally(e instanceof BinanceApiException ? e
+                    : new BinanceApiException(errorMessage + ": " + e.getMessage(), e));
+        }
+    }
+
+    private static String headerValue(SimpleHttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * 回應內容讀取器
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        T read(InputStream content) throws IOException;
+    }
+}
@@ -0,0 +1,345 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceRateLimiterService;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineIntervalUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 幣安API請求限流服務實現類
+ * 令牌桶以每分鐘額度的速率連續補充，並以回應標頭回報的已用權重校正；
+ * 較低優先級的請求必須在桶內保留一定額度後才能取用，確保下單不會被批量回測擠掉
+ */
+@Slf4j
+@Service
+public class BinanceRateLimiterServiceImpl implements BinanceRateLimiterService {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    // 未帶 Retry-After 的 429 預設暫停時間
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 10_000L;
+
+    private final int weightLimit;       // 每分鐘請求權重上限
+    private final int orderLimit;        // 每分鐘下單次數上限
+    private final int tradingReserve;    // 交易查詢需保留給下單的權重
+    private final int analyticsReserve;  // 分析類讀取需保留給下單與交易查詢的權重
+    private final long maxWaitMillis;    // 取得額度的最長等待時間
+    private final LongSupplier clock;    // 毫秒時鐘，測試時可注入
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    // 以下狀態由 lock 保護
+    private double weightTokens;
+    private double orderTokens;
+    private long lastRefillMillis;
+    private long pausedUntilMillis;  // 429 後暫停所有請求直到此時間
+    private long bannedUntilMillis;  // 418 IP 封禁解除時間
+
+    // 最近一次回應標頭回報的用量
+    private volatile int reportedUsedWeight;
+    private volatile int reportedOrderCount;
+    private volatile long reportedAtMillis;
+
+    private final AtomicLongArray acquiredWeight = new AtomicLongArray(RequestPriority.values().length);
+    private final AtomicLongArray throttledRequests = new AtomicLongArray(RequestPriority.values().length);
+    private final AtomicLong throttledMillis = new AtomicLong();
+    private final AtomicLong rateLimitedResponses = new AtomicLong();
+    private final AtomicLong bannedResponses = new AtomicLong();
+
+    @Autowired
+    public BinanceRateLimiterServiceImpl(@Value("${binance-rate-limit.weight-per-minute:2400}") int weightLimit,
+                                         @Value("${binance-rate-limit.orders-per-minute:1200}") int orderLimit,
+                                         @Value("${binance-rate-limit.trading-reserve:200}") int tradingReserve,
+                                         @Value("${binance-rate-limit.analytics-reserve:600}") int analyticsReserve,
+                                         @Value("${binance-rate-limit.max-wait-ms:60000}") long maxWaitMillis) {
+        this(weightLimit, orderLimit, tradingReserve, analyticsReserve, maxWaitMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 毫秒時鐘（令牌補充、暫停與封禁時間皆以此計算）
+     */
+    public BinanceRateLimiterServiceImpl(int weightLimit, int orderLimit, int tradingReserve, int analyticsReserve,
+                                         long maxWaitMillis, LongSupplier clock) {
+        this.clock = clock;
+        this.weightLimit = weightLimit;
+        this.orderLimit = orderLimit;
+        this.tradingReserve = Math.max(0, Math.min(tradingReserve, weightLimit / 2));
+        this.analyticsReserve = Math.max(this.tradingReserve, Math.min(analyticsReserve, weightLimit / 2));
+        this.maxWaitMillis = maxWaitMillis;
+        this.weightTokens = weightLimit;
+        this.orderTokens = orderLimit;
+        this.lastRefillMillis = clock.getAsLong();
+        log.info("幣安API限流: 權重 {}/分鐘, 下單 {}/分鐘, 交易查詢保留 {}, 分析讀取保留 {}",
+                weightLimit, orderLimit, this.tradingReserve, this.analyticsReserve);
+    }
+
+    @Override
+    public void acquire(String endpoint, String method, Map<String, Object> params) {
+        RequestPriority priority = getRequestPriority(endpoint, method);
+        // 單一請求的權重不超過該優先級可用的容量，否則永遠無法取得
+        int weight = Math.min(getRequestWeight(endpoint, method, params), weightLimit - reserveOf(priority));
+        int orders = Math.min(getOrderCount(endpoint, method, params), orderLimit);
+
+        long startMillis = clock.getAsLong();
+        long deadline = startMillis + maxWaitMillis;
+        boolean throttled = false;
+        lock.lock();
+        try {
+            while (true) {
+                long now = clock.getAsLong();
+                if (bannedUntilMillis > now) {
+                    throw new BinanceApiException("IP已被幣安暫時封禁，解除時間: " + bannedUntilMillis + "，請求 " + endpoint + " 已取消");
+                }
+                refill();
+
+                long waitMillis;
+                if (pausedUntilMillis > now) {
+                    waitMillis = pausedUntilMillis - now;
+                } else {
+                    double weightShortage = weight + reserveOf(priority) - weightTokens;
+                    double orderShortage = orders - orderTokens;
+                    if (weightShortage <= 0 && orderShortage <= 0) {
+                        weightTokens -= weight;
+                        orderTokens -= orders;
+                        acquiredWeight.addAndGet(priority.ordinal(), weight);
+                        break;
+                    }
+                    waitMillis = (long) Math.ceil(Math.max(
+                            weightShortage > 0 ? weightShortage * MINUTE_MILLIS / weightLimit : 0,
+                            orderShortage > 0 ? orderShortage * MINUTE_MILLIS / orderLimit : 0));
+                }
+
+                if (now + waitMillis > deadline) {
+                    throw new BinanceApiException("等待幣安API額度逾時（" + maxWaitMillis + " ms），請求 " + endpoint + " 已取消");
+                }
+                if (!throttled) {
+                    throttled = true;
+                    throttledRequests.incrementAndGet(priority.ordinal());
+                }
+                // 其他執行緒回報額度變化時提前喚醒重新檢查
+                released.await(Math.max(1, waitMillis), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BinanceApiException("等待幣安API額度時被中斷", e);
+        } finally {
+            lock.unlock();
+            if (throttled) {
+                long waited = clock.getAsLong() - startMillis;
+                throttledMillis.addAndGet(waited);
+                log.debug("請求 {} {} ({}) 等待額度 {} ms", method, endpoint, priority, waited);
+            }
+        }
+    }
+
+    @Override
+    public void recordResponse(int statusCode, String usedWeight, String orderCount, String retryAfter) {
+        long now = clock.getAsLong();
+        Integer used = parseHeader(usedWeight);
+        Integer orders = parseHeader(orderCount);
+        Integer retryAfterSeconds = parseHeader(retryAfter);
+
+        lock.lock();
+        try {
+            refill();
+            // 伺服器回報的已用量比本地估計多時（例如同IP的其他程式），以伺服器為準
+            if (used != null) {
+                reportedUsedWeight = used;
+                reportedAtMillis = now;
+                weightTokens = Math.min(weightTokens, weightLimit - used);
+            }
+            if (orders != null) {
+                reportedOrderCount = orders;
+                orderTokens = Math.min(orderTokens, orderLimit - orders);
+            }
+
+            long retryAfterMillis = retryAfterSeconds != null ? retryAfterSeconds * 1000L : DEFAULT_RETRY_AFTER_MILLIS;
+            if (statusCode == 429) {
+                rateLimitedResponses.incrementAndGet();
+                pausedUntilMillis = Math.max(pausedUntilMillis, now + retryAfterMillis);
+                weightTokens = Math.min(weightTokens, 0);
+                log.warn("幣安API回應 429（超過請求頻率），暫停所有請求 {} ms", retryAfterMillis);
+            } else if (statusCode == 418) {
+                bannedResponses.incrementAndGet();
+                bannedUntilMillis = Math.max(bannedUntilMillis, now + retryAfterMillis);
+                weightTokens = Math.min(weightTokens, 0);
+                log.error("幣安API回應 418（IP已被封禁），{} ms 內拒絕所有請求", retryAfterMillis);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getRequestWeight(String endpoint, String method, Map<String, Object> params) {
+        boolean hasSymbol = params != null && params.get("symbol") != null;
+        switch (endpoint) {
+            case "/fapi/v1/klines":
+            case "/fapi/v1/continuousKlines":
+            case "/fapi/v1/markPriceKlines": {
+                Object limit = params != null ? params.get("limit") : null;
+                return KlineIntervalUtil.klineRequestWeight(limit != null ? Integer.parseInt(limit.toString()) : 500);
+            }
+            case "/fapi/v1/ticker/price":
+                return hasSymbol ? 1 : 2;
+            case "/fapi/v1/ticker/bookTicker":
+                return hasSymbol ? 2 : 5;
+            case "/fapi/v1/openOrders":
+                return hasSymbol ? 1 : 40;
+            case "/fapi/v2/balance":
+            case "/fapi/v2/positionRisk":
+            case "/fapi/v2/account":
+                return 5;
+            case "/fapi/v1/order":
+                // 下單不計入IP權重，只計入下單次數
+                return "POST".equals(method) ? 0 : 1;
+            case "/fapi/v1/batchOrders":
+                return "POST".equals(method) ? 5 : 1;
+            default:
+                return 1;
+        }
+    }
+
+    @Override
+    public RequestPriority getRequestPriority(String endpoint, String method) {
+        switch (endpoint) {
+            case "/fapi/v1/order":
+            case "/fapi/v1/batchOrders":
+            case "/fapi/v1/leverage":
+                return RequestPriority.ORDER;
+            case "/fapi/v1/klines":
+            case "/fapi/v1/continuousKlines":
+            case "/fapi/v1/markPriceKlines":
+            case "/fapi/v1/exchangeInfo":
+                return RequestPriority.ANALYTICS;
+            default:
+                return RequestPriority.TRADING;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long now = clock.getAsLong();
+        double availableWeight;
+        double availableOrders;
+        long pausedUntil;
+        long bannedUntil;
+        lock.lock();
+        try {
+            refill();
+            availableWeight = Math.max(0, weightTokens);
+            availableOrders = Math.max(0, orderTokens);
+            pausedUntil = pausedUntilMillis;
+            bannedUntil = bannedUntilMillis;
+        } finally {
+            lock.unlock();
+        }
+
+        // 標頭回報值只在同一分鐘內有效
+        boolean reportFresh = reportedAtMillis / MINUTE_MILLIS == now / MINUTE_MILLIS;
+        double localUtilization = 1.0 - availableWeight / weightLimit;
+        double reportedUtilization = reportFresh ? (double) reportedUsedWeight / weightLimit : 0.0;
+
+        metrics.put("weightLimitPerMinute", weightLimit);
+        metrics.put("availableWeight", Math.round(availableWeight));
+        metrics.put("reportedUsedWeight1m", reportFresh ? reportedUsedWeight : 0);
+        metrics.put("weightUtilization", Math.round(Math.max(localUtilization, reportedUtilization) * 1000) / 1000.0);
+        metrics.put("orderLimitPerMinute", orderLimit);
+        metrics.put("availableOrders", Math.round(availableOrders));
+        metrics.put("reportedOrderCount1m", reportFresh ? reportedOrderCount : 0);
+
+        Map<String, Long> acquired = new LinkedHashMap<>();
+        Map<String, Long> throttled = new LinkedHashMap<>();
+        for (RequestPriority priority : RequestPriority.values()) {
+            acquired.put(priority.name(), acquiredWeight.get(priority.ordinal()));
+            throttled.put(priority.name(), throttledRequests.get(priority.ordinal()));
+        }
+        metrics.put("acquiredWeight", acquired);
+        metrics.put("throttledRequests", throttled);
+        metrics.put("throttledMillis", throttledMillis.get());
+        metrics.put("rateLimitedResponses", rateLimitedResponses.get());
+        metrics.put("bannedResponses", bannedResponses.get());
+        metrics.put("pausedUntil", pausedUntil > now ? pausedUntil : null);
+        metrics.put("bannedUntil", bannedUntil > now ? bannedUntil : null);
+        return metrics;
+    }
+
+    /**
+     * 依經過時間補充令牌（需持有 lock）
+     */
+    private void refill() {
+        long nowMillis = clock.getAsLong();
+        if (nowMillis <= lastRefillMillis) {
+            // 時鐘回撥時等到追上上次補充的時間再繼續
+            return;
+        }
+        double elapsedMinutes = (nowMillis - lastRefillMillis) / (double) MINUTE_MILLIS;
+        lastRefillMillis = nowMillis;
+        weightTokens = Math.min(weightLimit, weightTokens + elapsedMinutes * weightLimit);
+        orderTokens = Math.min(orderLimit, orderTokens + elapsedMinutes * orderLimit);
+    }
+
+    /**
+     * 各優先級取用前需保留在桶內的權重
+     */
+    private int reserveOf(RequestPriority priority) {
+        switch (priority) {
+            case ORDER:
+                return 0;
+            case TRADING:
+                return tradingReserve;
+            default:
+                return analyticsReserve;
+        }
+    }
+
+    /**
+     * 請求計入的下單次數
+     */
+    private int getOrderCount(String endpoint, String method, Map<String, Object> params) {
+        if (!"POST".equals(method)) {
+            return 0;
+        }
+        if ("/fapi/v1/order".equals(endpoint)) {
+            return 1;
+        }
+        if ("/fapi/v1/batchOrders".equals(endpoint) && params != null && params.get("batchOrders") != null) {
+            // 批量下單參數為訂單的 JSON 陣列（可能已 URL 編碼），以物件數計算
+            String batch = params.get("batchOrders").toString();
+            int count = 0;
+            for (int i = 0; i < batch.length(); i++) {
+                if (batch.charAt(i) == '{' || batch.regionMatches(true, i, "%7B", 0, 3)) {
+                    count++;
+                }
+            }
+            return Math.max(1, count);
+        }
+        return 0;
+    }
+
+    private static Integer parseHeader(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
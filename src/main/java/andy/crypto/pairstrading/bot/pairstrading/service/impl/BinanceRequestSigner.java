@@ -0,0 +1,184 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 幣安請求簽名器
+ * 同步與非同步API服務共用的查詢字串組裝與 HMAC SHA256 簽名。
+ * 每個執行緒快取已初始化的 Mac（秘鑰透過 BinanceConfig 變更時重建）與可重用的緩衝區，
+ * 查詢參數直接寫入位元組緩衝區計算簽名，十六進制編碼使用查表，每次簽名只產生最終的查詢字串。
+ * 時間戳使用與伺服器同步後的時間，並附加設定的 recvWindow
+ */
+@Slf4j
+@Component
+public class BinanceRequestSigner {
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // HMAC SHA256 輸出長度
+    private static final int SIGNATURE_BYTES = 32;
+
+    private final BinanceConfig binanceConfig;
+
+    // 伺服器時間同步，為 null 時使用本地時間且不附加 recvWindow
+    private final BinanceTimeSyncService timeSyncService;
+
+    private final ThreadLocal<SigningState> signingState = ThreadLocal.withInitial(SigningState::new);
+
+    public BinanceRequestSigner(BinanceConfig binanceConfig) {
+        this(binanceConfig, null);
+    }
+
+    @Autowired
+    public BinanceRequestSigner(BinanceConfig binanceConfig, @Lazy BinanceTimeSyncService timeSyncService) {
+        this.binanceConfig = binanceConfig;
+        this.timeSyncService = timeSyncService;
+    }
+
+    /**
+     * API金鑰與秘鑰是否都已設定
+     */
+    public boolean hasCredentials() {
+        return binanceConfig.getApiKey() != null && !binanceConfig.getApiKey().isEmpty()
+                && binanceConfig.getSecretKey() != null && !binanceConfig.getSecretKey().isEmpty();
+    }
+
+    /**
+     * 組裝查詢字串，需要簽名時附加時間戳和簽名
+     *
+     * @param params 參數，可為 null
+     * @param needSignature 是否需要簽名
+     * @return 查詢字串（不含 "?"）
+     */
+    public String buildQueryString(Map<String, Object> params, boolean needSignature) {
+        SigningState state = signingState.get();
+        StringBuilder queryString = state.queryString;
+        queryString.setLength(0);
+        if (params != null && !params.isEmpty()) {
+            for (Map.Entry<String, Object> entry : params.entrySet()) {
+                if (queryString.length() > 0) {
+                    queryString.append('&');
+                }
+                queryString.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+        }
+
+        // 添加時間戳和簽名
+        if (needSignature) {
+            if (!hasCredentials()) {
+                throw new BinanceApiException("API金鑰或秘鑰未配置，請在設定頁面配置API金鑰");
+            }
+            if (queryString.length() > 0) {
+                queryString.append('&');
+            }
+            if (timeSyncService != null) {
+                long recvWindow = timeSyncService.getRecvWindow();
+                if (recvWindow > 0 && (params == null || !params.containsKey("recvWindow"))) {
+                    queryString.append("recvWindow=").append(recvWindow).append('&');
+                }
+                queryString.append("timestamp=").append(timeSyncService.currentTimeMillis());
+            } else {
+                queryString.append("timestamp=").append(System.currentTimeMillis());
+            }
+
+            // 簽名直接以十六進制附加在查詢字串之後
+            int length = queryString.length();
+            queryString.append("&signature=");
+            appendSignature(state, queryString, length, queryString);
+        }
+        return queryString.toString();
+    }
+
+    /**
+     * 以設定的秘鑰生成HMAC SHA256簽名
+     *
+     * @param data 要簽名的數據
+     * @return 十六進制簽名
+     */
+    public String sign(CharSequence data) {
+        SigningState state = signingState.get();
+        StringBuilder hex = new StringBuilder(SIGNATURE_BYTES * 2);
+        appendSignature(state, data, data.length(), hex);
+        return hex.toString();
+    }
+
+    /**
+     * 計算 data 前 length 個字元的簽名並以十六進制附加到 target
+     */
+    private void appendSignature(SigningState state, CharSequence data, int length, StringBuilder target) {
+        try {
+            Mac mac = state.macFor(binanceConfig.getSecretKey());
+            byte[] buffer = state.encode(data, length);
+            if (buffer != null) {
+                mac.update(buffer, 0, length);
+            } else {
+                // 含非 ASCII 字元時改用 UTF-8 編碼
+                mac.update(data.subSequence(0, length).toString().getBytes(StandardCharsets.UTF_8));
+            }
+            mac.doFinal(state.signature, 0);
+
+            for (int i = 0; i < SIGNATURE_BYTES; i++) {
+                int b = state.signature[i] & 0xff;
+                target.append(HEX_DIGITS[b >>> 4]).append(HEX_DIGITS[b & 0x0f]);
+            }
+        } catch (Exception e) {
+            log.error("生成簽名失敗", e);
+            throw new BinanceApiException("生成簽名失敗: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 單一執行緒的簽名狀態
+     */
+    private static class SigningState {
+        private final StringBuilder queryString = new StringBuilder(256);
+        private final byte[] signature = new byte[SIGNATURE_BYTES];
+        private byte[] buffer = new byte[256];
+        private Mac mac;
+        private String secretKey;  // mac 目前使用的秘鑰
+
+        /**
+         * 獲取以指定秘鑰初始化的 Mac，秘鑰變更時重新初始化
+         */
+        Mac macFor(String key) throws Exception {
+            if (mac == null) {
+                mac = Mac.getInstance(HMAC_SHA256);
+            }
+            if (!key.equals(secretKey)) {
+                mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
+                secretKey = key;
+            }
+            return mac;
+        }
+
+        /**
+         * 將 ASCII 字元寫入可重用的緩衝區，遇到非 ASCII 字元時返回 null
+         */
+        byte[] encode(CharSequence data, int length) {
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = data.charAt(i);
+                if (c >= 0x80) {
+                    return null;
+                }
+                buffer[i] = (byte) c;
+            }
+            return buffer;
+        }
+    }
+}
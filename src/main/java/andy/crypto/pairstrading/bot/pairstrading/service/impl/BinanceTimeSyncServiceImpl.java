@@ -0,0 +1,137 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.util.ClockOffsetEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 幣安伺服器時間同步服務實現類
+ * 每次同步連續取樣數次，偏移估計取誤差上限（RTT/2 加上樣本年齡的漂移）最小的樣本
+ */
+@Slf4j
+@Service
+public class BinanceTimeSyncServiceImpl implements BinanceTimeSyncService {
+
+    // 與API服務互相依賴（簽名需要校正後的時間），延遲注入
+    @Autowired
+    @Lazy
+    private BinanceApiService binanceApiService;
+
+    @Value("${binance-time-sync.enabled:true}")
+    private boolean enabled;
+
+    // 每次同步的取樣次數
+    @Value("${binance-time-sync.samples:3}")
+    private int samples;
+
+    @Value("${binance-time-sync.recv-window-ms:5000}")
+    private long recvWindow;
+
+    private final ClockOffsetEstimator estimator;
+
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private volatile boolean synced;
+    private volatile boolean initialAttempted;  // 第一次使用時是否已嘗試同步
+    private volatile long lastSyncTime;
+    private volatile double lastRttMillis = Double.NaN;
+    private volatile double driftPpm = Double.NaN;
+
+    public BinanceTimeSyncServiceImpl(@Value("${binance-time-sync.window-size:16}") int windowSize) {
+        this.estimator = new ClockOffsetEstimator(windowSize);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        long now = System.currentTimeMillis();
+        if (!enabled) {
+            return now;
+        }
+        if (!initialAttempted) {
+            synchronizeOnce();
+        }
+        return now + estimator.getOffsetMillis(now);
+    }
+
+    @Override
+    public long getRecvWindow() {
+        return recvWindow;
+    }
+
+    @Override
+    public synchronized void synchronize() {
+        long previousOffset = estimator.getOffsetMillis(System.currentTimeMillis());
+        long previousSyncTime = lastSyncTime;
+        int succeeded = 0;
+        for (int i = 0; i < Math.max(samples, 1); i++) {
+            try {
+                long localSend = System.currentTimeMillis();
+                long start = System.nanoTime();
+                long serverTime = binanceApiService.getServerTime();
+                double rttMillis = (System.nanoTime() - start) / 1_000_000.0;
+                estimator.addSample(localSend, rttMillis, serverTime);
+                lastRttMillis = rttMillis;
+                succeeded++;
+            } catch (Exception e) {
+                log.warn("取樣伺服器時間失敗: {}", e.getMessage());
+            }
+        }
+        if (succeeded == 0) {
+            failureCount.incrementAndGet();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long offset = estimator.getOffsetMillis(now);
+        if (synced && now > previousSyncTime) {
+            // 兩次同步之間偏移的變化率，反映本地時鐘的漂移速度
+            driftPpm = (offset - previousOffset) * 1e6 / (now - previousSyncTime);
+        }
+        synced = true;
+        lastSyncTime = now;
+        syncCount.incrementAndGet();
+        log.debug("伺服器時間同步完成: 偏移 {} ms, 誤差上限 {} ms", offset,
+                String.format("%.1f", estimator.getErrorBoundMillis(now)));
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("synced", synced);
+        metrics.put("offsetMs", estimator.getOffsetMillis(now));
+        metrics.put("errorBoundMs", estimator.getErrorBoundMillis(now));
+        metrics.put("lastRttMs", lastRttMillis);
+        metrics.put("driftPpm", driftPpm);
+        metrics.put("recvWindowMs", recvWindow);
+        metrics.put("lastSyncTime", lastSyncTime);
+        metrics.put("syncCount", syncCount.get());
+        metrics.put("failureCount", failureCount.get());
+        return metrics;
+    }
+
+    /**
+     * 第一次使用時同步，失敗時暫用本地時間，等待排程重試
+     */
+    private synchronized void synchronizeOnce() {
+        if (initialAttempted) {
+            return;
+        }
+        synchronize();
+        // 失敗時也不再重試，避免每個請求都阻塞在同步上
+        initialAttempted = true;
+        if (!synced) {
+            log.warn("伺服器時間同步失敗，暫時使用本地時間簽名");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandlePrefetchService;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandleStoreService;
+import andy.crypto.pairstrading.bot.pairstrading.service.TradingPairManagementService;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineIntervalUtil;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * K線預取服務實現類
+ */
+@Slf4j
+@Service
+public class CandlePrefetchServiceImpl implements CandlePrefetchService {
+
+    @Autowired
+    private TradingPairManagementService tradingPairManagementService;
+
+    @Autowired
+    private CandleStoreService candleStoreService;
+
+    @Autowired
+    private BinanceTimeSyncService timeSyncService;
+
+    // 需要預取的K線間隔
+    @Value("${candle-prefetch.intervals:1h}")
+    private List<String> intervals;
+
+    // 各間隔上次預取時當前K線的開盤時間，相同表示尚無新K線收盤
+    private final Map<String, Long> lastPrefetchedBars = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized int prefetchSavedCombinations() {
+        Set<String> symbols = new TreeSet<>();
+        for (String pairCombination : tradingPairManagementService.getSavedTradingPairCombinations()) {
+            for (String symbol : pairCombination.split(",")) {
+                if (!symbol.isBlank()) {
+                    symbols.add(symbol.trim());
+                }
+            }
+        }
+        if (symbols.isEmpty()) {
+            return 0;
+        }
+
+        long now = timeSyncService.currentTimeMillis();
+        int synchronizedCount = 0;
+        for (String interval : intervals) {
+            // 週線對齊週一、月線對齊月初，與幣安的K線切分一致
+            long bar = KlineIntervalUtil.openTimeOf(now, interval);
+            Long lastBar = lastPrefetchedBars.get(interval);
+            if (lastBar != null && lastBar == bar) {
+                continue;
+            }
+
+            long startTime = System.currentTimeMillis();
+            int added = 0;
+            boolean allSucceeded = true;
+            for (String symbol : symbols) {
+                try {
+                    added += candleStoreService.synchronize(symbol, interval);
+                    synchronizedCount++;
+                } catch (Exception e) {
+                    allSucceeded = false;
+                    log.warn("預取K線失敗: {} {}: {}", symbol, interval, e.getMessage());
+                }
+            }
+            // 有失敗時下次排程重試
+            if (allSucceeded) {
+                lastPrefetchedBars.put(interval, bar);
+            }
+            log.info("已預取 {} 個交易對的 {} K線，新增 {} 條，耗時 {} ms",
+                    symbols.size(), interval, added, System.currentTimeMillis() - startTime);
+        }
+        return synchronizedCount;
+    }
+}
@@ -0,0 +1,496 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceAsyncApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandleStoreService;
+import andy.crypto.pairstrading.bot.pairstrading.service.KlineBackfillService;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleArchive;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleResampler;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineIntervalUtil;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 本地K線儲存服務實現類
+ * 每個 (交易對, K線間隔) 對應一個壓縮K線檔案 ({@link CandleArchive})，只保存已收盤的K線，
+ * 讀取時只映射所需範圍的區塊；當前尚未收盤的K線只保留在記憶體中，每次同步時更新
+ */
+@Slf4j
+@Service
+public class CandleStoreServiceImpl implements CandleStoreService {
+
+    // 幣安單次請求K線數量上限
+    private static final int MAX_KLINES_PER_REQUEST = 1500;
+
+    // 剛完成增量同步的序列在此時間內直接讀取本地數據，不重複請求
+    private static final long SYNC_REUSE_MILLIS = 1000L;
+
+    @Autowired
+    private BinanceApiService binanceApiService;
+
+    @Autowired
+    private BinanceAsyncApiService binanceAsyncApiService;
+
+    @Autowired
+    private KlineBackfillService klineBackfillService;
+
+    // 判斷K線是否已收盤時使用伺服器時間，本地時鐘偏快時不會把仍在進行中的K線寫入檔案
+    @Autowired
+    private BinanceTimeSyncService timeSyncService;
+
+    @Value("${candle-store.dir:./data/candles}")
+    private String storeDir;
+
+    // 重採樣使用的基礎K線間隔（例如 "1m"），空白表示每個間隔各自下載
+    @Value("${candle-store.base-interval:}")
+    private String baseInterval;
+
+    // 重採樣時最多使用的基礎K線數量，超過時改為直接下載目標間隔
+    @Value("${candle-store.max-resample-base-candles:100000}")
+    private int maxResampleBaseCandles;
+
+    // 已載入的K線序列，key為 "交易對_間隔"
+    private final Map<String, CandleSeriesHolder> holders = new ConcurrentHashMap<>();
+
+    // 非同步同步完成後的本地讀取（可能需要同步補齊或讀檔）在此執行，不佔用非同步客戶端的回呼執行緒
+    private final ExecutorService readExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "candle-store-read");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        readExecutor.shutdownNow();
+    }
+
+    @Override
+    public List<CandlestickData> getCandlestickData(String symbol, String interval, int limit) {
+        return readTail(symbol, interval, limit).toCandlestickDataList();
+    }
+
+    @Override
+    public CandleSeries getCandleSeries(String symbol, String interval, int limit) {
+        return getCandleSeries(symbol, List.of(interval), limit).get(interval);
+    }
+
+    @Override
+    public Map<String, CandleSeries> getCandleSeries(String symbol, List<String> intervals, int limit) {
+        Map<String, CandleSeries> result = new LinkedHashMap<>();
+        List<String> resampled = new ArrayList<>();
+        long maxTargetMillis = 0;
+        for (String interval : intervals) {
+            if (isResampled(interval, limit)) {
+                resampled.add(interval);
+                maxTargetMillis = Math.max(maxTargetMillis, KlineIntervalUtil.toMillis(interval));
+            } else {
+                result.put(interval, readTail(symbol, interval, limit));
+            }
+        }
+
+        if (!resampled.isEmpty()) {
+            // 多取一個最大間隔的基礎K線，使最前面不完整的時間桶可以被捨棄
+            int baseLimit = (int) ((limit + 1) * (maxTargetMillis / KlineIntervalUtil.toMillis(baseInterval)));
+            CandleSeries base = readTail(symbol, baseInterval, baseLimit);
+            Map<String, CandleSeries> series = CandleResampler.resample(base, baseInterval, resampled);
+            for (String interval : resampled) {
+                result.put(interval, series.get(interval).last(limit));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<CandleSeries> getCandleSeriesAsync(String symbol, String interval, int limit) {
+        // 重採樣的間隔只需同步基礎K線
+        String sourceInterval = isResampled(interval, limit) ? baseInterval : interval;
+        CandleSeriesHolder holder = getHolder(symbol, sourceInterval);
+        // 增量請求完成後在讀取執行緒讀取本地數據；非同步同步失敗時由同步流程重試
+        return topUpAsync(holder)
+                .exceptionally(e -> {
+                    log.warn("非同步同步K線失敗，改用同步請求: {} {}: {}", symbol, sourceInterval, e.getMessage());
+                    return null;
+                })
+                .thenApplyAsync(ignored -> getCandleSeries(symbol, interval, limit), readExecutor);
+    }
+
+    @Override
+    public CandleSeries getCandleSeries(String symbol, String interval, long startTime, long endTime) {
+        CandleSeriesHolder holder = getHolder(symbol, interval);
+        synchronized (holder) {
+            topUp(holder, MAX_KLINES_PER_REQUEST);
+            backfillUntil(holder, startTime);
+            try {
+                CandleSeries result = holder.archive.read(startTime, endTime);
+                if (holder.partial != null && holder.partial.getOpenTime(0) >= startTime && holder.partial.getOpenTime(0) <= endTime) {
+                    result.addFrom(holder.partial, 0);
+                }
+                return result;
+            } catch (IOException e) {
+                throw new BinanceApiException("讀取本地K線檔案失敗: " + holder.archive.getFile(), e);
+            }
+        }
+    }
+
+    @Override
+    public int synchronize(String symbol, String interval) {
+        // 重採樣的間隔只需同步基礎K線
+        String sourceInterval = isResampleEnabled(interval) ? baseInterval : interval;
+        CandleSeriesHolder holder = getHolder(symbol, sourceInterval);
+        synchronized (holder) {
+            return topUp(holder, MAX_KLINES_PER_REQUEST);
+        }
+    }
+
+    @Override
+    public Long getLastClosedCloseTime(String symbol, String interval) {
+        // 重採樣的間隔隨基礎K線更新
+        String sourceInterval = isResampleEnabled(interval) ? baseInterval : interval;
+        CandleSeriesHolder holder = getHolder(symbol, sourceInterval);
+        synchronized (holder) {
+            return holder.archive.isEmpty() ? null : holder.archive.getLastCloseTime();
+        }
+    }
+
+    /**
+     * 同步並讀取最後 limit 根K線（含未收盤K線）
+     */
+    private CandleSeries readTail(String symbol, String interval, int limit) {
+        CandleSeriesHolder holder = getHolder(symbol, interval);
+        synchronized (holder) {
+            topUp(holder, limit);
+            backfill(holder, limit);
+            try {
+                return holder.tail(limit);
+            } catch (IOException e) {
+                throw new BinanceApiException("讀取本地K線檔案失敗: " + holder.archive.getFile(), e);
+            }
+        }
+    }
+
+    /**
+     * 指定間隔是否由基礎K線重採樣產生
+     */
+    private boolean isResampleEnabled(String interval) {
+        return baseInterval != null && !baseInterval.isBlank() && !baseInterval.equals(interval)
+                && CandleResampler.isResampleable(baseInterval, interval);
+    }
+
+    /**
+     * 指定間隔與數量是否使用重採樣（所需基礎K線過多時改為直接下載）
+     */
+    private boolean isResampled(String interval, int limit) {
+        if (!isResampleEnabled(interval)) {
+            return false;
+        }
+        long factor = KlineIntervalUtil.toMillis(interval) / KlineIntervalUtil.toMillis(baseInterval);
+        return (limit + 1) * factor <= maxResampleBaseCandles;
+    }
+
+    /**
+     * 獲取（必要時從檔案開啟）指定交易對和間隔的K線序列
+     */
+    private CandleSeriesHolder getHolder(String symbol, String interval) {
+        return holders.computeIfAbsent(symbol + "_" + interval, key -> {
+            CandleSeriesHolder holder = new CandleSeriesHolder(symbol, interval, openArchive(symbol, interval));
+            log.info("已開啟本地K線檔案 {} {}: {} 條已收盤K線", symbol, interval, holder.archive.size());
+            return holder;
+        });
+    }
+
+    /**
+     * 增量獲取最後一根已儲存K線之後的所有K線
+     *
+     * @param initialLimit 本地尚無數據時首次獲取的數量
+     * @return 新增的已收盤K線數量
+     */
+    private int topUp(CandleSeriesHolder holder, int initialLimit) {
+        if (holder.isRecentlySynced()) {
+            return 0;
+        }
+        holder.partial = null;
+
+        if (holder.archive.isEmpty()) {
+            int limit = Math.min(Math.max(initialLimit, 1), MAX_KLINES_PER_REQUEST);
+            CandleSeries latest = binanceApiService.getCandleSeries(holder.symbol, holder.interval, null, null, limit);
+            int added = absorb(holder, latest);
+            holder.syncedAt = System.currentTimeMillis();
+            log.info("本地K線儲存初始化 {} {}: 獲取 {} 條已收盤K線", holder.symbol, holder.interval, added);
+            return added;
+        }
+
+        int added = 0;
+        long startTime = holder.archive.getLastCloseTime() + 1;
+        while (true) {
+            CandleSeries batch = binanceApiService.getCandleSeries(
+                    holder.symbol, holder.interval, startTime, null, MAX_KLINES_PER_REQUEST);
+            added += absorb(holder, batch);
+            if (batch.size() < MAX_KLINES_PER_REQUEST) {
+                break;
+            }
+            startTime = batch.getCloseTime(batch.size() - 1) + 1;
+        }
+        holder.syncedAt = System.currentTimeMillis();
+
+        if (added > 0) {
+            log.debug("本地K線儲存 {} {}: 增量新增 {} 條已收盤K線", holder.symbol, holder.interval, added);
+        }
+        return added;
+    }
+
+    /**
+     * 以非同步請求增量獲取最後一根已儲存K線之後的K線（不持有鎖等待回應）
+     * 本地尚無數據或新K線超過單次請求上限時，剩餘部分由同步流程補齊
+     */
+    private CompletableFuture<Void> topUpAsync(CandleSeriesHolder holder) {
+        long startTime;
+        synchronized (holder) {
+            if (holder.archive.isEmpty() || holder.isRecentlySynced()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            startTime = holder.archive.getLastCloseTime() + 1;
+        }
+        return binanceAsyncApiService.getCandleSeriesAsync(holder.symbol, holder.interval, startTime, null, MAX_KLINES_PER_REQUEST)
+                .thenAcceptAsync(batch -> {
+                    synchronized (holder) {
+                        // 期間其他呼叫已同步的K線會在寫入時略過
+                        holder.partial = null;
+                        absorb(holder, batch);
+                        if (batch.size() < MAX_KLINES_PER_REQUEST) {
+                            holder.syncedAt = System.currentTimeMillis();
+                        }
+                    }
+                }, readExecutor);
+    }
+
+    /**
+     * 當本地數據少於所需數量時，向前補齊較早的歷史K線
+     */
+    private void backfill(CandleSeriesHolder holder, int limit) {
+        long missing = limit - holder.size();
+        if (missing <= 0 || holder.archive.isEmpty() || holder.isEarliestAvailable()) {
+            return;
+        }
+        long firstOpenTime = holder.archive.getFirstOpenTime();
+        long startTime = Math.max(0L, firstOpenTime - missing * KlineIntervalUtil.toMillis(holder.interval));
+        prependOlder(holder, startTime, (int) missing);
+    }
+
+    /**
+     * 向前補齊歷史K線，直到本地數據涵蓋指定的起始時間
+     */
+    private void backfillUntil(CandleSeriesHolder holder, long startTime) {
+        if (holder.archive.isEmpty() || holder.archive.getFirstOpenTime() <= startTime || holder.isEarliestAvailable()) {
+            return;
+        }
+        prependOlder(holder, startTime, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 獲取 [startTime, 本地第一根K線) 之間較早的K線並重寫本地檔案
+     * 超過單次請求上限的範圍由回補服務分段並行下載；交易所沒有更早的K線時（例如新上市的交易對）
+     * 記錄本地第一根K線即為最早的K線，之後不再重複請求
+     *
+     * @param startTime 起始開盤時間
+     * @param maxCount 最多補齊的數量（保留最接近現有數據的部分）
+     */
+    private void prependOlder(CandleSeriesHolder holder, long startTime, int maxCount) {
+        long firstOpenTime = holder.archive.getFirstOpenTime();
+        CandleSeries older = klineBackfillService.getCandleSeries(holder.symbol, holder.interval, startTime, firstOpenTime - 1);
+
+        int end = older.size();
+        while (end > 0 && older.getOpenTime(end - 1) >= firstOpenTime) {
+            end--;
+        }
+        CandleSeries filtered = older.window(Math.max(0, end - maxCount), end);
+        if (filtered.isEmpty()) {
+            holder.earliestAvailableOpenTime = firstOpenTime;
+            log.info("本地K線儲存 {} {}: 交易所沒有 {} 之前的K線，不再向前補齊", holder.symbol, holder.interval, firstOpenTime);
+            return;
+        }
+
+        try {
+            CandleSeries existing = holder.archive.readAll();
+            CandleSeries merged = new CandleSeries(filtered.size() + existing.size());
+            for (int i = 0; i < filtered.size(); i++) {
+                merged.addFrom(filtered, i);
+            }
+            for (int i = 0; i < existing.size(); i++) {
+                merged.addFrom(existing, i);
+            }
+            holder.archive.rewrite(merged);
+            log.info("本地K線儲存 {} {}: 向前補齊 {} 條歷史數據，目前共 {} 條已收盤K線",
+                    holder.symbol, holder.interval, filtered.size(), holder.archive.size());
+        } catch (IOException e) {
+            log.warn("重寫本地K線檔案失敗: {}", holder.archive.getFile(), e);
+        }
+    }
+
+    /**
+     * 將獲取到的K線併入序列：已收盤的追加並寫入檔案，未收盤的只保留在記憶體
+     *
+     * @return 新增的已收盤K線數量
+     */
+    private int absorb(CandleSeriesHolder holder, CandleSeries candles) {
+        long now = timeSyncService.currentTimeMillis();
+        CandleSeries newlyClosed = new CandleSeries(candles.size());
+
+        for (int i = 0; i < candles.size(); i++) {
+            if (candles.getCloseTime(i) >= now) {
+                holder.partial = candles.window(i, i + 1);
+                continue;
+            }
+            newlyClosed.addFrom(candles, i);
+        }
+
+        try {
+            return holder.archive.append(newlyClosed);
+        } catch (IOException e) {
+            log.warn("寫入本地K線檔案失敗: {}", holder.archive.getFile(), e);
+            return 0;
+        }
+    }
+
+    private CandleArchive openArchive(String symbol, String interval) {
+        // "1M"（月線）與 "1m"（分鐘線）在不區分大小寫的檔案系統上會衝突
+        String intervalName = "1M".equals(interval) ? "1mon" : interval;
+        Path file = Paths.get(storeDir, symbol + "_" + intervalName + ".pca");
+        Path legacyFile = Paths.get(storeDir, symbol + "_" + intervalName + ".csv");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            CandleArchive archive;
+            try {
+                archive = new CandleArchive(file);
+            } catch (IOException e) {
+                log.warn("本地K線檔案損壞，將重新從交易所獲取: {}", file, e);
+                Files.deleteIfExists(file);
+                archive = new CandleArchive(file);
+            }
+            if (archive.isEmpty() && Files.exists(legacyFile)) {
+                migrateLegacyFile(legacyFile, archive);
+            }
+            return archive;
+        } catch (IOException e) {
+            throw new BinanceApiException("開啟本地K線檔案失敗: " + file, e);
+        }
+    }
+
+    /**
+     * 將舊版CSV格式的K線檔案轉換為壓縮格式
+     */
+    private void migrateLegacyFile(Path legacyFile, CandleArchive archive) {
+        try {
+            List<String> lines = Files.readAllLines(legacyFile, StandardCharsets.UTF_8);
+            CandleSeries candles = new CandleSeries(lines.size());
+            for (String line : lines) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                CandlestickData candle = parseLine(line);
+                if (candles.isEmpty() || candle.getOpenTime() > candles.getOpenTime(candles.size() - 1)) {
+                    candles.add(candle.getOpenTime(), candle.getOpen().doubleValue(), candle.getHigh().doubleValue(),
+                            candle.getLow().doubleValue(), candle.getClose().doubleValue(), candle.getVolume().doubleValue(),
+                            candle.getCloseTime(), candle.getQuoteAssetVolume().doubleValue(), candle.getNumberOfTrades(),
+                            candle.getTakerBuyBaseAssetVolume().doubleValue(), candle.getTakerBuyQuoteAssetVolume().doubleValue());
+                }
+            }
+            archive.rewrite(candles);
+            Files.delete(legacyFile);
+            log.info("已將舊版K線檔案 {} 轉換為壓縮格式 ({} 條)", legacyFile, candles.size());
+        } catch (Exception e) {
+            log.warn("轉換舊版K線檔案失敗，將重新從交易所獲取: {}", legacyFile, e);
+        }
+    }
+
+    private CandlestickData parseLine(String line) {
+        String[] fields = line.split(",");
+        return CandlestickData.builder()
+                .openTime(Long.parseLong(fields[0]))
+                .open(new BigDecimal(fields[1]))
+                .high(new BigDecimal(fields[2]))
+                .low(new BigDecimal(fields[3]))
+                .close(new BigDecimal(fields[4]))
+                .volume(new BigDecimal(fields[5]))
+                .closeTime(Long.parseLong(fields[6]))
+                .quoteAssetVolume(new BigDecimal(fields[7]))
+                .numberOfTrades(Integer.parseInt(fields[8]))
+                .takerBuyBaseAssetVolume(new BigDecimal(fields[9]))
+                .takerBuyQuoteAssetVolume(new BigDecimal(fields[10]))
+                .build();
+    }
+
+    /**
+     * 單一 (交易對, K線間隔) 的K線序列
+     */
+    private static class CandleSeriesHolder {
+        private final String symbol;
+        private final String interval;
+        private final CandleArchive archive; // 已收盤K線，按開盤時間排序
+        private CandleSeries partial; // 當前尚未收盤的K線（單根）
+        private long syncedAt; // 最後一次完成增量同步的時間
+        private Long earliestAvailableOpenTime; // 交易所最早一根K線的開盤時間，未確認時為 null
+
+        CandleSeriesHolder(String symbol, String interval, CandleArchive archive) {
+            this.symbol = symbol;
+            this.interval = interval;
+            this.archive = archive;
+        }
+
+        long size() {
+            return archive.size() + (partial != null ? 1 : 0);
+        }
+
+        /**
+         * 本地第一根K線是否已確認為交易所最早的K線
+         */
+        boolean isEarliestAvailable() {
+            return earliestAvailableOpenTime != null && earliestAvailableOpenTime == archive.getFirstOpenTime();
+        }
+
+        boolean isRecentlySynced() {
+            return System.currentTimeMillis() - syncedAt < SYNC_REUSE_MILLIS;
+        }
+
+        /**
+         * 取最後 limit 根K線（含未收盤K線）
+         */
+        CandleSeries tail(int limit) throws IOException {
+            if (limit <= 0) {
+                return new CandleSeries(1);
+            }
+            int closedCount = partial != null ? limit - 1 : limit;
+            CandleSeries closed = archive.readLast(closedCount);
+            CandleSeries result = new CandleSeries(closed.size() + 1);
+            for (int i = 0; i < closed.size(); i++) {
+                result.addFrom(closed, i);
+            }
+            if (partial != null) {
+                result.addFrom(partial, 0);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.KlineBackfillService;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineIntervalUtil;
+import andy.crypto.pairstrading.bot.pairstrading.util.SlidingWindowWeightBudget;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 歷史K線回補服務實現類
+ */
+@Slf4j
+@Service
+public class KlineBackfillServiceImpl implements KlineBackfillService {
+
+    // 幣安單次K線請求的最大數量
+    private static final int MAX_KLINES_PER_REQUEST = 1500;
+
+    @Autowired
+    private BinanceApiService binanceApiService;
+
+    // 回補每分鐘可使用的請求權重，避免回補佔滿交易所每分鐘的權重額度
+    private final SlidingWindowWeightBudget weightBudget;
+
+    // 等待權重額度的最長時間
+    private final long maxWaitMillis;
+
+    // 回補下載線程池
+    private final ExecutorService backfillExecutor;
+
+    public KlineBackfillServiceImpl(@Value("${kline-backfill.weight-per-minute:600}") int weightPerMinute,
+                                    @Value("${kline-backfill.max-wait-ms:120000}") long maxWaitMillis,
+                                    @Value("${kline-backfill.parallelism:4}") int parallelism) {
+        this.weightBudget = new SlidingWindowWeightBudget(
+                Math.max(weightPerMinute, KlineIntervalUtil.klineRequestWeight(MAX_KLINES_PER_REQUEST)),
+                60_000L, System::currentTimeMillis);
+        this.maxWaitMillis = maxWaitMillis;
+        this.backfillExecutor = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    @Override
+    public CandleSeries getCandleSeries(String symbol, String interval, long startTime, long endTime) {
+        if (endTime < startTime) {
+            throw new IllegalArgumentException("結束時間不可早於起始時間");
+        }
+
+        // 依每段最多 1500 根K線切分時間範圍
+        long chunkSpan = KlineIntervalUtil.toMillis(interval) * MAX_KLINES_PER_REQUEST;
+        List<long[]> ranges = new ArrayList<>();
+        for (long chunkStart = startTime; chunkStart <= endTime; chunkStart += chunkSpan) {
+            ranges.add(new long[]{chunkStart, Math.min(chunkStart + chunkSpan - 1, endTime)});
+        }
+
+        long begin = System.currentTimeMillis();
+        List<CandleSeries> chunks;
+        if (ranges.size() == 1) {
+            chunks = List.of(fetchChunk(symbol, interval, ranges.get(0)[0], ranges.get(0)[1]));
+        } else {
+            List<CompletableFuture<CandleSeries>> futures = new ArrayList<>(ranges.size());
+            for (long[] range : ranges) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> fetchChunk(symbol, interval, range[0], range[1]), backfillExecutor));
+            }
+            chunks = new ArrayList<>(futures.size());
+            try {
+                for (CompletableFuture<CandleSeries> future : futures) {
+                    chunks.add(future.join());
+                }
+            } catch (CompletionException e) {
+                futures.forEach(f -> f.cancel(true));
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof BinanceApiException) {
+                    throw (BinanceApiException) cause;
+                }
+                throw new BinanceApiException("回補K線數據失敗: " + cause.getMessage(), cause);
+            }
+        }
+
+        CandleSeries result = stitch(chunks);
+        log.info("回補 {} {} K線 {} 條（{} 段請求），耗時 {} ms",
+                symbol, interval, result.size(), ranges.size(), System.currentTimeMillis() - begin);
+        return result;
+    }
+
+    @Override
+    public CandleSeries getLatestCandleSeries(String symbol, String interval, int count) {
+        if (count <= MAX_KLINES_PER_REQUEST) {
+            return binanceApiService.getCandleSeries(symbol, interval, null, null, count);
+        }
+
+        // 由當前K線的開盤時間（週線對齊週一、月線對齊月初）往前推算起始時間，
+        // 月線以 31 天估算會多取幾根，最後只保留 count 根
+        long endTime = System.currentTimeMillis();
+        long currentOpenTime = KlineIntervalUtil.openTimeOf(endTime, interval);
+        long startTime = Math.max(0L, KlineIntervalUtil.openTimeOf(
+                currentOpenTime - (long) count * KlineIntervalUtil.toMillis(interval), interval));
+        return getCandleSeries(symbol, interval, startTime, endTime).last(count);
+    }
+
+    /**
+     * 在每分鐘權重額度內下載單段K線
+     */
+    private CandleSeries fetchChunk(String symbol, String interval, long startTime, long endTime) {
+        int weight = KlineIntervalUtil.klineRequestWeight(MAX_KLINES_PER_REQUEST);
+        try {
+            if (!weightBudget.acquire(weight, maxWaitMillis)) {
+                throw new BinanceApiException("等待K線回補權重額度逾時（" + maxWaitMillis + " ms）: " + symbol);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BinanceApiException("回補K線數據被中斷: " + symbol);
+        }
+        return binanceApiService.getCandleSeries(symbol, interval, startTime, endTime, MAX_KLINES_PER_REQUEST);
+    }
+
+    /**
+     * 依時間順序拼接各段K線，略過開盤時間重複或倒退的K線
+     */
+    static CandleSeries stitch(List<CandleSeries> chunks) {
+        int total = 0;
+        for (CandleSeries chunk : chunks) {
+            total += chunk.size();
+        }
+
+        CandleSeries result = new CandleSeries(total);
+        long lastOpenTime = Long.MIN_VALUE;
+        int duplicates = 0;
+        for (CandleSeries chunk : chunks) {
+            for (int i = 0; i < chunk.size(); i++) {
+                long openTime = chunk.getOpenTime(i);
+                if (openTime <= lastOpenTime) {
+                    duplicates++;
+                    continue;
+                }
+                result.addFrom(chunk, i);
+                lastOpenTime = openTime;
+            }
+        }
+        if (duplicates > 0) {
+            log.debug("拼接回補K線時略過 {} 條重複數據", duplicates);
+        }
+        return result;
+    }
+}
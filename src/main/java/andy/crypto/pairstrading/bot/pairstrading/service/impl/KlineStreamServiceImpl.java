@@ -0,0 +1,274 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandleStoreService;
+import andy.crypto.pairstrading.bot.pairstrading.service.KlineStreamService;
+import andy.crypto.pairstrading.bot.pairstrading.service.TradingPairManagementService;
+import andy.crypto.pairstrading.bot.pairstrading.util.BinanceStreamClient;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleRingBuffer;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineStreamBook;
+import andy.crypto.pairstrading.bot.service.TradingConfigService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * K線數據流服務實現類
+ * 第一次讀取時以組合數據流連線，每次（重新）連線後以本地K線儲存（增量 REST）補齊斷線期間的K線；
+ * 數據流中出現跳號時只補齊該交易對
+ */
+@Slf4j
+@Service
+public class KlineStreamServiceImpl implements KlineStreamService {
+
+    private static final String PROD_WS_BASE_URL = "wss://fstream.binance.com";
+    private static final String TEST_WS_BASE_URL = "wss://stream.binancefuture.com";
+
+    @Autowired
+    private CandleStoreService candleStoreService;
+
+    @Autowired
+    private TradingPairManagementService tradingPairManagementService;
+
+    @Autowired
+    @Lazy
+    private TradingConfigService tradingConfigService;
+
+    @Autowired
+    private BinanceConfig binanceConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${kline-stream.enabled:true}")
+    private boolean enabled;
+
+    // 數據流地址，空白時依測試網設定自動選擇
+    @Value("${kline-stream.ws-base-url:}")
+    private String wsBaseUrl;
+
+    @Value("${kline-stream.reconnect-delay-ms:5000}")
+    private long reconnectDelayMillis;
+
+    @Value("${kline-stream.subscription-refresh-ms:60000}")
+    private long subscriptionRefreshMillis;
+
+    private final KlineStreamBook book;
+
+    // 缺口補齊在獨立執行緒進行，不阻塞數據流訊息處理
+    private final ExecutorService gapFillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kline-gap-fill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> pendingGapFills = ConcurrentHashMap.newKeySet();
+    // 補齊失敗的交易對在下次檢查訂閱時重試，期間讀取改用本地儲存
+    private final Set<String> failedGapFills = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong messageCount = new AtomicLong();
+    private final AtomicLong gapFillCount = new AtomicLong();
+
+    private volatile BinanceStreamClient streamClient;
+    private volatile Set<String> subscribedSymbols = Set.of();
+
+    public KlineStreamServiceImpl(@Value("${market-data.interval:1h}") String interval,
+                                  @Value("${kline-stream.capacity:1500}") int capacity) {
+        this.book = new KlineStreamBook(interval, capacity);
+    }
+
+    @Override
+    public CandleSeries getCandleSeries(String symbol, String interval, int limit) {
+        if (!enabled || !book.getInterval().equals(interval)) {
+            return null;
+        }
+        startIfNeeded();
+        BinanceStreamClient client = streamClient;
+        CandleRingBuffer buffer = book.getBuffer(symbol);
+        if (client == null || !client.isConnected() || buffer == null
+                || pendingGapFills.contains(symbol) || failedGapFills.contains(symbol)) {
+            return null;
+        }
+        CandleSeries series = buffer.toCandleSeries(limit, true);
+        return series.size() >= limit ? series : null;
+    }
+
+    @Override
+    public synchronized void refreshSubscriptions() {
+        for (String symbol : failedGapFills) {
+            failedGapFills.remove(symbol);
+            scheduleGapFill(symbol);
+        }
+        Set<String> symbols = resolveSymbols();
+        if (symbols.equals(subscribedSymbols)) {
+            return;
+        }
+        book.retain(symbols);
+        subscribedSymbols = symbols;
+        BinanceStreamClient client = streamClient;
+        if (client != null) {
+            log.info("K線數據流訂閱變更為 {}，重新連線", symbols);
+            client.reconnect();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        BinanceStreamClient client = streamClient;
+        return client != null && client.isConnected();
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("connected", isConnected());
+        metrics.put("interval", book.getInterval());
+        Map<String, Integer> bufferedCandles = new LinkedHashMap<>();
+        for (String symbol : new TreeSet<>(book.getSymbols())) {
+            CandleRingBuffer buffer = book.getBuffer(symbol);
+            if (buffer != null) {
+                bufferedCandles.put(symbol, buffer.size());
+            }
+        }
+        metrics.put("bufferedCandles", bufferedCandles);
+        metrics.put("messageCount", messageCount.get());
+        metrics.put("gapFillCount", gapFillCount.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        BinanceStreamClient client = streamClient;
+        if (client != null) {
+            client.stop();
+        }
+        gapFillExecutor.shutdownNow();
+    }
+
+    /**
+     * 第一次讀取時建立連線，並定期檢查訂閱的交易對是否變更
+     */
+    private synchronized void startIfNeeded() {
+        if (streamClient != null) {
+            return;
+        }
+        refreshSubscriptions();
+        BinanceStreamClient client = new BinanceStreamClient("kline",
+                this::buildStreamUri, this::onMessage, this::gapFillAll, reconnectDelayMillis);
+        client.scheduleAtFixedRate(this::refreshSubscriptions, subscriptionRefreshMillis);
+        client.start();
+        streamClient = client;
+        log.info("K線數據流已啟動: {} 個交易對, 間隔 {}", subscribedSymbols.size(), book.getInterval());
+    }
+
+    /**
+     * 目前交易對與已儲存的組合中出現的所有交易對
+     */
+    private Set<String> resolveSymbols() {
+        List<String> candidates = new ArrayList<>();
+        try {
+            TradingConfigBean tradingConfigBean = tradingConfigService.getTradingConfigBean();
+            candidates.add(tradingConfigBean.getAsset1());
+            candidates.add(tradingConfigBean.getAsset2());
+        } catch (Exception e) {
+            log.debug("無法讀取交易對配置: {}", e.getMessage());
+        }
+        for (String pairCombination : tradingPairManagementService.getSavedTradingPairCombinations()) {
+            candidates.addAll(Arrays.asList(pairCombination.split(",")));
+        }
+        Set<String> symbols = new TreeSet<>();
+        for (String symbol : candidates) {
+            if (symbol != null && !symbol.isBlank()) {
+                symbols.add(symbol.trim());
+            }
+        }
+        return symbols;
+    }
+
+    private URI buildStreamUri() {
+        Set<String> symbols = subscribedSymbols;
+        if (symbols.isEmpty()) {
+            throw new IllegalStateException("沒有需要訂閱的交易對");
+        }
+        String streams = symbols.stream()
+                .map(symbol -> symbol.toLowerCase() + "@kline_" + book.getInterval())
+                .collect(Collectors.joining("/"));
+        return URI.create(resolveWsBaseUrl() + "/stream?streams=" + streams);
+    }
+
+    private void onMessage(String message) {
+        messageCount.incrementAndGet();
+        try {
+            String gapSymbol = book.apply(objectMapper.readTree(message));
+            if (gapSymbol != null) {
+                log.info("{} K線數據流出現缺口，以REST補齊", gapSymbol);
+                scheduleGapFill(gapSymbol);
+            }
+        } catch (Exception e) {
+            log.warn("處理K線數據流事件失敗: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 連線（含重連）後補齊所有交易對斷線期間的K線
+     */
+    private void gapFillAll() {
+        for (String symbol : subscribedSymbols) {
+            scheduleGapFill(symbol);
+        }
+    }
+
+    private void scheduleGapFill(String symbol) {
+        if (!pendingGapFills.add(symbol)) {
+            return;
+        }
+        try {
+            gapFillExecutor.execute(() -> {
+                try {
+                    CandleRingBuffer buffer = book.getBuffer(symbol);
+                    if (buffer != null) {
+                        CandleSeries series = candleStoreService.getCandleSeries(symbol, book.getInterval(), buffer.getCapacity() + 1);
+                        book.fill(symbol, series, System.currentTimeMillis());
+                        gapFillCount.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failedGapFills.add(symbol);
+                    log.warn("補齊 {} K線失敗: {}", symbol, e.getMessage());
+                } finally {
+                    pendingGapFills.remove(symbol);
+                }
+            });
+        } catch (Exception e) {
+            // 已停止時執行緒池拒絕新任務
+            pendingGapFills.remove(symbol);
+        }
+    }
+
+    private String resolveWsBaseUrl() {
+        if (wsBaseUrl != null && !wsBaseUrl.isBlank()) {
+            return wsBaseUrl;
+        }
+        return binanceConfig.isTestnetEnabled() ? TEST_WS_BASE_URL : PROD_WS_BASE_URL;
+    }
+}
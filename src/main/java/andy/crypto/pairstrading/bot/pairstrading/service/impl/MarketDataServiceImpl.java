@@ -2,24 +2,41 @@ package andy.crypto.pairstrading.bot.pairstrading.service.impl;
 
 import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
 import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
 import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.model.RollingHedgeSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.SpreadModel;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.CandleStoreService;
+import andy.crypto.pairstrading.bot.pairstrading.service.KlineStreamService;
 import andy.crypto.pairstrading.bot.pairstrading.service.MarketDataService;
+import andy.crypto.pairstrading.bot.pairstrading.util.AugmentedDickeyFuller;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner.AlignedCandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner.GapPolicy;
 import andy.crypto.pairstrading.bot.pairstrading.util.ConsoleChartUtil;
+import andy.crypto.pairstrading.bot.pairstrading.util.KalmanHedgeFilter;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineIntervalUtil;
+import andy.crypto.pairstrading.bot.pairstrading.util.RollingPairStatistics;
+import andy.crypto.pairstrading.bot.pairstrading.util.SingleFlightCache;
 import andy.crypto.pairstrading.bot.pairstrading.util.StatisticalUtils;
-import andy.crypto.pairstrading.bot.pairstrading.util.StatisticalUtils.OrthogonalRegressionResult;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 市場數據服務實現類
@@ -31,13 +48,58 @@ public class MarketDataServiceImpl implements MarketDataService {
     @Autowired
     private BinanceApiService binanceApiService;
     
+    @Autowired
+    private CandleStoreService candleStoreService;
+    
+    @Autowired
+    private KlineStreamService klineStreamService;
+
+    @Autowired
+    private BinanceTimeSyncService timeSyncService;
+    
     @Autowired
     @Lazy
     private TradingConfigService tradingConfigService;
     
+    // 即時交易使用的K線間隔
+    @Value("${market-data.interval:1h}")
+    private String marketDataInterval;
+    
+    // 兩個資產K線時間不一致時的處理策略
+    @Value("${market-data.gap-policy:DROP}")
+    private GapPolicy gapPolicy;
+    
+    // 預設的價差模型
+    @Value("${spread-model.default:TLS}")
+    private SpreadModel defaultSpreadModel;
+    
+    // 個別資產對的價差模型，格式 "ASSET1/ASSET2=KALMAN,..."
+    @Value("${spread-model.overrides:}")
+    private String spreadModelOverrides;
+    
+    @Value("${spread-model.kalman.delta:0.0001}")
+    private double kalmanDelta;
+    
+    // 0 表示以初始化窗口的殘差變異數估計
+    @Value("${spread-model.kalman.observation-noise:0}")
+    private double kalmanObservationNoise;
+    
     // 標記是否為第一次運行
     private static boolean firstRun = true;
     
+    // 合併相同參數的市場數據計算，圖表刷新時多個端點只需下載與回歸一次
+    private final SingleFlightCache<String, PairsTradingServiceValueBean> marketDataCache;
+    
+    // 即時交易各資產對的窗口統計量，每次只加入上次之後的新K線
+    private final Map<String, RollingPairState> rollingStates = new ConcurrentHashMap<>();
+    
+    // 使用卡爾曼濾波的資產對的濾波狀態
+    private final Map<String, KalmanPairState> kalmanStates = new ConcurrentHashMap<>();
+    
+    public MarketDataServiceImpl(@Value("${market-data.coalesce-ttl-ms:5000}") long coalesceTtlMillis) {
+        this.marketDataCache = new SingleFlightCache<>(coalesceTtlMillis);
+    }
+    
     /**
      * 從配置服務加載配置
      */
@@ -67,55 +129,73 @@ public class MarketDataServiceImpl implements MarketDataService {
         
         log.info("獲取 {} 和 {} 的市場數據", targetAsset1, targetAsset2);
         
+        // 只在第一次運行時顯示配置信息
+        if (firstRun) {
+            log.info("控制台圖表顯示: {}", tradingConfigBean.isConsoleChartEnabled() ? "啟用" : "禁用");
+            log.info("控制台信號報告顯示: {}", tradingConfigBean.isConsoleSignalEnabled() ? "啟用" : "禁用");
+            log.info("倉位大小設定: {} {}", tradingConfigBean.getPositionSize(), tradingConfigBean.isAmountBased() ? "USDT (金額)" : "合約數量");
+            log.info("合約槓桿倍率: {}x", tradingConfigBean.getLeverage());
+            log.info("窗口大小設定: {} 個資料點", tradingConfigBean.getWindowSize());
+            firstRun = false;
+        }
+        
+        // 相同資產對、窗口與最後收盤K線的呼叫共用同一次計算結果；
+        // 最後收盤K線以伺服器時間與K線間隔推算，K線剛收盤時所有呼叫立即換用新的key，與數據來源是否已更新無關
+        String finalAsset1 = targetAsset1;
+        String finalAsset2 = targetAsset2;
+        long lastClosedCloseTime = KlineIntervalUtil.lastClosedCloseTime(timeSyncService.currentTimeMillis(), marketDataInterval);
+        String cacheKey = String.join("|", targetAsset1, targetAsset2, marketDataInterval,
+                String.valueOf(tradingConfigBean.getWindowSize()), String.valueOf(lastClosedCloseTime));
+        PairsTradingServiceValueBean shared = marketDataCache.get(cacheKey,
+                () -> loadMarketData(finalAsset1, finalAsset2, tradingConfigBean));
+        
+        // 每個呼叫者取得獨立副本，避免圖表與報告等暫存欄位互相覆蓋
+        return shared != null ? shared.copy() : null;
+    }
+
+    /**
+     * 下載K線並計算配對交易指標，結果中的歷史序列為唯讀
+     */
+    private PairsTradingServiceValueBean loadMarketData(String targetAsset1, String targetAsset2, TradingConfigBean tradingConfigBean) {
         try {
-            // 只在第一次運行時顯示配置信息
-            if (firstRun) {
-                log.info("控制台圖表顯示: {}", tradingConfigBean.isConsoleChartEnabled() ? "啟用" : "禁用");
-                log.info("控制台信號報告顯示: {}", tradingConfigBean.isConsoleSignalEnabled() ? "啟用" : "禁用");
-                log.info("倉位大小設定: {} {}", tradingConfigBean.getPositionSize(), tradingConfigBean.isAmountBased() ? "USDT (金額)" : "合約數量");
-                log.info("合約槓桿倍率: {}x", tradingConfigBean.getLeverage());
-                log.info("窗口大小設定: {} 個資料點", tradingConfigBean.getWindowSize());
-                firstRun = false;
-            }
-            
             // 獲取足夠長時間的K線數據來計算相關性和回歸係數
             // 獲取至少windowSize*2的數據點，確保有足夠的數據進行分析
             int requiredDataPoints = tradingConfigBean.getWindowSize() * 2;
             log.info("正在獲取 {} 個資料點用於分析 (窗口大小: {})", requiredDataPoints, tradingConfigBean.getWindowSize());
             
-            List<CandlestickData> asset1Data = binanceApiService.getCandlestickData(targetAsset1, "1h", requiredDataPoints);
-            List<CandlestickData> asset2Data = binanceApiService.getCandlestickData(targetAsset2, "1h", requiredDataPoints);
+            // 優先使用K線數據流的緩衝區（最後一根為盤中即時K線），不需呼叫REST
+            CandleSeries asset1Series = klineStreamService.getCandleSeries(targetAsset1, marketDataInterval, requiredDataPoints);
+            CandleSeries asset2Series = klineStreamService.getCandleSeries(targetAsset2, marketDataInterval, requiredDataPoints);
+            if (asset1Series == null || asset2Series == null) {
+                // 從本地K線儲存讀取，只增量獲取上次之後新收盤的K線，兩個資產的請求同時進行
+                CompletableFuture<CandleSeries> asset1Future = candleStoreService.getCandleSeriesAsync(targetAsset1, marketDataInterval, requiredDataPoints);
+                CompletableFuture<CandleSeries> asset2Future = candleStoreService.getCandleSeriesAsync(targetAsset2, marketDataInterval, requiredDataPoints);
+                asset1Series = asset1Future.join();
+                asset2Series = asset2Future.join();
+            }
             
-            log.info("獲取到 {} 的K線數據 {} 條", targetAsset1, asset1Data.size());
-            log.info("獲取到 {} 的K線數據 {} 條", targetAsset2, asset2Data.size());
+            log.info("獲取到 {} 的K線數據 {} 條", targetAsset1, asset1Series.size());
+            log.info("獲取到 {} 的K線數據 {} 條", targetAsset2, asset2Series.size());
             
             // 檢查數據是否足夠
-            if (asset1Data.size() < tradingConfigBean.getWindowSize() || asset2Data.size() < tradingConfigBean.getWindowSize()) {
+            if (asset1Series.size() < tradingConfigBean.getWindowSize() || asset2Series.size() < tradingConfigBean.getWindowSize()) {
                 log.warn("歷史數據不足以進行分析，需要至少 {} 個資料點，但只獲取到 {} 和 {} 個",
-                        tradingConfigBean.getWindowSize(), asset1Data.size(), asset2Data.size());
+                        tradingConfigBean.getWindowSize(), asset1Series.size(), asset2Series.size());
                 return null;
             }
             
-            // 計算最新價格
-            BigDecimal asset1Price = asset1Data.get(asset1Data.size() - 1).getClose();
-            BigDecimal asset2Price = asset2Data.get(asset2Data.size() - 1).getClose();
-            
-            log.info("{} 最新價格: {}", targetAsset1, asset1Price);
-            log.info("{} 最新價格: {}", targetAsset2, asset2Price);
-            
-            // 轉換為價格序列用於進一步分析
-            double[] asset1Prices = asset1Data.stream()
-                    .mapToDouble(data -> data.getClose().doubleValue())
-                    .toArray();
-            
-            double[] asset2Prices = asset2Data.stream()
-                    .mapToDouble(data -> data.getClose().doubleValue())
-                    .toArray();
+            log.info("{} 最新價格: {}", targetAsset1, asset1Series.getLastClose());
+            log.info("{} 最新價格: {}", targetAsset2, asset2Series.getLastClose());
             
             // 更新價格數據
-            PairsTradingServiceValueBean result = updatePriceData(asset1Prices, asset2Prices, asset1Data);
+            String rollingKey = String.join("|", targetAsset1, targetAsset2, marketDataInterval);
+            PairsTradingServiceValueBean result = updatePriceData(asset1Series, asset2Series,
+                    getSpreadModel(targetAsset1, targetAsset2), rollingKey);
             if (result != null) {
                 log.info("平穩性檢定: {}", result.isStationaryTest() ? "通過" : "未通過");
+                result.setSpreadHistory(Collections.unmodifiableList(result.getSpreadHistory()));
+                result.setZScoreHistory(Collections.unmodifiableList(result.getZScoreHistory()));
+                result.setTimeHistory(Collections.unmodifiableList(result.getTimeHistory()));
             }
             return result;
         } catch (Exception e) {
@@ -126,7 +206,6 @@ public class MarketDataServiceImpl implements MarketDataService {
 
     @Override
     public PairsTradingServiceValueBean updatePriceData(double[] asset1Prices, double[] asset2Prices, List<CandlestickData> asset1Data) {
-        PairsTradingServiceValueBean updatePriceData = new PairsTradingServiceValueBean();
         TradingConfigBean tradingConfigBean = loadConfig();
         // 1. 資料與窗口檢查
         if (asset1Prices == null || asset2Prices == null) {
@@ -145,35 +224,337 @@ public class MarketDataServiceImpl implements MarketDataService {
         double[] window1 = Arrays.copyOfRange(asset1Prices, asset1Prices.length - len, asset1Prices.length);
         double[] window2 = Arrays.copyOfRange(asset2Prices, asset2Prices.length - len, asset2Prices.length);
 
-        // 2. 使用統計工具類計算相關性
-        updatePriceData.setCorrelation(StatisticalUtils.pineCorrelation(window1, window2));
+        // 時間對齊
+        long[] closeTimes = new long[len];
+        if (asset1Data != null && asset1Data.size() >= len) {
+            int offset = asset1Data.size() - len;
+            for (int i = 0; i < len; i++) {
+                closeTimes[i] = asset1Data.get(offset + i).getCloseTime();
+            }
+        } else {
+            long now = System.currentTimeMillis();
+            long step = 15 * 60 * 1000L;
+            for (int i = 0; i < len; i++){
+                closeTimes[i] = now - (len - i - 1) * step;
+            }
+        }
+        WindowMetrics metrics = new WindowMetrics(RollingPairStatistics.of(window2, window1, len));
+        if (Double.isNaN(metrics.beta)) {
+            log.warn("正交迴歸直線接近垂直（X沒有與Y相關的變化），跳過此窗口"); return null;
+        }
+        return calculatePairMetrics(window1, window2, closeTimes, metrics);
+    }
+
+    @Override
+    public PairsTradingServiceValueBean updatePriceData(CandleSeries asset1Series, CandleSeries asset2Series) {
+        return updatePriceData(asset1Series, asset2Series, defaultSpreadModel, null);
+    }
+
+    @Override
+    public PairsTradingServiceValueBean updatePriceData(CandleSeries asset1Series, CandleSeries asset2Series, SpreadModel spreadModel) {
+        return updatePriceData(asset1Series, asset2Series, spreadModel, null);
+    }
+
+    @Override
+    public SpreadModel getSpreadModel(String asset1, String asset2) {
+        if (StringUtils.isNotBlank(spreadModelOverrides)) {
+            String pair = asset1 + "/" + asset2;
+            for (String override : spreadModelOverrides.split(",")) {
+                String[] parts = override.split("=");
+                if (parts.length == 2 && parts[0].trim().equalsIgnoreCase(pair)) {
+                    try {
+                        return SpreadModel.valueOf(parts[1].trim().toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        log.warn("無效的價差模型設定: {}", override);
+                    }
+                }
+            }
+        }
+        return defaultSpreadModel;
+    }
+
+    /**
+     * @param spreadModel 價差模型
+     * @param rollingKey 沿用窗口統計量與濾波狀態的鍵，null 表示以窗口重新計算
+     */
+    private PairsTradingServiceValueBean updatePriceData(CandleSeries asset1Series, CandleSeries asset2Series,
+                                                         SpreadModel spreadModel, String rollingKey) {
+        TradingConfigBean tradingConfigBean = loadConfig();
+        // 1. 資料與窗口檢查
+        if (asset1Series == null || asset2Series == null) {
+            log.warn("K線序列不可為 null"); return null;
+        }
+        if (tradingConfigBean.getWindowSize() < 2) {
+            log.warn("windowSize 必須 >= 2，目前 = {}", tradingConfigBean.getWindowSize()); return null;
+        }
+
+        // 依開盤時間對齊，避免任一資產缺少K線時後續所有點錯位
+        AlignedCandleSeries aligned;
+        try {
+            aligned = alignCandleSeries(asset1Series, asset2Series);
+        } catch (IllegalStateException e) {
+            log.warn("K線時間對齊失敗: {}", e.getMessage()); return null;
+        }
+        if (aligned.size() < tradingConfigBean.getWindowSize()) {
+            log.warn("價格數據不足：窗口大小 = {}, 資產1 點數 = {}, 資產2 點數 = {}, 對齊後點數 = {}",
+                    tradingConfigBean.getWindowSize(), asset1Series.size(), asset2Series.size(), aligned.size());
+            return null;
+        }
+
+        // 取最後 windowSize 根K線的視圖，只複製窗口內的收盤價與時間
+        int len = tradingConfigBean.getWindowSize();
+        CandleSeries window1 = aligned.getAsset1Series().last(len);
+        CandleSeries window2 = aligned.getAsset2Series().last(len);
+        double[] closes1 = window1.copyCloses();
+        double[] closes2 = window2.copyCloses();
+        long[] closeTimes = window1.copyCloseTimes();
+        WindowMetrics metrics = rollingKey == null
+                ? new WindowMetrics(RollingPairStatistics.of(closes2, closes1, len))
+                : advanceRollingStatistics(rollingKey, closes1, closes2, closeTimes);
+        if (Double.isNaN(metrics.beta)) {
+            log.warn("正交迴歸直線接近垂直（X沒有與Y相關的變化），跳過此窗口"); return null;
+        }
+        if (spreadModel == SpreadModel.KALMAN) {
+            // 以窗口之前的 windowSize 根K線初始化，窗口內的Z分數都是樣本外的預測誤差
+            if (aligned.size() < len * 2) {
+                log.warn("卡爾曼濾波需要窗口之前的 {} 根K線初始化，對齊後點數 = {}", len, aligned.size()); return null;
+            }
+            int warmUpEnd = aligned.size() - len;
+            double[] warmUp1 = aligned.getAsset1Series().window(warmUpEnd - len, warmUpEnd).copyCloses();
+            double[] warmUp2 = aligned.getAsset2Series().window(warmUpEnd - len, warmUpEnd).copyCloses();
+            KalmanPairState state = rollingKey == null
+                    ? new KalmanPairState()
+                    : kalmanStates.computeIfAbsent(rollingKey, key -> new KalmanPairState());
+            synchronized (state) {
+                try {
+                    metrics = advanceKalmanFilter(state, warmUp1, warmUp2, closes1, closes2, closeTimes, metrics);
+                } catch (IllegalArgumentException e) {
+                    log.warn("卡爾曼濾波無法初始化，跳過此窗口: {}", e.getMessage()); return null;
+                }
+            }
+        }
+        return calculatePairMetrics(closes1, closes2, closeTimes, metrics);
+    }
+
+    /**
+     * 將資產對的窗口統計量推進到目前窗口：取代上次最後一根K線（可能是盤中K線）並加入之後的新K線，
+     * 每根新K線 O(1)；找不到上次的K線或窗口起點不一致（例如缺口被補齊）時以窗口重建
+     */
+    private WindowMetrics advanceRollingStatistics(String rollingKey, double[] closes1, double[] closes2, long[] closeTimes) {
+        int len = closeTimes.length;
+        RollingPairState state = rollingStates.computeIfAbsent(rollingKey, key -> new RollingPairState());
+        synchronized (state) {
+            int last = -1;
+            if (state.statistics != null && state.statistics.getCapacity() == len) {
+                for (int i = len - 1; i >= 0; i--) {
+                    if (closeTimes[i] == state.lastCloseTime) {
+                        last = i;
+                        break;
+                    }
+                }
+            }
+            if (last >= 0) {
+                state.statistics.replaceLast(closes2[last], closes1[last]);
+                for (int i = last + 1; i < len; i++) {
+                    state.statistics.add(closes2[i], closes1[i]);
+                }
+                if (state.statistics.getX(0) != closes2[0] || state.statistics.getY(0) != closes1[0]) {
+                    log.debug("{} 窗口統計量與K線不一致，重新計算", rollingKey);
+                    last = -1;
+                }
+            }
+            if (last < 0) {
+                state.statistics = RollingPairStatistics.of(closes2, closes1, len);
+            }
+            state.lastCloseTime = closeTimes[len - 1];
+            return new WindowMetrics(state.statistics);
+        }
+    }
+
+    /**
+     * 將卡爾曼濾波推進到目前窗口，每根新K線 O(1)：重新處理上次最後一根K線（可能是盤中K線）並加入之後的新K線；
+     * 沒有狀態、找不到上次的K線或窗口起點不一致（例如缺口被補齊）時，以窗口之前K線的正交迴歸初始化後逐根濾波整個窗口
+     *
+     * @param warmUp1 窗口之前的資產1收盤價，只在重新初始化時使用
+     * @param warmUp2 窗口之前的資產2收盤價，只在重新初始化時使用
+     * @param tlsMetrics 窗口的正交迴歸統計量（相關性與共整合檢定沿用）
+     * @return 以濾波結果取代對沖比率、價差與Z分數的統計量
+     */
+    private WindowMetrics advanceKalmanFilter(KalmanPairState state, double[] warmUp1, double[] warmUp2,
+                                              double[] closes1, double[] closes2, long[] closeTimes, WindowMetrics tlsMetrics) {
+        int len = closeTimes.length;
+        int last = -1;
+        if (state.filter != null && state.spreads.length == len) {
+            for (int i = len - 1; i >= 0; i--) {
+                if (closeTimes[i] == state.lastCloseTime) {
+                    last = i;
+                    break;
+                }
+            }
+        }
+        if (last >= 0) {
+            int newest = (state.next + len - 1) % len;
+            state.spreads[newest] = state.filter.replaceLast(closes2[last], closes1[last]);
+            state.zScores[newest] = state.filter.getZScore();
+            for (int i = last + 1; i < len; i++) {
+                state.spreads[state.next] = state.filter.update(closes2[i], closes1[i]);
+                state.zScores[state.next] = state.filter.getZScore();
+                state.closeTimes[state.next] = closeTimes[i];
+                state.next = (state.next + 1) % len;
+            }
+            if (state.closeTimes[state.next] != closeTimes[0]) {
+                log.debug("卡爾曼濾波窗口起點與K線不一致，重新初始化");
+                // 已推進的狀態不可再用，初始化失敗時下次重新初始化
+                state.filter = null;
+                last = -1;
+            }
+        }
+        if (last < 0) {
+            // 初始化失敗時保留原本的狀態
+            KalmanHedgeFilter filter = new KalmanHedgeFilter(kalmanDelta, kalmanObservationNoise);
+            filter.initialize(warmUp2, warmUp1);
+            state.filter = filter;
+            state.spreads = new double[len];
+            state.zScores = new double[len];
+            state.closeTimes = closeTimes.clone();
+            for (int i = 0; i < len; i++) {
+                state.spreads[i] = state.filter.update(closes2[i], closes1[i]);
+                state.zScores[i] = state.filter.getZScore();
+            }
+            state.next = 0;
+        }
+        state.lastCloseTime = closeTimes[len - 1];
+
+        double[] spreads = new double[len];
+        double[] zScores = new double[len];
+        for (int i = 0; i < len; i++) {
+            spreads[i] = state.spreads[(state.next + i) % len];
+            zScores[i] = state.zScores[(state.next + i) % len];
+        }
+        return new WindowMetrics(tlsMetrics, state.filter.getAlpha(), state.filter.getBeta(),
+                state.filter.getSpreadStd(), spreads, zScores);
+    }
+
+    @Override
+    public AlignedCandleSeries alignCandleSeries(CandleSeries asset1Series, CandleSeries asset2Series) {
+        AlignedCandleSeries aligned = CandleSeriesAligner.align(asset1Series, asset2Series, gapPolicy);
+        if (aligned.getGapReport().hasGaps()) {
+            log.warn("K線時間存在缺口: {}", aligned.getGapReport());
+        }
+        return aligned;
+    }
+
+    @Override
+    public RollingHedgeSeries computeRollingHedgeSeries(CandleSeries asset1Series, CandleSeries asset2Series, int windowSize) {
+        return computeRollingHedgeSeries(asset1Series, asset2Series, windowSize, SpreadModel.TLS);
+    }
+
+    @Override
+    public RollingHedgeSeries computeRollingHedgeSeries(CandleSeries asset1Series, CandleSeries asset2Series, int windowSize,
+                                                        SpreadModel spreadModel) {
+        if (asset1Series == null || asset2Series == null || windowSize < 2) {
+            return null;
+        }
+        AlignedCandleSeries aligned;
+        try {
+            aligned = alignCandleSeries(asset1Series, asset2Series);
+        } catch (IllegalStateException e) {
+            log.warn("K線時間對齊失敗: {}", e.getMessage());
+            return null;
+        }
+        // 卡爾曼濾波在初始化窗口之後至少需要一根K線
+        int minimumSize = spreadModel == SpreadModel.KALMAN ? windowSize + 1 : windowSize;
+        if (aligned.size() < minimumSize) {
+            log.warn("滾動估計數據不足：窗口大小 = {}, 對齊後點數 = {}", windowSize, aligned.size());
+            return null;
+        }
+        double[] closes1 = aligned.getAsset1Series().copyCloses();
+        double[] closes2 = aligned.getAsset2Series().copyCloses();
+        long[] closeTimes = aligned.getAsset1Series().copyCloseTimes();
+        if (spreadModel == SpreadModel.KALMAN) {
+            try {
+                return StatisticalUtils.computeKalmanHedgeSeries(closes1, closes2, closeTimes, windowSize,
+                        kalmanDelta, kalmanObservationNoise);
+            } catch (IllegalArgumentException e) {
+                log.warn("卡爾曼濾波無法初始化: {}", e.getMessage());
+                return null;
+            }
+        }
+        return StatisticalUtils.computeRollingHedgeSeries(closes1, closes2, closeTimes, windowSize);
+    }
+
+    @Override
+    public RollingHedgeSeries getRollingHedgeSeries(String asset1, String asset2) {
+        TradingConfigBean tradingConfigBean = loadConfig();
+        String targetAsset1 = StringUtils.isBlank(asset1) ? tradingConfigBean.getAsset1() : asset1;
+        String targetAsset2 = StringUtils.isBlank(asset2) ? tradingConfigBean.getAsset2() : asset2;
+        int windowSize = tradingConfigBean.getWindowSize();
+        SpreadModel spreadModel = getSpreadModel(targetAsset1, targetAsset2);
+        try {
+            // 最近 windowSize 個點各自需要往前 windowSize - 1 根K線，卡爾曼濾波則以之前的 windowSize 根K線初始化
+            int requiredDataPoints = spreadModel == SpreadModel.KALMAN ? windowSize * 2 : windowSize * 2 - 1;
+            CompletableFuture<CandleSeries> asset1Future = candleStoreService.getCandleSeriesAsync(targetAsset1, marketDataInterval, requiredDataPoints);
+            CompletableFuture<CandleSeries> asset2Future = candleStoreService.getCandleSeriesAsync(targetAsset2, marketDataInterval, requiredDataPoints);
+            return computeRollingHedgeSeries(asset1Future.join(), asset2Future.join(), windowSize, spreadModel);
+        } catch (Exception e) {
+            log.error("計算 {} 和 {} 的滾動對沖比率失敗", targetAsset1, targetAsset2, e);
+            return null;
+        }
+    }
+
+    /**
+     * 以窗口內的收盤價計算相關性、回歸、價差與Z分數
+     *
+     * @param window1 資產1窗口收盤價
+     * @param window2 資產2窗口收盤價
+     * @param closeTimes 窗口內各點的收盤時間
+     * @param metrics 窗口統計量（X為資產2、Y為資產1）
+     */
+    private PairsTradingServiceValueBean calculatePairMetrics(double[] window1, double[] window2, long[] closeTimes,
+                                                              WindowMetrics metrics) {
+        PairsTradingServiceValueBean updatePriceData = new PairsTradingServiceValueBean();
+        int len = window1.length;
+
+        // 2. 相關性（與 StatisticalUtils.pineCorrelation 相同的母體公式）
+        updatePriceData.setCorrelation(metrics.correlation);
         log.info("TradingView 價格相關性: {}", updatePriceData.getCorrelation());
 
-        // 3. 使用統計工具類計算對稱迴歸（Orthogonal Regression）
-        OrthogonalRegressionResult regressionResult = StatisticalUtils.computeOrthogonalRegression(window2, window1);
-        
-        // 更新回歸參數
-        updatePriceData.setAlpha(regressionResult.getAlpha());
-        updatePriceData.setBeta(regressionResult.getBeta());
+        // 3. 對稱迴歸（Orthogonal Regression）參數
+        updatePriceData.setAlpha(metrics.alpha);
+        updatePriceData.setBeta(metrics.beta);
         log.debug("Orthogonal 回歸: α = {}, β = {}", updatePriceData.getAlpha(), updatePriceData.getBeta());
 
-        // 4. 獲取殘差序列並更新價差歷史
+        // 4. 更新價差歷史：卡爾曼濾波為逐根的預測誤差，正交迴歸則以目前的回歸參數計算窗口內的正交殘差
         updatePriceData.getSpreadHistory().clear();
-        double[] residuals = regressionResult.getResiduals();
-        for (double residual : residuals) {
-            updatePriceData.getSpreadHistory().add(residual);
+        if (metrics.spreads != null) {
+            for (double spread : metrics.spreads) {
+                updatePriceData.getSpreadHistory().add(spread);
+            }
+        } else {
+            double norm = Math.sqrt(1 + metrics.beta * metrics.beta);
+            for (int i = 0; i < len; i++) {
+                updatePriceData.getSpreadHistory().add((window1[i] - (metrics.alpha + metrics.beta * window2[i])) / norm);
+            }
         }
 
-        // 5. ADF 平穩性檢定
-        boolean isStationary = StatisticalUtils.performADFTest(updatePriceData.getSpreadHistory());
+        // 5. ADF 平穩性檢定：以窗口正交迴歸的殘差檢定共整合（兩個變數的臨界值）；
+        //    卡爾曼濾波的預測誤差由逐根更新的對沖比率產生，接近白噪音，不適用共整合殘差的臨界值，同樣檢定窗口的正交迴歸殘差
+        double[] spreadValues = new double[len];
+        double cointegrationNorm = Math.sqrt(1 + metrics.cointegrationBeta * metrics.cointegrationBeta);
+        for (int i = 0; i < len; i++) {
+            spreadValues[i] = (window1[i] - (metrics.cointegrationAlpha + metrics.cointegrationBeta * window2[i])) / cointegrationNorm;
+        }
+        AugmentedDickeyFuller.Result adfResult = StatisticalUtils.adfTest(spreadValues);
+        boolean isStationary = adfResult != null && adfResult.isStationary(0.05);
         updatePriceData.setStationaryTest(isStationary);
+        updatePriceData.setAdfPValue(adfResult != null ? adfResult.getPValue() : 1.0);
         if (!isStationary) {
             log.warn("殘差序列未通過 ADF 平穩性檢定，但將繼續提供數據並標記檢定結果");
         }
 
-        // 6. 獲取統計量
-        updatePriceData.setSpreadMean(regressionResult.getMean());
-        updatePriceData.setSpreadStd(regressionResult.getStd());
+        // 6. 獲取統計量（正交迴歸直線通過平均點，殘差平均值為0）
+        updatePriceData.setSpreadMean(0.0);
+        updatePriceData.setSpreadStd(metrics.spreadStd);
         
         // 7. 確保標準差不為零（保護措施）
         double minStd = updatePriceData.getSpreadStd() * 0.01;
@@ -182,10 +563,16 @@ public class MarketDataServiceImpl implements MarketDataService {
             updatePriceData.setSpreadStd(minStd);;
         }
 
-        // 8. 計算 Z 分數
+        // 8. 計算 Z 分數（卡爾曼濾波以各K線當時的預測誤差標準差標準化）
         updatePriceData.getZScoreHistory().clear();
-        for (double s : updatePriceData.getSpreadHistory()) {
-            updatePriceData.getZScoreHistory().add((s - updatePriceData.getSpreadMean()) / updatePriceData.getSpreadStd());
+        if (metrics.zScores != null) {
+            for (double zScore : metrics.zScores) {
+                updatePriceData.getZScoreHistory().add(zScore);
+            }
+        } else {
+            for (double s : updatePriceData.getSpreadHistory()) {
+                updatePriceData.getZScoreHistory().add((s - updatePriceData.getSpreadMean()) / updatePriceData.getSpreadStd());
+            }
         }
 
         // 9. 更新 lastZScore、spread
@@ -194,17 +581,8 @@ public class MarketDataServiceImpl implements MarketDataService {
 
         // 10. 時間對齊
         updatePriceData.getTimeHistory().clear();
-        if (asset1Data != null && asset1Data.size() >= len) {
-            int offset = asset1Data.size() - len;
-            for (int i = 0; i < len; i++) {
-                updatePriceData.getTimeHistory().add(asset1Data.get(offset + i).getCloseTime());
-            }
-        } else {
-            long now = System.currentTimeMillis();
-            long step = 15 * 60 * 1000L;
-            for (int i = 0; i < len; i++){
-                updatePriceData.getTimeHistory().add(now - (len - i - 1) * step);
-            }
+        for (long closeTime : closeTimes) {
+            updatePriceData.getTimeHistory().add(closeTime);
         }
 
         // 最後日誌
@@ -280,4 +658,61 @@ public class MarketDataServiceImpl implements MarketDataService {
         
         return pairsTradingServiceValueBean.getLastZScoreChart();
     }
+
+    /**
+     * 資產對的窗口統計量與最後加入的K線收盤時間
+     */
+    private static class RollingPairState {
+        private RollingPairStatistics statistics;
+        private long lastCloseTime;
+    }
+
+    /**
+     * 窗口統計量在某一時刻的數值
+     */
+    private static class WindowMetrics {
+        private final double correlation;
+        private final double alpha;
+        private final double beta;
+        private final double spreadStd;
+        private final double[] spreads;  // null 表示由 α、β 計算窗口內的正交殘差
+        private final double[] zScores;
+        // 共整合檢定使用的窗口正交迴歸參數
+        private final double cointegrationAlpha;
+        private final double cointegrationBeta;
+
+        WindowMetrics(RollingPairStatistics statistics) {
+            this.correlation = statistics.getCorrelation();
+            this.beta = statistics.getBeta();
+            this.alpha = statistics.getMeanY() - beta * statistics.getMeanX();
+            this.spreadStd = statistics.getSpreadStd();
+            this.spreads = null;
+            this.zScores = null;
+            this.cointegrationAlpha = alpha;
+            this.cointegrationBeta = beta;
+        }
+
+        WindowMetrics(WindowMetrics tlsMetrics, double alpha, double beta, double spreadStd, double[] spreads, double[] zScores) {
+            this.correlation = tlsMetrics.correlation;
+            this.cointegrationAlpha = tlsMetrics.alpha;
+            this.cointegrationBeta = tlsMetrics.beta;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.spreadStd = spreadStd;
+            this.spreads = spreads;
+            this.zScores = zScores;
+        }
+    }
+
+    /**
+     * 資產對的卡爾曼濾波狀態與窗口內各K線的價差、Z分數、收盤時間（環形緩衝區，最舊一點在 next）
+     */
+    private static class KalmanPairState {
+        private KalmanHedgeFilter filter;
+        private long lastCloseTime;
+        private double[] spreads;
+        private double[] zScores;
+        private long[] closeTimes;
+        private int next;
+    }
 }
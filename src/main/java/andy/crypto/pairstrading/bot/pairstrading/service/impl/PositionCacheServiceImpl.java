@@ -0,0 +1,234 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
+import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
+import andy.crypto.pairstrading.bot.pairstrading.util.BinanceStreamClient;
+import andy.crypto.pairstrading.bot.pairstrading.util.PositionOrderBook;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * 持倉與未完成訂單快取服務實現類
+ * 第一次讀取時建立 listenKey 並連線用戶數據流，只在（重新）連線與 listenKey 過期後以 REST 重建快照，
+ * 其餘時間持倉與訂單完全由數據流事件更新；數據流出現新持倉時只查詢該交易對的持倉補齊槓桿等欄位。
+ * 事件不包含標記價格，有持倉時超過 mark-price-refresh-ms 以共用的全市場價格快照更新標記價格與未實現盈虧
+ */
+@Slf4j
+@Service
+public class PositionCacheServiceImpl implements PositionCacheService {
+
+    private static final String PROD_WS_BASE_URL = "wss://fstream.binance.com";
+    private static final String TEST_WS_BASE_URL = "wss://stream.binancefuture.com";
+
+    @Autowired
+    private BinanceApiService binanceApiService;
+
+    @Autowired
+    private BinanceConfig binanceConfig;
+
+    @Autowired
+    private BinanceRequestSigner requestSigner;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${user-data-stream.enabled:true}")
+    private boolean enabled;
+
+    // 數據流地址，空白時依測試網設定自動選擇
+    @Value("${user-data-stream.ws-base-url:}")
+    private String wsBaseUrl;
+
+    @Value("${user-data-stream.keepalive-minutes:30}")
+    private long keepAliveMinutes;
+
+    @Value("${user-data-stream.reconnect-delay-ms:5000}")
+    private long reconnectDelayMillis;
+
+    @Value("${user-data-stream.mark-price-refresh-ms:60000}")
+    private long markPriceRefreshMillis;
+
+    private final PositionOrderBook book = new PositionOrderBook();
+
+    private volatile BinanceStreamClient streamClient;
+    private volatile String listenKey;
+    private volatile long markPricesAt;
+
+    @Override
+    public List<PositionInfo> getPositionInfo(String symbol) {
+        if (!ensureSnapshot()) {
+            return binanceApiService.getPositionInfo(symbol);
+        }
+        List<PositionInfo> positions = book.getPositions(null);
+        if (!positions.isEmpty() && System.currentTimeMillis() - markPricesAt > markPriceRefreshMillis) {
+            refreshMarkPrices();
+        }
+        return book.getPositions(symbol);
+    }
+
+    @Override
+    public List<OrderResponse> getOpenOrders(String symbol) {
+        if (!ensureSnapshot()) {
+            return binanceApiService.getOpenOrders(symbol);
+        }
+        return book.getOpenOrders(symbol);
+    }
+
+    @Override
+    public boolean isStreamActive() {
+        BinanceStreamClient client = streamClient;
+        return client != null && client.isConnected() && book.isSeeded();
+    }
+
+    @Override
+    public void invalidate() {
+        book.invalidate();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        BinanceStreamClient client = streamClient;
+        if (client != null) {
+            client.stop();
+            try {
+                binanceApiService.closeUserDataStream();
+            } catch (Exception e) {
+                log.debug("關閉用戶數據流失敗: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 確保數據流已啟動且快照有效
+     *
+     * @return 是否可以使用快取
+     */
+    private boolean ensureSnapshot() {
+        if (!enabled) {
+            return false;
+        }
+        startIfNeeded();
+        BinanceStreamClient client = streamClient;
+        if (client == null || !client.isConnected()) {
+            return false;
+        }
+        if (!book.isSeeded()) {
+            reseed();
+        } else if (book.isIncomplete()) {
+            completeNewPositions();
+        }
+        return book.isSeeded();
+    }
+
+    /**
+     * API金鑰設定後第一次讀取時建立 listenKey 並連線
+     */
+    private synchronized void startIfNeeded() {
+        if (streamClient != null || !requestSigner.hasCredentials()) {
+            return;
+        }
+        try {
+            listenKey = binanceApiService.startUserDataStream();
+        } catch (Exception e) {
+            log.warn("無法建立用戶數據流，持倉查詢改用REST: {}", e.getMessage());
+            return;
+        }
+
+        BinanceStreamClient client = new BinanceStreamClient("user-data",
+                () -> URI.create(resolveWsBaseUrl() + "/ws/" + listenKey),
+                this::onMessage, this::reseed, reconnectDelayMillis);
+        client.scheduleAtFixedRate(this::keepAlive, keepAliveMinutes * 60_000L);
+        client.start();
+        streamClient = client;
+        log.info("用戶數據流已啟動，持倉與訂單改由數據流更新");
+    }
+
+    /**
+     * 以 REST 重建持倉與未完成訂單快照
+     */
+    private synchronized void reseed() {
+        try {
+            book.beginSeed();
+            List<PositionInfo> positions = binanceApiService.getPositionInfo(null);
+            List<OrderResponse> orders = binanceApiService.getOpenOrders(null);
+            book.seed(positions, orders);
+            // REST 持倉已包含標記價格
+            markPricesAt = System.currentTimeMillis();
+            log.debug("持倉快照已更新: {} 個持倉, {} 筆未完成訂單", positions.size(), orders.size());
+        } catch (Exception e) {
+            book.invalidate();
+            log.warn("以REST建立持倉快照失敗: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 查詢數據流新出現持倉的交易對（單一交易對權重 5），補齊槓桿與強平價
+     */
+    private synchronized void completeNewPositions() {
+        for (String symbol : book.getIncompleteSymbols()) {
+            try {
+                book.completePositions(symbol, binanceApiService.getPositionInfo(symbol));
+            } catch (Exception e) {
+                // 下次讀取時重試，期間槓桿等欄位維持預設值
+                log.warn("補齊 {} 持倉資訊失敗: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 以全市場價格快照（與其他元件共用，短時間內不重複請求）更新標記價格與未實現盈虧
+     * 最新成交價與標記價格僅有些微差異，足以用於顯示與風險檢查
+     */
+    private void refreshMarkPrices() {
+        try {
+            book.updateMarkPrices(binanceApiService.getAllLatestPrices());
+        } catch (Exception e) {
+            log.debug("更新持倉標記價格失敗，沿用原值: {}", e.getMessage());
+        }
+        // 失敗時同樣等待下一個間隔，避免每次讀取都重試
+        markPricesAt = System.currentTimeMillis();
+    }
+
+    private void onMessage(String message) {
+        try {
+            String type = book.apply(objectMapper.readTree(message));
+            if ("listenKeyExpired".equals(type)) {
+                // listenKey 過期後需重新建立並重連，期間快照失效
+                log.warn("用戶數據流 listenKey 已過期，重新建立");
+                book.invalidate();
+                listenKey = binanceApiService.startUserDataStream();
+                streamClient.reconnect();
+            }
+        } catch (Exception e) {
+            log.warn("處理用戶數據流事件失敗: {}", e.getMessage());
+        }
+    }
+
+    private void keepAlive() {
+        try {
+            binanceApiService.keepAliveUserDataStream();
+        } catch (Exception e) {
+            log.warn("listenKey 續期失敗，重新建立: {}", e.getMessage());
+            book.invalidate();
+            listenKey = binanceApiService.startUserDataStream();
+            streamClient.reconnect();
+        }
+    }
+
+    private String resolveWsBaseUrl() {
+        if (wsBaseUrl != null && !wsBaseUrl.isBlank()) {
+            return wsBaseUrl;
+        }
+        return binanceConfig.isTestnetEnabled() ? TEST_WS_BASE_URL : PROD_WS_BASE_URL;
+    }
+}
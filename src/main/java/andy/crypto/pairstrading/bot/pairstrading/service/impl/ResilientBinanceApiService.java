@@ -0,0 +1,526 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderRequest;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderResult;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
+import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
+import andy.crypto.pairstrading.bot.pairstrading.model.PriceFilter;
+import andy.crypto.pairstrading.bot.pairstrading.model.SymbolInfo;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.util.CircuitBreaker;
+import andy.crypto.pairstrading.bot.pairstrading.util.LatencyTracker;
+import andy.crypto.pairstrading.bot.pairstrading.util.RetryBudget;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 幣安API容錯層
+ * 包裝 {@link BinanceApiServiceImpl}，注入 {@link BinanceApiService} 的元件都經過此層：
+ * <ul>
+ *     <li>只有冪等的呼叫在暫時性錯誤（連線異常、5xx）時以隨機退避重試，重試總量受重試預算限制</li>
+ *     <li>每個端點群組一個斷路器，交易所持續異常時直接失敗，不讓排程執行緒逐一等待逾時</li>
+ *     <li>K線等唯讀呼叫超過該操作的 p95 延遲仍未完成時，送出第二個相同請求，取先完成者</li>
+ * </ul>
+ * 下單類呼叫不重試也不對沖，避免重複下單；交易對資訊、價格精度調整與最新價格只讀取本地索引或快照，
+ * 直接呼叫委派，只有實際的網路請求計入斷路器與重試預算
+ */
+@Slf4j
+@Service
+@Primary
+public class ResilientBinanceApiService implements BinanceApiService {
+
+    /**
+     * 端點群組，各自使用獨立的斷路器
+     */
+    public enum EndpointGroup {
+        MARKET_DATA,  // 行情與交易所資訊
+        ACCOUNT,      // 帳戶、持倉與未完成訂單查詢
+        ORDER         // 下單、撤單與槓桿設定
+    }
+
+    private final BinanceApiService delegate;
+
+    private final Map<EndpointGroup, CircuitBreaker> circuitBreakers = new EnumMap<>(EndpointGroup.class);
+    private final Map<String, LatencyTracker> latencyTrackers = new ConcurrentHashMap<>();
+    private final RetryBudget retryBudget;
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+    private final long hedgeMinDelayMillis;
+    private final int latencyWindowSize;
+
+    // 對沖請求的主請求也在此執行，呼叫者才能在任一請求完成時返回；非同步呼叫的重試也在此送出
+    private final ExecutorService hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "binance-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong retryBudgetExhaustedCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    public ResilientBinanceApiService(@Qualifier("binanceApiServiceImpl") BinanceApiService delegate,
+                                      @Value("${binance-resilience.retry.max-attempts:3}") int maxAttempts,
+                                      @Value("${binance-resilience.retry.base-backoff-ms:200}") long baseBackoffMillis,
+                                      @Value("${binance-resilience.retry.max-backoff-ms:2000}") long maxBackoffMillis,
+                                      @Value("${binance-resilience.retry.budget-ratio:0.1}") double retryBudgetRatio,
+                                      @Value("${binance-resilience.retry.budget-max-tokens:10}") double retryBudgetMaxTokens,
+                                      @Value("${binance-resilience.circuit-breaker.window-size:20}") int breakerWindowSize,
+                                      @Value("${binance-resilience.circuit-breaker.minimum-calls:10}") int breakerMinimumCalls,
+                                      @Value("${binance-resilience.circuit-breaker.failure-rate-threshold:0.5}") double breakerFailureRate,
+                                      @Value("${binance-resilience.circuit-breaker.open-ms:30000}") long breakerOpenMillis,
+                                      @Value("${binance-resilience.hedge.enabled:true}") boolean hedgeEnabled,
+                                      @Value("${binance-resilience.hedge.percentile:0.95}") double hedgePercentile,
+                                      @Value("${binance-resilience.hedge.min-samples:50}") int hedgeMinSamples,
+                                      @Value("${binance-resilience.hedge.min-delay-ms:50}") long hedgeMinDelayMillis,
+                                      @Value("${binance-resilience.hedge.latency-window-size:200}") int latencyWindowSize) {
+        this.delegate = delegate;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMaxTokens);
+        for (EndpointGroup group : EndpointGroup.values()) {
+            circuitBreakers.put(group, new CircuitBreaker(group.name(), breakerWindowSize, breakerMinimumCalls,
+                    breakerFailureRate, breakerOpenMillis));
+        }
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinSamples = hedgeMinSamples;
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+        this.latencyWindowSize = latencyWindowSize;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeExecutor.shutdownNow();
+    }
+
+    @Override
+    public Map<String, BigDecimal> getAccountBalance() {
+        return execute("getAccountBalance", EndpointGroup.ACCOUNT, true, false, delegate::getAccountBalance);
+    }
+
+    @Override
+    public long getServerTime() {
+        // 不對沖，避免影響時間同步的往返時間量測
+        return execute("getServerTime", EndpointGroup.MARKET_DATA, true, false, delegate::getServerTime);
+    }
+
+    @Override
+    public BigDecimal getLatestPrice(String symbol) {
+        // 價格來自委派內的全市場快照快取，多數呼叫不會連線，不經過斷路器與重試預算，
+        // 避免快取命中稀釋斷路器的失敗比例或累積重試額度；快照過期時的載入與缺漏交易對的單獨查詢
+        // 由委派直接送出，失敗時拋出例外由交易流程處理
+        return delegate.getLatestPrice(symbol);
+    }
+
+    @Override
+    public Map<String, BigDecimal> getAllLatestPrices() {
+        return execute("getAllLatestPrices", EndpointGroup.MARKET_DATA, true, false, delegate::getAllLatestPrices);
+    }
+
+    @Override
+    public List<CandlestickData> getCandlestickData(String symbol, String interval, Integer limit) {
+        return execute("getCandlestickData", EndpointGroup.MARKET_DATA, true, true,
+                () -> delegate.getCandlestickData(symbol, interval, limit));
+    }
+
+    @Override
+    public List<CandlestickData> getCandlestickData(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
+        return execute("getCandlestickData", EndpointGroup.MARKET_DATA, true, true,
+                () -> delegate.getCandlestickData(symbol, interval, startTime, endTime, limit));
+    }
+
+    @Override
+    public CandleSeries getCandleSeries(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
+        return execute("getCandleSeries", EndpointGroup.MARKET_DATA, true, true,
+                () -> delegate.getCandleSeries(symbol, interval, startTime, endTime, limit));
+    }
+
+    @Override
+    public SymbolInfo getSymbolInfo(String symbol) {
+        // 交易對資訊來自本地索引，實際的交易所資訊請求經過 getExchangeSymbols 計入斷路器
+        return delegate.getSymbolInfo(symbol);
+    }
+
+    @Override
+    public List<PositionInfo> getPositionInfo(String symbol) {
+        return execute("getPositionInfo", EndpointGroup.ACCOUNT, true, false, () -> delegate.getPositionInfo(symbol));
+    }
+
+    @Override
+    public OrderResponse placeOrder(String symbol, String side, String positionSide, String type, BigDecimal quantity, BigDecimal price) {
+        return execute("placeOrder", EndpointGroup.ORDER, false, false,
+                () -> delegate.placeOrder(symbol, side, positionSide, type, quantity, price));
+    }
+
+    @Override
+    public OrderResponse placeOrder(String symbol, String side, String positionSide, String type, BigDecimal quantity, BigDecimal price,
+                                    boolean reduceOnly) {
+        return execute("placeOrder", EndpointGroup.ORDER, false, false,
+                () -> delegate.placeOrder(symbol, side, positionSide, type, quantity, price, reduceOnly));
+    }
+
+    @Override
+    public List<BatchOrderResult> placeBatchOrders(List<BatchOrderRequest> orders) {
+        return execute("placeBatchOrders", EndpointGroup.ORDER, false, false, () -> delegate.placeBatchOrders(orders));
+    }
+
+    @Override
+    public boolean cancelOrder(String symbol, Long orderId) {
+        // 重送已成功的撤單會返回訂單不存在，不重試
+        return execute("cancelOrder", EndpointGroup.ORDER, false, false, () -> delegate.cancelOrder(symbol, orderId));
+    }
+
+    @Override
+    public List<OrderResponse> getOpenOrders(String symbol) {
+        return execute("getOpenOrders", EndpointGroup.ACCOUNT, true, false, () -> delegate.getOpenOrders(symbol));
+    }
+
+    @Override
+    public boolean closeAllPositions(String symbol) {
+        return execute("closeAllPositions", EndpointGroup.ORDER, false, false, () -> delegate.closeAllPositions(symbol));
+    }
+
+    @Override
+    public PriceFilter getPriceFilter(String symbol) {
+        return delegate.getPriceFilter(symbol);
+    }
+
+    @Override
+    public boolean setLeverage(String symbol, int leverage) {
+        // 設定為固定值，重送結果相同
+        return execute("setLeverage", EndpointGroup.ORDER, true, false, () -> delegate.setLeverage(symbol, leverage));
+    }
+
+    @Override
+    public BigDecimal adjustPriceToTickSize(String symbol, BigDecimal price) {
+        return delegate.adjustPriceToTickSize(symbol, price);
+    }
+
+    @Override
+    public BigDecimal adjustQuantityToPrecision(String symbol, BigDecimal quantity) {
+        return delegate.adjustQuantityToPrecision(symbol, quantity);
+    }
+
+    @Override
+    public List<String> getAvailableFuturesPairs() {
+        return execute("getAvailableFuturesPairs", EndpointGroup.MARKET_DATA, true, false,
+                delegate::getAvailableFuturesPairs);
+    }
+
+    @Override
+    public List<SymbolInfo> getExchangeSymbols() {
+        return execute("getExchangeSymbols", EndpointGroup.MARKET_DATA, true, false, delegate::getExchangeSymbols);
+    }
+
+    @Override
+    public String startUserDataStream() {
+        // 有效期內重複建立會返回同一個 listenKey
+        return execute("startUserDataStream", EndpointGroup.ACCOUNT, true, false, delegate::startUserDataStream);
+    }
+
+    @Override
+    public void keepAliveUserDataStream() {
+        execute("keepAliveUserDataStream", EndpointGroup.ACCOUNT, true, false, () -> {
+            delegate.keepAliveUserDataStream();
+            return null;
+        });
+    }
+
+    @Override
+    public void closeUserDataStream() {
+        execute("closeUserDataStream", EndpointGroup.ACCOUNT, true, false, () -> {
+            delegate.closeUserDataStream();
+            return null;
+        });
+    }
+
+    /**
+     * 獲取容錯層指標
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        Map<String, Object> breakers = new LinkedHashMap<>();
+        for (Map.Entry<EndpointGroup, CircuitBreaker> entry : circuitBreakers.entrySet()) {
+            Map<String, Object> breaker = new HashMap<>();
+            breaker.put("state", entry.getValue().getState().name());
+            breaker.put("rejectedCount", entry.getValue().getRejectedCount());
+            breakers.put(entry.getKey().name(), breaker);
+        }
+        metrics.put("circuitBreakers", breakers);
+        metrics.put("retryCount", retryCount.get());
+        metrics.put("retryBudgetTokens", retryBudget.getTokens());
+        metrics.put("retryBudgetExhaustedCount", retryBudgetExhaustedCount.get());
+        metrics.put("hedgeCount", hedgeCount.get());
+        metrics.put("hedgeWinCount", hedgeWinCount.get());
+        Map<String, Long> percentiles = new LinkedHashMap<>();
+        latencyTrackers.forEach((operation, tracker) -> percentiles.put(operation, tracker.getPercentile(hedgePercentile)));
+        metrics.put("latencyPercentileMs", percentiles);
+        return metrics;
+    }
+
+    /**
+     * 以斷路器、重試與對沖策略執行呼叫
+     *
+     * @param operation 操作名稱（延遲統計以此區分）
+     * @param group 端點群組
+     * @param idempotent 是否可安全重送
+     * @param hedgeable 是否允許對沖請求（只限唯讀呼叫）
+     * @param call 實際呼叫
+     * @return 呼叫結果
+     */
+    private <T> T execute(String operation, EndpointGroup group, boolean idempotent, boolean hedgeable, Supplier<T> call) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(group);
+        retryBudget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new BinanceApiException("幣安API " + group + " 斷路器開啟中，暫停呼叫: " + operation);
+            }
+            try {
+                T result = hedgeable ? callHedged(operation, call) : callTimed(operation, call);
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                boolean transientFailure = isTransient(e);
+                if (transientFailure) {
+                    circuitBreaker.onFailure();
+                } else {
+                    // 參數或業務錯誤表示交易所可正常回應
+                    circuitBreaker.onSuccess();
+                }
+                if (!idempotent || !transientFailure || attempt >= maxAttempts) {
+                    throw e;
+                }
+                if (!retryBudget.tryWithdraw()) {
+                    retryBudgetExhaustedCount.incrementAndGet();
+                    throw e;
+                }
+                long backoff = backoffMillis(attempt);
+                retryCount.incrementAndGet();
+                log.warn("{} 暫時性失敗，{} ms 後第 {} 次重試: {}", operation, backoff, attempt, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 以斷路器與重試策略執行非同步呼叫（不對沖）
+     * 重試以延遲排程重新送出，等待退避期間不佔用執行緒
+     *
+     * @param operation 操作名稱（延遲統計以此區分）
+     * @param group 端點群組
+     * @param idempotent 是否可安全重送
+     * @param call 送出請求並返回結果 future 的呼叫，每次重試重新呼叫
+     * @return 最後一次嘗試的結果
+     */
+    public <T> CompletableFuture<T> executeAsync(String operation, EndpointGroup group, boolean idempotent,
+                                                 Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        retryBudget.deposit();
+        attemptAsync(operation, group, idempotent, call, 1, result);
+        return result;
+    }
+
+    private <T> void attemptAsync(String operation, EndpointGroup group, boolean idempotent,
+                                  Supplier<CompletableFuture<T>> call, int attempt, CompletableFuture<T> result) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(group);
+        if (!circuitBreaker.tryAcquire()) {
+            result.completeExceptionally(new BinanceApiException("幣安API " + group + " 斷路器開啟中，暫停呼叫: " + operation));
+            return;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                circuitBreaker.onSuccess();
+                latencyTracker(operation).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                result.complete(value);
+                return;
+            }
+            RuntimeException failure = unwrap(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            boolean transientFailure = isTransient(failure);
+            if (transientFailure) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            if (!idempotent || !transientFailure || attempt >= maxAttempts) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            if (!retryBudget.tryWithdraw()) {
+                retryBudgetExhaustedCount.incrementAndGet();
+                result.completeExceptionally(failure);
+                return;
+            }
+            long backoff = backoffMillis(attempt);
+            retryCount.incrementAndGet();
+            log.warn("{} 暫時性失敗，{} ms 後第 {} 次重試: {}", operation, backoff, attempt, failure.getMessage());
+            try {
+                CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, hedgeExecutor)
+                        .execute(() -> attemptAsync(operation, group, idempotent, call, attempt + 1, result));
+            } catch (RejectedExecutionException e) {
+                // 應用程式關閉中
+                result.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * 執行呼叫並記錄成功呼叫的延遲
+     */
+    private <T> T callTimed(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        T result = call.get();
+        latencyTracker(operation).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * 主請求超過延遲門檻仍未完成時送出第二個相同請求，返回先成功的結果
+     */
+    private <T> T callHedged(String operation, Supplier<T> call) {
+        long hedgeDelay = hedgeDelayMillis(operation);
+        if (hedgeDelay < 0) {
+            return callTimed(operation, call);
+        }
+
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> callTimed(operation, call), hedgeExecutor);
+        try {
+            return primary.get(hedgeDelay, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 超過門檻，送出對沖請求
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BinanceApiException(operation + " 被中斷", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+
+        hedgeCount.incrementAndGet();
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> callTimed(operation, call), hedgeExecutor);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                first.complete(result);
+            } else if (hedge.isCompletedExceptionally()) {
+                first.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                if (first.complete(result)) {
+                    hedgeWinCount.incrementAndGet();
+                }
+            } else if (primary.isCompletedExceptionally()) {
+                first.completeExceptionally(error);
+            }
+        });
+        try {
+            return first.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BinanceApiException(operation + " 被中斷", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * 對沖的延遲門檻，樣本不足或未啟用時返回 -1
+     */
+    private long hedgeDelayMillis(String operation) {
+        if (!hedgeEnabled) {
+            return -1;
+        }
+        LatencyTracker tracker = latencyTracker(operation);
+        if (tracker.getSampleCount() < hedgeMinSamples) {
+            return -1;
+        }
+        return Math.max(tracker.getPercentile(hedgePercentile), hedgeMinDelayMillis);
+    }
+
+    private LatencyTracker latencyTracker(String operation) {
+        return latencyTrackers.computeIfAbsent(operation, key -> new LatencyTracker(latencyWindowSize));
+    }
+
+    /**
+     * 全隨機抖動的指數退避：在 [0, min(上限, 基數 * 2^(n-1))] 之間隨機
+     */
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * 判斷是否為暫時性錯誤：連線或讀取異常，或交易所 5xx 回應
+     * 4xx（參數錯誤、429 限流、418 封禁）不重試也不計入斷路器
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BinanceApiException && ((BinanceApiException) cause).getStatusCode() > 0) {
+                return ((BinanceApiException) cause).getStatusCode() >= 500;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        if (error instanceof RuntimeException) {
+            return (RuntimeException) error;
+        }
+        return new BinanceApiException(error.getMessage(), error);
+    }
+}
@@ -3,8 +3,8 @@ package andy.crypto.pairstrading.bot.pairstrading.service.impl;
 import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
 import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
-import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
 import andy.crypto.pairstrading.bot.pairstrading.service.MarketDataService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
 import andy.crypto.pairstrading.bot.pairstrading.service.SignalAnalysisService;
 import andy.crypto.pairstrading.bot.pairstrading.util.ConsoleChartUtil;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
@@ -26,7 +26,7 @@ import java.util.Map;
 public class SignalAnalysisServiceImpl implements SignalAnalysisService {
 
     @Autowired
-    private BinanceApiService binanceApiService;
+    private PositionCacheService positionCacheService;
     
     @Autowired
     private MarketDataService marketDataService;
@@ -105,7 +105,7 @@ public class SignalAnalysisServiceImpl implements SignalAnalysisService {
             }
             
             // 檢查是否已有倉位
-            List<PositionInfo> positions = binanceApiService.getPositionInfo(null);
+            List<PositionInfo> positions = positionCacheService.getPositionInfo(null);
             boolean hasPositionAsset1 = positions.stream().anyMatch(p -> p.getSymbol().equals(tradingConfigBean.getAsset1()));
             boolean hasPositionAsset2 = positions.stream().anyMatch(p -> p.getSymbol().equals(tradingConfigBean.getAsset2()));
             boolean hasPositions = hasPositionAsset1 || hasPositionAsset2;
@@ -189,7 +189,7 @@ public class SignalAnalysisServiceImpl implements SignalAnalysisService {
         boolean hasPositions = false;
         
         try {
-            positions = binanceApiService.getPositionInfo(null);
+            positions = positionCacheService.getPositionInfo(null);
             hasPositions = positions.stream().anyMatch(p -> p.getSymbol().equals(tradingConfigBean.getAsset1()) || p.getSymbol().equals(tradingConfigBean.getAsset2()));
         } catch (Exception e) {
             log.error("獲取倉位信息失敗", e);
@@ -0,0 +1,151 @@
+package andy.crypto.pairstrading.bot.pairstrading.service.impl;
+
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.LotSizeFilter;
+import andy.crypto.pairstrading.bot.pairstrading.model.PriceFilter;
+import andy.crypto.pairstrading.bot.pairstrading.model.SymbolInfo;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.SymbolMetadataService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 交易對元數據服務實現類
+ */
+@Slf4j
+@Service
+public class SymbolMetadataServiceImpl implements SymbolMetadataService {
+
+    @Autowired
+    @Lazy
+    private BinanceApiService binanceApiService;
+
+    // 查詢不到交易對時，距上次刷新超過此時間才會立即重新下載（避免無效交易對反覆觸發下載）
+    @Value("${symbol-metadata.min-refresh-interval-ms:60000}")
+    private long minRefreshIntervalMillis;
+
+    // 當前索引，刷新時整體替換
+    private volatile MetadataIndex index;
+
+    @Override
+    public SymbolInfo getSymbolInfo(String symbol) {
+        SymbolInfo symbolInfo = currentIndex().symbols.get(symbol);
+        if (symbolInfo == null && refreshIfStale()) {
+            symbolInfo = currentIndex().symbols.get(symbol);
+        }
+        if (symbolInfo == null) {
+            throw new BinanceApiException("未找到交易對資訊: " + symbol);
+        }
+        return symbolInfo;
+    }
+
+    @Override
+    public PriceFilter getPriceFilter(String symbol) {
+        PriceFilter priceFilter = getSymbolInfo(symbol).getPriceFilter();
+        if (priceFilter == null) {
+            throw new BinanceApiException("未找到交易對價格過濾器: " + symbol);
+        }
+        return priceFilter;
+    }
+
+    @Override
+    public LotSizeFilter getLotSizeFilter(String symbol) {
+        LotSizeFilter lotSizeFilter = getSymbolInfo(symbol).getLotSizeFilter();
+        if (lotSizeFilter == null) {
+            throw new BinanceApiException("未找到交易對數量過濾器: " + symbol);
+        }
+        return lotSizeFilter;
+    }
+
+    @Override
+    public BigDecimal getMinNotional(String symbol) {
+        return getSymbolInfo(symbol).getMinNotional();
+    }
+
+    @Override
+    public List<String> getTradingSymbols() {
+        return currentIndex().tradingSymbols;
+    }
+
+    @Override
+    public void refresh() {
+        long startTime = System.currentTimeMillis();
+        List<SymbolInfo> symbols = binanceApiService.getExchangeSymbols();
+
+        Map<String, SymbolInfo> symbolMap = new HashMap<>(symbols.size() * 2);
+        List<String> tradingSymbols = new ArrayList<>();
+        for (SymbolInfo symbolInfo : symbols) {
+            symbolMap.put(symbolInfo.getSymbol(), symbolInfo);
+            if ("TRADING".equals(symbolInfo.getStatus())) {
+                tradingSymbols.add(symbolInfo.getSymbol());
+            }
+        }
+        Collections.sort(tradingSymbols);
+
+        index = new MetadataIndex(Collections.unmodifiableMap(symbolMap),
+                Collections.unmodifiableList(tradingSymbols), System.currentTimeMillis());
+        log.info("已刷新交易對元數據: {} 個交易對 ({} 個交易中)，耗時 {} ms",
+                symbolMap.size(), tradingSymbols.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 獲取當前索引，首次使用時同步載入
+     */
+    private MetadataIndex currentIndex() {
+        MetadataIndex current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    refresh();
+                    current = index;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 索引已超過最小刷新間隔時立即刷新（例如查詢剛上線的交易對）
+     *
+     * @return 是否已刷新
+     */
+    private synchronized boolean refreshIfStale() {
+        if (System.currentTimeMillis() - currentIndex().loadedAt < minRefreshIntervalMillis) {
+            return false;
+        }
+        try {
+            refresh();
+            return true;
+        } catch (Exception e) {
+            log.warn("刷新交易對元數據失敗: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 不可變的元數據索引快照
+     */
+    private static class MetadataIndex {
+        private final Map<String, SymbolInfo> symbols;
+        private final List<String> tradingSymbols;
+        private final long loadedAt;
+
+        MetadataIndex(Map<String, SymbolInfo> symbols, List<String> tradingSymbols, long loadedAt) {
+            this.symbols = symbols;
+            this.tradingSymbols = tradingSymbols;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -2,11 +2,15 @@ package andy.crypto.pairstrading.bot.pairstrading.service.impl;
 
 import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
 import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderRequest;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderResult;
 import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
 import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
 import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
 import andy.crypto.pairstrading.bot.pairstrading.service.MarketDataService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
 import andy.crypto.pairstrading.bot.pairstrading.service.PositionHistoryService;
+import andy.crypto.pairstrading.bot.pairstrading.service.SymbolMetadataService;
 import andy.crypto.pairstrading.bot.pairstrading.service.TradingExecutionService;
 import andy.crypto.pairstrading.bot.service.TradingConfigService;
 
@@ -17,6 +21,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.List;
 
 /**
  * 交易執行服務實現類
@@ -27,6 +32,9 @@ public class TradingExecutionServiceImpl implements TradingExecutionService {
 
     @Autowired
     private BinanceApiService binanceApiService;
+
+    @Autowired
+    private PositionCacheService positionCacheService;
     
     @Autowired
     private MarketDataService marketDataService;
@@ -34,6 +42,9 @@ public class TradingExecutionServiceImpl implements TradingExecutionService {
     @Autowired
     private PositionHistoryService positionHistoryService;
     
+    @Autowired
+    private SymbolMetadataService symbolMetadataService;
+    
     @Autowired
     @Lazy
     private TradingConfigService tradingConfigService;
@@ -60,7 +71,7 @@ public class TradingExecutionServiceImpl implements TradingExecutionService {
         
         try {
             // 檢查是否有倉位
-            java.util.List<PositionInfo> positions = binanceApiService.getPositionInfo(null);
+            java.util.List<PositionInfo> positions = positionCacheService.getPositionInfo(null);
             boolean hasPositions = positions.stream().anyMatch(p -> p.getSymbol().equals(tradingConfigBean.getAsset1()) || p.getSymbol().equals(tradingConfigBean.getAsset2()));
             
             // 根據Z分數決定交易方向
@@ -107,43 +118,49 @@ public class TradingExecutionServiceImpl implements TradingExecutionService {
             // 計算交易數量
             BigDecimal asset1Quantity = calculateQuantity(asset1, pairsTradingServiceValueBean);
             BigDecimal asset2Quantity = calculateQuantity(asset2, pairsTradingServiceValueBean);
+            if (!meetsMinNotional(asset1, asset1Quantity) || !meetsMinNotional(asset2, asset2Quantity)) {
+                return;
+            }
             
-            // 處理資產1交易
+            // 兩條腿以單一批量下單請求送出，只有一次往返的時間差
             String asset1Side = isLongAsset1 ? "BUY" : "SELL";
-            OrderResponse asset1Order = binanceApiService.placeOrder(
-                    asset1, asset1Side, "BOTH", "MARKET", asset1Quantity, null);
-            log.info("{} {} 訂單ID: {}, 數量: {}", isLongAsset1 ? "做多" : "做空", asset1, 
-                    asset1Order.getOrderId(), asset1Quantity);
-            
-            // 記錄資產1倉位
-            PositionInfo asset1Position = PositionInfo.builder()
-                    .symbol(asset1)
-                    .positionSide("BOTH")
-                    .entryPrice(asset1Order.getAvgPrice() != null && asset1Order.getAvgPrice().compareTo(BigDecimal.ZERO) > 0 ?
-                            asset1Order.getAvgPrice() : asset1Order.getPrice())
-                    .positionAmt(isLongAsset1 ? asset1Order.getOrigQty() : asset1Order.getOrigQty().negate())
-                    .updateTime(System.currentTimeMillis())
-                    .build();
-            positionHistoryService.recordOpenPosition(asset1Position, reason, pairsTradingServiceValueBean.getLastZScore());
-            
-            // 處理資產2交易
             String asset2Side = isLongAsset2 ? "BUY" : "SELL";
-            OrderResponse asset2Order = binanceApiService.placeOrder(
-                    asset2, asset2Side, "BOTH", "MARKET", asset2Quantity, null);
-            log.info("{} {} 訂單ID: {}, 數量: {}", isLongAsset2 ? "做多" : "做空", asset2, 
+            List<BatchOrderResult> results = binanceApiService.placeBatchOrders(List.of(
+                    BatchOrderRequest.builder().symbol(asset1).side(asset1Side).positionSide("BOTH")
+                            .type("MARKET").quantity(asset1Quantity).build(),
+                    BatchOrderRequest.builder().symbol(asset2).side(asset2Side).positionSide("BOTH")
+                            .type("MARKET").quantity(asset2Quantity).build()));
+            BatchOrderResult asset1Result = results.get(0);
+            BatchOrderResult asset2Result = results.get(1);
+
+            if (!asset1Result.isSuccess() || !asset2Result.isSuccess()) {
+                // 只有一腿成交時立即反向平掉，避免留下單邊曝險
+                boolean unwound = false;
+                if (asset1Result.isSuccess()) {
+                    unwound = unwindLeg(asset1Result.getOrder(), asset1, isLongAsset1);
+                } else if (asset2Result.isSuccess()) {
+                    unwound = unwindLeg(asset2Result.getOrder(), asset2, isLongAsset2);
+                }
+                String filledLegStatus = unwound ? "成功（已反向平倉）" : "成功（反向平倉失敗，請手動檢查倉位）";
+                log.error("配對交易下單失敗: {} {}, {} {}",
+                        asset1, asset1Result.isSuccess() ? filledLegStatus : "失敗: " + asset1Result.getErrorMessage(),
+                        asset2, asset2Result.isSuccess() ? filledLegStatus : "失敗: " + asset2Result.getErrorMessage());
+                return;
+            }
+
+            OrderResponse asset1Order = asset1Result.getOrder();
+            OrderResponse asset2Order = asset2Result.getOrder();
+            log.info("{} {} 訂單ID: {}, 數量: {}", isLongAsset1 ? "做多" : "做空", asset1,
+                    asset1Order.getOrderId(), asset1Quantity);
+            log.info("{} {} 訂單ID: {}, 數量: {}", isLongAsset2 ? "做多" : "做空", asset2,
                     asset2Order.getOrderId(), asset2Quantity);
-            
-            // 記錄資產2倉位
-            PositionInfo asset2Position = PositionInfo.builder()
-                    .symbol(asset2)
-                    .positionSide("BOTH")
-                    .entryPrice(asset2Order.getAvgPrice() != null && asset2Order.getAvgPrice().compareTo(BigDecimal.ZERO) > 0 ?
-                            asset2Order.getAvgPrice() : asset2Order.getPrice())
-                    .positionAmt(isLongAsset2 ? asset2Order.getOrigQty() : asset2Order.getOrigQty().negate())
-                    .updateTime(System.currentTimeMillis())
-                    .build();
-            positionHistoryService.recordOpenPosition(asset2Position, reason, pairsTradingServiceValueBean.getLastZScore());
-            
+
+            // 記錄兩腿倉位
+            positionHistoryService.recordOpenPosition(
+                    toOpenPosition(asset1, asset1Order, isLongAsset1), reason, pairsTradingServiceValueBean.getLastZScore());
+            positionHistoryService.recordOpenPosition(
+                    toOpenPosition(asset2, asset2Order, isLongAsset2), reason, pairsTradingServiceValueBean.getLastZScore());
+
             // 記錄訂單信息
             log.info("{}訂單: {}", isLongAsset1 ? "做多" : "做空", asset1Order);
             log.info("{}訂單: {}", isLongAsset2 ? "做多" : "做空", asset2Order);
@@ -152,6 +169,57 @@ public class TradingExecutionServiceImpl implements TradingExecutionService {
         }
     }
     
+    /**
+     * 以只減倉的反向市價單平掉另一腿失敗時已成交的單腿
+     *
+     * @return 是否成功送出平倉單
+     */
+    private boolean unwindLeg(OrderResponse order, String symbol, boolean isLong) {
+        BigDecimal quantity = order.getExecutedQty() != null && order.getExecutedQty().compareTo(BigDecimal.ZERO) > 0
+                ? order.getExecutedQty() : order.getOrigQty();
+        try {
+            // 只減倉：單腿實際成交較少或已被其他流程平掉時，不會反向開出新倉位
+            OrderResponse unwindOrder = binanceApiService.placeOrder(symbol, isLong ? "SELL" : "BUY", "BOTH", "MARKET",
+                    quantity, null, true);
+            log.warn("已反向平掉單腿 {}，數量: {}, 訂單ID: {}", symbol, quantity, unwindOrder.getOrderId());
+            return true;
+        } catch (Exception e) {
+            log.error("反向平掉單腿 {} 失敗（數量: {}），倉位仍有單邊曝險，請手動檢查", symbol, quantity, e);
+            return false;
+        }
+    }
+
+    /**
+     * 由市價單回應建立開倉記錄
+     */
+    private PositionInfo toOpenPosition(String symbol, OrderResponse order, boolean isLong) {
+        return PositionInfo.builder()
+                .symbol(symbol)
+                .positionSide("BOTH")
+                .entryPrice(order.getAvgPrice() != null && order.getAvgPrice().compareTo(BigDecimal.ZERO) > 0 ?
+                        order.getAvgPrice() : order.getPrice())
+                .positionAmt(isLong ? order.getOrigQty() : order.getOrigQty().negate())
+                .updateTime(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * 檢查下單名義價值是否達到交易對的最小名義價值 (MIN_NOTIONAL)
+     * 任一腿不足時交易所會拒單，必須在送出前取消整組配對交易
+     */
+    private boolean meetsMinNotional(String symbol, BigDecimal quantity) {
+        BigDecimal minNotional = symbolMetadataService.getMinNotional(symbol);
+        if (minNotional == null) {
+            return true;
+        }
+        BigDecimal notional = quantity.multiply(binanceApiService.getLatestPrice(symbol));
+        if (notional.compareTo(minNotional) < 0) {
+            log.error("{} 下單名義價值 {} 低於最小名義價值 {}，取消配對交易", symbol, notional, minNotional);
+            return false;
+        }
+        return true;
+    }
+
     @Override
     public BigDecimal calculateQuantity(String symbol, PairsTradingServiceValueBean pairsTradingServiceValueBean) {
         // 加載最新配置
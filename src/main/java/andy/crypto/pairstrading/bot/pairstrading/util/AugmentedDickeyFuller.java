@@ -0,0 +1,384 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import org.apache.commons.math3.special.Erf;
+
+/**
+ * 擴充 Dickey-Fuller（ADF）單位根檢定
+ * 迴歸式 Δy_t = c + γ·y_{t-1} + Σ φ_i·Δy_{t-i} + ε，檢定統計量為 γ 的 t 值，
+ * 落後期數以 AIC 或 BIC 自動選擇，p 值與臨界值使用 MacKinnon (1994, 2010) 的迴應面公式（含常數項）。
+ * 各落後期數的迴歸共用同一組交叉乘積矩陣，以 Cholesky 分解解正規方程，不需要逐期重新掃描序列
+ */
+public final class AugmentedDickeyFuller {
+
+    /**
+     * 落後期數選擇準則
+     */
+    public enum LagCriterion {
+        AIC,
+        BIC
+    }
+
+    // MacKinnon (1994) p 值迴應面（含常數項），索引為共整合迴歸中的變數個數 - 1
+    private static final double[] TAU_MAX = {2.74, 0.92};
+    private static final double[] TAU_MIN = {-18.83, -18.86};
+    private static final double[] TAU_STAR = {-1.61, -2.62};
+    private static final double[][] SMALL_P = {
+            {2.1659, 1.4412, 3.8269e-2},
+            {2.92, 1.5012, 3.9796e-2}
+    };
+    private static final double[][] LARGE_P = {
+            {1.7339, 9.3202e-1, -1.2745e-1, -1.0368e-2},
+            {2.1945, 6.4695e-1, -2.9198e-1, -4.2377e-2}
+    };
+
+    // MacKinnon (2010) 臨界值 b0 + b1/T + b2/T² + b3/T³，依序為 1%、5%、10%
+    private static final double[][][] CRITICAL_VALUES = {
+            {
+                    {-3.43035, -6.5393, -16.786, -79.433},
+                    {-2.86154, -2.8903, -4.234, -40.040},
+                    {-2.56677, -1.5384, -2.809, 0.0}
+            },
+            {
+                    {-3.89644, -10.9519, -33.527, 0.0},
+                    {-3.33613, -6.1101, -6.823, 0.0},
+                    {-3.04445, -4.2412, -2.720, 0.0}
+            }
+    };
+
+    private AugmentedDickeyFuller() {
+    }
+
+    /**
+     * 以預設最大落後期數 ⌈12·(n/100)^¼⌉ 與 AIC 進行檢定
+     *
+     * @param series 時間序列
+     * @param variables 序列來源的變數個數：原始序列為 1，兩個資產共整合迴歸的殘差（價差）為 2
+     */
+    public static Result test(double[] series, int variables) {
+        return test(series, defaultMaxLag(series.length), LagCriterion.AIC, variables);
+    }
+
+    /**
+     * @param series 時間序列
+     * @param maxLag 最大落後期數，會限制在 n/2 - 2 以內
+     * @param criterion 落後期數選擇準則，null 時直接使用 maxLag
+     * @param variables 序列來源的變數個數（1 或 2）
+     */
+    public static Result test(double[] series, int maxLag, LagCriterion criterion, int variables) {
+        if (variables < 1 || variables > TAU_MAX.length) {
+            throw new IllegalArgumentException("變數個數必須為 1 或 2，目前 = " + variables);
+        }
+        int n = series == null ? 0 : series.length;
+        maxLag = Math.min(maxLag, n / 2 - 2);
+        if (maxLag < 0) {
+            throw new IllegalArgumentException("ADF 檢定的樣本數不足，當前 = " + n);
+        }
+
+        double mean = 0;
+        for (double value : series) {
+            mean += value;
+        }
+        mean /= n;
+        double[] diff = new double[n - 1];
+        for (int i = 1; i < n; i++) {
+            diff[i - 1] = series[i] - series[i - 1];
+        }
+
+        int lag = maxLag;
+        if (criterion != null && maxLag > 0) {
+            lag = selectLag(series, diff, mean, maxLag, criterion);
+        }
+        return fit(series, diff, mean, lag, variables);
+    }
+
+    /**
+     * 預設最大落後期數 ⌈12·(n/100)^¼⌉
+     */
+    public static int defaultMaxLag(int n) {
+        return (int) Math.ceil(12.0 * Math.pow(n / 100.0, 0.25));
+    }
+
+    /**
+     * MacKinnon (1994) 近似 p 值
+     *
+     * @param tau ADF 統計量
+     * @param variables 變數個數（1 或 2）
+     */
+    public static double mackinnonPValue(double tau, int variables) {
+        int index = variables - 1;
+        if (tau > TAU_MAX[index]) {
+            return 1.0;
+        }
+        if (tau < TAU_MIN[index]) {
+            return 0.0;
+        }
+        double[] coefficients = tau <= TAU_STAR[index] ? SMALL_P[index] : LARGE_P[index];
+        double value = 0;
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            value = value * tau + coefficients[i];
+        }
+        return 0.5 * Erf.erfc(-value / Math.sqrt(2.0));
+    }
+
+    /**
+     * MacKinnon (2010) 有限樣本臨界值
+     *
+     * @param variables 變數個數（1 或 2）
+     * @param observations 迴歸使用的樣本數
+     * @return 1%、5%、10% 臨界值
+     */
+    public static double[] mackinnonCriticalValues(int variables, int observations) {
+        double[][] table = CRITICAL_VALUES[variables - 1];
+        double[] values = new double[table.length];
+        double inverse = 1.0 / observations;
+        for (int i = 0; i < table.length; i++) {
+            double[] b = table[i];
+            values[i] = b[0] + inverse * (b[1] + inverse * (b[2] + inverse * b[3]));
+        }
+        return values;
+    }
+
+    /**
+     * 所有落後期數使用相同的樣本（捨去前 maxLag + 1 個點），資訊準則才可互相比較
+     */
+    private static int selectLag(double[] series, double[] diff, double mean, int maxLag, LagCriterion criterion) {
+        int k = maxLag + 2;
+        int observations = series.length - 1 - maxLag;
+        double[] xtx = new double[k * k];
+        double[] xtz = new double[k];
+        double ztz = crossProducts(series, diff, mean, maxLag, maxLag + 1, xtx, xtz);
+        double penalty = criterion == LagCriterion.BIC ? Math.log(observations) : 2.0;
+
+        int bestLag = 0;
+        double bestValue = Double.POSITIVE_INFINITY;
+        for (int lag = 0; lag <= maxLag; lag++) {
+            int size = lag + 2;
+            double[] matrix = new double[size * size];
+            double[] coefficients = new double[size];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(xtx, i * k, matrix, i * size, size);
+                coefficients[i] = xtz[i];
+            }
+            if (!choleskyDecompose(matrix, size)) {
+                continue;
+            }
+            choleskySolve(matrix, size, coefficients);
+            double ssr = ztz;
+            for (int i = 0; i < size; i++) {
+                ssr -= coefficients[i] * xtz[i];
+            }
+            if (ssr <= 0) {
+                continue;
+            }
+            double value = observations * Math.log(ssr / observations) + penalty * size;
+            if (value < bestValue) {
+                bestValue = value;
+                bestLag = lag;
+            }
+        }
+        return bestLag;
+    }
+
+    /**
+     * 以選定的落後期數與其可用的全部樣本估計迴歸
+     */
+    private static Result fit(double[] series, double[] diff, double mean, int lag, int variables) {
+        int k = lag + 2;
+        int first = lag + 1;
+        int observations = series.length - first;
+        if (observations <= k) {
+            throw new IllegalArgumentException("ADF 檢定的樣本數不足，當前 = " + series.length);
+        }
+        double[] matrix = new double[k * k];
+        double[] coefficients = new double[k];
+        crossProducts(series, diff, mean, lag, first, matrix, coefficients);
+        if (!choleskyDecompose(matrix, k)) {
+            throw new IllegalArgumentException("ADF 迴歸的正規方程不可解（序列沒有變化）");
+        }
+        choleskySolve(matrix, k, coefficients);
+
+        // 殘差平方和直接逐點計算，避免 z'z - b'X'z 的相消誤差
+        double[] row = new double[k];
+        double ssr = 0;
+        for (int t = first; t < series.length; t++) {
+            fillRow(series, diff, mean, lag, t, row);
+            double residual = diff[t - 1];
+            for (int i = 0; i < k; i++) {
+                residual -= coefficients[i] * row[i];
+            }
+            ssr += residual * residual;
+        }
+        if (ssr <= 0) {
+            throw new IllegalArgumentException("ADF 迴歸完全擬合，無法計算統計量");
+        }
+
+        // γ 的變異數為 σ²·(X'X)⁻¹ 的第 (1, 1) 元素
+        double[] unit = new double[k];
+        unit[1] = 1.0;
+        choleskySolve(matrix, k, unit);
+        double gamma = coefficients[1];
+        double statistic = gamma / Math.sqrt(ssr / (observations - k) * unit[1]);
+
+        return new Result(statistic, mackinnonPValue(statistic, variables), gamma, lag, observations,
+                mackinnonCriticalValues(variables, observations));
+    }
+
+    /**
+     * 累積 t = first..n-1 的 X'X（k×k，列優先）與 X'z，返回 z'z
+     */
+    private static double crossProducts(double[] series, double[] diff, double mean, int lag, int first,
+                                        double[] xtx, double[] xtz) {
+        int k = lag + 2;
+        double[] row = new double[k];
+        double ztz = 0;
+        for (int t = first; t < series.length; t++) {
+            fillRow(series, diff, mean, lag, t, row);
+            double z = diff[t - 1];
+            ztz += z * z;
+            for (int i = 0; i < k; i++) {
+                double ri = row[i];
+                xtz[i] += ri * z;
+                for (int j = 0; j <= i; j++) {
+                    xtx[i * k + j] += ri * row[j];
+                }
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < i; j++) {
+                xtx[j * k + i] = xtx[i * k + j];
+            }
+        }
+        return ztz;
+    }
+
+    /**
+     * 第 t 點的解釋變數 [1, y_{t-1} - ȳ, Δy_{t-1}, ..., Δy_{t-lag}]；
+     * 落後水準減去平均值不影響 γ 與其標準誤，只改善正規方程的條件數
+     */
+    private static void fillRow(double[] series, double[] diff, double mean, int lag, int t, double[] row) {
+        row[0] = 1.0;
+        row[1] = series[t - 1] - mean;
+        for (int i = 1; i <= lag; i++) {
+            row[i + 1] = diff[t - 1 - i];
+        }
+    }
+
+    /**
+     * 就地將對稱正定矩陣分解為 L·Lᵀ（結果存於下三角）
+     *
+     * @return 矩陣不是正定時返回 false
+     */
+    private static boolean choleskyDecompose(double[] a, int k) {
+        for (int j = 0; j < k; j++) {
+            double diagonal = a[j * k + j];
+            for (int m = 0; m < j; m++) {
+                diagonal -= a[j * k + m] * a[j * k + m];
+            }
+            if (diagonal <= 0 || Double.isNaN(diagonal)) {
+                return false;
+            }
+            double l = Math.sqrt(diagonal);
+            a[j * k + j] = l;
+            for (int i = j + 1; i < k; i++) {
+                double value = a[i * k + j];
+                for (int m = 0; m < j; m++) {
+                    value -= a[i * k + m] * a[j * k + m];
+                }
+                a[i * k + j] = value / l;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 以 Cholesky 因子就地解 L·Lᵀ·x = b
+     */
+    private static void choleskySolve(double[] l, int k, double[] b) {
+        for (int i = 0; i < k; i++) {
+            double value = b[i];
+            for (int m = 0; m < i; m++) {
+                value -= l[i * k + m] * b[m];
+            }
+            b[i] = value / l[i * k + i];
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            double value = b[i];
+            for (int m = i + 1; m < k; m++) {
+                value -= l[m * k + i] * b[m];
+            }
+            b[i] = value / l[i * k + i];
+        }
+    }
+
+    /**
+     * ADF 檢定結果
+     */
+    public static class Result {
+        private final double statistic;
+        private final double pValue;
+        private final double gamma;
+        private final int lag;
+        private final int observations;
+        private final double[] criticalValues;
+
+        Result(double statistic, double pValue, double gamma, int lag, int observations, double[] criticalValues) {
+            this.statistic = statistic;
+            this.pValue = pValue;
+            this.gamma = gamma;
+            this.lag = lag;
+            this.observations = observations;
+            this.criticalValues = criticalValues;
+        }
+
+        /**
+         * ADF 統計量（γ 的 t 值）
+         */
+        public double getStatistic() {
+            return statistic;
+        }
+
+        public double getPValue() {
+            return pValue;
+        }
+
+        /**
+         * y_{t-1} 的係數 γ，負值代表均值回歸
+         */
+        public double getGamma() {
+            return gamma;
+        }
+
+        /**
+         * 使用的落後期數
+         */
+        public int getLag() {
+            return lag;
+        }
+
+        /**
+         * 迴歸使用的樣本數
+         */
+        public int getObservations() {
+            return observations;
+        }
+
+        public double getCriticalValue1Percent() {
+            return criticalValues[0];
+        }
+
+        public double getCriticalValue5Percent() {
+            return criticalValues[1];
+        }
+
+        public double getCriticalValue10Percent() {
+            return criticalValues[2];
+        }
+
+        /**
+         * p 值小於顯著性水平時拒絕單位根假設，即序列平穩
+         */
+        public boolean isStationary(double significanceLevel) {
+            return pValue < significanceLevel;
+        }
+    }
+}
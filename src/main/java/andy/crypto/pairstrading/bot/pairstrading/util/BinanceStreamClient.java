@@ -0,0 +1,218 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 幣安 WebSocket 數據流客戶端
+ * 以 java.net.http.WebSocket 連線，將分段的文字訊息組合後依序交給處理器；
+ * 連線中斷或失敗時在延遲後自動重連（每次重連重新取得連線地址），Ping 由 JDK 自動回應 Pong
+ */
+@Slf4j
+public class BinanceStreamClient {
+
+    private final String name;
+    private final Supplier<URI> uriSupplier;
+    private final Consumer<String> messageHandler;
+    private final Runnable connectedHandler;
+    private final long reconnectDelayMillis;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+
+    private volatile WebSocket webSocket;
+    private volatile Listener currentListener;  // 只有目前連線的事件會觸發重連
+    private volatile boolean running;
+    private volatile boolean connected;
+
+    /**
+     * @param name 數據流名稱（用於日誌與執行緒名稱）
+     * @param uriSupplier 每次連線時呼叫，提供連線地址
+     * @param messageHandler 完整文字訊息的處理器，在 WebSocket 執行緒依序呼叫
+     * @param connectedHandler 每次連線（含重連）成功後在背景執行緒呼叫，例如以 REST 重新同步
+     * @param reconnectDelayMillis 重連延遲
+     */
+    public BinanceStreamClient(String name, Supplier<URI> uriSupplier, Consumer<String> messageHandler,
+                               Runnable connectedHandler, long reconnectDelayMillis) {
+        this.name = name;
+        this.uriSupplier = uriSupplier;
+        this.messageHandler = messageHandler;
+        this.connectedHandler = connectedHandler;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stream-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 開始連線
+     */
+    public void start() {
+        running = true;
+        scheduler.execute(this::connect);
+    }
+
+    /**
+     * 關閉連線並停止重連
+     */
+    public void stop() {
+        running = false;
+        connected = false;
+        WebSocket current = webSocket;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(e -> null);
+        }
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 中斷目前的連線並立即以新的地址重連
+     */
+    public void reconnect() {
+        WebSocket current = webSocket;
+        webSocket = null;
+        currentListener = null;
+        connected = false;
+        if (current != null) {
+            current.abort();
+        }
+        if (running) {
+            scheduler.execute(this::connect);
+        }
+    }
+
+    /**
+     * 是否已連線
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * 以固定間隔在客戶端的背景執行緒執行任務（例如 listenKey 續期）
+     */
+    public void scheduleAtFixedRate(Runnable task, long periodMillis) {
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("數據流 {} 定時任務失敗: {}", name, e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = uriSupplier.get();
+        } catch (Exception e) {
+            log.warn("數據流 {} 無法取得連線地址: {}", name, e.getMessage());
+            scheduleReconnect();
+            return;
+        }
+        Listener listener = new Listener();
+        currentListener = listener;
+        httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(uri, listener)
+                .whenComplete((ws, e) -> {
+                    if (e != null && listener == currentListener) {
+                        log.warn("數據流 {} 連線失敗: {}", name, e.getMessage());
+                        scheduleReconnect();
+                    }
+                });
+    }
+
+    private void scheduleReconnect() {
+        connected = false;
+        if (!running || !reconnectScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.schedule(() -> {
+                reconnectScheduled.set(false);
+                connect();
+            }, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 已停止時排程器拒絕新任務
+            reconnectScheduled.set(false);
+        }
+    }
+
+    private class Listener implements WebSocket.Listener {
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket ws) {
+            if (this != currentListener) {
+                ws.abort();
+                return;
+            }
+            webSocket = ws;
+            connected = true;
+            log.info("數據流 {} 已連線", name);
+            ws.request(1);
+            if (connectedHandler != null) {
+                scheduler.execute(() -> {
+                    try {
+                        connectedHandler.run();
+                    } catch (Exception e) {
+                        log.warn("數據流 {} 連線後同步失敗: {}", name, e.getMessage());
+                    }
+                });
+            }
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                String message = buffer.toString();
+                buffer.setLength(0);
+                try {
+                    messageHandler.accept(message);
+                } catch (Exception e) {
+                    log.warn("數據流 {} 處理訊息失敗: {}", name, e.getMessage());
+                }
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            if (this == currentListener) {
+                log.warn("數據流 {} 已關閉: {} {}", name, statusCode, reason);
+                scheduleReconnect();
+            }
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            if (this == currentListener) {
+                log.warn("數據流 {} 發生錯誤: {}", name, error.getMessage());
+                scheduleReconnect();
+            }
+        }
+    }
+}
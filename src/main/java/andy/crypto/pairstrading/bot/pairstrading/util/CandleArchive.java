@@ -0,0 +1,636 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 壓縮的K線二進位檔案
+ * <p>
+ * 檔案格式：
+ * <pre>
+ * [檔頭 16 bytes][區塊 0][區塊 1]...[區塊索引][檔尾 24 bytes]
+ * </pre>
+ * 每個區塊最多保存 {@code blockSize} 根K線，以欄位為單位連續編碼：
+ * 開盤時間、K線長度與成交筆數使用 delta-of-delta 編碼，
+ * 價格與成交量使用 Gorilla XOR 編碼。區塊索引記錄每個區塊的時間範圍與位置，
+ * 讀取時只對所需時間範圍涵蓋的區塊做記憶體映射並解碼。
+ * <p>
+ * 追加時只重新編碼最後一個未滿的區塊並重寫索引；檔案只應由單一線程寫入。
+ */
+public class CandleArchive {
+
+    private static final int MAGIC = 0x50544341; // "PTCA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 24;
+    private static final int INDEX_ENTRY_SIZE = 40;
+
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final Path file;
+    private final int blockSize;
+
+    // 區塊索引（依時間排序）
+    private final List<BlockIndex> blocks = new ArrayList<>();
+    private long totalCount;
+
+    /**
+     * 開啟（或建立）K線檔案
+     *
+     * @param file 檔案路徑
+     * @throws IOException 檔案存在但格式錯誤或無法讀取時
+     */
+    public CandleArchive(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    public CandleArchive(Path file, int blockSize) throws IOException {
+        this.file = file;
+        this.blockSize = blockSize;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            readIndex();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long size() {
+        return totalCount;
+    }
+
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+
+    public long getFirstOpenTime() {
+        return blocks.get(0).firstOpenTime;
+    }
+
+    public long getLastOpenTime() {
+        return blocks.get(blocks.size() - 1).lastOpenTime;
+    }
+
+    public long getLastCloseTime() {
+        return blocks.get(blocks.size() - 1).lastCloseTime;
+    }
+
+    /**
+     * 追加K線，開盤時間不晚於現有最後一根的K線會被略過
+     *
+     * @param candles 依開盤時間遞增的K線
+     * @return 實際追加的數量
+     */
+    public synchronized int append(CandleSeries candles) throws IOException {
+        int from = 0;
+        if (!isEmpty()) {
+            long lastOpenTime = getLastOpenTime();
+            while (from < candles.size() && candles.getOpenTime(from) <= lastOpenTime) {
+                from++;
+            }
+        }
+        if (from == candles.size()) {
+            return 0;
+        }
+
+        // 最後一個區塊未滿時與新數據合併後重新編碼
+        CandleSeries pending = new CandleSeries(candles.size() - from + blockSize);
+        long writePosition = HEADER_SIZE;
+        if (!blocks.isEmpty()) {
+            BlockIndex last = blocks.get(blocks.size() - 1);
+            if (last.count < blockSize) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    decodeBlock(channel.map(FileChannel.MapMode.READ_ONLY, last.offset, last.length), last.count, pending);
+                }
+                blocks.remove(blocks.size() - 1);
+                totalCount -= last.count;
+                writePosition = last.offset;
+            } else {
+                writePosition = last.offset + last.length;
+            }
+        }
+        for (int i = from; i < candles.size(); i++) {
+            pending.addFrom(candles, i);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_SIZE) {
+                writeFully(channel, header(), 0);
+            }
+            long end = writeBlocks(channel, pending, writePosition);
+            end = writeIndex(channel, end);
+            if (channel.size() > end) {
+                channel.truncate(end);
+            }
+        }
+        return candles.size() - from;
+    }
+
+    /**
+     * 以指定的K線完整重寫檔案（先寫入暫存檔再替換）
+     *
+     * @param candles 依開盤時間遞增的K線
+     */
+    public synchronized void rewrite(CandleSeries candles) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        blocks.clear();
+        totalCount = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(), 0);
+            long end = writeBlocks(channel, candles, HEADER_SIZE);
+            writeIndex(channel, end);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 讀取開盤時間位於 [fromOpenTime, toOpenTime] 範圍內的K線，只映射與解碼涵蓋的區塊
+     */
+    public synchronized CandleSeries read(long fromOpenTime, long toOpenTime) throws IOException {
+        int first = 0;
+        while (first < blocks.size() && blocks.get(first).lastOpenTime < fromOpenTime) {
+            first++;
+        }
+        int last = first - 1;
+        while (last + 1 < blocks.size() && blocks.get(last + 1).firstOpenTime <= toOpenTime) {
+            last++;
+        }
+        CandleSeries decoded = decodeBlocks(first, last);
+
+        CandleSeries result = new CandleSeries(decoded.size());
+        for (int i = 0; i < decoded.size(); i++) {
+            long openTime = decoded.getOpenTime(i);
+            if (openTime >= fromOpenTime && openTime <= toOpenTime) {
+                result.addFrom(decoded, i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 讀取最後 count 根K線
+     */
+    public synchronized CandleSeries readLast(int count) throws IOException {
+        if (count <= 0 || blocks.isEmpty()) {
+            return new CandleSeries(1);
+        }
+        int first = blocks.size() - 1;
+        long covered = blocks.get(first).count;
+        while (first > 0 && covered < count) {
+            first--;
+            covered += blocks.get(first).count;
+        }
+        return decodeBlocks(first, blocks.size() - 1).last(count);
+    }
+
+    /**
+     * 讀取全部K線
+     */
+    public synchronized CandleSeries readAll() throws IOException {
+        return decodeBlocks(0, blocks.size() - 1);
+    }
+
+    private CandleSeries decodeBlocks(int first, int last) throws IOException {
+        if (first > last) {
+            return new CandleSeries(1);
+        }
+        long start = blocks.get(first).offset;
+        long end = blocks.get(last).offset + blocks.get(last).length;
+        int count = 0;
+        for (int b = first; b <= last; b++) {
+            count += blocks.get(b).count;
+        }
+
+        CandleSeries result = new CandleSeries(count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (int b = first; b <= last; b++) {
+                BlockIndex block = blocks.get(b);
+                ByteBuffer slice = mapped.slice((int) (block.offset - start), block.length);
+                decodeBlock(slice, block.count, result);
+            }
+        }
+        return result;
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(blockSize).putInt(0).flip();
+        return header;
+    }
+
+    /**
+     * 從 position 開始依序寫入區塊並更新索引
+     *
+     * @return 最後一個區塊之後的位置
+     */
+    private long writeBlocks(FileChannel channel, CandleSeries candles, long position) throws IOException {
+        for (int from = 0; from < candles.size(); from += blockSize) {
+            int to = Math.min(from + blockSize, candles.size());
+            byte[] encoded = encodeBlock(candles, from, to);
+            writeFully(channel, ByteBuffer.wrap(encoded), position);
+            blocks.add(new BlockIndex(candles.getOpenTime(from), candles.getOpenTime(to - 1),
+                    candles.getCloseTime(to - 1), position, encoded.length, to - from));
+            totalCount += to - from;
+            position += encoded.length;
+        }
+        return position;
+    }
+
+    /**
+     * 寫入區塊索引與檔尾
+     *
+     * @return 檔案結尾位置
+     */
+    private long writeIndex(FileChannel channel, long indexOffset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(blocks.size() * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+        for (BlockIndex block : blocks) {
+            buffer.putLong(block.firstOpenTime)
+                    .putLong(block.lastOpenTime)
+                    .putLong(block.lastCloseTime)
+                    .putLong(block.offset)
+                    .putInt(block.length)
+                    .putInt(block.count);
+        }
+        buffer.putLong(indexOffset).putLong(totalCount).putInt(blocks.size()).putInt(MAGIC).flip();
+        writeFully(channel, buffer, indexOffset);
+        return indexOffset + buffer.limit();
+    }
+
+    private void readIndex() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("K線檔案長度不足: " + file);
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("K線檔案格式不符: " + file);
+            }
+
+            ByteBuffer footer = readFully(channel, fileSize - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            long count = footer.getLong();
+            int blockCount = footer.getInt();
+            if (footer.getInt() != MAGIC || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE + FOOTER_SIZE != fileSize) {
+                throw new IOException("K線檔案索引損壞: " + file);
+            }
+
+            ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            for (int b = 0; b < blockCount; b++) {
+                blocks.add(new BlockIndex(index.getLong(), index.getLong(), index.getLong(),
+                        index.getLong(), index.getInt(), index.getInt()));
+            }
+            totalCount = count;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("K線檔案意外結束");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * 編碼 [from, to) 範圍的K線為一個區塊
+     */
+    static byte[] encodeBlock(CandleSeries candles, int from, int to) {
+        BitWriter writer = new BitWriter((to - from) * 16);
+
+        DeltaOfDeltaEncoder openTimes = new DeltaOfDeltaEncoder();
+        DeltaOfDeltaEncoder durations = new DeltaOfDeltaEncoder();
+        DeltaOfDeltaEncoder trades = new DeltaOfDeltaEncoder();
+        for (int i = from; i < to; i++) {
+            openTimes.encode(writer, candles.getOpenTime(i));
+        }
+        for (int i = from; i < to; i++) {
+            durations.encode(writer, candles.getCloseTime(i) - candles.getOpenTime(i));
+        }
+        for (int i = from; i < to; i++) {
+            trades.encode(writer, candles.getNumberOfTrades(i));
+        }
+
+        for (int column = 0; column < 8; column++) {
+            XorEncoder encoder = new XorEncoder();
+            for (int i = from; i < to; i++) {
+                encoder.encode(writer, doubleColumn(candles, column, i));
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解碼一個區塊並追加到目標序列
+     */
+    static void decodeBlock(ByteBuffer buffer, int count, CandleSeries target) {
+        BitReader reader = new BitReader(buffer);
+
+        long[] openTimes = new long[count];
+        long[] closeTimes = new long[count];
+        int[] trades = new int[count];
+        DeltaOfDeltaDecoder decoder = new DeltaOfDeltaDecoder();
+        for (int i = 0; i < count; i++) {
+            openTimes[i] = decoder.decode(reader);
+        }
+        decoder = new DeltaOfDeltaDecoder();
+        for (int i = 0; i < count; i++) {
+            closeTimes[i] = openTimes[i] + decoder.decode(reader);
+        }
+        decoder = new DeltaOfDeltaDecoder();
+        for (int i = 0; i < count; i++) {
+            trades[i] = (int) decoder.decode(reader);
+        }
+
+        double[][] columns = new double[8][count];
+        for (int column = 0; column < 8; column++) {
+            XorDecoder xorDecoder = new XorDecoder();
+            for (int i = 0; i < count; i++) {
+                columns[column][i] = xorDecoder.decode(reader);
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            target.add(openTimes[i], columns[0][i], columns[1][i], columns[2][i], columns[3][i], columns[4][i],
+                    closeTimes[i], columns[5][i], trades[i], columns[6][i], columns[7][i]);
+        }
+    }
+
+    private static double doubleColumn(CandleSeries candles, int column, int i) {
+        switch (column) {
+            case 0: return candles.getOpen(i);
+            case 1: return candles.getHigh(i);
+            case 2: return candles.getLow(i);
+            case 3: return candles.getClose(i);
+            case 4: return candles.getVolume(i);
+            case 5: return candles.getQuoteAssetVolume(i);
+            case 6: return candles.getTakerBuyBaseAssetVolume(i);
+            default: return candles.getTakerBuyQuoteAssetVolume(i);
+        }
+    }
+
+    /**
+     * 區塊索引項目
+     */
+    private static class BlockIndex {
+        private final long firstOpenTime;
+        private final long lastOpenTime;
+        private final long lastCloseTime;
+        private final long offset;
+        private final int length;
+        private final int count;
+
+        BlockIndex(long firstOpenTime, long lastOpenTime, long lastCloseTime, long offset, int length, int count) {
+            this.firstOpenTime = firstOpenTime;
+            this.lastOpenTime = lastOpenTime;
+            this.lastCloseTime = lastCloseTime;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+    }
+
+    /**
+     * delta-of-delta 編碼：固定間隔的時間序列每個值只需 1 bit
+     * 控制碼 0 / 10 / 110 / 1110 / 1111 分別對應 0、7、9、12、64 bits 的差值
+     */
+    private static class DeltaOfDeltaEncoder {
+        private boolean first = true;
+        private long previous;
+        private long previousDelta;
+
+        void encode(BitWriter writer, long value) {
+            if (first) {
+                writer.writeBits(value, 64);
+                first = false;
+            } else {
+                long delta = value - previous;
+                long deltaOfDelta = delta - previousDelta;
+                if (deltaOfDelta == 0) {
+                    writer.writeBits(0, 1);
+                } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+                    writer.writeBits(0b10, 2);
+                    writer.writeBits(deltaOfDelta, 7);
+                } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+                    writer.writeBits(0b110, 3);
+                    writer.writeBits(deltaOfDelta, 9);
+                } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+                    writer.writeBits(0b1110, 4);
+                    writer.writeBits(deltaOfDelta, 12);
+                } else {
+                    writer.writeBits(0b1111, 4);
+                    writer.writeBits(deltaOfDelta, 64);
+                }
+                previousDelta = delta;
+            }
+            previous = value;
+        }
+    }
+
+    private static class DeltaOfDeltaDecoder {
+        private boolean first = true;
+        private long previous;
+        private long previousDelta;
+
+        long decode(BitReader reader) {
+            if (first) {
+                first = false;
+                previous = reader.readBits(64);
+                return previous;
+            }
+            int prefix = 0;
+            while (prefix < 4 && reader.readBit()) {
+                prefix++;
+            }
+            long deltaOfDelta;
+            switch (prefix) {
+                case 0: deltaOfDelta = 0; break;
+                case 1: deltaOfDelta = reader.readSignedBits(7); break;
+                case 2: deltaOfDelta = reader.readSignedBits(9); break;
+                case 3: deltaOfDelta = reader.readSignedBits(12); break;
+                default: deltaOfDelta = reader.readBits(64); break;
+            }
+            previousDelta += deltaOfDelta;
+            previous += previousDelta;
+            return previous;
+        }
+    }
+
+    /**
+     * Gorilla XOR 編碼：與前一個值相同時只需 1 bit，
+     * 有效位元落在前一個範圍內時沿用前次的前導/尾隨零長度
+     */
+    private static class XorEncoder {
+        private boolean first = true;
+        private long previousBits;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        void encode(BitWriter writer, double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            if (first) {
+                writer.writeBits(bits, 64);
+                first = false;
+                previousBits = bits;
+                return;
+            }
+
+            long xor = bits ^ previousBits;
+            previousBits = bits;
+            if (xor == 0) {
+                writer.writeBits(0, 1);
+                return;
+            }
+            writer.writeBits(1, 1);
+
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                writer.writeBits(0, 1);
+                writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                writer.writeBits(1, 1);
+                writer.writeBits(leading, 5);
+                writer.writeBits(significant == 64 ? 0 : significant, 6);
+                writer.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    private static class XorDecoder {
+        private boolean first = true;
+        private long previousBits;
+        private int previousLeading;
+        private int previousTrailing;
+
+        double decode(BitReader reader) {
+            if (first) {
+                first = false;
+                previousBits = reader.readBits(64);
+                return Double.longBitsToDouble(previousBits);
+            }
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    previousLeading = (int) reader.readBits(5);
+                    int significant = (int) reader.readBits(6);
+                    if (significant == 0) {
+                        significant = 64;
+                    }
+                    previousTrailing = 64 - previousLeading - significant;
+                }
+                int significant = 64 - previousLeading - previousTrailing;
+                previousBits ^= reader.readBits(significant) << previousTrailing;
+            }
+            return Double.longBitsToDouble(previousBits);
+        }
+    }
+
+    /**
+     * 位元寫入器
+     */
+    private static class BitWriter {
+        private byte[] buffer;
+        private long bitPosition;
+
+        BitWriter(int initialBytes) {
+            buffer = new byte[Math.max(initialBytes, 16)];
+        }
+
+        /**
+         * 寫入 value 的最低 count 個位元（高位在前）
+         */
+        void writeBits(long value, int count) {
+            ensureCapacity(bitPosition + count);
+            while (count > 0) {
+                int byteIndex = (int) (bitPosition >>> 3);
+                int free = 8 - (int) (bitPosition & 7);
+                int take = Math.min(free, count);
+                int bits = (int) ((value >>> (count - take)) & ((1 << take) - 1));
+                buffer[byteIndex] |= (byte) (bits << (free - take));
+                count -= take;
+                bitPosition += take;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((bitPosition + 7) >>> 3));
+        }
+
+        private void ensureCapacity(long bits) {
+            int required = (int) ((bits + 7) >>> 3);
+            if (required > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+            }
+        }
+    }
+
+    /**
+     * 位元讀取器
+     */
+    private static class BitReader {
+        private final ByteBuffer buffer;
+        private long bitPosition;
+
+        BitReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean readBit() {
+            return readBits(1) != 0;
+        }
+
+        long readBits(int count) {
+            long value = 0;
+            while (count > 0) {
+                int current = buffer.get((int) (bitPosition >>> 3)) & 0xFF;
+                int available = 8 - (int) (bitPosition & 7);
+                int take = Math.min(available, count);
+                int bits = (current >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | bits;
+                count -= take;
+                bitPosition += take;
+            }
+            return value;
+        }
+
+        /**
+         * 讀取 count 個位元並視為二補數有號整數
+         */
+        long readSignedBits(int count) {
+            long value = readBits(count);
+            return (value << (64 - count)) >> (64 - count);
+        }
+    }
+}
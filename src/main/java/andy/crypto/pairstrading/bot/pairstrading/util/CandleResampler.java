@@ -0,0 +1,152 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * K線重採樣工具類
+ * 將較小間隔的K線（例如 1m）一次掃描聚合為多個較大間隔（5m/15m/1h/4h/1d/1w），
+ * 時間桶以 UTC 對齊，與幣安的K線切分方式一致
+ */
+public class CandleResampler {
+
+    // 幣安週線從週一 00:00 UTC 開始，1970-01-01 為週四
+    private static final long WEEK_ALIGNMENT_OFFSET = 4 * 24 * 3_600_000L;
+
+    /**
+     * 將基礎K線重採樣為單一目標間隔
+     *
+     * @param base 基礎K線序列（依開盤時間遞增）
+     * @param baseInterval 基礎K線間隔，例如 "1m"
+     * @param targetInterval 目標間隔，例如 "1h"
+     * @return 重採樣後的K線序列
+     */
+    public static CandleSeries resample(CandleSeries base, String baseInterval, String targetInterval) {
+        return resample(base, baseInterval, List.of(targetInterval)).get(targetInterval);
+    }
+
+    /**
+     * 一次掃描將基礎K線重採樣為多個目標間隔
+     * 基礎序列不是從時間桶起點開始時，最前面不完整的時間桶會被捨棄（缺少前段數據，開盤價不正確）；
+     * 最後一個時間桶可能尚未完整（對應當前未收盤的K線），與幣安的K線相同，
+     * 其收盤時間為時間桶結束時間，晚於基礎序列最後一根的收盤時間，可據此判斷
+     *
+     * @param base 基礎K線序列（依開盤時間遞增）
+     * @param baseInterval 基礎K線間隔
+     * @param targetIntervals 目標間隔列表，每個都必須是基礎間隔的整數倍
+     * @return 目標間隔對應的K線序列
+     */
+    public static Map<String, CandleSeries> resample(CandleSeries base, String baseInterval, List<String> targetIntervals) {
+        long baseMillis = KlineIntervalUtil.toMillis(baseInterval);
+        Bucket[] buckets = new Bucket[targetIntervals.size()];
+        for (int k = 0; k < buckets.length; k++) {
+            String target = targetIntervals.get(k);
+            if (!isResampleable(baseInterval, target)) {
+                throw new IllegalArgumentException("無法由 " + baseInterval + " 重採樣為 " + target);
+            }
+            long targetMillis = KlineIntervalUtil.toMillis(target);
+            buckets[k] = new Bucket(targetMillis, target.endsWith("w") ? WEEK_ALIGNMENT_OFFSET : 0L,
+                    new CandleSeries(Math.max(1, (int) (base.size() / (targetMillis / baseMillis)) + 1)));
+        }
+
+        for (int i = 0; i < base.size(); i++) {
+            long openTime = base.getOpenTime(i);
+            for (Bucket bucket : buckets) {
+                bucket.accept(base, i, openTime);
+            }
+        }
+
+        Map<String, CandleSeries> result = new LinkedHashMap<>();
+        for (int k = 0; k < buckets.length; k++) {
+            buckets[k].flush();
+            result.put(targetIntervals.get(k), buckets[k].output);
+        }
+        return result;
+    }
+
+    /**
+     * 判斷目標間隔是否可由基礎間隔重採樣（固定長度且為整數倍，月線不適用）
+     */
+    public static boolean isResampleable(String baseInterval, String targetInterval) {
+        if (baseInterval == null || targetInterval == null || baseInterval.endsWith("M") || targetInterval.endsWith("M")) {
+            return false;
+        }
+        long baseMillis = KlineIntervalUtil.toMillis(baseInterval);
+        long targetMillis = KlineIntervalUtil.toMillis(targetInterval);
+        return targetMillis >= baseMillis && targetMillis % baseMillis == 0;
+    }
+
+    /**
+     * 單一目標間隔的聚合狀態
+     */
+    private static class Bucket {
+        private final long millis;
+        private final long alignmentOffset;
+        private final CandleSeries output;
+
+        private boolean open;  // 是否有進行中的時間桶
+        private long firstCompleteStart = Long.MIN_VALUE;  // 第一個完整時間桶的起點，之前的基礎K線略過
+        private long bucketStart;
+        private double openPrice;
+        private double high;
+        private double low;
+        private double close;
+        private double volume;
+        private double quoteAssetVolume;
+        private int numberOfTrades;
+        private double takerBuyBaseAssetVolume;
+        private double takerBuyQuoteAssetVolume;
+
+        Bucket(long millis, long alignmentOffset, CandleSeries output) {
+            this.millis = millis;
+            this.alignmentOffset = alignmentOffset;
+            this.output = output;
+        }
+
+        void accept(CandleSeries base, int i, long openTime) {
+            long start = openTime - Math.floorMod(openTime - alignmentOffset, millis);
+            if (firstCompleteStart == Long.MIN_VALUE) {
+                firstCompleteStart = openTime == start ? start : start + millis;
+            }
+            if (start < firstCompleteStart) {
+                return;
+            }
+            if (open && start != bucketStart) {
+                flush();
+            }
+            if (!open) {
+                open = true;
+                bucketStart = start;
+                openPrice = base.getOpen(i);
+                high = base.getHigh(i);
+                low = base.getLow(i);
+                volume = 0.0;
+                quoteAssetVolume = 0.0;
+                numberOfTrades = 0;
+                takerBuyBaseAssetVolume = 0.0;
+                takerBuyQuoteAssetVolume = 0.0;
+            } else {
+                high = Math.max(high, base.getHigh(i));
+                low = Math.min(low, base.getLow(i));
+            }
+            close = base.getClose(i);
+            volume += base.getVolume(i);
+            quoteAssetVolume += base.getQuoteAssetVolume(i);
+            numberOfTrades += base.getNumberOfTrades(i);
+            takerBuyBaseAssetVolume += base.getTakerBuyBaseAssetVolume(i);
+            takerBuyQuoteAssetVolume += base.getTakerBuyQuoteAssetVolume(i);
+        }
+
+        void flush() {
+            if (!open) {
+                return;
+            }
+            output.add(bucketStart, openPrice, high, low, close, volume, bucketStart + millis - 1,
+                    quoteAssetVolume, numberOfTrades, takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume);
+            open = false;
+        }
+    }
+}
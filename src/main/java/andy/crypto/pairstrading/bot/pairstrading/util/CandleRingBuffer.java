@@ -0,0 +1,220 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+/**
+ * 固定容量的K線環形緩衝區
+ * 以欄位陣列保存最近的已收盤K線，超過容量時覆蓋最舊的一根，追加時不配置新物件；
+ * 另外保存一根尚未收盤的K線（陣列最後一格），讀取時可選擇附加在序列末端
+ */
+public class CandleRingBuffer {
+
+    private final int capacity;
+    private final int partialSlot;  // 未收盤K線所在的位置
+
+    private final long[] openTime;
+    private final long[] closeTime;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    private final double[] quoteAssetVolume;
+    private final int[] numberOfTrades;
+    private final double[] takerBuyBaseAssetVolume;
+    private final double[] takerBuyQuoteAssetVolume;
+
+    private int head;  // 最舊K線的位置
+    private int size;
+    private boolean hasPartial;
+
+    public CandleRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("容量必須大於0");
+        }
+        this.capacity = capacity;
+        this.partialSlot = capacity;
+        openTime = new long[capacity + 1];
+        closeTime = new long[capacity + 1];
+        open = new double[capacity + 1];
+        high = new double[capacity + 1];
+        low = new double[capacity + 1];
+        close = new double[capacity + 1];
+        volume = new double[capacity + 1];
+        quoteAssetVolume = new double[capacity + 1];
+        numberOfTrades = new int[capacity + 1];
+        takerBuyBaseAssetVolume = new double[capacity + 1];
+        takerBuyQuoteAssetVolume = new double[capacity + 1];
+    }
+
+    /**
+     * 追加一根已收盤K線
+     * 開盤時間與最後一根相同時覆蓋，較舊的K線忽略（應改用 {@link #merge(CandleSeries)}）
+     *
+     * @return 是否已寫入
+     */
+    public synchronized boolean addClosed(long openTime, double open, double high, double low, double close, double volume,
+                                          long closeTime, double quoteAssetVolume, int numberOfTrades,
+                                          double takerBuyBaseAssetVolume, double takerBuyQuoteAssetVolume) {
+        int slot;
+        if (size > 0 && openTime <= this.openTime[physical(size - 1)]) {
+            if (openTime < this.openTime[physical(size - 1)]) {
+                return false;
+            }
+            slot = physical(size - 1);
+        } else if (size < capacity) {
+            slot = physical(size++);
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+        set(slot, openTime, open, high, low, close, volume, closeTime, quoteAssetVolume, numberOfTrades,
+                takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume);
+        if (hasPartial && this.openTime[partialSlot] <= openTime) {
+            hasPartial = false;
+        }
+        return true;
+    }
+
+    /**
+     * 更新未收盤K線，早於最後一根已收盤K線的更新忽略
+     */
+    public synchronized void updatePartial(long openTime, double open, double high, double low, double close, double volume,
+                                           long closeTime, double quoteAssetVolume, int numberOfTrades,
+                                           double takerBuyBaseAssetVolume, double takerBuyQuoteAssetVolume) {
+        if ((size > 0 && openTime <= this.openTime[physical(size - 1)])
+                || (hasPartial && openTime < this.openTime[partialSlot])) {
+            return;
+        }
+        set(partialSlot, openTime, open, high, low, close, volume, closeTime, quoteAssetVolume, numberOfTrades,
+                takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume);
+        hasPartial = true;
+    }
+
+    /**
+     * 將已收盤K線（依開盤時間遞增）合併進緩衝區，用於重連後補齊缺口
+     * 相同開盤時間以緩衝區既有的數據為準，合併後只保留最新的 capacity 根
+     */
+    public synchronized void merge(CandleSeries closedCandles) {
+        int n = closedCandles.size();
+        if (n == 0) {
+            return;
+        }
+        if (size == 0 || closedCandles.getOpenTime(0) > openTime[physical(size - 1)]) {
+            for (int i = Math.max(0, n - capacity); i < n; i++) {
+                appendFrom(closedCandles, i);
+            }
+            return;
+        }
+
+        CandleSeries merged = new CandleSeries(size + n);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < n) {
+            long t1 = i < size ? openTime[physical(i)] : Long.MAX_VALUE;
+            long t2 = j < n ? closedCandles.getOpenTime(j) : Long.MAX_VALUE;
+            if (t1 <= t2) {
+                int slot = physical(i++);
+                merged.add(openTime[slot], open[slot], high[slot], low[slot], close[slot], volume[slot],
+                        closeTime[slot], quoteAssetVolume[slot], numberOfTrades[slot],
+                        takerBuyBaseAssetVolume[slot], takerBuyQuoteAssetVolume[slot]);
+                if (t1 == t2) {
+                    j++;
+                }
+            } else {
+                merged.addFrom(closedCandles, j++);
+            }
+        }
+        head = 0;
+        size = 0;
+        for (int k = Math.max(0, merged.size() - capacity); k < merged.size(); k++) {
+            appendFrom(merged, k);
+        }
+    }
+
+    /**
+     * 複製最近的K線為序列
+     *
+     * @param limit 最多返回的K線數量（包含未收盤K線）
+     * @param includePartial 是否在末端附加未收盤K線
+     * @return 依開盤時間遞增的K線序列
+     */
+    public synchronized CandleSeries toCandleSeries(int limit, boolean includePartial) {
+        boolean partial = includePartial && hasPartial;
+        int closedCount = Math.max(0, Math.min(size, limit - (partial ? 1 : 0)));
+        CandleSeries series = new CandleSeries(closedCount + 1);
+        for (int i = size - closedCount; i < size; i++) {
+            int slot = physical(i);
+            series.add(openTime[slot], open[slot], high[slot], low[slot], close[slot], volume[slot],
+                    closeTime[slot], quoteAssetVolume[slot], numberOfTrades[slot],
+                    takerBuyBaseAssetVolume[slot], takerBuyQuoteAssetVolume[slot]);
+        }
+        if (partial && limit > 0) {
+            series.add(openTime[partialSlot], open[partialSlot], high[partialSlot], low[partialSlot], close[partialSlot],
+                    volume[partialSlot], closeTime[partialSlot], quoteAssetVolume[partialSlot],
+                    numberOfTrades[partialSlot], takerBuyBaseAssetVolume[partialSlot], takerBuyQuoteAssetVolume[partialSlot]);
+        }
+        return series;
+    }
+
+    /**
+     * 最後一根已收盤K線的開盤時間，沒有數據時返回null
+     */
+    public synchronized Long getLastClosedOpenTime() {
+        return size > 0 ? openTime[physical(size - 1)] : null;
+    }
+
+    /**
+     * 未收盤K線的收盤價，沒有時返回null
+     */
+    public synchronized Double getPartialClose() {
+        return hasPartial ? close[partialSlot] : null;
+    }
+
+    /**
+     * 已收盤K線數量
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int physical(int index) {
+        return (head + index) % capacity;
+    }
+
+    private void appendFrom(CandleSeries source, int i) {
+        int slot;
+        if (size < capacity) {
+            slot = physical(size++);
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+        set(slot, source.getOpenTime(i), source.getOpen(i), source.getHigh(i), source.getLow(i), source.getClose(i),
+                source.getVolume(i), source.getCloseTime(i), source.getQuoteAssetVolume(i), source.getNumberOfTrades(i),
+                source.getTakerBuyBaseAssetVolume(i), source.getTakerBuyQuoteAssetVolume(i));
+        if (hasPartial && openTime[partialSlot] <= source.getOpenTime(i)) {
+            hasPartial = false;
+        }
+    }
+
+    private void set(int slot, long openTime, double open, double high, double low, double close, double volume,
+                     long closeTime, double quoteAssetVolume, int numberOfTrades,
+                     double takerBuyBaseAssetVolume, double takerBuyQuoteAssetVolume) {
+        this.openTime[slot] = openTime;
+        this.open[slot] = open;
+        this.high[slot] = high;
+        this.low[slot] = low;
+        this.close[slot] = close;
+        this.volume[slot] = volume;
+        this.closeTime[slot] = closeTime;
+        this.quoteAssetVolume[slot] = quoteAssetVolume;
+        this.numberOfTrades[slot] = numberOfTrades;
+        this.takerBuyBaseAssetVolume[slot] = takerBuyBaseAssetVolume;
+        this.takerBuyQuoteAssetVolume[slot] = takerBuyQuoteAssetVolume;
+    }
+}
@@ -0,0 +1,195 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * K線序列對齊工具類
+ * 以開盤時間對兩個已排序的K線序列做線性合併（merge-join），
+ * 確保配對計算中每個索引對應同一根K線時間
+ */
+public class CandleSeriesAligner {
+
+    /**
+     * 缺口處理策略
+     */
+    public enum GapPolicy {
+        DROP,          // 捨棄只存在於單一序列的K線
+        FORWARD_FILL,  // 以缺少方的前一根收盤價補齊（成交量為0）
+        FAIL           // 發現缺口時拋出異常
+    }
+
+    /**
+     * 依開盤時間對齊兩個K線序列
+     * 兩個序列共同時間範圍以外的K線直接裁切，不視為缺口
+     *
+     * @param asset1Series 資產1 K線序列（依開盤時間遞增）
+     * @param asset2Series 資產2 K線序列（依開盤時間遞增）
+     * @param gapPolicy 缺口處理策略
+     * @return 對齊結果
+     * @throws IllegalStateException 策略為 FAIL 且存在缺口時
+     */
+    public static AlignedCandleSeries align(CandleSeries asset1Series, CandleSeries asset2Series, GapPolicy gapPolicy) {
+        int n1 = asset1Series.size();
+        int n2 = asset2Series.size();
+        CandleSeries aligned1 = new CandleSeries(Math.min(n1, n2));
+        CandleSeries aligned2 = new CandleSeries(Math.min(n1, n2));
+        List<Long> asset1Missing = new ArrayList<>();
+        List<Long> asset2Missing = new ArrayList<>();
+        if (n1 == 0 || n2 == 0) {
+            return new AlignedCandleSeries(aligned1, aligned2,
+                    new GapReport(asset1Missing, asset2Missing, 0, n1 + n2, gapPolicy));
+        }
+
+        // 共同時間範圍
+        long overlapStart = Math.max(asset1Series.getOpenTime(0), asset2Series.getOpenTime(0));
+        long overlapEnd = Math.min(asset1Series.getOpenTime(n1 - 1), asset2Series.getOpenTime(n2 - 1));
+
+        int i = 0;
+        int j = 0;
+        int trimmed = 0;
+        int filled = 0;
+        while (i < n1 || j < n2) {
+            long t1 = i < n1 ? asset1Series.getOpenTime(i) : Long.MAX_VALUE;
+            long t2 = j < n2 ? asset2Series.getOpenTime(j) : Long.MAX_VALUE;
+
+            if (t1 == t2) {
+                aligned1.addFrom(asset1Series, i++);
+                aligned2.addFrom(asset2Series, j++);
+                continue;
+            }
+
+            // 只存在於其中一個序列的K線
+            boolean onlyInAsset1 = t1 < t2;
+            long openTime = onlyInAsset1 ? t1 : t2;
+            if (openTime < overlapStart || openTime > overlapEnd) {
+                trimmed++;
+            } else {
+                (onlyInAsset1 ? asset2Missing : asset1Missing).add(openTime);
+                if (gapPolicy == GapPolicy.FAIL) {
+                    throw new IllegalStateException((onlyInAsset1 ? "資產2" : "資產1") + " 缺少開盤時間 " + openTime + " 的K線");
+                }
+                // 缺少方在對齊結果中尚無前值時（例如缺口位於共同範圍起點）只能捨棄
+                if (gapPolicy == GapPolicy.FORWARD_FILL && !(onlyInAsset1 ? aligned2 : aligned1).isEmpty()) {
+                    if (onlyInAsset1) {
+                        aligned1.addFrom(asset1Series, i);
+                        addForwardFill(aligned2, asset1Series, i);
+                    } else {
+                        addForwardFill(aligned1, asset2Series, j);
+                        aligned2.addFrom(asset2Series, j);
+                    }
+                    filled++;
+                }
+            }
+            if (onlyInAsset1) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return new AlignedCandleSeries(aligned1, aligned2,
+                new GapReport(asset1Missing, asset2Missing, filled, trimmed, gapPolicy));
+    }
+
+    /**
+     * 以目標序列的最後收盤價補一根平盤K線，時間取自另一序列的對應K線
+     */
+    private static void addForwardFill(CandleSeries target, CandleSeries timeSource, int index) {
+        double lastClose = target.getLastClose();
+        target.add(timeSource.getOpenTime(index), lastClose, lastClose, lastClose, lastClose, 0.0,
+                timeSource.getCloseTime(index), 0.0, 0, 0.0, 0.0);
+    }
+
+    /**
+     * 對齊後的K線序列對
+     */
+    public static class AlignedCandleSeries {
+        private final CandleSeries asset1Series;  // 對齊後的資產1序列
+        private final CandleSeries asset2Series;  // 對齊後的資產2序列
+        private final GapReport gapReport;        // 缺口報告
+
+        public AlignedCandleSeries(CandleSeries asset1Series, CandleSeries asset2Series, GapReport gapReport) {
+            this.asset1Series = asset1Series;
+            this.asset2Series = asset2Series;
+            this.gapReport = gapReport;
+        }
+
+        public CandleSeries getAsset1Series() {
+            return asset1Series;
+        }
+
+        public CandleSeries getAsset2Series() {
+            return asset2Series;
+        }
+
+        public GapReport getGapReport() {
+            return gapReport;
+        }
+
+        public int size() {
+            return asset1Series.size();
+        }
+    }
+
+    /**
+     * 缺口報告
+     */
+    public static class GapReport {
+        private final List<Long> asset1MissingOpenTimes;  // 資產1缺少的K線開盤時間
+        private final List<Long> asset2MissingOpenTimes;  // 資產2缺少的K線開盤時間
+        private final int filledCount;                    // 前值補齊的K線數
+        private final int trimmedCount;                   // 共同範圍以外被裁切的K線數
+        private final GapPolicy gapPolicy;                // 使用的缺口處理策略
+
+        public GapReport(List<Long> asset1MissingOpenTimes, List<Long> asset2MissingOpenTimes,
+                         int filledCount, int trimmedCount, GapPolicy gapPolicy) {
+            this.asset1MissingOpenTimes = Collections.unmodifiableList(asset1MissingOpenTimes);
+            this.asset2MissingOpenTimes = Collections.unmodifiableList(asset2MissingOpenTimes);
+            this.filledCount = filledCount;
+            this.trimmedCount = trimmedCount;
+            this.gapPolicy = gapPolicy;
+        }
+
+        public List<Long> getAsset1MissingOpenTimes() {
+            return asset1MissingOpenTimes;
+        }
+
+        public List<Long> getAsset2MissingOpenTimes() {
+            return asset2MissingOpenTimes;
+        }
+
+        public int getFilledCount() {
+            return filledCount;
+        }
+
+        public int getTrimmedCount() {
+            return trimmedCount;
+        }
+
+        public GapPolicy getGapPolicy() {
+            return gapPolicy;
+        }
+
+        /**
+         * 共同時間範圍內是否存在缺口
+         */
+        public boolean hasGaps() {
+            return !asset1MissingOpenTimes.isEmpty() || !asset2MissingOpenTimes.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "GapReport{" +
+                    "資產1缺少=" + asset1MissingOpenTimes.size() +
+                    ", 資產2缺少=" + asset2MissingOpenTimes.size() +
+                    ", 補齊=" + filledCount +
+                    ", 裁切=" + trimmedCount +
+                    ", 策略=" + gapPolicy +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 以最近呼叫的失敗率判斷的斷路器
+ * CLOSED 狀態下記錄最近 windowSize 次呼叫的結果，失敗率達到門檻（且呼叫數足夠）時轉為 OPEN，
+ * OPEN 期間所有呼叫直接拒絕；經過 openMillis 後轉為 HALF_OPEN，只放行一次探測呼叫，
+ * 探測成功則恢復 CLOSED，失敗則重新 OPEN
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private final boolean[] outcomes;  // true 表示失敗
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejectedCount;
+
+    /**
+     * @param name 名稱（用於錯誤訊息）
+     * @param windowSize 統計失敗率的最近呼叫數
+     * @param minimumCalls 計算失敗率前至少需要的呼叫數
+     * @param failureRateThreshold 開啟斷路器的失敗率（0~1）
+     * @param openMillis 開啟後到允許探測的時間
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long openMillis) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 時間來源（毫秒）
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long openMillis,
+                   LongSupplier clock) {
+        this.name = name;
+        this.windowSize = Math.max(windowSize, 1);
+        this.minimumCalls = Math.max(Math.min(minimumCalls, this.windowSize), 1);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+        this.outcomes = new boolean[this.windowSize];
+    }
+
+    /**
+     * 呼叫前取得許可
+     *
+     * @return 是否允許呼叫；允許時呼叫者必須之後回報 {@link #onSuccess()} 或 {@link #onFailure()}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                rejectedCount++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejectedCount++;
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * 回報呼叫成功
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            probeInFlight = false;
+            resetWindow();
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * 回報呼叫失敗（只應回報可能是交易所或網路異常造成的失敗）
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(boolean failure) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (recorded == windowSize) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+        probeInFlight = false;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
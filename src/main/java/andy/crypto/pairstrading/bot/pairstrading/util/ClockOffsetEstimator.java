@@ -0,0 +1,86 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+/**
+ * 本地時鐘與伺服器時鐘的偏移估計
+ * 每個樣本假設請求在往返時間（RTT）的中點到達伺服器，誤差上限為 RTT/2，
+ * 並隨樣本年齡以最大時鐘漂移率增加（類似 NTP 的 dispersion）；
+ * 估計值取保留的最近樣本中誤差上限最小者，網路延遲暫時升高時不會拉偏估計
+ */
+public class ClockOffsetEstimator {
+
+    // 假設的本地時鐘最大漂移率（每毫秒 15 微秒，即 15 ppm）
+    private static final double MAX_DRIFT_RATE = 15e-6;
+
+    private final long[] sampleTimes;   // 樣本的本地送出時間
+    private final long[] offsets;       // 伺服器時間 - 本地時間
+    private final double[] halfRtts;    // RTT/2
+    private int next;
+    private int count;
+
+    /**
+     * @param windowSize 保留的最近樣本數
+     */
+    public ClockOffsetEstimator(int windowSize) {
+        int size = Math.max(windowSize, 1);
+        sampleTimes = new long[size];
+        offsets = new long[size];
+        halfRtts = new double[size];
+    }
+
+    /**
+     * 加入一個樣本
+     *
+     * @param localSendMillis 送出請求時的本地時間（毫秒）
+     * @param rttMillis 請求往返時間（毫秒）
+     * @param serverTimeMillis 伺服器回應的時間（毫秒）
+     */
+    public synchronized void addSample(long localSendMillis, double rttMillis, long serverTimeMillis) {
+        double halfRtt = Math.max(rttMillis, 0.0) / 2.0;
+        sampleTimes[next] = localSendMillis;
+        offsets[next] = serverTimeMillis - (localSendMillis + Math.round(halfRtt));
+        halfRtts[next] = halfRtt;
+        next = (next + 1) % sampleTimes.length;
+        count = Math.min(count + 1, sampleTimes.length);
+    }
+
+    /**
+     * 目前的偏移估計（伺服器時間 - 本地時間），沒有樣本時返回0
+     *
+     * @param nowMillis 目前本地時間
+     */
+    public synchronized long getOffsetMillis(long nowMillis) {
+        int best = best(nowMillis);
+        return best >= 0 ? offsets[best] : 0L;
+    }
+
+    /**
+     * 目前估計的誤差上限（毫秒），沒有樣本時返回 {@link Double#NaN}
+     *
+     * @param nowMillis 目前本地時間
+     */
+    public synchronized double getErrorBoundMillis(long nowMillis) {
+        int best = best(nowMillis);
+        return best >= 0 ? errorBound(best, nowMillis) : Double.NaN;
+    }
+
+    public synchronized int getSampleCount() {
+        return count;
+    }
+
+    private int best(long nowMillis) {
+        int best = -1;
+        double bestBound = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            double bound = errorBound(i, nowMillis);
+            if (bound < bestBound) {
+                bestBound = bound;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private double errorBound(int i, long nowMillis) {
+        return halfRtts[i] + Math.max(0L, nowMillis - sampleTimes[i]) * MAX_DRIFT_RATE;
+    }
+}
@@ -0,0 +1,183 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * 帶統計的連線管理器
+ * 包裝連線池，記錄取得連線的等待時間、新建連線（含 TLS 握手）的次數與耗時，
+ * 以租用次數與新建次數之差計算連線重用率；
+ * 同時轉接連線池控制介面，使客戶端的閒置連線回收照常運作
+ */
+public class InstrumentedConnectionManager implements HttpClientConnectionManager, ConnPoolControl<HttpRoute> {
+
+    private final PoolingHttpClientConnectionManager delegate;
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong leaseNanos = new AtomicLong();
+    private final LongAccumulator maxLeaseNanos = new LongAccumulator(Math::max, 0L);
+    private final AtomicLong leaseFailures = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong connectNanos = new AtomicLong();
+
+    public InstrumentedConnectionManager(PoolingHttpClientConnectionManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        long start = System.nanoTime();
+        LeaseRequest request = delegate.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                try {
+                    ConnectionEndpoint endpoint = request.get(timeout);
+                    long elapsed = System.nanoTime() - start;
+                    leases.incrementAndGet();
+                    leaseNanos.addAndGet(elapsed);
+                    maxLeaseNanos.accumulate(elapsed);
+                    return endpoint;
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    leaseFailures.incrementAndGet();
+                    throw e;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+        delegate.release(endpoint, newState, validDuration);
+    }
+
+    @Override
+    public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context) throws IOException {
+        // 只有未連線的端點（新連線或已失效被重建）才會呼叫 connect
+        long start = System.nanoTime();
+        delegate.connect(endpoint, connectTimeout, context);
+        connects.incrementAndGet();
+        connectNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    @Override
+    public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+        delegate.upgrade(endpoint, context);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * 獲取連線池與連線重用指標
+     */
+    public Map<String, Object> getMetrics() {
+        long leaseCount = leases.get();
+        long connectCount = connects.get();
+        PoolStats stats = delegate.getTotalStats();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("leased", stats.getLeased());
+        metrics.put("pending", stats.getPending());
+        metrics.put("available", stats.getAvailable());
+        metrics.put("maxTotal", stats.getMax());
+        metrics.put("maxPerRoute", delegate.getDefaultMaxPerRoute());
+        metrics.put("leaseCount", leaseCount);
+        metrics.put("leaseFailures", leaseFailures.get());
+        metrics.put("avgLeaseMillis", leaseCount > 0 ? round(leaseNanos.get() / (double) leaseCount / 1e6) : 0.0);
+        metrics.put("maxLeaseMillis", round(maxLeaseNanos.get() / 1e6));
+        metrics.put("newConnections", connectCount);
+        metrics.put("reusedConnections", Math.max(0, leaseCount - connectCount));
+        metrics.put("reuseRatio", leaseCount > 0 ? round(Math.max(0, leaseCount - connectCount) / (double) leaseCount) : 0.0);
+        metrics.put("avgConnectMillis", connectCount > 0 ? round(connectNanos.get() / (double) connectCount / 1e6) : 0.0);
+        return metrics;
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        delegate.setMaxTotal(max);
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return delegate.getMaxTotal();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        delegate.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return delegate.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+        delegate.setMaxPerRoute(route, max);
+    }
+
+    @Override
+    public int getMaxPerRoute(HttpRoute route) {
+        return delegate.getMaxPerRoute(route);
+    }
+
+    @Override
+    public void closeIdle(TimeValue idleTime) {
+        delegate.closeIdle(idleTime);
+    }
+
+    @Override
+    public void closeExpired() {
+        delegate.closeExpired();
+    }
+
+    public Set<HttpRoute> getRoutes() {
+        return delegate.getRoutes();
+    }
+
+    @Override
+    public PoolStats getTotalStats() {
+        return delegate.getTotalStats();
+    }
+
+    @Override
+    public PoolStats getStats(HttpRoute route) {
+        return delegate.getStats(route);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,182 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+/**
+ * 以卡爾曼濾波估計動態對沖比率
+ * 狀態為 [α, β]，觀測方程 y = α + βx + ε，ε ~ N(0, R)；
+ * 狀態以遺忘因子 λ = 1 - δ 隨機漫步（預測步驟 P ← P / λ），δ 越大越快跟上新的價格關係，
+ * 且不受價格單位影響。
+ * 每根K線的更新為常數時間且不配置物件；價差為預測誤差 e = y - (α + βx)，
+ * Z分數為 e / √S（S 為預測誤差的變異數）
+ */
+public class KalmanHedgeFilter {
+
+    private final double lambda;
+    private final double configuredObservationNoise;
+    private double observationNoise;
+
+    // 狀態與共變異矩陣 [[p00, p01], [p01, p11]]
+    private double alpha;
+    private double beta;
+    private double p00;
+    private double p01;
+    private double p11;
+
+    // 最後一次更新前的狀態，用於取代最新一根K線
+    private double previousAlpha;
+    private double previousBeta;
+    private double previousP00;
+    private double previousP01;
+    private double previousP11;
+
+    private double spread;
+    private double spreadVariance;
+    private boolean initialized;
+    private boolean updated;
+
+    /**
+     * @param delta 狀態的遺忘比例（0 ~ 1），例如 1e-4
+     * @param observationNoise 觀測雜訊變異數 R（價格單位平方），小於等於 0 時以初始化窗口的殘差變異數估計
+     */
+    public KalmanHedgeFilter(double delta, double observationNoise) {
+        if (delta < 0 || delta >= 1) {
+            throw new IllegalArgumentException("delta 必須介於 0 與 1 之間，目前 = " + delta);
+        }
+        this.lambda = 1 - delta;
+        this.configuredObservationNoise = observationNoise;
+    }
+
+    /**
+     * 以窗口內的正交迴歸初始化狀態，狀態共變異取該窗口最小平方估計的共變異 R·(XᵀX)⁻¹
+     *
+     * @param xValues X序列值（資產2）
+     * @param yValues Y序列值（資產1）
+     */
+    public void initialize(double[] xValues, double[] yValues) {
+        StatisticalUtils.OrthogonalRegressionResult regression = StatisticalUtils.computeOrthogonalRegression(xValues, yValues, null);
+        int n = xValues.length;
+        double meanX = 0;
+        for (double x : xValues) {
+            meanX += x;
+        }
+        meanX /= n;
+        double sxx = 0;
+        double sse = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = xValues[i] - meanX;
+            sxx += dx * dx;
+            double e = yValues[i] - (regression.getAlpha() + regression.getBeta() * xValues[i]);
+            sse += e * e;
+        }
+        if (sxx <= 0) {
+            throw new IllegalArgumentException("X序列沒有變化，無法初始化對沖比率");
+        }
+        if (Double.isNaN(regression.getBeta())) {
+            throw new IllegalArgumentException("X序列沒有與Y相關的變化，無法初始化對沖比率");
+        }
+
+        observationNoise = configuredObservationNoise > 0 ? configuredObservationNoise : Math.max(sse / n, Double.MIN_NORMAL);
+        alpha = regression.getAlpha();
+        beta = regression.getBeta();
+        p00 = observationNoise * (1.0 / n + meanX * meanX / sxx);
+        p01 = -observationNoise * meanX / sxx;
+        p11 = observationNoise / sxx;
+        spread = 0.0;
+        spreadVariance = observationNoise;
+        initialized = true;
+        updated = false;
+    }
+
+    /**
+     * 加入一根新K線並更新狀態
+     *
+     * @return 此K線的價差（預測誤差）
+     */
+    public double update(double x, double y) {
+        if (!initialized) {
+            throw new IllegalStateException("卡爾曼濾波尚未初始化");
+        }
+        previousAlpha = alpha;
+        previousBeta = beta;
+        previousP00 = p00;
+        previousP01 = p01;
+        previousP11 = p11;
+        updated = true;
+
+        // 預測：狀態不變，共變異放大
+        p00 /= lambda;
+        p01 /= lambda;
+        p11 /= lambda;
+
+        // 預測誤差與其變異數 S = HPHᵀ + R，H = [1, x]
+        double e = y - (alpha + beta * x);
+        double ph0 = p00 + p01 * x;
+        double ph1 = p01 + p11 * x;
+        double s = ph0 + ph1 * x + observationNoise;
+
+        // 更新：K = PHᵀ / S，P ← P - K(PHᵀ)ᵀ
+        double k0 = ph0 / s;
+        double k1 = ph1 / s;
+        alpha += k0 * e;
+        beta += k1 * e;
+        p00 -= k0 * ph0;
+        p01 -= k0 * ph1;
+        p11 -= k1 * ph1;
+
+        spread = e;
+        spreadVariance = s;
+        return e;
+    }
+
+    /**
+     * 以新值重新處理最新一根K線（盤中K線更新或收盤時使用）
+     *
+     * @return 此K線的價差（預測誤差）
+     */
+    public double replaceLast(double x, double y) {
+        if (updated) {
+            alpha = previousAlpha;
+            beta = previousBeta;
+            p00 = previousP00;
+            p01 = previousP01;
+            p11 = previousP11;
+        }
+        return update(x, y);
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public double getBeta() {
+        return beta;
+    }
+
+    public double getObservationNoise() {
+        return observationNoise;
+    }
+
+    /**
+     * 最後一根K線的價差（預測誤差）
+     */
+    public double getSpread() {
+        return spread;
+    }
+
+    /**
+     * 最後一根K線預測誤差的標準差 √S
+     */
+    public double getSpreadStd() {
+        return Math.sqrt(spreadVariance);
+    }
+
+    /**
+     * 最後一根K線的Z分數 e / √S
+     */
+    public double getZScore() {
+        return spread / Math.sqrt(spreadVariance);
+    }
+}
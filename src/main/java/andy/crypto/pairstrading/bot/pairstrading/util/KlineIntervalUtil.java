@@ -0,0 +1,128 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * K線間隔相關工具類
+ */
+public class KlineIntervalUtil {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    // 幣安週線從週一 00:00 UTC 開始，1970-01-01 為週四
+    private static final long WEEK_ALIGNMENT_OFFSET = 4 * DAY_MILLIS;
+
+    /**
+     * 將K線間隔轉換為毫秒數
+     * 月線 ("1M") 長度不固定，以 31 天估算（僅用於切分時間範圍）
+     *
+     * @param interval K線間隔，例如 "1m", "15m", "1h", "1d", "1w", "1M"
+     * @return 間隔毫秒數
+     */
+    public static long toMillis(String interval) {
+        if (interval == null || interval.length() < 2) {
+            throw new IllegalArgumentException("無效的K線間隔: " + interval);
+        }
+        long amount;
+        try {
+            amount = Long.parseLong(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("無效的K線間隔: " + interval);
+        }
+        switch (interval.charAt(interval.length() - 1)) {
+            case 'm':
+                return amount * MINUTE_MILLIS;
+            case 'h':
+                return amount * HOUR_MILLIS;
+            case 'd':
+                return amount * DAY_MILLIS;
+            case 'w':
+                return amount * 7 * DAY_MILLIS;
+            case 'M':
+                return amount * 31 * DAY_MILLIS;
+            default:
+                throw new IllegalArgumentException("無效的K線間隔: " + interval);
+        }
+    }
+
+    /**
+     * 計算包含指定時間的K線開盤時間（UTC 對齊）
+     * 週線對齊週一 00:00，月線對齊每月 1 日 00:00，其餘間隔自 1970-01-01 起等長切分
+     *
+     * @param time 時間（毫秒）
+     * @param interval K線間隔
+     * @return 該K線的開盤時間
+     */
+    public static long openTimeOf(long time, String interval) {
+        if (interval != null && interval.endsWith("M")) {
+            int months = monthCount(interval);
+            LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(time, DAY_MILLIS));
+            long index = Math.floorDiv((date.getYear() - 1970) * 12L + date.getMonthValue() - 1, (long) months) * months;
+            return monthStart(index);
+        }
+        long millis = toMillis(interval);
+        long offset = interval.endsWith("w") ? WEEK_ALIGNMENT_OFFSET : 0L;
+        return time - Math.floorMod(time - offset, millis);
+    }
+
+    /**
+     * 計算下一根K線的開盤時間（月線依實際月份長度）
+     *
+     * @param openTime 已對齊的K線開盤時間
+     * @param interval K線間隔
+     * @return 下一根K線的開盤時間
+     */
+    public static long nextOpenTime(long openTime, String interval) {
+        if (interval != null && interval.endsWith("M")) {
+            LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(openTime, DAY_MILLIS));
+            return date.withDayOfMonth(1).plusMonths(monthCount(interval))
+                    .atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+        return openTime + toMillis(interval);
+    }
+
+    /**
+     * 計算指定時間點最後一根已收盤K線的收盤時間（當前K線開盤時間 - 1）
+     *
+     * @param time 時間（毫秒）
+     * @param interval K線間隔
+     * @return 最後一根已收盤K線的收盤時間
+     */
+    public static long lastClosedCloseTime(long time, String interval) {
+        return openTimeOf(time, interval) - 1;
+    }
+
+    private static int monthCount(String interval) {
+        try {
+            return Integer.parseInt(interval.substring(0, interval.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("無效的K線間隔: " + interval);
+        }
+    }
+
+    private static long monthStart(long monthIndex) {
+        return LocalDate.of(1970, 1, 1).plusMonths(monthIndex).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 計算 /fapi/v1/klines 請求的權重（依 limit 而定）
+     *
+     * @param limit 請求的K線數量
+     * @return 請求權重
+     */
+    public static int klineRequestWeight(int limit) {
+        if (limit < 100) {
+            return 1;
+        }
+        if (limit < 500) {
+            return 2;
+        }
+        if (limit <= 1000) {
+            return 5;
+        }
+        return 10;
+    }
+}
@@ -0,0 +1,188 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 幣安K線回應的串流解碼器
+ * 以 Jackson token 逐一讀取 /fapi/v1/klines 的二維陣列，
+ * 直接寫入 {@link CandleSeries} 的基本型別欄位，不建立中間的 List 與 BigDecimal；
+ * 同時記錄各欄位字串的小數位數，轉換回 BigDecimal 時可保留原始的位數
+ */
+public final class KlineJsonDecoder {
+
+    // 10 的冪次，用於十進位字串的快速解析（10^22 以內的 double 皆可精確表示）
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // 可精確表示為 double 的最大整數尾數 (2^53)
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private KlineJsonDecoder() {
+    }
+
+    /**
+     * 從輸入流解碼K線數據
+     *
+     * @param jsonFactory Jackson JsonFactory
+     * @param inputStream K線回應內容
+     * @param expectedSize 預期的K線數量（用於預先配置陣列）
+     * @return K線序列
+     */
+    public static CandleSeries decode(JsonFactory jsonFactory, InputStream inputStream, int expectedSize) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(inputStream)) {
+            return decode(parser, expectedSize);
+        }
+    }
+
+    /**
+     * 從字串解碼K線數據
+     */
+    public static CandleSeries decode(JsonFactory jsonFactory, String content, int expectedSize) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            return decode(parser, expectedSize);
+        }
+    }
+
+    private static CandleSeries decode(JsonParser parser, int expectedSize) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "K線回應格式錯誤，預期為陣列");
+        }
+
+        CandleSeries series = new CandleSeries(expectedSize > 0 ? expectedSize : 500);
+        int[] scales = new int[CandleSeries.DECIMAL_COLUMNS];
+        Arrays.fill(scales, -1);
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_ARRAY) {
+            long openTime = readLong(parser);
+            double open = readDouble(parser, scales, 0);
+            double high = readDouble(parser, scales, 1);
+            double low = readDouble(parser, scales, 2);
+            double close = readDouble(parser, scales, 3);
+            double volume = readDouble(parser, scales, 4);
+            long closeTime = readLong(parser);
+            double quoteAssetVolume = readDouble(parser, scales, 5);
+            int numberOfTrades = (int) readLong(parser);
+            double takerBuyBaseAssetVolume = readDouble(parser, scales, 6);
+            double takerBuyQuoteAssetVolume = readDouble(parser, scales, 7);
+
+            // 略過其餘欄位（例如已棄用的 ignore 欄位）
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(parser, "K線回應意外結束");
+                }
+                parser.skipChildren();
+            }
+
+            series.add(openTime, open, high, low, close, volume, closeTime, quoteAssetVolume,
+                    numberOfTrades, takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume);
+        }
+
+        if (token != JsonToken.END_ARRAY) {
+            throw new JsonParseException(parser, "K線回應格式錯誤: " + token);
+        }
+        series.setDecimalScales(scales);
+        return series;
+    }
+
+    private static long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Long.parseLong(parser.getText());
+        }
+        throw new JsonParseException(parser, "K線欄位預期為整數: " + token);
+    }
+
+    /**
+     * 讀取數值欄位，字串形式時同時更新該欄位的最大小數位數
+     */
+    private static double readDouble(JsonParser parser, int[] scales, int column) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_STRING) {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            scales[column] = Math.max(scales[column], decimalScale(chars, offset, length));
+            return parseDecimal(chars, offset, length);
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        throw new JsonParseException(parser, "K線欄位預期為數值: " + token);
+    }
+
+    /**
+     * 直接從字元緩衝區解析十進位數字（例如 "12345.6700"）
+     * 尾數不超過 2^53 且小數位數不超過 22 時，整數尾數除以 10 的冪次即為正確捨入的結果；
+     * 其餘情況（指數表示、超長尾數）退回 {@link Double#parseDouble(String)}
+     */
+    public static double parseDecimal(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        boolean seenDigit = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(new String(chars, offset, length));
+                }
+                if (seenDot) {
+                    fractionDigits++;
+                }
+                seenDigit = true;
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return Double.parseDouble(new String(chars, offset, length));
+            }
+        }
+
+        if (!seenDigit || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(chars, offset, length));
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * 十進位字串的小數位數（例如 "12345.6700" 為 4），含指數或其他字元時返回 -1
+     */
+    public static int decimalScale(char[] chars, int offset, int length) {
+        int scale = -1;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                scale = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c != '-' && c != '+') {
+                return -1;
+            }
+        }
+        return Math.max(scale, 0);
+    }
+}
@@ -0,0 +1,153 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * K線數據流的記憶體快照
+ * 每個交易對一個 {@link CandleRingBuffer}，套用幣安 kline 事件（單一或組合數據流格式），
+ * 並在收到的K線與已保存的最後一根之間有缺口時通知呼叫者以 REST 補齊
+ */
+public class KlineStreamBook {
+
+    private final String interval;
+    private final long intervalMillis;
+    private final int capacity;
+    private final Map<String, CandleRingBuffer> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * @param interval K線間隔，例如 "1h"
+     * @param capacity 每個交易對保存的已收盤K線數量
+     */
+    public KlineStreamBook(String interval, int capacity) {
+        this.interval = interval;
+        this.intervalMillis = KlineIntervalUtil.toMillis(interval);
+        this.capacity = capacity;
+    }
+
+    /**
+     * 設定需要保存的交易對，移除不再訂閱的交易對
+     *
+     * @param symbols 交易對列表
+     * @return 新增的交易對
+     */
+    public Set<String> retain(Collection<String> symbols) {
+        buffers.keySet().retainAll(symbols);
+        Set<String> added = new HashSet<>();
+        for (String symbol : symbols) {
+            if (buffers.putIfAbsent(symbol, new CandleRingBuffer(capacity)) == null) {
+                added.add(symbol);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 套用一個 kline 事件
+     *
+     * @param message 事件 JSON，組合數據流的 {"stream":..,"data":..} 格式會自動展開
+     * @return 出現缺口需要補齊的交易對，沒有缺口或不是本間隔的 kline 事件時返回null
+     */
+    public String apply(JsonNode message) {
+        JsonNode event = message.has("data") ? message.get("data") : message;
+        if (!"kline".equals(event.path("e").asText())) {
+            return null;
+        }
+        JsonNode k = event.path("k");
+        if (!interval.equals(k.path("i").asText())) {
+            return null;
+        }
+        String symbol = k.path("s").asText(event.path("s").asText());
+        CandleRingBuffer buffer = buffers.get(symbol);
+        if (buffer == null) {
+            return null;
+        }
+
+        long openTime = k.path("t").asLong();
+        Long lastOpenTime = buffer.getLastClosedOpenTime();
+        // 已收盤K線應緊接在最後一根之後，未收盤K線則應為其下一根
+        boolean gap = lastOpenTime != null && openTime - lastOpenTime > intervalMillis;
+
+        double open = k.path("o").asDouble();
+        double high = k.path("h").asDouble();
+        double low = k.path("l").asDouble();
+        double close = k.path("c").asDouble();
+        double volume = k.path("v").asDouble();
+        long closeTime = k.path("T").asLong();
+        double quoteAssetVolume = k.path("q").asDouble();
+        int numberOfTrades = k.path("n").asInt();
+        double takerBuyBaseAssetVolume = k.path("V").asDouble();
+        double takerBuyQuoteAssetVolume = k.path("Q").asDouble();
+        if (k.path("x").asBoolean()) {
+            buffer.addClosed(openTime, open, high, low, close, volume, closeTime, quoteAssetVolume, numberOfTrades,
+                    takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume);
+        } else {
+            buffer.updatePartial(openTime, open, high, low, close, volume, closeTime, quoteAssetVolume, numberOfTrades,
+                    takerBuyBaseAssetVolume, takerBuyQuoteAssetVolume);
+        }
+        return gap ? symbol : null;
+    }
+
+    /**
+     * 以 REST 取得的K線補齊缺口，收盤時間已過的K線合併為已收盤，最後一根未收盤K線作為當前K線
+     *
+     * @param symbol 交易對符號
+     * @param series 依開盤時間遞增的K線序列
+     * @param now 目前時間（毫秒）
+     */
+    public void fill(String symbol, CandleSeries series, long now) {
+        CandleRingBuffer buffer = buffers.get(symbol);
+        if (buffer == null || series.isEmpty()) {
+            return;
+        }
+        int closedCount = series.size();
+        while (closedCount > 0 && series.getCloseTime(closedCount - 1) >= now) {
+            closedCount--;
+        }
+        buffer.merge(series.window(0, closedCount));
+        if (closedCount < series.size()) {
+            int last = series.size() - 1;
+            buffer.updatePartial(series.getOpenTime(last), series.getOpen(last), series.getHigh(last), series.getLow(last),
+                    series.getClose(last), series.getVolume(last), series.getCloseTime(last),
+                    series.getQuoteAssetVolume(last), series.getNumberOfTrades(last),
+                    series.getTakerBuyBaseAssetVolume(last), series.getTakerBuyQuoteAssetVolume(last));
+        }
+    }
+
+    /**
+     * 獲取K線序列
+     *
+     * @param symbol 交易對符號
+     * @param limit 最多返回的數量（包含未收盤K線）
+     * @param includePartial 是否在末端附加未收盤K線
+     * @return K線序列，未訂閱的交易對返回null
+     */
+    public CandleSeries getCandleSeries(String symbol, int limit, boolean includePartial) {
+        CandleRingBuffer buffer = buffers.get(symbol);
+        return buffer != null ? buffer.toCandleSeries(limit, includePartial) : null;
+    }
+
+    /**
+     * 獲取交易對的緩衝區，未訂閱時返回null
+     */
+    public CandleRingBuffer getBuffer(String symbol) {
+        return buffers.get(symbol);
+    }
+
+    /**
+     * 目前保存的交易對
+     */
+    public Set<String> getSymbols() {
+        return buffers.keySet();
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+}
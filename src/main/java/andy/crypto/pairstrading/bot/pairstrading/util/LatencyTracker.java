@@ -0,0 +1,60 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import java.util.Arrays;
+
+/**
+ * 最近呼叫延遲的百分位數統計
+ * 以固定大小的環形緩衝區保存最近的延遲，百分位數每累積一定次數的新樣本才重新排序計算
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private final int recomputeInterval;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long[] sorted = new long[0];
+
+    /**
+     * @param windowSize 保留的最近樣本數
+     */
+    public LatencyTracker(int windowSize) {
+        this.samples = new long[Math.max(windowSize, 1)];
+        this.recomputeInterval = Math.max(samples.length / 10, 1);
+    }
+
+    /**
+     * 記錄一次呼叫的延遲
+     *
+     * @param latencyMillis 延遲（毫秒）
+     */
+    public synchronized void record(long latencyMillis) {
+        samples[next] = latencyMillis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        sinceRecompute++;
+    }
+
+    /**
+     * 獲取延遲百分位數
+     *
+     * @param percentile 百分位（0~1），例如 0.95
+     * @return 延遲（毫秒），沒有樣本時返回 -1
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        if (sorted.length != count || sinceRecompute >= recomputeInterval) {
+            sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            sinceRecompute = 0;
+        }
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    public synchronized int getSampleCount() {
+        return count;
+    }
+}
@@ -0,0 +1,320 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
+import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 記憶體中的持倉與未完成訂單簿
+ * 先以 REST 查詢結果建立快照，之後套用用戶數據流的 ACCOUNT_UPDATE 與 ORDER_TRADE_UPDATE 事件；
+ * 每個持倉與訂單保留最後更新時間，較舊的事件直接忽略；
+ * 查詢 REST 期間收到的事件會在快照建立後重新套用，避免被較舊的快照覆蓋。
+ * 事件只在倉位變動時送出，標記價格與未實現盈虧另以價格快照更新
+ */
+public class PositionOrderBook {
+
+    // key 為 "交易對|倉位方向"
+    private final Map<String, PositionInfo> positions = new LinkedHashMap<>();
+    private final Map<Long, OrderResponse> openOrders = new LinkedHashMap<>();
+    // 已結束訂單的最後更新時間，避免較舊的 NEW 事件把訂單加回來
+    private final Map<Long, Long> closedOrders = new HashMap<>();
+
+    // beginSeed 之後收到的事件，快照建立後重新套用
+    private final List<JsonNode> pendingEvents = new ArrayList<>();
+    private boolean recording;
+
+    private boolean seeded;
+    // 出現快照中沒有的持倉的交易對，缺少槓桿與強平價等欄位
+    private final Set<String> incompleteSymbols = new HashSet<>();
+
+    /**
+     * 開始查詢 REST 快照前呼叫，記錄期間收到的事件
+     */
+    public synchronized void beginSeed() {
+        pendingEvents.clear();
+        recording = true;
+    }
+
+    /**
+     * 以 REST 查詢結果重建快照，並重新套用 beginSeed 之後收到的事件
+     *
+     * @param positionList 持倉列表（可只包含非零倉位）
+     * @param orderList 未完成訂單列表
+     */
+    public synchronized void seed(List<PositionInfo> positionList, List<OrderResponse> orderList) {
+        positions.clear();
+        openOrders.clear();
+        closedOrders.clear();
+        for (PositionInfo position : positionList) {
+            positions.put(positionKey(position.getSymbol(), position.getPositionSide()), copy(position));
+        }
+        for (OrderResponse order : orderList) {
+            openOrders.put(order.getOrderId(), copy(order));
+        }
+        seeded = true;
+        incompleteSymbols.clear();
+
+        recording = false;
+        for (JsonNode event : pendingEvents) {
+            apply(event);
+        }
+        pendingEvents.clear();
+    }
+
+    /**
+     * 清除快照，之後需要重新建立
+     */
+    public synchronized void invalidate() {
+        seeded = false;
+        recording = false;
+        pendingEvents.clear();
+    }
+
+    /**
+     * 是否已建立快照
+     */
+    public synchronized boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * 是否有快照中不存在的新持倉（需要以 REST 補齊槓桿等欄位）
+     */
+    public synchronized boolean isIncomplete() {
+        return !incompleteSymbols.isEmpty();
+    }
+
+    /**
+     * 獲取缺少槓桿與強平價等欄位的持倉交易對
+     */
+    public synchronized Set<String> getIncompleteSymbols() {
+        return new HashSet<>(incompleteSymbols);
+    }
+
+    /**
+     * 以 REST 查詢的持倉補齊數據流事件不包含的欄位（槓桿、強平價、保證金模式）
+     * 倉位數量與開倉價格仍以數據流為準
+     *
+     * @param symbol 交易對符號
+     * @param positionList 該交易對的 REST 持倉
+     */
+    public synchronized void completePositions(String symbol, List<PositionInfo> positionList) {
+        for (PositionInfo details : positionList) {
+            PositionInfo position = positions.get(positionKey(details.getSymbol(), details.getPositionSide()));
+            if (position == null) {
+                continue;
+            }
+            if (details.getLeverage() != null) {
+                position.setLeverage(details.getLeverage());
+            }
+            if (details.getLiquidationPrice() != null) {
+                position.setLiquidationPrice(details.getLiquidationPrice());
+            }
+            position.setIsolated(details.isIsolated());
+            if (position.getPositionAmt() != null && position.getPositionAmt().compareTo(BigDecimal.ZERO) != 0) {
+                position.setUnrealizedProfitPercentage(PositionInfo.calculateUnrealizedProfitPercentage(
+                        position.getUnrealizedProfit(), position.getMarkPrice(), position.getPositionAmt(), position.getLeverage()));
+            }
+        }
+        incompleteSymbols.remove(symbol);
+    }
+
+    /**
+     * 以最新價格更新非零持倉的標記價格與未實現盈虧：up = (mark - entry) * amt
+     *
+     * @param prices 交易對最新價格，沒有價格的持倉維持原值
+     */
+    public synchronized void updateMarkPrices(Map<String, BigDecimal> prices) {
+        for (PositionInfo position : positions.values()) {
+            BigDecimal price = prices.get(position.getSymbol());
+            BigDecimal positionAmt = position.getPositionAmt();
+            if (price == null || positionAmt == null || positionAmt.compareTo(BigDecimal.ZERO) == 0
+                    || position.getEntryPrice() == null || position.getLeverage() == null) {
+                continue;
+            }
+            BigDecimal unrealizedProfit = price.subtract(position.getEntryPrice()).multiply(positionAmt);
+            position.setMarkPrice(price);
+            position.setUnrealizedProfit(unrealizedProfit);
+            position.setUnrealizedProfitPercentage(PositionInfo.calculateUnrealizedProfitPercentage(
+                    unrealizedProfit, price, positionAmt, position.getLeverage()));
+        }
+    }
+
+    /**
+     * 套用一個用戶數據流事件
+     *
+     * @param event 事件 JSON
+     * @return 事件類型（"e" 欄位）
+     */
+    public synchronized String apply(JsonNode event) {
+        String type = event.path("e").asText();
+        if (recording) {
+            pendingEvents.add(event);
+        }
+        if ("ACCOUNT_UPDATE".equals(type)) {
+            applyAccountUpdate(event);
+        } else if ("ORDER_TRADE_UPDATE".equals(type)) {
+            applyOrderUpdate(event);
+        }
+        return type;
+    }
+
+    /**
+     * 獲取非零持倉
+     *
+     * @param symbol 交易對符號，null 表示全部
+     * @return 持倉副本
+     */
+    public synchronized List<PositionInfo> getPositions(String symbol) {
+        List<PositionInfo> result = new ArrayList<>();
+        for (PositionInfo position : positions.values()) {
+            if (position.getPositionAmt().compareTo(BigDecimal.ZERO) != 0
+                    && (symbol == null || symbol.isEmpty() || symbol.equals(position.getSymbol()))) {
+                result.add(copy(position));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 獲取未完成訂單
+     *
+     * @param symbol 交易對符號，null 表示全部
+     * @return 訂單副本
+     */
+    public synchronized List<OrderResponse> getOpenOrders(String symbol) {
+        List<OrderResponse> result = new ArrayList<>();
+        for (OrderResponse order : openOrders.values()) {
+            if (symbol == null || symbol.isEmpty() || symbol.equals(order.getSymbol())) {
+                result.add(copy(order));
+            }
+        }
+        return result;
+    }
+
+    private void applyAccountUpdate(JsonNode event) {
+        long time = event.path("T").asLong(event.path("E").asLong());
+        for (JsonNode update : event.path("a").path("P")) {
+            String symbol = update.path("s").asText();
+            String positionSide = update.path("ps").asText("BOTH");
+            String key = positionKey(symbol, positionSide);
+            PositionInfo position = positions.get(key);
+            if (position != null && position.getUpdateTime() != null && position.getUpdateTime() > time) {
+                continue;
+            }
+
+            BigDecimal positionAmt = new BigDecimal(update.path("pa").asText("0"));
+            BigDecimal entryPrice = new BigDecimal(update.path("ep").asText("0"));
+            BigDecimal unrealizedProfit = new BigDecimal(update.path("up").asText("0"));
+            if (position == null) {
+                if (positionAmt.compareTo(BigDecimal.ZERO) != 0) {
+                    incompleteSymbols.add(symbol);
+                }
+                position = PositionInfo.builder()
+                        .symbol(symbol)
+                        .positionSide(positionSide)
+                        .leverage(BigDecimal.ZERO)
+                        .liquidationPrice(BigDecimal.ZERO)
+                        .markPrice(entryPrice)
+                        .build();
+                positions.put(key, position);
+            }
+
+            position.setPositionAmt(positionAmt);
+            position.setEntryPrice(entryPrice);
+            position.setUnrealizedProfit(unrealizedProfit);
+            position.setIsolated("isolated".equalsIgnoreCase(update.path("mt").asText()));
+            position.setUpdateTime(time);
+            // 事件不含標記價格，由未實現盈虧反推：up = (mark - entry) * amt
+            if (positionAmt.compareTo(BigDecimal.ZERO) != 0) {
+                position.setMarkPrice(entryPrice.add(unrealizedProfit.divide(positionAmt, 8, RoundingMode.HALF_UP)));
+                position.setUnrealizedProfitPercentage(PositionInfo.calculateUnrealizedProfitPercentage(
+                        unrealizedProfit, position.getMarkPrice(), positionAmt, position.getLeverage()));
+            }
+        }
+    }
+
+    private void applyOrderUpdate(JsonNode event) {
+        JsonNode o = event.path("o");
+        long orderId = o.path("i").asLong();
+        long time = o.path("T").asLong(event.path("T").asLong());
+        String status = o.path("X").asText();
+
+        OrderResponse existing = openOrders.get(orderId);
+        if (existing != null && existing.getUpdateTime() != null && existing.getUpdateTime() > time) {
+            return;
+        }
+        Long closedAt = closedOrders.get(orderId);
+        if (closedAt != null && closedAt >= time) {
+            return;
+        }
+
+        if ("NEW".equals(status) || "PARTIALLY_FILLED".equals(status)) {
+            openOrders.put(orderId, OrderResponse.builder()
+                    .symbol(o.path("s").asText())
+                    .orderId(orderId)
+                    .clientOrderId(o.path("c").asText())
+                    .price(new BigDecimal(o.path("p").asText("0")))
+                    .origQty(new BigDecimal(o.path("q").asText("0")))
+                    .executedQty(new BigDecimal(o.path("z").asText("0")))
+                    .status(status)
+                    .type(o.path("o").asText())
+                    .side(o.path("S").asText())
+                    .avgPrice(new BigDecimal(o.path("ap").asText("0")))
+                    .positionSide(o.path("ps").asText())
+                    .updateTime(time)
+                    .build());
+        } else {
+            openOrders.remove(orderId);
+            closedOrders.put(orderId, time);
+        }
+    }
+
+    private static String positionKey(String symbol, String positionSide) {
+        return symbol + "|" + (positionSide != null ? positionSide : "BOTH");
+    }
+
+    private static PositionInfo copy(PositionInfo position) {
+        return PositionInfo.builder()
+                .symbol(position.getSymbol())
+                .positionSide(position.getPositionSide())
+                .positionAmt(position.getPositionAmt())
+                .entryPrice(position.getEntryPrice())
+                .markPrice(position.getMarkPrice())
+                .liquidationPrice(position.getLiquidationPrice())
+                .unrealizedProfit(position.getUnrealizedProfit())
+                .unrealizedProfitPercentage(position.getUnrealizedProfitPercentage())
+                .leverage(position.getLeverage())
+                .updateTime(position.getUpdateTime())
+                .isolated(position.isIsolated())
+                .isSimulated(position.isSimulated())
+                .build();
+    }
+
+    private static OrderResponse copy(OrderResponse order) {
+        return OrderResponse.builder()
+                .symbol(order.getSymbol())
+                .orderId(order.getOrderId())
+                .clientOrderId(order.getClientOrderId())
+                .price(order.getPrice())
+                .origQty(order.getOrigQty())
+                .executedQty(order.getExecutedQty())
+                .status(order.getStatus())
+                .type(order.getType())
+                .side(order.getSide())
+                .avgPrice(order.getAvgPrice())
+                .positionSide(order.getPositionSide())
+                .updateTime(order.getUpdateTime())
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+/**
+ * 重試預算
+ * 每個首次請求存入 ratio 個代幣，每次重試取出一個，代幣上限為 maxTokens；
+ * 交易所大範圍異常時重試數量被限制在請求量的固定比例內，不會把負載放大數倍
+ */
+public class RetryBudget {
+
+    // 累加小數比例的捨入誤差容許值（例如 0.1 累加十次略小於 1）
+    private static final double EPSILON = 1e-9;
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    /**
+     * @param ratio 每個請求可換得的重試次數，例如 0.1 表示重試最多約為請求量的 10%
+     * @param maxTokens 代幣上限（也是初始值），允許低流量時的少量重試
+     */
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    /**
+     * 記錄一個首次請求
+     */
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * 嘗試取得一次重試的額度
+     *
+     * @return 是否允許重試
+     */
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1.0 - EPSILON) {
+            return false;
+        }
+        tokens = Math.max(tokens - 1.0, 0.0);
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,232 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+/**
+ * 固定窗口的配對統計量
+ * 保存窗口內的 (x, y) 與 Σx、Σy、Σxy、Σx²、Σy²，新K線加入與最舊K線移出都是 O(1)，
+ * 相關性（與 {@link StatisticalUtils#pineCorrelation} 相同的母體公式）、正交迴歸的 α、β 與殘差標準差
+ * 都由這些和直接求得。
+ * 和以 Neumaier 補償加法累積，長時間加入與移出不會累積捨入漂移；
+ * 數值先減去窗口第一個點作為參考值，避免價格水準遠大於波動時 Σx² - n·x̄² 的相消誤差
+ */
+public class RollingPairStatistics {
+
+    private final double[] xs;
+    private final double[] ys;
+    private int start;  // 最舊一點的位置
+    private int size;
+
+    // 參考值（第一次加入時設定）
+    private double shiftX;
+    private double shiftY;
+
+    private final CompensatedSum sumX = new CompensatedSum();
+    private final CompensatedSum sumY = new CompensatedSum();
+    private final CompensatedSum sumXX = new CompensatedSum();
+    private final CompensatedSum sumYY = new CompensatedSum();
+    private final CompensatedSum sumXY = new CompensatedSum();
+
+    /**
+     * @param capacity 窗口大小
+     */
+    public RollingPairStatistics(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("窗口大小必須 >= 2，目前 = " + capacity);
+        }
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+    }
+
+    /**
+     * 以陣列內容建立統計量
+     *
+     * @param xValues X序列值
+     * @param yValues Y序列值
+     * @param capacity 窗口大小，超過時只保留最後 capacity 個點
+     */
+    public static RollingPairStatistics of(double[] xValues, double[] yValues, int capacity) {
+        if (xValues == null || yValues == null || xValues.length != yValues.length) {
+            throw new IllegalArgumentException("輸入序列無效或長度不匹配");
+        }
+        RollingPairStatistics statistics = new RollingPairStatistics(capacity);
+        for (int i = Math.max(xValues.length - capacity, 0); i < xValues.length; i++) {
+            statistics.add(xValues[i], yValues[i]);
+        }
+        return statistics;
+    }
+
+    /**
+     * 加入一個新點，窗口已滿時移出最舊的點
+     */
+    public void add(double x, double y) {
+        if (size == 0) {
+            shiftX = x;
+            shiftY = y;
+        }
+        if (size == xs.length) {
+            accumulate(xs[start], ys[start], -1);
+            start = (start + 1) % xs.length;
+            size--;
+        }
+        int index = (start + size) % xs.length;
+        xs[index] = x;
+        ys[index] = y;
+        size++;
+        accumulate(x, y, 1);
+    }
+
+    /**
+     * 以新值取代最新的點（盤中K線更新或收盤時使用）
+     */
+    public void replaceLast(double x, double y) {
+        if (size == 0) {
+            add(x, y);
+            return;
+        }
+        int index = (start + size - 1) % xs.length;
+        accumulate(xs[index], ys[index], -1);
+        xs[index] = x;
+        ys[index] = y;
+        accumulate(x, y, 1);
+    }
+
+    /**
+     * 清除所有點
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+        sumX.reset();
+        sumY.reset();
+        sumXX.reset();
+        sumYY.reset();
+        sumXY.reset();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return xs.length;
+    }
+
+    public boolean isFull() {
+        return size == xs.length;
+    }
+
+    /**
+     * @param i 由最舊（0）到最新（size - 1）的位置
+     */
+    public double getX(int i) {
+        return xs[position(i)];
+    }
+
+    /**
+     * @param i 由最舊（0）到最新（size - 1）的位置
+     */
+    public double getY(int i) {
+        return ys[position(i)];
+    }
+
+    public double getMeanX() {
+        return shiftX + sumX.value() / size;
+    }
+
+    public double getMeanY() {
+        return shiftY + sumY.value() / size;
+    }
+
+    /**
+     * 母體相關係數，任一序列沒有變化時返回 NaN
+     */
+    public double getCorrelation() {
+        double sxx = getSxx();
+        double syy = getSyy();
+        if (sxx <= 0 || syy <= 0) {
+            return Double.NaN;
+        }
+        return getSxy() / Math.sqrt(sxx * syy);
+    }
+
+    /**
+     * 正交迴歸斜率 β（y = α + βx），直線接近垂直時為 NaN
+     */
+    public double getBeta() {
+        return StatisticalUtils.orthogonalRegressionSlope(getSxx(), getSyy(), getSxy());
+    }
+
+    /**
+     * 正交迴歸截距 α，直線通過兩個序列的平均點
+     */
+    public double getAlpha() {
+        return getMeanY() - getBeta() * getMeanX();
+    }
+
+    /**
+     * 正交殘差的標準差（殘差平均值為0）
+     */
+    public double getSpreadStd() {
+        if (size == 0) {
+            return 0.0;
+        }
+        return Math.sqrt(StatisticalUtils.orthogonalResidualSumOfSquares(getSxx(), getSyy(), getSxy()) / size);
+    }
+
+    private double getSxx() {
+        double sx = sumX.value();
+        return Math.max(sumXX.value() - sx * sx / size, 0.0);
+    }
+
+    private double getSyy() {
+        double sy = sumY.value();
+        return Math.max(sumYY.value() - sy * sy / size, 0.0);
+    }
+
+    private double getSxy() {
+        return sumXY.value() - sumX.value() * sumY.value() / size;
+    }
+
+    private int position(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("位置 " + i + " 超出範圍，目前點數 = " + size);
+        }
+        return (start + i) % xs.length;
+    }
+
+    private void accumulate(double x, double y, int sign) {
+        double u = x - shiftX;
+        double v = y - shiftY;
+        sumX.add(sign * u);
+        sumY.add(sign * v);
+        sumXX.add(sign * u * u);
+        sumYY.add(sign * v * v);
+        sumXY.add(sign * u * v);
+    }
+
+    /**
+     * Neumaier 補償加法，另外累積每次加法遺失的低位數
+     */
+    private static class CompensatedSum {
+        private double sum;
+        private double compensation;
+
+        void add(double value) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+
+        double value() {
+            return sum + compensation;
+        }
+
+        void reset() {
+            sum = 0.0;
+            compensation = 0.0;
+        }
+    }
+}
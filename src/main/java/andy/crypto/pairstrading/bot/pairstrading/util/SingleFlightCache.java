@@ -0,0 +1,127 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 單次執行（single-flight）快取工具類
+ * 相同鍵的並發呼叫只會執行一次載入，其餘呼叫等待並共用同一個結果；
+ * 載入完成後的結果在有效期內繼續提供給後續呼叫
+ *
+ * @param <K> 鍵類型
+ * @param <V> 值類型
+ */
+public class SingleFlightCache<K, V> {
+
+    // 快取項目數量超過此值時清理過期項目
+    private static final int PURGE_THRESHOLD = 64;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    /**
+     * @param ttlMillis 載入完成後結果的有效時間（毫秒），0 表示只合併進行中的呼叫
+     */
+    public SingleFlightCache(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param ttlMillis 載入完成後結果的有效時間（毫秒），0 表示只合併進行中的呼叫
+     * @param clock 毫秒時鐘，測試時可替換
+     */
+    public SingleFlightCache(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 獲取指定鍵的值，若無有效結果則由當前線程執行載入
+     * 載入結果為 null 或拋出異常時不會被快取
+     *
+     * @param key 鍵
+     * @param loader 載入函數
+     * @return 載入結果
+     */
+    public V get(K key, Supplier<V> loader) {
+        while (true) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!entry.future.isDone() || !entry.isExpired(clock.getAsLong(), ttlMillis)) {
+                    return await(entry.future);
+                }
+                entries.remove(key, entry);
+            }
+
+            Entry<V> created = new Entry<>();
+            if (entries.putIfAbsent(key, created) != null) {
+                // 其他線程剛開始載入，改為等待該結果
+                continue;
+            }
+            purgeExpired();
+            return load(key, created, loader);
+        }
+    }
+
+    /**
+     * 清除所有快取結果
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private V load(K key, Entry<V> entry, Supplier<V> loader) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+
+        if (value == null) {
+            entries.remove(key, entry);
+        }
+        entry.completedAt = clock.getAsLong();
+        entry.future.complete(value);
+        return value;
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void purgeExpired() {
+        if (entries.size() <= PURGE_THRESHOLD) {
+            return;
+        }
+        long now = clock.getAsLong();
+        entries.entrySet().removeIf(e -> e.getValue().future.isDone() && e.getValue().isExpired(now, ttlMillis));
+    }
+
+    private static class Entry<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        boolean isExpired(long now, long ttlMillis) {
+            return now - completedAt >= ttlMillis;
+        }
+    }
+}
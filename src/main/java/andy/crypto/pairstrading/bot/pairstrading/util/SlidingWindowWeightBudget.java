@@ -0,0 +1,97 @@
+package andy.crypto.pairstrading.bot.pairstrading.util;
+
+import java.util.ArrayDeque;
+import java.util.function.LongSupplier;
+
+/**
+ * 滑動時間窗口的權重額度
+ * 記錄每次取用的時間與權重，任一時間點往前 windowMillis 內取用的權重總和不超過上限；
+ * 額度不足時返回需等待的時間（最早一筆取用移出窗口後可用的時間）
+ */
+public class SlidingWindowWeightBudget {
+
+    private final int limit;
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    // 窗口內的取用記錄 {時間, 權重}，依時間遞增
+    private final ArrayDeque<long[]> entries = new ArrayDeque<>();
+    private int usedWeight;
+
+    /**
+     * @param limit 窗口內的權重上限
+     * @param windowMillis 窗口長度（毫秒）
+     * @param clock 時間來源（毫秒）
+     */
+    public SlidingWindowWeightBudget(int limit, long windowMillis, LongSupplier clock) {
+        if (limit <= 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("權重上限與窗口長度必須大於 0");
+        }
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 嘗試取用權重（超過上限的權重以上限計算）
+     *
+     * @return 0 表示已取得；否則為至少需要等待的毫秒數
+     */
+    public synchronized long tryAcquire(int weight) {
+        int required = Math.min(Math.max(weight, 0), limit);
+        long now = clock.getAsLong();
+        expire(now);
+        if (usedWeight + required <= limit) {
+            entries.addLast(new long[]{now, required});
+            usedWeight += required;
+            return 0;
+        }
+        // 依序移出最舊的記錄，直到剩餘權重足以容納本次請求
+        int remaining = usedWeight;
+        for (long[] entry : entries) {
+            remaining -= (int) entry[1];
+            if (remaining + required <= limit) {
+                return Math.max(1, entry[0] + windowMillis - now);
+            }
+        }
+        return windowMillis;
+    }
+
+    /**
+     * 取用權重，額度不足時等待
+     *
+     * @param maxWaitMillis 最長等待時間
+     * @return 是否在時限內取得
+     */
+    public boolean acquire(int weight, long maxWaitMillis) throws InterruptedException {
+        long deadline = clock.getAsLong() + maxWaitMillis;
+        while (true) {
+            long waitMillis = tryAcquire(weight);
+            if (waitMillis == 0) {
+                return true;
+            }
+            if (clock.getAsLong() + waitMillis > deadline) {
+                return false;
+            }
+            Thread.sleep(waitMillis);
+        }
+    }
+
+    /**
+     * 目前窗口內已取用的權重
+     */
+    public synchronized int getUsedWeight() {
+        expire(clock.getAsLong());
+        return usedWeight;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private void expire(long now) {
+        while (!entries.isEmpty() && entries.peekFirst()[0] + windowMillis <= now) {
+            usedWeight -= (int) entries.pollFirst()[1];
+        }
+    }
+}
@@ -1,14 +1,10 @@
 package andy.crypto.pairstrading.bot.pairstrading.util;
 
+import andy.crypto.pairstrading.bot.pairstrading.model.RollingHedgeSeries;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.math3.distribution.TDistribution;
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.RealMatrix;
-import org.apache.commons.math3.linear.SingularValueDecomposition;
-import org.apache.commons.math3.stat.regression.SimpleRegression;
 
-import java.util.List;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * 統計相關工具類
@@ -53,106 +49,222 @@ public class StatisticalUtils {
      * @return 包含alpha、beta和相關參數的結果對象
      */
     public static OrthogonalRegressionResult computeOrthogonalRegression(double[] xValues, double[] yValues) {
+        if (xValues == null || yValues == null || xValues.length != yValues.length) {
+            throw new IllegalArgumentException("輸入序列無效或長度不匹配");
+        }
+        return computeOrthogonalRegression(xValues, yValues, new double[xValues.length]);
+    }
+    
+    /**
+     * 使用對稱迴歸（Orthogonal Regression）計算參數，殘差寫入呼叫者提供的緩衝區
+     * 以單次掃描累積共變異量，2x2 散佈矩陣的主特徵向量以解析解求得，不建立矩陣也不做 SVD；
+     * 殘差平方和等於最小特徵值，標準差不需要再掃描一次殘差
+     * 
+     * @param xValues X序列值
+     * @param yValues Y序列值
+     * @param residualsOut 殘差輸出緩衝區，長度至少為序列長度；null 表示不計算殘差
+     * @return 包含alpha、beta和相關參數的結果對象，殘差即為 residualsOut；直線接近垂直時 alpha、beta 與殘差為 NaN
+     */
+    public static OrthogonalRegressionResult computeOrthogonalRegression(double[] xValues, double[] yValues,
+                                                                         double[] residualsOut) {
         if (xValues == null || yValues == null || xValues.length != yValues.length || xValues.length < 2) {
             throw new IllegalArgumentException("輸入序列無效或長度不匹配");
         }
-        
         int len = xValues.length;
-        
-        // 1. 計算 X, Y 的平均
-        double meanX = 0, meanY = 0;
-        for (int i = 0; i < len; i++) {
-            meanX += xValues[i];
-            meanY += yValues[i];
+        if (residualsOut != null && residualsOut.length < len) {
+            throw new IllegalArgumentException("殘差緩衝區長度不足: " + residualsOut.length + " < " + len);
         }
-        meanX /= len;
-        meanY /= len;
         
-        // 2. 建資料矩陣並去中心化
-        RealMatrix data = new Array2DRowRealMatrix(len, 2);
+        // 1. 單次掃描累積平均與離均差乘積和（Welford 更新，避免價格水準造成的相消誤差）
+        double meanX = 0, meanY = 0;
+        double sxx = 0, syy = 0, sxy = 0;
         for (int i = 0; i < len; i++) {
-            data.setEntry(i, 0, xValues[i] - meanX);
-            data.setEntry(i, 1, yValues[i] - meanY);
+            double dx = xValues[i] - meanX;
+            double dy = yValues[i] - meanY;
+            meanX += dx / (i + 1);
+            meanY += dy / (i + 1);
+            sxx += dx * (xValues[i] - meanX);
+            syy += dy * (yValues[i] - meanY);
+            sxy += dx * (yValues[i] - meanY);
         }
         
-        // 3. 計算協方差矩陣並做 SVD
-        RealMatrix cov = data.transpose().multiply(data);
-        SingularValueDecomposition svd = new SingularValueDecomposition(cov);
-        RealMatrix V = svd.getV();
-        
-        // 4. 取第一主成分向量
-        double vx = V.getEntry(0, 0);
-        double vy = V.getEntry(1, 0);
-        
-        // 5. 計算斜率 β 與截距 α
-        double beta = vy / vx;
+        // 2. 散佈矩陣主特徵向量的斜率
+        double beta = orthogonalRegressionSlope(sxx, syy, sxy);
         double alpha = meanY - beta * meanX;
         
-        // 6. 計算正交殘差（每點到直線的垂直距離）
-        double[] residuals = new double[len];
+        // 3. 正交殘差（每點到直線的垂直距離）
         double norm = Math.sqrt(1 + beta * beta);
-        for (int i = 0; i < len; i++) {
-            double y = yValues[i];
-            double x = xValues[i];
-            residuals[i] = (y - (alpha + beta * x)) / norm;
+        if (residualsOut != null) {
+            for (int i = 0; i < len; i++) {
+                residualsOut[i] = (yValues[i] - (alpha + beta * xValues[i])) / norm;
+            }
         }
         
-        // 7. 計算殘差統計量
-        double mean = 0.0; // 直接假設平均值為0
-        double sumSq = Arrays.stream(residuals).map(d -> d * d).sum();
-        double std = Math.sqrt(sumSq / len);
+        // 4. 殘差統計量：直線通過平均點，殘差平均值為0；殘差平方和為散佈矩陣的最小特徵值
+        double mean = 0.0;
+        double std = Math.sqrt(orthogonalResidualSumOfSquares(sxx, syy, sxy) / len);
         
-        return new OrthogonalRegressionResult(alpha, beta, residuals, mean, std);
+        return new OrthogonalRegressionResult(alpha, beta, residualsOut, mean, std);
     }
     
     /**
-     * 手動實作 ADF 平穩性檢定
-     * 用於判斷時間序列是否具有平穩性
-     * 
-     * @param series 輸入的時間序列數據
-     * @param significanceLevel 顯著性水平，默認為0.05
-     * @return 如果序列通過平穩性檢定，則返回true；否則返回false
+     * 由離均差乘積和計算正交迴歸斜率（2x2 散佈矩陣主特徵向量的斜率）
+     * β = (Syy - Sxx + √((Syy - Sxx)² + 4Sxy²)) / (2Sxy)；
+     * Syy <= Sxx 時改用等價式 2Sxy / (√(...) - (Syy - Sxx))，避免相消，Sxy = 0 時得到 0
+     *
+     * @param sxx Σ(x - x̄)²
+     * @param syy Σ(y - ȳ)²
+     * @param sxy Σ(x - x̄)(y - ȳ)
+     * @return 斜率 β，X沒有與Y相關的變化（直線接近垂直）時返回 NaN
      */
-    public static boolean performADFTest(List<Double> series, double significanceLevel) {
-        int n = series.size();
-        if (n < 3) {
-            log.warn("ADF 檢定需要至少 3 個樣本，當前 = {}", n);
-            return false;
+    public static double orthogonalRegressionSlope(double sxx, double syy, double sxy) {
+        double diff = syy - sxx;
+        double root = Math.sqrt(diff * diff + 4 * sxy * sxy);
+        if (diff <= 0) {
+            return root - diff == 0 ? 0.0 : 2 * sxy / (root - diff);
         }
-        
-        // 轉換為基本數據類型數組以提高效率
-        double[] y = series.stream().mapToDouble(Double::doubleValue).toArray();
-        
-        // 建立迴歸模型: Δy_t = α + βy_{t-1} + ε
-        SimpleRegression adfReg = new SimpleRegression(true);
-        for (int i = 1; i < n; i++) {
-            adfReg.addData(y[i - 1], y[i] - y[i - 1]);
+        if (Math.abs(2 * sxy) > 1e-12 * (diff + root)) {
+            return (diff + root) / (2 * sxy);
+        }
+        // Sxy 只剩捨入誤差時直線接近垂直，斜率沒有意義，由呼叫者跳過該窗口
+        return Double.NaN;
+    }
+    
+    /**
+     * 正交殘差平方和，等於散佈矩陣的最小特徵值
+     *
+     * @param sxx Σ(x - x̄)²
+     * @param syy Σ(y - ȳ)²
+     * @param sxy Σ(x - x̄)(y - ȳ)
+     * @return 各點到正交迴歸直線的垂直距離平方和
+     */
+    public static double orthogonalResidualSumOfSquares(double sxx, double syy, double sxy) {
+        double diff = syy - sxx;
+        double root = Math.sqrt(diff * diff + 4 * sxy * sxy);
+        return Math.max((sxx + syy - root) / 2, 0.0);
+    }
+    
+    /**
+     * 逐點滾動估計正交迴歸與價差統計量（無前視偏差）
+     * 第 t 點只使用 [t - windowSize + 1, t] 的數據估計 α、β 與殘差標準差，
+     * 再以該次估計計算第 t 點的價差與Z分數；窗口統計量逐點加入與移出，總計 O(n)。
+     * 窗口的正交迴歸直線接近垂直時該點的估計值全為 NaN，不產生信號
+     *
+     * @param yValues Y序列值（資產1）
+     * @param xValues X序列值（資產2）
+     * @param closeTimes 各點的收盤時間
+     * @param windowSize 每次估計使用的點數
+     * @return 從第 windowSize 個點開始的 n - windowSize + 1 個估計結果
+     */
+    public static RollingHedgeSeries computeRollingHedgeSeries(double[] yValues, double[] xValues, long[] closeTimes, int windowSize) {
+        if (xValues == null || yValues == null || closeTimes == null
+                || xValues.length != yValues.length || closeTimes.length != xValues.length) {
+            throw new IllegalArgumentException("輸入序列無效或長度不匹配");
+        }
+        if (windowSize < 2 || xValues.length < windowSize) {
+            throw new IllegalArgumentException("數據點數 " + xValues.length + " 不足窗口大小 " + windowSize);
         }
         
-        // 計算t統計量
-        double slope = adfReg.getSlope();
-        double standardError = adfReg.getSlopeStdErr();
-        double tStat = slope / standardError;
-        
-        // 計算自由度和p值
-        int degreesOfFreedom = n - 3;
-        double pValue = new TDistribution(degreesOfFreedom).cumulativeProbability(tStat);
+        RollingPairStatistics statistics = new RollingPairStatistics(windowSize);
+        RollingHedgeSeries series = new RollingHedgeSeries(windowSize, xValues.length - windowSize + 1);
+        for (int t = 0; t < xValues.length; t++) {
+            statistics.add(xValues[t], yValues[t]);
+            if (t < windowSize - 1) {
+                continue;
+            }
+            double beta = statistics.getBeta();
+            if (Double.isNaN(beta)) {
+                series.setUndefined(t - windowSize + 1, closeTimes[t]);
+                continue;
+            }
+            double alpha = statistics.getMeanY() - beta * statistics.getMeanX();
+            double spread = (yValues[t] - (alpha + beta * xValues[t])) / Math.sqrt(1 + beta * beta);
+            // 正交迴歸直線通過窗口平均點，窗口內殘差平均值為0
+            series.set(t - windowSize + 1, closeTimes[t], alpha, beta, spread, 0.0, statistics.getSpreadStd());
+        }
+        return series;
+    }
+    
+    /**
+     * 以卡爾曼濾波逐點估計對沖比率與價差（無前視偏差）
+     * 以前 warmUpSize 根K線的正交迴歸初始化狀態，之後逐根濾波：第 t 點的價差為以第 t - 1 根為止的狀態預測第 t 點的誤差，
+     * Z分數為預測誤差除以其標準差，α、β 為加入第 t 點後的狀態
+     *
+     * @param yValues Y序列值（資產1）
+     * @param xValues X序列值（資產2）
+     * @param closeTimes 各點的收盤時間
+     * @param warmUpSize 初始化使用的點數，這些點不產生估計結果
+     * @param delta 狀態的遺忘比例
+     * @param observationNoise 觀測雜訊變異數，小於等於 0 時以初始化窗口估計
+     * @return 從第 warmUpSize + 1 個點開始的 n - warmUpSize 個估計結果
+     */
+    public static RollingHedgeSeries computeKalmanHedgeSeries(double[] yValues, double[] xValues, long[] closeTimes, int warmUpSize,
+                                                              double delta, double observationNoise) {
+        if (xValues == null || yValues == null || closeTimes == null
+                || xValues.length != yValues.length || closeTimes.length != xValues.length) {
+            throw new IllegalArgumentException("輸入序列無效或長度不匹配");
+        }
+        if (warmUpSize < 2 || xValues.length <= warmUpSize) {
+            throw new IllegalArgumentException("數據點數 " + xValues.length + " 不足初始化窗口大小 " + warmUpSize + " 加一");
+        }
         
-        // 記錄詳細的檢定結果
-        log.debug("ADF檢定結果: 斜率={}, t統計量={}, p值={}, 顯著性水平={}", 
-                 slope, tStat, pValue, significanceLevel);
+        KalmanHedgeFilter filter = new KalmanHedgeFilter(delta, observationNoise);
+        filter.initialize(Arrays.copyOfRange(xValues, 0, warmUpSize), Arrays.copyOfRange(yValues, 0, warmUpSize));
+        RollingHedgeSeries series = new RollingHedgeSeries(warmUpSize, xValues.length - warmUpSize);
+        for (int t = warmUpSize; t < xValues.length; t++) {
+            double spread = filter.update(xValues[t], yValues[t]);
+            series.set(t - warmUpSize, closeTimes[t], filter.getAlpha(), filter.getBeta(), spread, 0.0, filter.getSpreadStd());
+        }
+        return series;
+    }
+    
+    /**
+     * ADF 平穩性檢定，用於判斷價差（兩個資產共整合迴歸的殘差）是否具有平穩性
+     * 落後期數以 AIC 自動選擇，p 值使用 MacKinnon 的共整合殘差（兩個變數）迴應面
+     * 
+     * @param series 輸入的價差序列
+     * @return 檢定結果，樣本不足或序列沒有變化時返回 null
+     */
+    public static AugmentedDickeyFuller.Result adfTest(double[] series) {
+        AugmentedDickeyFuller.Result result;
+        try {
+            result = AugmentedDickeyFuller.test(series, 2);
+        } catch (IllegalArgumentException e) {
+            log.warn("無法進行 ADF 檢定: {}", e.getMessage());
+            return null;
+        }
         
-        // 如果p值小於顯著性水平，則拒絕原假設（存在單位根），即時間序列是平穩的
-        return pValue < significanceLevel;
+        log.debug("ADF檢定結果: 統計量={}, 落後期數={}, 樣本數={}, p值={}, 5%臨界值={}",
+                result.getStatistic(), result.getLag(), result.getObservations(), result.getPValue(),
+                result.getCriticalValue5Percent());
+        return result;
     }
     
     /**
      * 使用預設顯著性水平0.05進行ADF檢定
+     * 
+     * @return 如果序列通過平穩性檢定，則返回true；否則返回false
      */
     public static boolean performADFTest(List<Double> series) {
         return performADFTest(series, 0.05);
     }
     
+    /**
+     * 以指定顯著性水平進行ADF檢定
+     * 
+     * @param series 輸入的價差序列
+     * @param significanceLevel 顯著性水平
+     * @return 如果序列通過平穩性檢定，則返回true；否則返回false
+     */
+    public static boolean performADFTest(List<Double> series, double significanceLevel) {
+        double[] values = new double[series.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = series.get(i);
+        }
+        AugmentedDickeyFuller.Result result = adfTest(values);
+        return result != null && result.isStationary(significanceLevel);
+    }
+    
     /**
      * 正交迴歸結果類
      * 封裝正交迴歸分析的結果
@@ -0,0 +1,115 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.AugmentedDickeyFuller;
+import andy.crypto.pairstrading.bot.pairstrading.util.AugmentedDickeyFuller.LagCriterion;
+import andy.crypto.pairstrading.bot.pairstrading.util.AugmentedDickeyFuller.Result;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ADF 單位根檢定測試
+ */
+public class AugmentedDickeyFullerTest {
+
+    @Test
+    @DisplayName("落後期數為0時統計量等於 Δy 對 y_{t-1} 簡單迴歸的斜率 t 值")
+    public void testLagZeroMatchesDickeyFuller() {
+        double[] y = autoregressive(new Random(11L), 300, 0.9, 0.0);
+        Result result = AugmentedDickeyFuller.test(y, 0, null, 1);
+
+        int n = y.length - 1;
+        double meanX = 0;
+        double meanZ = 0;
+        for (int t = 1; t < y.length; t++) {
+            meanX += y[t - 1];
+            meanZ += y[t] - y[t - 1];
+        }
+        meanX /= n;
+        meanZ /= n;
+        double sxx = 0;
+        double sxz = 0;
+        for (int t = 1; t < y.length; t++) {
+            double dx = y[t - 1] - meanX;
+            sxx += dx * dx;
+            sxz += dx * (y[t] - y[t - 1] - meanZ);
+        }
+        double slope = sxz / sxx;
+        double ssr = 0;
+        for (int t = 1; t < y.length; t++) {
+            double residual = (y[t] - y[t - 1] - meanZ) - slope * (y[t - 1] - meanX);
+            ssr += residual * residual;
+        }
+        double expected = slope / Math.sqrt(ssr / (n - 2) / sxx);
+
+        assertEquals(0, result.getLag());
+        assertEquals(n, result.getObservations());
+        assertEquals(slope, result.getGamma(), 1e-10);
+        assertEquals(expected, result.getStatistic(), 1e-8);
+    }
+
+    @Test
+    @DisplayName("均值回歸序列拒絕單位根，隨機漫步不拒絕")
+    public void testStationaryVersusRandomWalk() {
+        Result stationary = AugmentedDickeyFuller.test(autoregressive(new Random(5L), 500, 0.5, 0.0), 2);
+        assertTrue(stationary.isStationary(0.01), "p = " + stationary.getPValue());
+        assertTrue(stationary.getStatistic() < stationary.getCriticalValue1Percent());
+
+        Result randomWalk = AugmentedDickeyFuller.test(autoregressive(new Random(5L), 500, 1.0, 0.0), 2);
+        assertFalse(randomWalk.isStationary(0.1), "p = " + randomWalk.getPValue());
+        assertTrue(randomWalk.getStatistic() > randomWalk.getCriticalValue10Percent());
+    }
+
+    @Test
+    @DisplayName("差分具有自我相關時資訊準則會選擇落後項")
+    public void testLagSelection() {
+        double[] y = autoregressive(new Random(9L), 1000, 0.95, 0.7);
+        int maxLag = AugmentedDickeyFuller.defaultMaxLag(y.length);
+        assertEquals(22, maxLag);
+
+        Result bic = AugmentedDickeyFuller.test(y, maxLag, LagCriterion.BIC, 1);
+        assertTrue(bic.getLag() >= 1 && bic.getLag() <= 3, "lag = " + bic.getLag());
+        assertEquals(y.length - 1 - bic.getLag(), bic.getObservations());
+
+        Result aic = AugmentedDickeyFuller.test(y, maxLag, LagCriterion.AIC, 1);
+        assertTrue(aic.getLag() >= bic.getLag());
+
+        Result fixed = AugmentedDickeyFuller.test(y, 5, null, 1);
+        assertEquals(5, fixed.getLag());
+    }
+
+    @Test
+    @DisplayName("MacKinnon p 值在漸近臨界值處等於對應的顯著性水平")
+    public void testMacKinnonConsistency() {
+        for (int variables = 1; variables <= 2; variables++) {
+            double[] critical = AugmentedDickeyFuller.mackinnonCriticalValues(variables, 1_000_000);
+            assertEquals(0.01, AugmentedDickeyFuller.mackinnonPValue(critical[0], variables), 0.002);
+            assertEquals(0.05, AugmentedDickeyFuller.mackinnonPValue(critical[1], variables), 0.005);
+            assertEquals(0.10, AugmentedDickeyFuller.mackinnonPValue(critical[2], variables), 0.01);
+            assertEquals(0.0, AugmentedDickeyFuller.mackinnonPValue(-30, variables));
+            assertEquals(1.0, AugmentedDickeyFuller.mackinnonPValue(3, variables));
+        }
+        assertEquals(-2.86154, AugmentedDickeyFuller.mackinnonCriticalValues(1, 1_000_000)[1], 1e-4);
+        assertTrue(AugmentedDickeyFuller.mackinnonCriticalValues(2, 100)[1]
+                < AugmentedDickeyFuller.mackinnonCriticalValues(1, 100)[1]);
+
+        assertThrows(IllegalArgumentException.class, () -> AugmentedDickeyFuller.test(new double[]{1, 2, 3}, 1));
+        assertThrows(IllegalArgumentException.class, () -> AugmentedDickeyFuller.test(new double[50], 1));
+    }
+
+    /**
+     * y_t = φ·y_{t-1} + u_t，u_t = θ·u_{t-1} + e_t
+     */
+    private static double[] autoregressive(Random random, int n, double phi, double theta) {
+        double[] y = new double[n];
+        double u = 0;
+        for (int t = 1; t < n; t++) {
+            u = theta * u + random.nextGaussian();
+            y[t] = phi * y[t - 1] + u;
+        }
+        return y;
+    }
+}
@@ -0,0 +1,134 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.BinanceAsyncApiServiceImpl;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.BinanceRateLimiterServiceImpl;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.BinanceRequestSigner;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.ResilientBinanceApiService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 非同步API服務測試
+ * 以本機 HTTP 替身回應幣安格式的K線，驗證解析、限流標頭回報與容錯層的重試
+ */
+public class BinanceAsyncApiServiceTest {
+
+    private static final String KLINES = "[[1700000000000,\"100.0\",\"101.0\",\"99.0\",\"100.5\",\"10\",1700000059999,"
+            + "\"1005\",5,\"4\",\"402\",\"0\"],[1700000060000,\"100.5\",\"102.0\",\"100.0\",\"101.5\",\"12\",1700000119999,"
+            + "\"1218\",6,\"5\",\"507.5\",\"0\"]]";
+
+    private HttpServer server;
+    private final AtomicInteger failuresBeforeSuccess = new AtomicInteger();
+    private final AtomicInteger failureStatus = new AtomicInteger(503);
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    private BinanceRateLimiterServiceImpl rateLimiter;
+    private ResilientBinanceApiService resilientService;
+    private BinanceAsyncApiServiceImpl asyncService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/fapi/v1/klines", this::handleKlines);
+        server.start();
+
+        BinanceConfig config = new BinanceConfig();
+        config.setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        rateLimiter = new BinanceRateLimiterServiceImpl(2400, 1200, 200, 600, 10_000L, System::currentTimeMillis);
+        // 重試 3 次、退避 1~5 ms、不對沖
+        resilientService = new ResilientBinanceApiService(null, 3, 1L, 5L, 0.1, 10.0,
+                20, 10, 0.5, 30_000L, false, 0.95, 50, 50L, 200);
+        asyncService = new BinanceAsyncApiServiceImpl(config, new ObjectMapper(), SSLContext.getDefault(),
+                rateLimiter, new BinanceRequestSigner(config), resilientService, 4, 4, 30_000L, 1, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        asyncService.shutdown();
+        resilientService.shutdown();
+        server.stop(0);
+    }
+
+    private void handleKlines(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        queries.add(exchange.getRequestURI().getRawQuery());
+        boolean fail = failuresBeforeSuccess.getAndDecrement() > 0;
+        byte[] body = (fail ? "{\"code\":-1000,\"msg\":\"stub failure\"}" : KLINES).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("X-MBX-USED-WEIGHT-1M", "2000");
+        exchange.sendResponseHeaders(fail ? failureStatus.get() : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    @DisplayName("K線回應解析為欄位序列，並以回應標頭更新限流狀態")
+    public void testGetCandleSeriesAsync() throws Exception {
+        CandleSeries series = asyncService.getCandleSeriesAsync("BTCUSDT", "1m", 1_700_000_000_000L, null, 2)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, series.size());
+        assertEquals(1_700_000_060_000L, series.getOpenTime(1));
+        assertEquals(101.5, series.getLastClose());
+        String query = queries.get(0);
+        assertTrue(query.contains("symbol=BTCUSDT") && query.contains("interval=1m")
+                && query.contains("startTime=1700000000000") && query.contains("limit=2"), query);
+        assertFalse(query.contains("signature"), query);
+        assertEquals(2000, rateLimiter.getMetrics().get("reportedUsedWeight1m"));
+    }
+
+    @Test
+    @DisplayName("5xx 回應經由容錯層重試")
+    public void testTransientFailureIsRetried() throws Exception {
+        failuresBeforeSuccess.set(2);
+        CandleSeries series = asyncService.getCandleSeriesAsync("BTCUSDT", "1m", null, null, 2)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, series.size());
+        assertEquals(3, requestCount.get());
+        assertEquals(2L, resilientService.getMetrics().get("retryCount"));
+    }
+
+    @Test
+    @DisplayName("4xx 回應不重試，future 以帶狀態碼的 BinanceApiException 結束")
+    public void testClientErrorIsNotRetried() {
+        failuresBeforeSuccess.set(1);
+        failureStatus.set(400);
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> asyncService.getCandleSeriesAsync("BTCUSDT", "1m", null, null, 2).get(10, TimeUnit.SECONDS));
+
+        BinanceApiException cause = assertInstanceOf(BinanceApiException.class, error.getCause());
+        assertEquals(400, cause.getStatusCode());
+        assertEquals(1, requestCount.get());
+        assertEquals(0L, resilientService.getMetrics().get("retryCount"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> breaker = (Map<String, Object>) ((Map<String, Object>) resilientService.getMetrics()
+                .get("circuitBreakers")).get("MARKET_DATA");
+        assertEquals("CLOSED", breaker.get("state"));
+    }
+}
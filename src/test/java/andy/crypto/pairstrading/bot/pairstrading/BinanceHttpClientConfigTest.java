@@ -0,0 +1,113 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceHttpClientConfig;
+import andy.crypto.pairstrading.bot.pairstrading.util.InstrumentedConnectionManager;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.net.ssl.SSLContext;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 幣安HTTP傳輸層配置測試
+ * 以本機 HTTP 替身驗證連線池設定與連線租用統計
+ */
+public class BinanceHttpClientConfigTest {
+
+    private HttpServer server;
+    private InstrumentedConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private SSLContext sslContext;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/fapi/v1/ping", exchange -> {
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        // 欄位由 @Value 注入，測試中直接設定
+        BinanceHttpClientConfig config = new BinanceHttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 7);
+        ReflectionTestUtils.setField(config, "maxConnectionsPerRoute", 3);
+        ReflectionTestUtils.setField(config, "validateAfterInactivityMillis", 2_000L);
+        ReflectionTestUtils.setField(config, "idleEvictMillis", 30_000L);
+        ReflectionTestUtils.setField(config, "connectionTtlMillis", 600_000L);
+        ReflectionTestUtils.setField(config, "connectionRequestTimeoutMillis", 5_000L);
+        ReflectionTestUtils.setField(config, "tlsSessionCacheSize", 16);
+        ReflectionTestUtils.setField(config, "tlsSessionTimeoutSeconds", 3_600);
+
+        BinanceConfig binanceConfig = new BinanceConfig();
+        sslContext = config.binanceSslContext();
+        connectionManager = config.binanceConnectionManager(binanceConfig, sslContext);
+        httpClient = config.binanceHttpClient(binanceConfig, connectionManager);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        httpClient.close();
+        connectionManager.close();
+        server.stop(0);
+    }
+
+    private int get() throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/fapi/v1/ping";
+        return httpClient.execute(new HttpGet(url), response -> {
+            // 讀完回應內容後連線才會歸還連線池
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+
+    @Test
+    @DisplayName("連線池與 TLS session 快取套用配置值")
+    public void testPoolSettingsApplied() {
+        assertEquals(7, connectionManager.getMaxTotal());
+        assertEquals(3, connectionManager.getDefaultMaxPerRoute());
+        assertEquals(16, sslContext.getClientSessionContext().getSessionCacheSize());
+        assertEquals(3_600, sslContext.getClientSessionContext().getSessionTimeout());
+
+        Map<String, Object> metrics = connectionManager.getMetrics();
+        assertEquals(7, metrics.get("maxTotal"));
+        assertEquals(3, metrics.get("maxPerRoute"));
+        assertEquals(0L, metrics.get("leaseCount"));
+        assertEquals(0.0, metrics.get("reuseRatio"));
+    }
+
+    @Test
+    @DisplayName("每次請求計入一次租用，keep-alive 連線重複使用")
+    public void testLeaseMetricsIncrement() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, get());
+        }
+
+        Map<String, Object> metrics = connectionManager.getMetrics();
+        assertEquals(3L, metrics.get("leaseCount"));
+        assertEquals(0L, metrics.get("leaseFailures"));
+        assertEquals(1L, metrics.get("newConnections"));
+        assertEquals(2L, metrics.get("reusedConnections"));
+        assertEquals(0.667, metrics.get("reuseRatio"));
+        // 請求結束後連線回到連線池
+        assertEquals(0, metrics.get("leased"));
+        assertEquals(1, metrics.get("available"));
+    }
+}
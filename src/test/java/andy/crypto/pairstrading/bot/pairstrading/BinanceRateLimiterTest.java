@@ -0,0 +1,146 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.BinanceRateLimiterServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 幣安API限流服務測試
+ * 注入可控時鐘並將最長等待設為 0，額度不足時立即拋出異常而不實際等待
+ */
+public class BinanceRateLimiterTest {
+
+    private static final Map<String, Object> KLINES = Map.of("symbol", "BTCUSDT", "limit", 1000);  // 權重 5，分析類
+    private static final Map<String, Object> SYMBOL = Map.of("symbol", "BTCUSDT");
+
+    private final AtomicLong clock = new AtomicLong(60_000L * 1_000);  // 從整分鐘開始
+
+    // 權重 1200/分鐘（每毫秒補充 0.02），下單 300/分鐘，交易查詢保留 100，分析讀取保留 300
+    private final BinanceRateLimiterServiceImpl limiter =
+            new BinanceRateLimiterServiceImpl(1200, 300, 100, 300, 0L, clock::get);
+
+    private void klines() {
+        limiter.acquire("/fapi/v1/klines", "GET", KLINES);
+    }
+
+    private void positionRisk() {
+        limiter.acquire("/fapi/v2/positionRisk", "GET", SYMBOL);
+    }
+
+    @Test
+    @DisplayName("額度用盡時依優先級拒絕，下單可使用保留額度")
+    public void testBudgetExhaustion() {
+        // 分析讀取最多使用 1200 - 300 = 900
+        for (int i = 0; i < 180; i++) {
+            klines();
+        }
+        assertThrows(BinanceApiException.class, this::klines);
+
+        // 交易查詢仍可使用到只剩 100
+        for (int i = 0; i < 40; i++) {
+            positionRisk();
+        }
+        assertThrows(BinanceApiException.class, this::positionRisk);
+
+        // 下單類可用完最後的保留額度
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("/fapi/v1/order", "GET", SYMBOL);
+        }
+        assertThrows(BinanceApiException.class, () -> limiter.acquire("/fapi/v1/order", "GET", SYMBOL));
+        assertEquals(0L, limiter.getMetrics().get("availableWeight"));
+
+        // 下單本身不計權重，但計入下單次數
+        for (int i = 0; i < 300; i++) {
+            limiter.acquire("/fapi/v1/order", "POST", SYMBOL);
+        }
+        assertThrows(BinanceApiException.class, () -> limiter.acquire("/fapi/v1/order", "POST", SYMBOL));
+    }
+
+    @Test
+    @DisplayName("令牌隨時間連續補充，一分鐘後完全恢復")
+    public void testRollOver() {
+        for (int i = 0; i < 180; i++) {
+            klines();
+        }
+        assertThrows(BinanceApiException.class, this::klines);
+
+        // 250 ms 補充 5，剛好足夠一次分析讀取
+        clock.addAndGet(249);
+        assertThrows(BinanceApiException.class, this::klines);
+        clock.addAndGet(2);
+        klines();
+        assertThrows(BinanceApiException.class, this::klines);
+
+        clock.addAndGet(60_000);
+        assertEquals(1200L, limiter.getMetrics().get("availableWeight"));
+        for (int i = 0; i < 180; i++) {
+            klines();
+        }
+
+        // 時鐘回撥不補充額度，追上原本的時間後才繼續補充
+        clock.addAndGet(-30_000);
+        assertThrows(BinanceApiException.class, this::klines);
+        clock.addAndGet(30_000);
+        assertThrows(BinanceApiException.class, this::klines);
+        clock.addAndGet(251);
+        klines();
+    }
+
+    @Test
+    @DisplayName("回應標頭回報的已用權重校正本地額度，並只在同一分鐘內顯示")
+    public void testHeaderDrivenWeightSync() {
+        // 同IP的其他程式已用掉 1000，本地只剩 200
+        limiter.recordResponse(200, "1000", "10", null);
+        Map<String, Object> metrics = limiter.getMetrics();
+        assertEquals(200L, metrics.get("availableWeight"));
+        assertEquals(1000, metrics.get("reportedUsedWeight1m"));
+        assertEquals(10, metrics.get("reportedOrderCount1m"));
+        assertEquals(0.833, (Double) metrics.get("weightUtilization"), 1e-9);
+
+        assertThrows(BinanceApiException.class, this::klines);
+        positionRisk();
+
+        // 回報值較本地估計少時不增加額度
+        limiter.recordResponse(200, "5", null, null);
+        assertEquals(195L, limiter.getMetrics().get("availableWeight"));
+
+        // 無法解析的標頭忽略
+        limiter.recordResponse(200, "abc", "", null);
+        assertEquals(195L, limiter.getMetrics().get("availableWeight"));
+
+        // 進入下一分鐘後回報值失效
+        clock.addAndGet(60_000);
+        metrics = limiter.getMetrics();
+        assertEquals(0, metrics.get("reportedUsedWeight1m"));
+        assertEquals(1200L, metrics.get("availableWeight"));
+    }
+
+    @Test
+    @DisplayName("429 依 Retry-After 暫停所有請求，418 期間直接拒絕")
+    public void testRateLimitedAndBanned() {
+        limiter.recordResponse(429, "1200", null, "2");
+        assertEquals(1L, limiter.getMetrics().get("rateLimitedResponses"));
+        assertNotNull(limiter.getMetrics().get("pausedUntil"));
+        assertThrows(BinanceApiException.class, () -> limiter.acquire("/fapi/v1/order", "POST", SYMBOL));
+
+        // 暫停結束後額度已補充 2 秒份（40）
+        clock.addAndGet(2_000);
+        assertNull(limiter.getMetrics().get("pausedUntil"));
+        limiter.acquire("/fapi/v1/order", "GET", SYMBOL);
+
+        limiter.recordResponse(418, null, null, "60");
+        assertEquals(1L, limiter.getMetrics().get("bannedResponses"));
+        clock.addAndGet(59_999);
+        BinanceApiException banned = assertThrows(BinanceApiException.class,
+                () -> limiter.acquire("/fapi/v1/order", "POST", SYMBOL));
+        assertTrue(banned.getMessage().contains("封禁"));
+        clock.addAndGet(1);
+        limiter.acquire("/fapi/v1/order", "POST", SYMBOL);
+    }
+}
@@ -0,0 +1,109 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.config.BinanceConfig;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.BinanceRequestSigner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 請求簽名測試
+ */
+public class BinanceRequestSignerTest {
+
+    // 幣安API文件中的簽名範例
+    private static final String SECRET_KEY = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+    private static final String QUERY = "symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC&quantity=1&price=0.1&recvWindow=5000&timestamp=1499827319559";
+    private static final String SIGNATURE = "c8db56825ae71d6d79447849e617115f4a920fa2acdcab2b053c4b2838bd6b71";
+
+    private static BinanceConfig config(String secretKey) {
+        BinanceConfig config = new BinanceConfig();
+        config.setApiKey("test-api-key");
+        config.setSecretKey(secretKey);
+        return config;
+    }
+
+    @Test
+    @DisplayName("簽名與幣安文件範例一致，重複簽名結果相同")
+    public void testSignatureMatchesDocumentation() {
+        BinanceRequestSigner signer = new BinanceRequestSigner(config(SECRET_KEY));
+
+        assertEquals(SIGNATURE, signer.sign(QUERY));
+        assertEquals(SIGNATURE, signer.sign(QUERY));
+    }
+
+    @Test
+    @DisplayName("秘鑰變更後使用新秘鑰簽名")
+    public void testSecretKeyChange() {
+        BinanceConfig config = config("another-secret");
+        BinanceRequestSigner signer = new BinanceRequestSigner(config);
+        String before = signer.sign(QUERY);
+
+        config.setSecretKey(SECRET_KEY);
+        assertNotEquals(SIGNATURE, before);
+        assertEquals(SIGNATURE, signer.sign(QUERY));
+    }
+
+    @Test
+    @DisplayName("查詢字串附加時間戳與可驗證的簽名")
+    public void testSignedQueryString() {
+        BinanceRequestSigner signer = new BinanceRequestSigner(config(SECRET_KEY));
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("symbol", "BTCUSDT");
+        params.put("limit", 5);
+
+        String query = signer.buildQueryString(params, true);
+        int signatureIndex = query.indexOf("&signature=");
+        assertTrue(query.startsWith("symbol=BTCUSDT&limit=5&timestamp="));
+        assertEquals(64, query.length() - signatureIndex - "&signature=".length());
+        assertEquals(signer.sign(query.substring(0, signatureIndex)), query.substring(signatureIndex + "&signature=".length()));
+
+        assertEquals("symbol=BTCUSDT&limit=5", signer.buildQueryString(params, false));
+    }
+
+    @Test
+    @DisplayName("使用伺服器校正後的時間戳並附加 recvWindow")
+    public void testServerTimeAndRecvWindow() {
+        BinanceTimeSyncService timeSync = new BinanceTimeSyncService() {
+            @Override
+            public long currentTimeMillis() {
+                return 1499827319559L;
+            }
+
+            @Override
+            public long getRecvWindow() {
+                return 5000;
+            }
+
+            @Override
+            public void synchronize() {
+            }
+
+            @Override
+            public Map<String, Object> getMetrics() {
+                return Map.of();
+            }
+        };
+        BinanceRequestSigner signer = new BinanceRequestSigner(config(SECRET_KEY), timeSync);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("symbol", "LTCBTC");
+        params.put("side", "BUY");
+        params.put("type", "LIMIT");
+        params.put("timeInForce", "GTC");
+        params.put("quantity", 1);
+        params.put("price", 0.1);
+
+        // 與幣安文件範例的查詢字串與簽名完全一致
+        assertEquals(QUERY + "&signature=" + SIGNATURE, signer.buildQueryString(params, true));
+
+        // 呼叫者自行指定 recvWindow 時不重複附加
+        params.put("recvWindow", 1000);
+        assertTrue(signer.buildQueryString(params, true).startsWith(
+                "symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC&quantity=1&price=0.1&recvWindow=1000&timestamp=1499827319559&signature="));
+    }
+}
@@ -0,0 +1,116 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 壓縮K線檔案測試
+ */
+public class CandleArchiveTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("candle-archive");
+        file = directory.resolve("BTCUSDT_1m.pca");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * 產生隨機漫步的K線，價格保留兩位小數
+     */
+    private static CandleSeries randomCandles(long startOpenTime, int count, long seed) {
+        Random random = new Random(seed);
+        CandleSeries series = new CandleSeries(count);
+        double price = 30000.0;
+        for (int i = 0; i < count; i++) {
+            double open = price;
+            price = Math.round((price + random.nextGaussian() * 20) * 100) / 100.0;
+            double high = Math.max(open, price) + 5.5;
+            double low = Math.min(open, price) - 3.25;
+            double volume = Math.round(random.nextDouble() * 1_000_000) / 1000.0;
+            long openTime = startOpenTime + i * MINUTE;
+            series.add(openTime, open, high, low, price, volume, openTime + MINUTE - 1,
+                    volume * price, random.nextInt(5000), volume / 2, volume * price / 2);
+        }
+        return series;
+    }
+
+    private static void assertSameCandles(CandleSeries expected, int expectedFrom, CandleSeries actual) {
+        for (int i = 0; i < actual.size(); i++) {
+            int e = expectedFrom + i;
+            assertEquals(expected.getOpenTime(e), actual.getOpenTime(i));
+            assertEquals(expected.getCloseTime(e), actual.getCloseTime(i));
+            assertEquals(expected.getOpen(e), actual.getOpen(i));
+            assertEquals(expected.getHigh(e), actual.getHigh(i));
+            assertEquals(expected.getLow(e), actual.getLow(i));
+            assertEquals(expected.getClose(e), actual.getClose(i));
+            assertEquals(expected.getVolume(e), actual.getVolume(i));
+            assertEquals(expected.getQuoteAssetVolume(e), actual.getQuoteAssetVolume(i));
+            assertEquals(expected.getNumberOfTrades(e), actual.getNumberOfTrades(i));
+            assertEquals(expected.getTakerBuyBaseAssetVolume(e), actual.getTakerBuyBaseAssetVolume(i));
+            assertEquals(expected.getTakerBuyQuoteAssetVolume(e), actual.getTakerBuyQuoteAssetVolume(i));
+        }
+    }
+
+    @Test
+    @DisplayName("分批追加後重新開啟可完整還原")
+    public void testAppendAndReopen() throws IOException {
+        CandleSeries candles = randomCandles(1_700_000_000_000L, 2500, 42);
+        CandleArchive archive = new CandleArchive(file, 256);
+        archive.append(candles.window(0, 1000));
+        archive.append(candles.window(900, 1700));  // 與已儲存的部分重疊
+        archive.append(candles.window(1700, 2500));
+
+        CandleArchive reopened = new CandleArchive(file, 256);
+        assertEquals(2500, reopened.size());
+        assertEquals(candles.getOpenTime(2499), reopened.getLastOpenTime());
+        assertEquals(candles.getCloseTime(2499), reopened.getLastCloseTime());
+
+        CandleSeries all = reopened.readAll();
+        assertEquals(2500, all.size());
+        assertSameCandles(candles, 0, all);
+
+        // 壓縮後應小於未壓縮的 88 bytes/根（隨機成交量的尾數無法壓縮，實際行情會更小）
+        assertTrue(Files.size(file) < 2500L * 88, "檔案大小: " + Files.size(file));
+    }
+
+    @Test
+    @DisplayName("依時間範圍與最後數量讀取")
+    public void testRangeAndTailReads() throws IOException {
+        long start = 1_700_000_000_000L;
+        CandleSeries candles = randomCandles(start, 3000, 7);
+        CandleArchive archive = new CandleArchive(file, 500);
+        archive.rewrite(candles);
+
+        CandleSeries range = archive.read(start + 1234 * MINUTE, start + 1999 * MINUTE);
+        assertEquals(766, range.size());
+        assertSameCandles(candles, 1234, range);
+
+        CandleSeries tail = archive.readLast(1100);
+        assertEquals(1100, tail.size());
+        assertSameCandles(candles, 1900, tail);
+
+        assertEquals(0, archive.read(start - 10 * MINUTE, start - MINUTE).size());
+    }
+}
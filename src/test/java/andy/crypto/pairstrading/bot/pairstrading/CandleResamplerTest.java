@@ -0,0 +1,131 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleResampler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K線重採樣測試
+ */
+public class CandleResamplerTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static long utc(int year, int month, int day, int hour) {
+        return ZonedDateTime.of(year, month, day, hour, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 建立連續的基礎K線，第 i 根開盤價為 100 + i，最高 +2、最低 -1、收盤 +0.5，成交量 i + 1
+     */
+    private static CandleSeries series(long start, long intervalMillis, int count) {
+        CandleSeries series = new CandleSeries(count);
+        for (int i = 0; i < count; i++) {
+            long openTime = start + i * intervalMillis;
+            double open = 100 + i;
+            series.add(openTime, open, open + 2, open - 1, open + 0.5, i + 1, openTime + intervalMillis - 1,
+                    (i + 1) * 10.0, i + 1, (i + 1) * 0.5, (i + 1) * 5.0);
+        }
+        return series;
+    }
+
+    @Test
+    @DisplayName("OHLCV 聚合：開盤取第一根、收盤取最後一根、高低取極值、成交量加總")
+    public void testAggregation() {
+        long start = utc(2024, 3, 15, 13);
+        CandleSeries base = series(start, MINUTE, 60);
+        Map<String, CandleSeries> result = CandleResampler.resample(base, "1m", List.of("5m", "1h"));
+
+        CandleSeries fiveMinutes = result.get("5m");
+        assertEquals(12, fiveMinutes.size());
+        assertEquals(start + 5 * MINUTE, fiveMinutes.getOpenTime(1));
+        assertEquals(start + 10 * MINUTE - 1, fiveMinutes.getCloseTime(1));
+        assertEquals(105.0, fiveMinutes.getOpen(1));
+        assertEquals(111.0, fiveMinutes.getHigh(1));
+        assertEquals(104.0, fiveMinutes.getLow(1));
+        assertEquals(109.5, fiveMinutes.getClose(1));
+        assertEquals(6 + 7 + 8 + 9 + 10, fiveMinutes.getVolume(1));
+        assertEquals(400.0, fiveMinutes.getQuoteAssetVolume(1));
+        assertEquals(40, fiveMinutes.getNumberOfTrades(1));
+        assertEquals(20.0, fiveMinutes.getTakerBuyBaseAssetVolume(1));
+        assertEquals(200.0, fiveMinutes.getTakerBuyQuoteAssetVolume(1));
+
+        CandleSeries hour = result.get("1h");
+        assertEquals(1, hour.size());
+        assertEquals(start, hour.getOpenTime(0));
+        assertEquals(100.0, hour.getOpen(0));
+        assertEquals(161.0, hour.getHigh(0));
+        assertEquals(99.0, hour.getLow(0));
+        assertEquals(159.5, hour.getClose(0));
+        assertEquals(60 * 61 / 2.0, hour.getVolume(0));
+    }
+
+    @Test
+    @DisplayName("時間桶以 UTC 對齊，週線從週一開始，最前面不完整的時間桶被捨棄")
+    public void testUtcAlignment() {
+        // 2024-03-13 為週三，由 10:00 開始的 1h K線
+        long start = utc(2024, 3, 13, 10);
+        CandleSeries base = series(start, HOUR, 24 * 14);
+        Map<String, CandleSeries> result = CandleResampler.resample(base, "1h", List.of("4h", "1d", "1w"));
+
+        CandleSeries fourHours = result.get("4h");
+        assertEquals(utc(2024, 3, 13, 12), fourHours.getOpenTime(0));
+        assertEquals(102.0, fourHours.getOpen(0));
+
+        CandleSeries days = result.get("1d");
+        assertEquals(utc(2024, 3, 14, 0), days.getOpenTime(0));
+        assertEquals(100.0 + 14, days.getOpen(0));
+        for (int i = 0; i < days.size(); i++) {
+            assertEquals(0, days.getOpenTime(i) % (24 * HOUR));
+        }
+
+        CandleSeries weeks = result.get("1w");
+        assertEquals(utc(2024, 3, 18, 0), weeks.getOpenTime(0));
+        assertEquals(DayOfWeek.MONDAY, Instant.ofEpochMilli(weeks.getOpenTime(0)).atZone(ZoneOffset.UTC).getDayOfWeek());
+        assertEquals(utc(2024, 3, 25, 0) - 1, weeks.getCloseTime(0));
+        // 週一 00:00 為第 110 根基礎K線，完整一週 168 根
+        assertEquals(210.0, weeks.getOpen(0));
+        assertEquals((111 + 278) * 168 / 2.0, weeks.getVolume(0));
+    }
+
+    @Test
+    @DisplayName("最後不完整的時間桶保留為未收盤K線，收盤時間晚於基礎序列")
+    public void testTrailingPartialBucket() {
+        long start = utc(2024, 3, 15, 0);
+        CandleSeries base = series(start, MINUTE, 13);
+        CandleSeries result = CandleResampler.resample(base, "1m", "5m");
+
+        assertEquals(3, result.size());
+        assertTrue(result.getCloseTime(1) <= base.getCloseTime(base.size() - 1));
+        // 最後一個時間桶只有 10、11、12 分三根
+        int last = result.size() - 1;
+        assertEquals(start + 15 * MINUTE - 1, result.getCloseTime(last));
+        assertTrue(result.getCloseTime(last) > base.getCloseTime(base.size() - 1));
+        assertEquals(110.0, result.getOpen(last));
+        assertEquals(112.5, result.getClose(last));
+        assertEquals(11 + 12 + 13, result.getVolume(last));
+    }
+
+    @Test
+    @DisplayName("只有整數倍的固定長度間隔可以重採樣")
+    public void testResampleable() {
+        assertTrue(CandleResampler.isResampleable("1m", "15m"));
+        assertTrue(CandleResampler.isResampleable("1h", "1w"));
+        assertFalse(CandleResampler.isResampleable("5m", "7m"));
+        assertFalse(CandleResampler.isResampleable("1h", "1m"));
+        assertFalse(CandleResampler.isResampleable("1d", "1M"));
+        assertThrows(IllegalArgumentException.class,
+                () -> CandleResampler.resample(series(0, MINUTE, 3), "1m", "1M"));
+    }
+}
@@ -0,0 +1,89 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner.AlignedCandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleSeriesAligner.GapPolicy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K線序列對齊測試
+ */
+public class CandleSeriesAlignerTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    /**
+     * 以小時為單位建立K線序列，收盤價等於小時序號
+     */
+    private static CandleSeries series(long... hours) {
+        CandleSeries series = new CandleSeries(hours.length);
+        for (long h : hours) {
+            double price = h;
+            series.add(h * HOUR, price, price, price, price, 1.0, (h + 1) * HOUR - 1, 1.0, 1, 0.5, 0.5);
+        }
+        return series;
+    }
+
+    @Test
+    @DisplayName("時間完全一致時不產生缺口")
+    public void testIdenticalTimestamps() {
+        AlignedCandleSeries aligned = CandleSeriesAligner.align(series(0, 1, 2, 3), series(0, 1, 2, 3), GapPolicy.FAIL);
+
+        assertEquals(4, aligned.size());
+        assertFalse(aligned.getGapReport().hasGaps());
+        assertEquals(0, aligned.getGapReport().getTrimmedCount());
+    }
+
+    @Test
+    @DisplayName("共同範圍以外的K線只裁切不視為缺口")
+    public void testTrimNonOverlappingEdges() {
+        AlignedCandleSeries aligned = CandleSeriesAligner.align(series(0, 1, 2, 3), series(1, 2, 3, 4), GapPolicy.FAIL);
+
+        assertEquals(3, aligned.size());
+        assertEquals(1 * HOUR, aligned.getAsset1Series().getOpenTime(0));
+        assertEquals(1 * HOUR, aligned.getAsset2Series().getOpenTime(0));
+        assertEquals(2, aligned.getGapReport().getTrimmedCount());
+        assertFalse(aligned.getGapReport().hasGaps());
+    }
+
+    @Test
+    @DisplayName("DROP 策略捨棄缺口並保持後續K線對齊")
+    public void testDropPolicy() {
+        AlignedCandleSeries aligned = CandleSeriesAligner.align(series(0, 1, 2, 3, 4), series(0, 1, 3, 4), GapPolicy.DROP);
+
+        assertEquals(4, aligned.size());
+        for (int i = 0; i < aligned.size(); i++) {
+            assertEquals(aligned.getAsset1Series().getOpenTime(i), aligned.getAsset2Series().getOpenTime(i));
+            assertEquals(aligned.getAsset1Series().getClose(i), aligned.getAsset2Series().getClose(i));
+        }
+        assertEquals(List.of(2 * HOUR), aligned.getGapReport().getAsset2MissingOpenTimes());
+        assertTrue(aligned.getGapReport().getAsset1MissingOpenTimes().isEmpty());
+    }
+
+    @Test
+    @DisplayName("FORWARD_FILL 策略以前一根收盤價補齊缺口")
+    public void testForwardFillPolicy() {
+        AlignedCandleSeries aligned = CandleSeriesAligner.align(series(0, 2, 3), series(0, 1, 2, 3), GapPolicy.FORWARD_FILL);
+
+        assertEquals(4, aligned.size());
+        assertEquals(1 * HOUR, aligned.getAsset1Series().getOpenTime(1));
+        assertEquals(0.0, aligned.getAsset1Series().getClose(1));
+        assertEquals(0.0, aligned.getAsset1Series().getVolume(1));
+        assertEquals(1.0, aligned.getAsset2Series().getClose(1));
+        assertEquals(1, aligned.getGapReport().getFilledCount());
+        assertEquals(List.of(1 * HOUR), aligned.getGapReport().getAsset1MissingOpenTimes());
+    }
+
+    @Test
+    @DisplayName("FAIL 策略在缺口時拋出異常")
+    public void testFailPolicy() {
+        assertThrows(IllegalStateException.class,
+                () -> CandleSeriesAligner.align(series(0, 1, 2, 3), series(0, 2, 3), GapPolicy.FAIL));
+    }
+}
@@ -0,0 +1,99 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceAsyncApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceTimeSyncService;
+import andy.crypto.pairstrading.bot.pairstrading.service.KlineBackfillService;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.CandleStoreServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 本地K線儲存服務測試
+ * 以替身模擬上市不久、交易所歷史K線少於所需數量的交易對，驗證不重複請求不存在的歷史數據
+ */
+@ExtendWith(MockitoExtension.class)
+public class CandleStoreServiceTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long FIRST_OPEN_TIME = 1_700_000_000_000L / HOUR * HOUR;
+
+    @Mock
+    private BinanceApiService binanceApiService;
+
+    @Mock
+    private BinanceAsyncApiService binanceAsyncApiService;
+
+    @Mock
+    private KlineBackfillService klineBackfillService;
+
+    @Mock
+    private BinanceTimeSyncService timeSyncService;
+
+    @InjectMocks
+    private CandleStoreServiceImpl candleStoreService;
+
+    @TempDir
+    Path storeDir;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(candleStoreService, "storeDir", storeDir.toString());
+        when(timeSyncService.currentTimeMillis()).thenReturn(FIRST_OPEN_TIME + 100 * HOUR);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        candleStoreService.shutdown();
+    }
+
+    private static CandleSeries candles(long firstOpenTime, int count) {
+        CandleSeries series = new CandleSeries(count);
+        for (int i = 0; i < count; i++) {
+            long openTime = firstOpenTime + i * HOUR;
+            series.add(openTime, 1.0, 1.1, 0.9, 1.0 + i * 0.01, 100.0, openTime + HOUR - 1, 100.0, 10, 50.0, 50.0);
+        }
+        return series;
+    }
+
+    @Test
+    @DisplayName("交易所沒有更早的K線時只回補一次，之後不再請求")
+    public void testNoRepeatedBackfillBeforeListing() {
+        // 交易所只有 3 根已收盤K線
+        when(binanceApiService.getCandleSeries(eq("NEWUSDT"), eq("1h"), isNull(), isNull(), eq(10)))
+                .thenReturn(candles(FIRST_OPEN_TIME, 3));
+        when(klineBackfillService.getCandleSeries(eq("NEWUSDT"), eq("1h"), anyLong(), eq(FIRST_OPEN_TIME - 1)))
+                .thenReturn(new CandleSeries(1));
+        // 呼叫間隔超過同步共用時間時的增量請求沒有新K線
+        lenient().when(binanceApiService.getCandleSeries(eq("NEWUSDT"), eq("1h"), anyLong(), isNull(), anyInt()))
+                .thenReturn(new CandleSeries(1));
+
+        assertEquals(3, candleStoreService.getCandleSeries("NEWUSDT", "1h", 10).size());
+        assertEquals(3, candleStoreService.getCandleSeries("NEWUSDT", "1h", 10).size());
+        assertEquals(3, candleStoreService.getCandleSeries("NEWUSDT", "1h", 20).size());
+        assertEquals(3, candleStoreService.getCandleSeries("NEWUSDT", "1h", FIRST_OPEN_TIME - 5 * HOUR, FIRST_OPEN_TIME + 5 * HOUR).size());
+
+        verify(klineBackfillService, times(1)).getCandleSeries(eq("NEWUSDT"), eq("1h"), anyLong(), anyLong());
+    }
+}
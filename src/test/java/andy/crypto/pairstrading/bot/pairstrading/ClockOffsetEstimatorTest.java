@@ -0,0 +1,59 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.ClockOffsetEstimator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 時鐘偏移估計測試
+ */
+public class ClockOffsetEstimatorTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("以往返時間中點校正，估計值取往返時間最短的樣本")
+    public void testMinimumRttSampleWins() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(8);
+        assertEquals(0L, estimator.getOffsetMillis(T0));
+        assertTrue(Double.isNaN(estimator.getErrorBoundMillis(T0)));
+
+        // 本地時鐘比伺服器快 500ms；請求在往返時間中點到達伺服器
+        estimator.addSample(T0, 40.0, T0 - 500 + 20);
+        // 去程延遲特別長的樣本，單看此樣本會高估偏移
+        estimator.addSample(T0 + 1000, 400.0, T0 + 1000 - 500 + 350);
+        estimator.addSample(T0 + 2000, 10.0, T0 + 2000 - 500 + 5);
+
+        assertEquals(-500L, estimator.getOffsetMillis(T0 + 2010));
+        assertEquals(5.0, estimator.getErrorBoundMillis(T0 + 2000), 1e-9);
+        assertEquals(3, estimator.getSampleCount());
+    }
+
+    @Test
+    @DisplayName("舊樣本的誤差上限隨時間增加，由較新的樣本取代")
+    public void testOldSamplesAge() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(8);
+        estimator.addSample(T0, 2.0, T0 + 100 + 1);
+        // 一小時後本地時鐘又漂移了 30ms，新樣本的往返時間較長
+        long later = T0 + 3_600_000L;
+        estimator.addSample(later, 20.0, later + 130 + 10);
+
+        // 舊樣本誤差上限 1ms + 3600000ms * 15ppm = 55ms，大於新樣本的 10ms
+        assertEquals(130L, estimator.getOffsetMillis(later));
+        assertEquals(10.0, estimator.getErrorBoundMillis(later), 1e-9);
+    }
+
+    @Test
+    @DisplayName("超過視窗大小時捨棄最舊的樣本")
+    public void testWindowEviction() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(2);
+        estimator.addSample(T0, 1.0, T0 + 7);
+        estimator.addSample(T0 + 10, 50.0, T0 + 10 + 25 + 3);
+        estimator.addSample(T0 + 20, 60.0, T0 + 20 + 30 + 4);
+
+        assertEquals(2, estimator.getSampleCount());
+        assertEquals(3L, estimator.getOffsetMillis(T0 + 20));
+    }
+}
@@ -0,0 +1,67 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.KalmanHedgeFilter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 卡爾曼濾波對沖比率測試
+ */
+public class KalmanHedgeFilterTest {
+
+    @Test
+    @DisplayName("關係不變時對沖比率維持在真實值，Z分數約為標準常態")
+    public void testStableRelationship() {
+        int warmUp = 200;
+        int total = 1200;
+        Random random = new Random(3L);
+        double[] x = new double[total];
+        double[] y = new double[total];
+        double level = 150.0;
+        for (int i = 0; i < total; i++) {
+            level += random.nextGaussian() * 5.0;
+            x[i] = level;
+            y[i] = 10.0 + 4.0 * level + random.nextGaussian() * 0.5;
+        }
+
+        KalmanHedgeFilter filter = new KalmanHedgeFilter(1e-3, 0);
+        filter.initialize(Arrays.copyOfRange(x, 0, warmUp), Arrays.copyOfRange(y, 0, warmUp));
+        assertEquals(4.0, filter.getBeta(), 0.01);
+        assertEquals(0.25, filter.getObservationNoise(), 0.05);
+
+        double sumSquaredZ = 0;
+        for (int i = warmUp; i < total; i++) {
+            double spread = filter.update(x[i], y[i]);
+            assertEquals(spread / filter.getSpreadStd(), filter.getZScore(), 1e-12);
+            sumSquaredZ += filter.getZScore() * filter.getZScore();
+        }
+        assertEquals(4.0, filter.getBeta(), 0.01);
+        assertEquals(1.0, Math.sqrt(sumSquaredZ / (total - warmUp)), 0.15);
+    }
+
+    @Test
+    @DisplayName("重新處理最新一根K線等同於直接以最終值更新")
+    public void testReplaceLast() {
+        double[] x = {100.0, 101.0, 102.5, 101.5, 103.0};
+        double[] y = {210.0, 212.5, 215.0, 213.0, 216.5};
+        KalmanHedgeFilter updated = new KalmanHedgeFilter(1e-4, 0.25);
+        KalmanHedgeFilter direct = new KalmanHedgeFilter(1e-4, 0.25);
+        updated.initialize(x, y);
+        direct.initialize(x, y);
+
+        updated.update(104.0, 219.0);
+        updated.replaceLast(104.5, 218.0);
+        double spread = updated.replaceLast(104.2, 218.6);
+        assertEquals(direct.update(104.2, 218.6), spread, 1e-12);
+        assertEquals(direct.getAlpha(), updated.getAlpha(), 1e-12);
+        assertEquals(direct.getBeta(), updated.getBeta(), 1e-12);
+        assertEquals(direct.getZScore(), updated.getZScore(), 1e-12);
+
+        assertThrows(IllegalStateException.class, () -> new KalmanHedgeFilter(1e-4, 0).update(1.0, 2.0));
+    }
+}
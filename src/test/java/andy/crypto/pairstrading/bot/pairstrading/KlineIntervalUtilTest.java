@@ -0,0 +1,51 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineIntervalUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K線間隔對齊測試
+ */
+public class KlineIntervalUtilTest {
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    @Test
+    @DisplayName("固定長度的間隔自 UTC 零點等長切分")
+    public void testFixedIntervals() {
+        long time = utc(2024, 3, 15, 13, 47) + 12_345;
+        assertEquals(utc(2024, 3, 15, 13, 45), KlineIntervalUtil.openTimeOf(time, "15m"));
+        assertEquals(utc(2024, 3, 15, 12, 0), KlineIntervalUtil.openTimeOf(time, "4h"));
+        assertEquals(utc(2024, 3, 15, 0, 0), KlineIntervalUtil.openTimeOf(time, "1d"));
+        assertEquals(utc(2024, 3, 15, 13, 0) - 1, KlineIntervalUtil.lastClosedCloseTime(time, "1h"));
+        assertEquals(utc(2024, 3, 15, 14, 0), KlineIntervalUtil.nextOpenTime(utc(2024, 3, 15, 13, 0), "1h"));
+        // 剛好在邊界上時屬於新的K線
+        assertEquals(utc(2024, 3, 15, 14, 0), KlineIntervalUtil.openTimeOf(utc(2024, 3, 15, 14, 0), "1h"));
+    }
+
+    @Test
+    @DisplayName("週線對齊週一、月線對齊每月1日")
+    public void testCalendarIntervals() {
+        long time = utc(2024, 3, 15, 13, 47);  // 週五
+        long weekOpen = KlineIntervalUtil.openTimeOf(time, "1w");
+        assertEquals(utc(2024, 3, 11, 0, 0), weekOpen);
+        assertEquals(DayOfWeek.MONDAY, Instant.ofEpochMilli(weekOpen).atZone(ZoneOffset.UTC).getDayOfWeek());
+        assertEquals(utc(2024, 3, 18, 0, 0), KlineIntervalUtil.nextOpenTime(weekOpen, "1w"));
+
+        assertEquals(utc(2024, 3, 1, 0, 0), KlineIntervalUtil.openTimeOf(time, "1M"));
+        assertEquals(utc(2024, 3, 1, 0, 0), KlineIntervalUtil.nextOpenTime(utc(2024, 2, 1, 0, 0), "1M"));
+        assertEquals(utc(2024, 2, 1, 0, 0), KlineIntervalUtil.nextOpenTime(utc(2024, 1, 1, 0, 0), "1M"));
+        assertEquals(utc(2024, 3, 1, 0, 0) - 1, KlineIntervalUtil.lastClosedCloseTime(utc(2024, 3, 31, 23, 59), "1M"));
+        assertEquals(utc(2024, 1, 1, 0, 0) - 1, KlineIntervalUtil.lastClosedCloseTime(utc(2024, 1, 1, 0, 0), "1M"));
+    }
+}
@@ -0,0 +1,89 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.model.CandlestickData;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineJsonDecoder;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K線串流解碼器測試
+ */
+public class KlineJsonDecoderTest {
+
+    private static double parse(String text) {
+        // 放在較大緩衝區的中間，確認 offset 與 length 的處理
+        char[] buffer = ("[\"" + text + "\"]").toCharArray();
+        return KlineJsonDecoder.parseDecimal(buffer, 2, text.length());
+    }
+
+    @Test
+    @DisplayName("各種十進位字串的解析結果與 Double.parseDouble 相同")
+    public void testParseDecimalCases() {
+        String[] cases = {
+                "0", "0.0", "-0", "1", "-1", "+2.5", "12345.6700", "-0.00012300", "0.1", "0.3",
+                "1e5", "1.5E-3", "-2.25e+10", "6.02214076e23",
+                "0.12345678901234567890123456789", "123456789.123456789", "9007199254740993",
+                "0.0000000000000000000001", "0.00000000000000000000001", ".5", "5."
+        };
+        for (String text : cases) {
+            assertEquals(Double.parseDouble(text), parse(text), 0.0, text);
+        }
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(parse("-0")));
+        assertThrows(NumberFormatException.class, () -> parse("abc"));
+        assertThrows(NumberFormatException.class, () -> parse("-"));
+    }
+
+    @Test
+    @DisplayName("隨機價格字串與 Double.parseDouble 逐位元相同")
+    public void testParseDecimalRoundTrip() {
+        Random random = new Random(42L);
+        for (int i = 0; i < 100_000; i++) {
+            int scale = random.nextInt(12);
+            long unscaled = random.nextLong() % 10_000_000_000_000L;
+            String text = BigDecimal.valueOf(unscaled, scale).toPlainString();
+            assertEquals(Double.doubleToRawLongBits(Double.parseDouble(text)),
+                    Double.doubleToRawLongBits(parse(text)), text);
+        }
+    }
+
+    @Test
+    @DisplayName("小數位數計算")
+    public void testDecimalScale() {
+        assertEquals(4, KlineJsonDecoder.decimalScale("12345.6700".toCharArray(), 0, 10));
+        assertEquals(0, KlineJsonDecoder.decimalScale("0".toCharArray(), 0, 1));
+        assertEquals(3, KlineJsonDecoder.decimalScale("-0.001".toCharArray(), 0, 6));
+        assertEquals(-1, KlineJsonDecoder.decimalScale("1.5e-3".toCharArray(), 0, 6));
+    }
+
+    @Test
+    @DisplayName("解碼後轉換為 BigDecimal 時保留回應中的小數位數")
+    public void testDecodeKeepsScale() throws Exception {
+        String json = "[[1700000000000,\"0.01000\",\"0.01250\",\"0.00990\",\"0.01200\",\"1500.0\",1700003599999,"
+                + "\"18.00000\",42,\"700.0\",\"8.40000\",\"0\"],"
+                + "[1700003600000,\"0.01200\",\"0.01300\",\"0.01100\",\"0.01150\",\"2000.5\",1700007199999,"
+                + "\"23.00575\",50,\"1000.0\",\"11.50000\",\"0\"]]";
+        CandleSeries series = KlineJsonDecoder.decode(new JsonFactory(), json, 2);
+
+        assertEquals(2, series.size());
+        assertEquals(0.0115, series.getLastClose());
+        CandlestickData first = series.toCandlestickData(0);
+        assertEquals(new BigDecimal("0.01000"), first.getOpen());
+        assertEquals(new BigDecimal("1500.0"), first.getVolume());
+        assertEquals(new BigDecimal("18.00000"), first.getQuoteAssetVolume());
+        assertEquals(42, first.getNumberOfTrades().intValue());
+        // 視圖沿用來源序列的小數位數
+        assertEquals(new BigDecimal("0.01150"), series.last(1).toCandlestickData(0).getClose());
+
+        // 沒有小數位數資訊的序列使用最短表示
+        CandleSeries copy = new CandleSeries(1);
+        copy.addFrom(series, 0);
+        assertEquals(new BigDecimal("0.01"), copy.toCandlestickData(0).getOpen());
+    }
+}
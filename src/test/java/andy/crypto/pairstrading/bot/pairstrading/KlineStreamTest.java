@@ -0,0 +1,129 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.CandleSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.BinanceStreamClient;
+import andy.crypto.pairstrading.bot.pairstrading.util.CandleRingBuffer;
+import andy.crypto.pairstrading.bot.pairstrading.util.KlineStreamBook;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K線數據流測試
+ * 錄製檔包含 BTCUSDT 與 ETHUSDT 的 1m K線事件，ETHUSDT 遺漏第 2 分鐘（模擬斷線）
+ */
+public class KlineStreamTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long START = 1_699_999_980_000L;  // 錄製檔第一根K線的開盤時間
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 建立收盤價等於分鐘序號的1m K線
+     */
+    private static CandleSeries minutes(int from, int toExclusive) {
+        CandleSeries series = new CandleSeries(toExclusive - from);
+        for (int m = from; m < toExclusive; m++) {
+            long openTime = START + m * MINUTE;
+            series.add(openTime, m, m, m, m, 1.0, openTime + MINUTE - 1, 1.0, 1, 0.5, 0.5);
+        }
+        return series;
+    }
+
+    @Test
+    @DisplayName("重播錄製的數據流、偵測缺口並在伺服器斷線後自動重連")
+    public void testReplayGapDetectionAndReconnect() throws Exception {
+        List<String> recording = LocalWebSocketServer.loadRecording("/kline-stream-recording.jsonl");
+        KlineStreamBook book = new KlineStreamBook("1m", 100);
+        book.retain(List.of("BTCUSDT", "ETHUSDT"));
+        Set<String> gapSymbols = ConcurrentHashMap.newKeySet();
+        CountDownLatch received = new CountDownLatch(recording.size() * 2);
+        CountDownLatch connected = new CountDownLatch(2);
+
+        try (LocalWebSocketServer server = new LocalWebSocketServer(recording, true)) {
+            BinanceStreamClient client = new BinanceStreamClient("kline-test",
+                    () -> server.getUri("/stream?streams=btcusdt@kline_1m/ethusdt@kline_1m"),
+                    message -> {
+                        try {
+                            String gapSymbol = book.apply(objectMapper.readTree(message));
+                            if (gapSymbol != null) {
+                                gapSymbols.add(gapSymbol);
+                            }
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        received.countDown();
+                    }, connected::countDown, 50);
+            client.start();
+            try {
+                // 伺服器重播完畢即斷線，客戶端重連後會再收到一次相同的訊息
+                assertTrue(connected.await(10, TimeUnit.SECONDS), "未重新連線");
+                assertTrue(received.await(10, TimeUnit.SECONDS), "未收到全部事件");
+            } finally {
+                client.stop();
+            }
+        }
+
+        assertEquals(Set.of("ETHUSDT"), gapSymbols);
+
+        // 重播是冪等的：已收盤K線不重複，最後一根為第 4 分鐘的未收盤K線
+        CandleSeries btc = book.getCandleSeries("BTCUSDT", 10, true);
+        assertEquals(5, btc.size());
+        for (int m = 0; m < 5; m++) {
+            assertEquals(START + m * MINUTE, btc.getOpenTime(m));
+        }
+        assertEquals(37004.5, btc.getClose(4));
+        assertEquals(4, book.getCandleSeries("BTCUSDT", 10, false).size());
+
+        // ETHUSDT 缺少第 2 分鐘，以 REST 補齊後序列連續
+        assertEquals(3, book.getCandleSeries("ETHUSDT", 10, false).size());
+        book.fill("ETHUSDT", minutes(0, 5), START + 4 * MINUTE + 30_000L);
+        CandleSeries eth = book.getCandleSeries("ETHUSDT", 10, true);
+        assertEquals(5, eth.size());
+        for (int m = 0; m < 5; m++) {
+            assertEquals(START + m * MINUTE, eth.getOpenTime(m));
+        }
+        // 數據流已有的K線以數據流為準，只補入缺少的第 2 分鐘
+        assertEquals(2001.5, eth.getClose(1));
+        assertEquals(2.0, eth.getClose(2));
+    }
+
+    @Test
+    @DisplayName("環形緩衝區超過容量時覆蓋最舊K線，合併時保留最新的部分")
+    public void testRingBufferWrapAndMerge() {
+        CandleRingBuffer buffer = new CandleRingBuffer(5);
+        CandleSeries candles = minutes(0, 12);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.addClosed(candles.getOpenTime(i), i, i, i, i, 1.0, candles.getCloseTime(i), 1.0, 1, 0.5, 0.5));
+        }
+        assertEquals(5, buffer.size());
+        assertEquals(START + 7 * MINUTE, buffer.getLastClosedOpenTime().longValue());
+        // 較舊的K線不可直接追加
+        assertFalse(buffer.addClosed(candles.getOpenTime(2), 2, 2, 2, 2, 1.0, candles.getCloseTime(2), 1.0, 1, 0.5, 0.5));
+
+        buffer.updatePartial(candles.getOpenTime(8), 8, 8, 8, 8.5, 1.0, candles.getCloseTime(8), 1.0, 1, 0.5, 0.5);
+        CandleSeries withPartial = buffer.toCandleSeries(3, true);
+        assertEquals(3, withPartial.size());
+        assertEquals(6.0, withPartial.getClose(0));
+        assertEquals(8.5, withPartial.getClose(2));
+
+        // 合併跨越已保存範圍的K線，收盤後未收盤K線被取代
+        buffer.merge(candles.window(5, 10));
+        assertEquals(5, buffer.size());
+        CandleSeries merged = buffer.toCandleSeries(10, true);
+        assertEquals(5, merged.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(START + (5 + i) * MINUTE, merged.getOpenTime(i));
+        }
+        assertNull(buffer.getPartialClose());
+    }
+}
@@ -0,0 +1,150 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 測試用的本機 WebSocket 替身
+ * 每個連線完成握手後依序重播預先錄製的文字訊息（每則拆成兩個分段送出），
+ * 可選擇重播完畢後由伺服器關閉連線，用於驗證客戶端的重連
+ */
+public class LocalWebSocketServer implements AutoCloseable {
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket serverSocket;
+    private final List<String> messages;
+    private final boolean closeAfterReplay;
+    private final Thread acceptThread;
+    private final List<Socket> sockets = new ArrayList<>();
+
+    public LocalWebSocketServer(List<String> messages, boolean closeAfterReplay) throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        this.messages = messages;
+        this.closeAfterReplay = closeAfterReplay;
+        this.acceptThread = new Thread(this::acceptLoop, "local-websocket");
+        this.acceptThread.setDaemon(true);
+        this.acceptThread.start();
+    }
+
+    /**
+     * 讀取 classpath 上的錄製檔，每行一則訊息
+     */
+    public static List<String> loadRecording(String resource) throws IOException {
+        try (InputStream in = LocalWebSocketServer.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("找不到錄製檔: " + resource);
+            }
+            List<String> lines = new ArrayList<>();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isBlank()) {
+                    lines.add(line.trim());
+                }
+            }
+            return lines;
+        }
+    }
+
+    public URI getUri(String path) {
+        return URI.create("ws://localhost:" + serverSocket.getLocalPort() + path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                synchronized (sockets) {
+                    sockets.add(socket);
+                }
+                Thread thread = new Thread(() -> serve(socket), "local-websocket-conn");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // 伺服器已關閉
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            String key = null;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("sec-websocket-key:")) {
+                    key = line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+            String accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                    .digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+            for (String message : messages) {
+                byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+                int half = payload.length / 2;
+                writeFrame(out, 0x01, false, payload, 0, half);
+                writeFrame(out, 0x00, true, payload, half, payload.length - half);
+            }
+            if (closeAfterReplay) {
+                // 狀態碼 1001 (going away)，與交易所維護斷線相同
+                writeFrame(out, 0x08, true, new byte[]{0x03, (byte) 0xE9}, 0, 2);
+            }
+            out.flush();
+            // 等待客戶端關閉連線
+            while (in.read() != -1) {
+                // 忽略客戶端送出的資料
+            }
+        } catch (Exception e) {
+            // 連線被關閉
+        }
+    }
+
+    /**
+     * 讀取一行 HTTP 標頭（不使用緩衝讀取，避免吃掉之後的 WebSocket 資料）
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return b == -1 && line.length() == 0 ? null : line.toString();
+    }
+
+    private static void writeFrame(OutputStream out, int opcode, boolean fin, byte[] payload, int offset, int length)
+            throws IOException {
+        out.write((fin ? 0x80 : 0x00) | opcode);
+        if (length < 126) {
+            out.write(length);
+        } else {
+            out.write(126);
+            out.write(length >>> 8);
+            out.write(length & 0xFF);
+        }
+        out.write(payload, offset, length);
+    }
+}
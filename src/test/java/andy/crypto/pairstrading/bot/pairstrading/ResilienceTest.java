@@ -0,0 +1,102 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.CircuitBreaker;
+import andy.crypto.pairstrading.bot.pairstrading.util.LatencyTracker;
+import andy.crypto.pairstrading.bot.pairstrading.util.RetryBudget;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 容錯元件測試
+ */
+public class ResilienceTest {
+
+    @Test
+    @DisplayName("斷路器在失敗率達到門檻時開啟，冷卻後只放行一個探測請求")
+    public void testCircuitBreakerTransitions() {
+        AtomicLong clock = new AtomicLong(1_000L);
+        CircuitBreaker breaker = new CircuitBreaker("TEST", 10, 4, 0.5, 30_000L, clock::get);
+
+        // 呼叫數不足時即使全部失敗也不開啟
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+
+        // 冷卻後進入半開，探測失敗重新開啟
+        clock.addAndGet(30_000L);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(), "半開狀態只允許一個探測請求");
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 再次冷卻，探測成功後恢復並清空統計
+        clock.addAndGet(30_000L);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("重試預算限制重試量為請求量的固定比例")
+    public void testRetryBudget() {
+        RetryBudget budget = new RetryBudget(0.1, 2.0);
+
+        // 初始額度允許少量重試
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+
+        // 十個請求換得一次重試
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+
+        // 額度不超過上限
+        for (int i = 0; i < 1000; i++) {
+            budget.deposit();
+        }
+        assertEquals(2.0, budget.getTokens(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("延遲百分位數只統計最近的樣本")
+    public void testLatencyPercentile() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        assertEquals(-1, tracker.getPercentile(0.95));
+
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i);
+        }
+        assertEquals(100, tracker.getSampleCount());
+        assertEquals(95, tracker.getPercentile(0.95));
+        assertEquals(50, tracker.getPercentile(0.5));
+
+        // 新樣本覆蓋最舊的樣本
+        for (int i = 0; i < 100; i++) {
+            tracker.record(1000);
+        }
+        assertEquals(100, tracker.getSampleCount());
+        assertEquals(1000, tracker.getPercentile(0.5));
+    }
+}
@@ -0,0 +1,75 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.RollingPairStatistics;
+import andy.crypto.pairstrading.bot.pairstrading.util.StatisticalUtils;
+import andy.crypto.pairstrading.bot.pairstrading.util.StatisticalUtils.OrthogonalRegressionResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 固定窗口配對統計量測試
+ */
+public class RollingPairStatisticsTest {
+
+    @Test
+    @DisplayName("長時間滾動後的統計量與窗口重新計算的結果一致")
+    public void testRollingMatchesFullRecomputation() {
+        int window = 200;
+        int total = 20_000;
+        Random random = new Random(7L);
+        double[] x = new double[total];
+        double[] y = new double[total];
+        double level = 30_000.0;
+        for (int i = 0; i < total; i++) {
+            level += random.nextGaussian() * 20.0;
+            x[i] = level + random.nextGaussian() * 5.0;
+            y[i] = 120.0 + 0.065 * level + random.nextGaussian() * 0.4;
+        }
+
+        RollingPairStatistics rolling = new RollingPairStatistics(window);
+        for (int i = 0; i < total; i++) {
+            rolling.add(x[i], y[i]);
+        }
+        assertTrue(rolling.isFull());
+        assertEquals(window, rolling.size());
+        assertEquals(x[total - window], rolling.getX(0));
+        assertEquals(y[total - 1], rolling.getY(window - 1));
+
+        double[] windowX = Arrays.copyOfRange(x, total - window, total);
+        double[] windowY = Arrays.copyOfRange(y, total - window, total);
+        OrthogonalRegressionResult expected = StatisticalUtils.computeOrthogonalRegression(windowX, windowY, null);
+
+        assertEquals(StatisticalUtils.pineCorrelation(windowX, windowY), rolling.getCorrelation(), 1e-8);
+        assertEquals(expected.getBeta(), rolling.getBeta(), Math.abs(expected.getBeta()) * 1e-9);
+        assertEquals(expected.getAlpha(), rolling.getAlpha(), Math.abs(expected.getAlpha()) * 1e-9 + 1e-6);
+        assertEquals(expected.getStd(), rolling.getSpreadStd(), expected.getStd() * 1e-8);
+    }
+
+    @Test
+    @DisplayName("取代最新一點等同於直接加入最終值")
+    public void testReplaceLast() {
+        RollingPairStatistics updated = new RollingPairStatistics(3);
+        RollingPairStatistics direct = new RollingPairStatistics(3);
+        double[][] points = {{10.0, 21.0}, {11.0, 23.5}, {12.5, 24.0}, {13.0, 27.0}};
+        for (int i = 0; i < points.length - 1; i++) {
+            updated.add(points[i][0], points[i][1]);
+            direct.add(points[i][0], points[i][1]);
+        }
+        // 盤中價格變動後收盤
+        updated.add(14.0, 26.0);
+        updated.replaceLast(13.5, 29.0);
+        updated.replaceLast(points[3][0], points[3][1]);
+        direct.add(points[3][0], points[3][1]);
+
+        assertEquals(direct.getX(0), updated.getX(0));
+        assertEquals(direct.getCorrelation(), updated.getCorrelation(), 1e-12);
+        assertEquals(direct.getBeta(), updated.getBeta(), 1e-12);
+        assertEquals(direct.getAlpha(), updated.getAlpha(), 1e-12);
+        assertEquals(direct.getSpreadStd(), updated.getSpreadStd(), 1e-12);
+    }
+}
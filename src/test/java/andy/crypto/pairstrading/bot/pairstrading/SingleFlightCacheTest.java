@@ -0,0 +1,100 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.SingleFlightCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 單次執行快取測試
+ * 驗證並發呼叫共用同一次載入，以及注入時鐘後結果在有效期後過期
+ */
+public class SingleFlightCacheTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("並發呼叫只執行一次載入並共用結果")
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(2_000L, clock::get);
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("prices", () -> {
+                loaderStarted.countDown();
+                await(releaseLoader);
+                return loads.incrementAndGet();
+            })));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+
+            // 載入進行中時的其他呼叫等待同一個結果
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("prices", loads::incrementAndGet)));
+            }
+            releaseLoader.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("結果在有效期內重複使用，過期後重新載入")
+    public void testEntryExpiresAfterTtl() {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(2_000L, clock::get);
+
+        assertEquals(1, cache.get("prices", loads::incrementAndGet));
+        clock.addAndGet(1_999);
+        assertEquals(1, cache.get("prices", loads::incrementAndGet));
+        clock.addAndGet(1);
+        assertEquals(2, cache.get("prices", loads::incrementAndGet));
+        assertEquals(2, loads.get());
+
+        cache.invalidateAll();
+        assertEquals(3, cache.get("prices", loads::incrementAndGet));
+    }
+
+    @Test
+    @DisplayName("載入失敗或返回 null 時不快取")
+    public void testFailuresAreNotCached() {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(2_000L, clock::get);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("prices", () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("snapshot failed");
+        }));
+        assertNull(cache.get("prices", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(3, cache.get("prices", loads::incrementAndGet));
+        assertEquals(3, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.util.SlidingWindowWeightBudget;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 滑動窗口權重額度測試
+ */
+public class SlidingWindowWeightBudgetTest {
+
+    @Test
+    @DisplayName("額度用盡後等待最早的取用移出窗口")
+    public void testExhaustionAndRollOver() {
+        AtomicLong clock = new AtomicLong(1_000_000L);
+        SlidingWindowWeightBudget budget = new SlidingWindowWeightBudget(30, 60_000L, clock::get);
+
+        assertEquals(0, budget.tryAcquire(10));
+        clock.addAndGet(10_000);
+        assertEquals(0, budget.tryAcquire(10));
+        clock.addAndGet(10_000);
+        assertEquals(0, budget.tryAcquire(10));
+        assertEquals(30, budget.getUsedWeight());
+
+        // 第一筆在 t0 + 60s 移出窗口，距離現在 (t0 + 20s) 還有 40 秒
+        assertEquals(40_000, budget.tryAcquire(10));
+        // 需要 20 權重時要等到第二筆也移出
+        assertEquals(50_000, budget.tryAcquire(20));
+        assertEquals(30, budget.getUsedWeight());
+
+        clock.addAndGet(40_000);
+        assertEquals(20, budget.getUsedWeight());
+        assertEquals(0, budget.tryAcquire(10));
+        assertEquals(30, budget.getUsedWeight());
+
+        // 整個窗口過後額度完全恢復
+        clock.addAndGet(60_000);
+        assertEquals(0, budget.getUsedWeight());
+    }
+
+    @Test
+    @DisplayName("超過上限的單次權重以上限計算，逾時返回 false")
+    public void testOversizedWeightAndTimeout() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(0L);
+        SlidingWindowWeightBudget budget = new SlidingWindowWeightBudget(20, 60_000L, clock::get);
+
+        assertEquals(0, budget.tryAcquire(50));
+        assertEquals(20, budget.getUsedWeight());
+        assertFalse(budget.acquire(1, 1_000));
+        clock.addAndGet(60_000);
+        assertTrue(budget.acquire(5, 0));
+    }
+}
@@ -0,0 +1,220 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.RollingHedgeSeries;
+import andy.crypto.pairstrading.bot.pairstrading.util.KalmanHedgeFilter;
+import andy.crypto.pairstrading.bot.pairstrading.util.StatisticalUtils;
+import andy.crypto.pairstrading.bot.pairstrading.util.StatisticalUtils.OrthogonalRegressionResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 統計工具類測試
+ */
+public class StatisticalUtilsTest {
+
+    /**
+     * 以固定種子產生價格水準接近幣安合約、帶雜訊的共整合價格對
+     */
+    private static double[][] noisyPair(int n, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double level = 600.0;
+        for (int i = 0; i < n; i++) {
+            level += random.nextGaussian() * 2.0;
+            x[i] = level + random.nextGaussian() * 0.5;
+            y[i] = 15.0 + 0.25 * level + random.nextGaussian() * 0.5;
+        }
+        return new double[][]{x, y};
+    }
+
+    /**
+     * 給定斜率時各點到通過平均點直線的垂直距離平方和
+     */
+    private static double orthogonalSumOfSquares(double[] x, double[] y, double beta) {
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < x.length; i++) {
+            meanX += x[i] / x.length;
+            meanY += y[i] / y.length;
+        }
+        double sum = 0;
+        for (int i = 0; i < x.length; i++) {
+            double r = (y[i] - meanY - beta * (x[i] - meanX));
+            sum += r * r;
+        }
+        return sum / (1 + beta * beta);
+    }
+
+    @Test
+    @DisplayName("正交迴歸在完全線性的數據上還原直線，殘差為零")
+    public void testOrthogonalRegressionExactLine() {
+        double[] x = {100.0, 101.5, 99.0, 104.0, 102.25};
+        double[] y = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            y[i] = 2.0 + 3.0 * x[i];
+        }
+
+        OrthogonalRegressionResult result = StatisticalUtils.computeOrthogonalRegression(x, y);
+        assertEquals(3.0, result.getBeta(), 1e-9);
+        assertEquals(2.0, result.getAlpha(), 1e-6);
+        assertEquals(0.0, result.getStd(), 1e-6);
+        for (double residual : result.getResiduals()) {
+            assertEquals(0.0, residual, 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("解析解的斜率使垂直距離平方和最小，且X、Y對調後斜率互為倒數")
+    public void testOrthogonalRegressionMinimizesOrthogonalDistance() {
+        double[][] pair = noisyPair(500, 42L);
+        double[] x = pair[0];
+        double[] y = pair[1];
+        double[] buffer = new double[x.length + 3];
+
+        OrthogonalRegressionResult result = StatisticalUtils.computeOrthogonalRegression(x, y, buffer);
+        assertSame(buffer, result.getResiduals());
+
+        double beta = result.getBeta();
+        double best = orthogonalSumOfSquares(x, y, beta);
+        assertTrue(best < orthogonalSumOfSquares(x, y, beta * 1.001));
+        assertTrue(best < orthogonalSumOfSquares(x, y, beta * 0.999));
+
+        // 標準差（由最小特徵值求得）與殘差緩衝區一致
+        double sumSq = 0;
+        for (int i = 0; i < x.length; i++) {
+            sumSq += buffer[i] * buffer[i];
+        }
+        assertEquals(Math.sqrt(sumSq / x.length), result.getStd(), 1e-9);
+        assertEquals(Math.sqrt(best / x.length), result.getStd(), 1e-9);
+
+        // 正交迴歸對兩個變數對稱
+        OrthogonalRegressionResult swapped = StatisticalUtils.computeOrthogonalRegression(y, x, null);
+        assertNull(swapped.getResiduals());
+        assertEquals(1.0 / beta, swapped.getBeta(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("X、Y不相關且X變化較大時斜率為零")
+    public void testOrthogonalRegressionUncorrelated() {
+        double[] x = {-2.0, -1.0, 1.0, 2.0};
+        double[] y = {1.0, -1.0, -1.0, 1.0};
+
+        OrthogonalRegressionResult result = StatisticalUtils.computeOrthogonalRegression(x, y);
+        assertEquals(0.0, result.getBeta(), 1e-12);
+        assertEquals(0.0, result.getAlpha(), 1e-12);
+        assertThrows(IllegalArgumentException.class,
+                () -> StatisticalUtils.computeOrthogonalRegression(x, y, new double[x.length - 1]));
+
+        // 交換後直線垂直，斜率以 NaN 表示而不拋出異常
+        OrthogonalRegressionResult vertical = StatisticalUtils.computeOrthogonalRegression(y, x);
+        assertTrue(Double.isNaN(vertical.getBeta()));
+        assertTrue(Double.isNaN(vertical.getAlpha()));
+        assertTrue(Double.isNaN(StatisticalUtils.orthogonalRegressionSlope(0.0, 10.0, 0.0)));
+    }
+
+    @Test
+    @DisplayName("滾動估計跳過直線垂直的窗口，該點Z分數為 NaN 且不影響其他點")
+    public void testRollingHedgeSeriesSkipsVerticalWindow() {
+        double[] x = {1.0, 2.0, 3.0, 5.0, 5.0, 5.0, 6.0, 7.0};
+        double[] y = {2.0, 4.1, 5.9, 9.0, 11.0, 8.5, 12.2, 13.9};
+        long[] closeTimes = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        RollingHedgeSeries series = StatisticalUtils.computeRollingHedgeSeries(y, x, closeTimes, 3);
+        assertEquals(6, series.size());
+        // 第 5 點的窗口 X 全為 5
+        assertTrue(Double.isNaN(series.getZScore(3)));
+        assertTrue(Double.isNaN(series.getBeta(3)));
+        assertEquals(6L, series.getCloseTime(3));
+        for (int k = 0; k < series.size(); k++) {
+            if (k != 3) {
+                assertTrue(Double.isFinite(series.getZScore(k)), "index " + k);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("滾動估計的每個點只使用該點之前的數據，最後一點與最新窗口的估計一致")
+    public void testRollingHedgeSeriesHasNoLookAhead() {
+        int window = 50;
+        double[][] pair = noisyPair(300, 11L);
+        double[] x = pair[0];
+        double[] y = pair[1];
+        long[] closeTimes = new long[x.length];
+        for (int i = 0; i < closeTimes.length; i++) {
+            closeTimes[i] = 3_600_000L * (i + 1) - 1;
+        }
+
+        RollingHedgeSeries series = StatisticalUtils.computeRollingHedgeSeries(y, x, closeTimes, window);
+        assertEquals(x.length - window + 1, series.size());
+        assertEquals(closeTimes[window - 1], series.getCloseTime(0));
+
+        // 最後一點等於以最新窗口做一次正交迴歸
+        int last = series.size() - 1;
+        OrthogonalRegressionResult latest = StatisticalUtils.computeOrthogonalRegression(
+                Arrays.copyOfRange(x, x.length - window, x.length), Arrays.copyOfRange(y, y.length - window, y.length));
+        assertEquals(latest.getBeta(), series.getBeta(last), 1e-9);
+        assertEquals(latest.getAlpha(), series.getAlpha(last), 1e-6);
+        assertEquals(latest.getStd(), series.getSpreadStd(last), 1e-9);
+        double[] residuals = latest.getResiduals();
+        assertEquals(residuals[window - 1], series.getSpread(last), 1e-9);
+        assertEquals(residuals[window - 1] / latest.getStd(), series.getZScore(last), 1e-6);
+
+        // 修改第 200 根之後的價格不影響之前的估計
+        double[] shocked = y.clone();
+        for (int i = 200; i < shocked.length; i++) {
+            shocked[i] *= 1.5;
+        }
+        RollingHedgeSeries shockedSeries = StatisticalUtils.computeRollingHedgeSeries(shocked, x, closeTimes, window);
+        for (int k = 0; k + window - 1 < 200; k++) {
+            assertEquals(series.getZScore(k), shockedSeries.getZScore(k));
+            assertEquals(series.getBeta(k), shockedSeries.getBeta(k));
+        }
+        assertNotEquals(series.getZScore(200 - window + 1), shockedSeries.getZScore(200 - window + 1));
+    }
+
+    @Test
+    @DisplayName("卡爾曼濾波序列以起點之前的窗口初始化，每點只使用該點之前的數據")
+    public void testKalmanHedgeSeriesIsCausal() {
+        int window = 50;
+        double[][] pair = noisyPair(300, 17L);
+        double[] x = pair[0];
+        double[] y = pair[1];
+        long[] closeTimes = new long[x.length];
+        for (int i = 0; i < closeTimes.length; i++) {
+            closeTimes[i] = 3_600_000L * (i + 1) - 1;
+        }
+
+        RollingHedgeSeries series = StatisticalUtils.computeKalmanHedgeSeries(y, x, closeTimes, window, 1e-4, 0);
+        assertEquals(x.length - window, series.size());
+        assertEquals(closeTimes[window], series.getCloseTime(0));
+
+        // 與以前 window 根K線初始化後逐根濾波的結果一致
+        KalmanHedgeFilter filter = new KalmanHedgeFilter(1e-4, 0);
+        filter.initialize(Arrays.copyOfRange(x, 0, window), Arrays.copyOfRange(y, 0, window));
+        for (int t = window; t < x.length; t++) {
+            double spread = filter.update(x[t], y[t]);
+            int k = t - window;
+            assertEquals(spread, series.getSpread(k), 1e-12);
+            assertEquals(filter.getZScore(), series.getZScore(k), 1e-9);
+            assertEquals(filter.getBeta(), series.getBeta(k), 1e-12);
+        }
+
+        // 修改第 200 根之後的價格不影響之前的估計
+        double[] shocked = y.clone();
+        for (int i = 200; i < shocked.length; i++) {
+            shocked[i] *= 1.5;
+        }
+        RollingHedgeSeries shockedSeries = StatisticalUtils.computeKalmanHedgeSeries(shocked, x, closeTimes, window, 1e-4, 0);
+        for (int k = 0; k + window < 200; k++) {
+            assertEquals(series.getZScore(k), shockedSeries.getZScore(k));
+        }
+        assertNotEquals(series.getZScore(200 - window), shockedSeries.getZScore(200 - window));
+        assertThrows(IllegalArgumentException.class,
+                () -> StatisticalUtils.computeKalmanHedgeSeries(y, x, closeTimes, x.length, 1e-4, 0));
+    }
+}
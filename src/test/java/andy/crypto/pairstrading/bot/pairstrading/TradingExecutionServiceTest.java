@@ -0,0 +1,159 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.bean.PairsTradingServiceValueBean;
+import andy.crypto.pairstrading.bot.bean.TradingConfigBean;
+import andy.crypto.pairstrading.bot.pairstrading.exception.BinanceApiException;
+import andy.crypto.pairstrading.bot.pairstrading.model.BatchOrderResult;
+import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
+import andy.crypto.pairstrading.bot.pairstrading.service.BinanceApiService;
+import andy.crypto.pairstrading.bot.pairstrading.service.MarketDataService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionCacheService;
+import andy.crypto.pairstrading.bot.pairstrading.service.PositionHistoryService;
+import andy.crypto.pairstrading.bot.pairstrading.service.SymbolMetadataService;
+import andy.crypto.pairstrading.bot.pairstrading.service.impl.TradingExecutionServiceImpl;
+import andy.crypto.pairstrading.bot.service.TradingConfigService;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 交易執行服務測試
+ * 以替身 BinanceApiService 模擬批量下單只有一腿成交的情況，驗證單腿的只減倉反向平倉與失敗記錄，
+ * 以及名義價值低於最小名義價值時不下單
+ */
+@ExtendWith(MockitoExtension.class)
+public class TradingExecutionServiceTest {
+
+    @Mock
+    private BinanceApiService binanceApiService;
+
+    @Mock
+    private PositionCacheService positionCacheService;
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @Mock
+    private PositionHistoryService positionHistoryService;
+
+    @Mock
+    private SymbolMetadataService symbolMetadataService;
+
+    @Mock
+    private TradingConfigService tradingConfigService;
+
+    @InjectMocks
+    private TradingExecutionServiceImpl tradingExecutionService;
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(TradingExecutionServiceImpl.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    public void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+
+        TradingConfigBean config = new TradingConfigBean();
+        config.setEntryThreshold(2.0);
+        config.setPositionSize(new BigDecimal("1"));
+        when(tradingConfigService.getTradingConfigBean()).thenReturn(config);
+        when(marketDataService.fetchMarketData("BTCUSDT", "ETHUSDT")).thenReturn(new PairsTradingServiceValueBean());
+        when(binanceApiService.adjustQuantityToPrecision(anyString(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    private static BatchOrderResult filled(String symbol, String executedQty, String origQty) {
+        return BatchOrderResult.builder()
+                .order(OrderResponse.builder().symbol(symbol).orderId(1L)
+                        .executedQty(new BigDecimal(executedQty)).origQty(new BigDecimal(origQty)).build())
+                .build();
+    }
+
+    private static BatchOrderResult rejected() {
+        return BatchOrderResult.builder().errorCode(-2019).errorMessage("Margin is insufficient.").build();
+    }
+
+    private String summary() {
+        return appender.list.stream()
+                .filter(event -> event.getLevel() == Level.ERROR && event.getFormattedMessage().startsWith("配對交易下單失敗"))
+                .map(ILoggingEvent::getFormattedMessage)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @Test
+    @DisplayName("另一腿失敗時以只減倉市價單反向平掉已成交的單腿")
+    public void testUnwindFilledLeg() {
+        when(binanceApiService.placeBatchOrders(anyList())).thenReturn(List.of(filled("BTCUSDT", "0.4", "0.5"), rejected()));
+        when(binanceApiService.placeOrder(anyString(), anyString(), anyString(), anyString(), any(), isNull(), anyBoolean()))
+                .thenReturn(OrderResponse.builder().orderId(2L).build());
+
+        tradingExecutionService.executePairedPositions("BTCUSDT", "ETHUSDT", true, false, "test");
+
+        // 以實際成交數量平倉
+        verify(binanceApiService).placeOrder(eq("BTCUSDT"), eq("SELL"), eq("BOTH"), eq("MARKET"),
+                eq(new BigDecimal("0.4")), isNull(), eq(true));
+        verify(positionHistoryService, never()).recordOpenPosition(any(), any(), any());
+        String summary = summary();
+        assertTrue(summary.contains("BTCUSDT 成功（已反向平倉）"), summary);
+        assertTrue(summary.contains("ETHUSDT 失敗: Margin is insufficient."), summary);
+    }
+
+    @Test
+    @DisplayName("反向平倉失敗時記錄為失敗，不誤報已平倉")
+    public void testUnwindFailureIsReported() {
+        when(binanceApiService.placeBatchOrders(anyList())).thenReturn(List.of(rejected(), filled("ETHUSDT", "0", "3")));
+        when(binanceApiService.placeOrder(anyString(), anyString(), anyString(), anyString(), any(), isNull(), anyBoolean()))
+                .thenThrow(new BinanceApiException("下單失敗: timeout"));
+
+        assertDoesNotThrow(() -> tradingExecutionService.executePairedPositions("BTCUSDT", "ETHUSDT", true, false, "test"));
+
+        // 未回報成交數量時以原始數量平倉，做空腿以買單平倉
+        verify(binanceApiService).placeOrder(eq("ETHUSDT"), eq("BUY"), eq("BOTH"), eq("MARKET"),
+                eq(new BigDecimal("3")), isNull(), eq(true));
+        String summary = summary();
+        assertTrue(summary.contains("ETHUSDT 成功（反向平倉失敗，請手動檢查倉位）"), summary);
+        assertFalse(summary.contains("已反向平倉"), summary);
+    }
+
+    @Test
+    @DisplayName("任一腿名義價值低於最小名義價值時不送出配對交易")
+    public void testBelowMinNotionalIsNotOrdered() {
+        when(symbolMetadataService.getMinNotional("BTCUSDT")).thenReturn(new BigDecimal("100"));
+        when(binanceApiService.getLatestPrice("BTCUSDT")).thenReturn(new BigDecimal("10"));
+
+        tradingExecutionService.executePairedPositions("BTCUSDT", "ETHUSDT", true, false, "test");
+
+        verify(binanceApiService, never()).placeBatchOrders(anyList());
+        assertTrue(appender.list.stream().anyMatch(event -> event.getLevel() == Level.ERROR
+                && event.getFormattedMessage().contains("低於最小名義價值")));
+    }
+}
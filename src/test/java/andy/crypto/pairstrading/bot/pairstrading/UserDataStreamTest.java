@@ -0,0 +1,138 @@
+package andy.crypto.pairstrading.bot.pairstrading;
+
+import andy.crypto.pairstrading.bot.pairstrading.model.OrderResponse;
+import andy.crypto.pairstrading.bot.pairstrading.model.PositionInfo;
+import andy.crypto.pairstrading.bot.pairstrading.util.BinanceStreamClient;
+import andy.crypto.pairstrading.bot.pairstrading.util.PositionOrderBook;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用戶數據流快取測試
+ * 以本機 WebSocket 替身送出幣安格式的事件，驗證持倉與掛單快照的更新
+ */
+public class UserDataStreamTest {
+
+    private static final String ACCOUNT_UPDATE = "{\"e\":\"ACCOUNT_UPDATE\",\"E\":1700000001000,\"T\":1700000001000,"
+            + "\"a\":{\"m\":\"ORDER\",\"P\":[{\"s\":\"BTCUSDT\",\"pa\":\"0.5\",\"ep\":\"30000\",\"up\":\"100\",\"mt\":\"cross\",\"ps\":\"LONG\"}]}}";
+    private static final String ORDER_NEW = "{\"e\":\"ORDER_TRADE_UPDATE\",\"E\":1700000002000,\"T\":1700000002000,"
+            + "\"o\":{\"s\":\"ETHUSDT\",\"c\":\"test1\",\"S\":\"SELL\",\"o\":\"LIMIT\",\"q\":\"2\",\"p\":\"2000\",\"ap\":\"0\","
+            + "\"X\":\"NEW\",\"i\":42,\"z\":\"0\",\"T\":1700000002000,\"ps\":\"SHORT\"}}";
+    private static final String ORDER_FILLED = ORDER_NEW.replace("\"X\":\"NEW\"", "\"X\":\"FILLED\"")
+            .replace("\"z\":\"0\",\"T\":1700000002000", "\"z\":\"2\",\"T\":1700000003000");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static PositionInfo position(String symbol, String positionSide, String amount) {
+        return PositionInfo.builder()
+                .symbol(symbol)
+                .positionSide(positionSide)
+                .positionAmt(new BigDecimal(amount))
+                .entryPrice(new BigDecimal("100"))
+                .markPrice(new BigDecimal("100"))
+                .liquidationPrice(BigDecimal.ZERO)
+                .unrealizedProfit(BigDecimal.ZERO)
+                .leverage(new BigDecimal("10"))
+                .updateTime(1_700_000_000_000L)
+                .build();
+    }
+
+    @Test
+    @DisplayName("WebSocket 事件（含分段訊息）更新持倉與掛單")
+    public void testStreamUpdatesBook() throws Exception {
+        PositionOrderBook book = new PositionOrderBook();
+        book.seed(List.of(position("BTCUSDT", "LONG", "0.1")), List.of());
+        CountDownLatch received = new CountDownLatch(3);
+
+        try (LocalWebSocketServer server = new LocalWebSocketServer(List.of(ACCOUNT_UPDATE, ORDER_NEW, ORDER_FILLED), false)) {
+            BinanceStreamClient client = new BinanceStreamClient("test",
+                    () -> server.getUri("/ws/listenKey"),
+                    message -> {
+                        try {
+                            book.apply(objectMapper.readTree(message));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        received.countDown();
+                    }, null, 1000);
+            client.start();
+            try {
+                assertTrue(received.await(10, TimeUnit.SECONDS), "未收到全部事件");
+            } finally {
+                client.stop();
+            }
+        }
+
+        List<PositionInfo> positions = book.getPositions("BTCUSDT");
+        assertEquals(1, positions.size());
+        assertEquals(0, new BigDecimal("0.5").compareTo(positions.get(0).getPositionAmt()));
+        // 標記價格由未實現盈虧反推：30000 + 100 / 0.5
+        assertEquals(0, new BigDecimal("30200").compareTo(positions.get(0).getMarkPrice()));
+        // 槓桿沿用 REST 快照
+        assertEquals(0, new BigDecimal("10").compareTo(positions.get(0).getLeverage()));
+        assertFalse(book.isIncomplete());
+        // 訂單先 NEW 後 FILLED，不應留在未完成訂單中
+        assertTrue(book.getOpenOrders(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("建立快照期間收到的事件在快照後重新套用")
+    public void testEventsDuringSeedAreReplayed() throws Exception {
+        PositionOrderBook book = new PositionOrderBook();
+        book.beginSeed();
+        book.apply(objectMapper.readTree(ORDER_NEW));
+        book.apply(objectMapper.readTree(ACCOUNT_UPDATE));
+        // REST 快照在事件之前產生，尚不包含新訂單與新持倉數量
+        book.seed(List.of(position("BTCUSDT", "LONG", "0.1")), List.of());
+
+        List<OrderResponse> orders = book.getOpenOrders("ETHUSDT");
+        assertEquals(1, orders.size());
+        assertEquals(42L, orders.get(0).getOrderId().longValue());
+        assertEquals("NEW", orders.get(0).getStatus());
+        assertEquals(0, new BigDecimal("0.5").compareTo(book.getPositions(null).get(0).getPositionAmt()));
+
+        // 較舊的 NEW 事件不應把已成交的訂單加回來
+        book.apply(objectMapper.readTree(ORDER_FILLED));
+        book.apply(objectMapper.readTree(ORDER_NEW));
+        assertTrue(book.getOpenOrders(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("價格快照更新標記價格與未實現盈虧，新持倉以單一交易對查詢補齊槓桿")
+    public void testMarkPriceRefreshAndCompletion() throws Exception {
+        PositionOrderBook book = new PositionOrderBook();
+        book.seed(List.of(position("BTCUSDT", "LONG", "0.5")), List.of());
+
+        book.updateMarkPrices(Map.of("BTCUSDT", new BigDecimal("110"), "ETHUSDT", new BigDecimal("2000")));
+        PositionInfo btc = book.getPositions("BTCUSDT").get(0);
+        assertEquals(0, new BigDecimal("110").compareTo(btc.getMarkPrice()));
+        // (110 - 100) * 0.5
+        assertEquals(0, new BigDecimal("5").compareTo(btc.getUnrealizedProfit()));
+        assertEquals(0, new BigDecimal("0.5").compareTo(btc.getPositionAmt()));
+
+        // 數據流出現快照中沒有的持倉
+        book.apply(objectMapper.readTree(ACCOUNT_UPDATE.replace("BTCUSDT", "ETHUSDT").replace("\"LONG\"", "\"SHORT\"")));
+        assertTrue(book.isIncomplete());
+        assertEquals(Set.of("ETHUSDT"), book.getIncompleteSymbols());
+
+        PositionInfo details = position("ETHUSDT", "SHORT", "0.5");
+        details.setLiquidationPrice(new BigDecimal("45000"));
+        book.completePositions("ETHUSDT", List.of(details));
+        assertFalse(book.isIncomplete());
+        PositionInfo eth = book.getPositions("ETHUSDT").get(0);
+        assertEquals(0, new BigDecimal("10").compareTo(eth.getLeverage()));
+        assertEquals(0, new BigDecimal("45000").compareTo(eth.getLiquidationPrice()));
+        // 倉位數量與開倉價格仍以數據流為準
+        assertEquals(0, new BigDecimal("30000").compareTo(eth.getEntryPrice()));
+    }
+}